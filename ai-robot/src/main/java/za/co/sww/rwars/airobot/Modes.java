@@ -168,11 +168,10 @@ public class Modes {
     
 
     private static void waitUntilIdle(RwApiClient api, String battleId, String robotId) throws Exception {
-        // Poll robot status until not MOVING, with small sleeps using virtual threads
-        for (;;) {
-            var rs = api.getRobotStatus(battleId, robotId);
-            if (!"MOVING".equals(rs.status())) return;
-            Thread.sleep(150);
+        // Long-poll the server until the robot is no longer MOVING; each call returns on the next change
+        var rs = api.getRobotStatus(battleId, robotId);
+        while ("MOVING".equals(rs.status())) {
+            rs = api.waitForRobotStatusChange(battleId, robotId, "MOVING", 20);
         }
     }
 }
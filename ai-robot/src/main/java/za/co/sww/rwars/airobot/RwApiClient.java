@@ -61,6 +61,12 @@ final class RwApiClient {
         return get("/api/robots/battle/" + battleId + "/robot/" + robotId + "/status", RobotStatus.class);
     }
 
+    RobotStatus waitForRobotStatusChange(String battleId, String robotId, String knownStatus, int timeoutSeconds)
+            throws IOException, InterruptedException {
+        return get("/api/robots/battle/" + battleId + "/robot/" + robotId + "/status/wait?status=" + knownStatus
+                + "&timeoutSeconds=" + timeoutSeconds, RobotStatus.class);
+    }
+
     Robot move(String battleId, String robotId, MoveRequest req) throws IOException, InterruptedException {
         return postJson("/api/robots/battle/" + battleId + "/robot/" + robotId + "/move", req, Robot.class);
     }
@@ -0,0 +1,76 @@
+package za.co.sww.rwars.backend.journal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the write throughput of a battle journal for the most frequent event, a robot moving one block.
+ * Flushing every N events stands in for the flusher's group commit; without flushes the numbers show the cost
+ * of encoding and copying a record into the mapped segment alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JournalWriteBenchmark {
+
+    private static final int ROBOTS = 4;
+
+    @Param({"0", "1000", "100000"})
+    private int eventsPerFlush;
+
+    @Param({"1048576", "67108864"})
+    private int segmentBytes;
+
+    private Path directory;
+    private BattleJournal journal;
+    private String[] robotIds;
+    private long events;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = BattleJournal.open(directory, segmentBytes);
+        Battle battle = new Battle("Benchmark", 100, 100);
+        journal.append(System.currentTimeMillis(), JournalEvent.BattleCreated.of(battle));
+        journal.append(System.currentTimeMillis(), new JournalEvent.WallsPlaced(List.of()));
+        robotIds = new String[ROBOTS];
+        for (int r = 0; r < ROBOTS; r++) {
+            Robot robot = new Robot("Robot " + r, battle.getId());
+            journal.append(System.currentTimeMillis(), JournalEvent.RobotRegistered.of(robot));
+            robotIds[r] = robot.getId();
+        }
+        events = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.delete();
+    }
+
+    @Benchmark
+    public boolean appendBlockStep() throws IOException {
+        long event = events++;
+        boolean needsFlush = journal.append(System.currentTimeMillis(),
+                new JournalEvent.BlockStepped(robotIds[(int) (event % ROBOTS)], (int) (event % 100), 50, 10));
+        if (eventsPerFlush > 0 && event % eventsPerFlush == 0) {
+            journal.flush();
+        }
+        return needsFlush;
+    }
+}
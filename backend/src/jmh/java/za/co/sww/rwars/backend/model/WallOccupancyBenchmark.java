@@ -0,0 +1,95 @@
+package za.co.sww.rwars.backend.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares wall checks by scanning every wall against the bitset wall grid on large arenas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WallOccupancyBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"1000"})
+    private int arenaSize;
+
+    @Param({"2"})
+    private int coveragePercentage;
+
+    private Battle battle;
+    private List<Wall> walls;
+    private int[] probeX;
+    private int[] probeY;
+    private int probe;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        battle = new Battle("Benchmark Arena", arenaSize, arenaSize);
+        int targetCells = arenaSize * arenaSize * coveragePercentage / 100;
+        int cells = 0;
+        while (cells < targetCells) {
+            // Mix of 4x4 squares and 1x10 long walls, like the wall generator
+            boolean square = random.nextBoolean();
+            int width = square ? 4 : 1;
+            int height = square ? 4 : 10;
+            Wall wall = new Wall(square ? Wall.WallType.SQUARE : Wall.WallType.LONG);
+            int startX = random.nextInt(arenaSize - width);
+            int startY = random.nextInt(arenaSize - height);
+            for (int x = startX; x < startX + width; x++) {
+                for (int y = startY; y < startY + height; y++) {
+                    wall.addPosition(x, y);
+                }
+            }
+            battle.addWall(wall);
+            cells += width * height;
+        }
+        walls = battle.getWalls();
+
+        probeX = new int[PROBES];
+        probeY = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probeX[i] = random.nextInt(arenaSize);
+            probeY[i] = random.nextInt(arenaSize);
+        }
+        // Build the grid outside the measurement
+        battle.wallGrid();
+    }
+
+    @Benchmark
+    public boolean streamScan() {
+        int i = nextProbe();
+        int x = probeX[i];
+        int y = probeY[i];
+        return walls.stream().anyMatch(wall -> wall.containsPosition(x, y));
+    }
+
+    @Benchmark
+    public boolean gridLookup() {
+        int i = nextProbe();
+        return battle.isPositionOccupiedByWall(probeX[i], probeY[i]);
+    }
+
+    @Benchmark
+    public WallGrid gridRebuild() {
+        return WallGrid.build(arenaSize, arenaSize, walls, 0);
+    }
+
+    private int nextProbe() {
+        probe = (probe + 1) & (PROBES - 1);
+        return probe;
+    }
+}
@@ -0,0 +1,92 @@
+package za.co.sww.rwars.backend.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures registry operations against a growing number of battles.
+ * Every operation should show flat latency from 10 to 100k battles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BattleRegistryBenchmark {
+
+    private static final int ROBOTS_PER_BATTLE = 4;
+
+    @Param({"10", "1000", "100000"})
+    private int battleCount;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private BattleRegistry registry;
+    private String[] battleIds;
+    private String[] battleNames;
+    private String[] robotIds;
+
+    @Setup
+    public void setUp() {
+        registry = new BattleRegistry();
+        battleIds = new String[battleCount];
+        battleNames = new String[battleCount];
+        robotIds = new String[battleCount * ROBOTS_PER_BATTLE];
+        for (int i = 0; i < battleCount; i++) {
+            Battle battle = new Battle("Battle " + i, 50, 50);
+            registry.addBattle(battle);
+            for (int r = 0; r < ROBOTS_PER_BATTLE; r++) {
+                Robot robot = new Robot("Robot " + r, battle.getId());
+                registry.addRobot(robot);
+                battle.addRobot(robot);
+                robotIds[i * ROBOTS_PER_BATTLE + r] = robot.getId();
+            }
+            // Keep a handful of battles joinable and the rest in progress, like a busy server
+            if (i >= 5) {
+                battle.startBattle();
+            }
+            battleIds[i] = battle.getId();
+            battleNames[i] = battle.getName();
+        }
+    }
+
+    @Benchmark
+    public Battle lookupBattle() {
+        return registry.getBattle(battleIds[ThreadLocalRandom.current().nextInt(battleCount)]);
+    }
+
+    @Benchmark
+    public Robot lookupRobot() {
+        return registry.getRobot(robotIds[ThreadLocalRandom.current().nextInt(robotIds.length)]);
+    }
+
+    @Benchmark
+    public Battle findBattleByName() {
+        return registry.findBattleByName(battleNames[ThreadLocalRandom.current().nextInt(battleCount)]);
+    }
+
+    @Benchmark
+    public Battle findJoinableBattle() {
+        return registry.findJoinableBattle();
+    }
+
+    @Benchmark
+    public Battle createJoinAndDeleteBattle() {
+        Battle battle = new Battle("Transient " + sequence.incrementAndGet(), 50, 50);
+        registry.addBattle(battle);
+        for (int r = 0; r < ROBOTS_PER_BATTLE; r++) {
+            registry.addRobot(new Robot("Robot " + r, battle.getId()));
+        }
+        return registry.removeBattle(battle.getId());
+    }
+}
@@ -0,0 +1,78 @@
+package za.co.sww.rwars.backend.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.RadarResponse;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.Wall;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures radar scan latency against wall density and scan range.
+ * Run with {@code -prof gc} to check the per-scan allocation; latency should stay flat as walls are added.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RadarServiceBenchmark {
+
+    private static final int ARENA_SIZE = 200;
+    private static final int ROBOT_COUNT = 50;
+
+    @Param({"0", "2", "10"})
+    private int wallCoveragePercentage;
+
+    @Param({"5", "20"})
+    private int range;
+
+    private RadarService radarService;
+    private Battle battle;
+    private Robot[] scanners;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        radarService = new RadarService(5, 20);
+        battle = new Battle("Radar Benchmark", ARENA_SIZE, ARENA_SIZE);
+        int targetCells = ARENA_SIZE * ARENA_SIZE * wallCoveragePercentage / 100;
+        int cells = 0;
+        while (cells < targetCells) {
+            Wall wall = new Wall(Wall.WallType.SQUARE);
+            int startX = random.nextInt(ARENA_SIZE - 4);
+            int startY = random.nextInt(ARENA_SIZE - 4);
+            for (int x = startX; x < startX + 4; x++) {
+                for (int y = startY; y < startY + 4; y++) {
+                    wall.addPosition(x, y);
+                }
+            }
+            battle.addWall(wall);
+            cells += 16;
+        }
+        scanners = new Robot[ROBOT_COUNT];
+        for (int i = 0; i < ROBOT_COUNT; i++) {
+            Robot robot = new Robot("Robot " + i, battle.getId());
+            robot.setPositionX(random.nextInt(ARENA_SIZE));
+            robot.setPositionY(random.nextInt(ARENA_SIZE));
+            battle.addRobot(robot);
+            scanners[i] = robot;
+        }
+        // Warm both grids outside the measurement
+        radarService.scanArea(battle, scanners[0], range);
+    }
+
+    @Benchmark
+    public RadarResponse scanArea() {
+        next = (next + 1) % ROBOT_COUNT;
+        return radarService.scanArea(battle, scanners[next], range);
+    }
+}
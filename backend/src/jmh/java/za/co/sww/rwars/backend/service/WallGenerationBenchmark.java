@@ -0,0 +1,43 @@
+package za.co.sww.rwars.backend.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.WallGrid;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures battle creation latency, wall generation plus wall grid construction, across arena sizes.
+ * Uses the default wall configuration from application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WallGenerationBenchmark {
+
+    @Param({"50", "200", "500", "1000"})
+    private int arenaSize;
+
+    private WallService wallService;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        wallService = new WallService(2, 4, 1, 10, 4, 10);
+    }
+
+    @Benchmark
+    public WallGrid createBattleWalls() {
+        Battle battle = new Battle("Benchmark Battle", arenaSize, arenaSize);
+        battle.setSeed(seed++);
+        battle.setWalls(wallService.generateWalls(battle));
+        return battle.wallGrid();
+    }
+}
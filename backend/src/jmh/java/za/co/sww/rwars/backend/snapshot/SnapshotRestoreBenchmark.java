@@ -0,0 +1,87 @@
+package za.co.sww.rwars.backend.snapshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import za.co.sww.rwars.backend.journal.JournalPosition;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.BattleSnapshot;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.Wall;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures restoring a registry snapshot on startup: reading the file, decoding every battle in parallel and
+ * rebuilding its battle and robots. Journal tails and registering the battles are left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SnapshotRestoreBenchmark {
+
+    private static final int ROBOTS = 4;
+
+    @Param({"1000", "10000"})
+    private int battles;
+
+    private Path directory;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        file = directory.resolve(SnapshotService.SNAPSHOT_FILE);
+        List<SavedBattle> saved = new ArrayList<>(battles);
+        for (int b = 0; b < battles; b++) {
+            Battle battle = new Battle("Battle " + b, 50, 50);
+            Wall wall = new Wall(Wall.WallType.U_SHAPE);
+            wall.addRectangle(3, 4, 1, 10);
+            wall.addRectangle(4, 4, 3, 1);
+            wall.addRectangle(7, 4, 1, 10);
+            battle.setWalls(List.of(wall));
+            for (int r = 0; r < ROBOTS; r++) {
+                Robot robot = new Robot("Robot " + r, battle.getId());
+                robot.setPositionX(r * 10);
+                robot.setPositionY(r * 5);
+                battle.addRobot(robot);
+                battle.addRobotAction(robot.getId(), robot.getName(), "move");
+            }
+            saved.add(new SavedBattle(BattleSnapshot.of(battle), new JournalPosition(0, 8)));
+        }
+        SnapshotFile.write(file, System.currentTimeMillis(), saved);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public int restore() throws IOException {
+        AtomicInteger robots = new AtomicInteger();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ByteBuffer battle : SnapshotFile.read(file)) {
+                workers.execute(() -> robots.addAndGet(SnapshotCodec.decode(battle).battle().restore()
+                        .getRobotCount()));
+            }
+        }
+        return robots.get();
+    }
+}
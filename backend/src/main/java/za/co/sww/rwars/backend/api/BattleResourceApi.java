@@ -4,16 +4,21 @@ import jakarta.ws.rs.Consumes;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.RobotActionPage;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
@@ -63,7 +68,8 @@ public interface BattleResourceApi {
     @Operation(
         summary = "Create a new battle",
         description = "Creates a new battle arena with a given name and optional dimensions. If dimensions are not "
-                + "provided, default values from server configuration are used."
+                + "provided, default values from server configuration are used. Set accelerated to run the "
+                + "battle headless, with movement ticks as fast as the server allows."
     )
     @APIResponse(responseCode = "200", description = "Battle created successfully",
         content = @Content(mediaType = "application/json",
@@ -196,6 +202,37 @@ Response createTestBattle(
     Response startBattle(
             @Parameter(description = "ID of the battle to start") @PathParam("battleId") String battleId);
 
+    /**
+     * Pages through a battle's robot actions.
+     *
+     * @param battleId The battle ID
+     * @param after The sequence number of the last action the caller has
+     * @param limit The most actions to return
+     * @return The actions after the given sequence number
+     */
+    @GET
+    @Path("/{battleId}/actions")
+    @Operation(
+        summary = "Page through robot actions",
+        description = "Returns the battle's robot actions after the given sequence number, oldest first. Battle "
+                + "state only embeds the most recent actions; use this to read older ones or to catch up. The "
+                + "battle holds a bounded number of actions, so the oldest are overwritten in long battles; "
+                + "firstSeq reports the oldest one still held."
+    )
+    @APIResponse(responseCode = "200", description = "Page of robot actions",
+        content = @Content(mediaType = "application/json",
+        schema = @Schema(implementation = RobotActionPage.class)))
+@APIResponse(responseCode = "400", description = "Invalid battle ID, after or limit",
+        content = @Content(mediaType = "application/json",
+        schema = @Schema(implementation = HttpError.class)))
+    Response getRobotActions(
+            @Parameter(description = "ID of the battle") @PathParam("battleId") String battleId,
+            @Parameter(description = "Sequence number of the last action the caller has; 0 to start at the "
+                    + "oldest action held", example = "0")
+            @QueryParam("after") @DefaultValue("0") @Min(0) long after,
+            @Parameter(description = "Most actions to return, between 1 and 500", example = "100")
+            @QueryParam("limit") @DefaultValue("100") @Min(1) @Max(500) int limit);
+
     /**
      * Deletes a completed battle and all associated data.
      *
@@ -234,10 +271,18 @@ record CreateBattleRequest(
 
         @Schema(description = "Time allowed for robot movement in seconds", example = "1.0", minimum = "0.1",
                 maximum = "10.0")
-        @DecimalMin("0.1") @DecimalMax("10.0") Double robotMovementTimeSeconds
+        @DecimalMin("0.1") @DecimalMax("10.0") Double robotMovementTimeSeconds,
+
+        @Schema(description = "Run the battle headless on a virtual clock, so that each movement tick follows the "
+                + "previous one as fast as possible instead of after the robot movement time", example = "false")
+        Boolean accelerated,
+
+        @Schema(description = "Seed for the walls and spawn positions; generated and returned in the battle when "
+                + "omitted", example = "4242")
+        Long seed
     ) {
         public CreateBattleRequest() {
-            this(null, null, null, null);
+            this(null, null, null, null, null, null);
         }
     }
 }
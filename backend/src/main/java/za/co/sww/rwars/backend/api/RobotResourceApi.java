@@ -1,15 +1,18 @@
 package za.co.sww.rwars.backend.api;
 
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import za.co.sww.rwars.backend.model.Battle;
@@ -17,8 +20,14 @@ import za.co.sww.rwars.backend.model.Robot;
 import za.co.sww.rwars.backend.model.RobotStatus;
 import za.co.sww.rwars.backend.model.RadarResponse;
 import za.co.sww.rwars.backend.model.LaserResponse;
+import za.co.sww.rwars.backend.model.RobotCommand;
+import za.co.sww.rwars.backend.model.RobotCommandResult;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.ExampleObject;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
@@ -186,6 +195,41 @@ public interface RobotResourceApi {
         @Parameter(description = "ID of the battle the robot is in") @PathParam("battleId") String battleId,
         @Parameter(description = "ID of the robot") @PathParam("robotId") String robotId);
 
+    /**
+     * Waits for a robot's status or hit points to change (long poll).
+     *
+     * @param battleId The battle ID
+     * @param robotId The robot ID
+     * @param knownStatus The status the caller last saw
+     * @param knownHitPoints The hit points the caller last saw
+     * @param timeoutSeconds How long to wait for a change
+     * @return The robot status once it changed, or the unchanged status at the timeout
+     */
+    @GET
+    @Path("/battle/{battleId}/robot/{robotId}/status/wait")
+    @Operation(
+        summary = "Wait for a robot status change",
+        description = "Long poll that holds the request until the robot's status or hit points differ from the "
+                + "given values, or the timeout expires, and then returns the robot status. Without known values "
+                + "it waits for the next change. Use it instead of polling the status endpoint, for example to "
+                + "wait until a moving robot is IDLE again."
+    )
+    @APIResponse(responseCode = "200", description = "Robot status after a change or at the timeout",
+        content = @Content(mediaType = "application/json",
+        schema = @Schema(implementation = RobotStatus.class)))
+@APIResponse(responseCode = "400", description = "Invalid robot or battle ID, status or timeout",
+        content = @Content(mediaType = "application/json",
+        schema = @Schema(implementation = HttpError.class)))
+    CompletionStage<Response> waitForRobotStatusChange(
+        @Parameter(description = "ID of the battle the robot is in") @PathParam("battleId") String battleId,
+        @Parameter(description = "ID of the robot") @PathParam("robotId") String robotId,
+        @Parameter(description = "Status the caller last saw", example = "MOVING")
+        @QueryParam("status") String knownStatus,
+        @Parameter(description = "Hit points the caller last saw", example = "100")
+        @QueryParam("hitPoints") Integer knownHitPoints,
+        @Parameter(description = "Seconds to wait for a change, between 1 and 60", example = "30")
+        @QueryParam("timeoutSeconds") @DefaultValue("30") @Min(1) @Max(60) int timeoutSeconds);
+
     /**
      * Moves a robot in the specified direction for the specified number of blocks.
      *
@@ -435,6 +479,82 @@ Response fireLaser(
                     }
                     """))) LaserRequest laserRequest);
 
+    /**
+     * Executes an ordered batch of commands for a robot in one request.
+     *
+     * @param battleId The battle ID
+     * @param robotId The robot ID
+     * @param commandBatchRequest The commands to execute, in order
+     * @return The results, one per command in the same order
+     */
+    @POST
+    @Path("/battle/{battleId}/robot/{robotId}/commands")
+    @Operation(
+        summary = "Execute a batch of robot commands",
+        description = "Executes an ordered list of MOVE, RADAR, LASER and STATUS commands in one request. The "
+                + "batch is applied atomically: no other command or movement tick runs in between, every command "
+                + "sees the result of the one before, and the whole batch is rejected before anything is applied "
+                + "if any command is invalid. Spectators receive one battle state update for the whole batch."
+    )
+    @APIResponse(responseCode = "200", description = "Commands executed successfully",
+        content = @Content(mediaType = "application/json",
+        schema = @Schema(implementation = RobotCommandResult.class, type = SchemaType.ARRAY),
+        examples = @ExampleObject(name = "CommandResults",
+            summary = "Command batch results",
+            description = "Example results of a radar scan followed by a status check",
+            value = """
+                [
+                  {
+                    "type": "RADAR",
+                    "robot": null,
+                    "status": null,
+                    "radar": {"range": 5, "detections": []},
+                    "laser": null
+                  },
+                  {
+                    "type": "STATUS",
+                    "robot": null,
+                    "status": {
+                      "id": "robot-456def78-9abc-123d-e456-789012345678",
+                      "name": "DestroyerBot",
+                      "battleId": "battle-123e4567-e89b-12d3-a456-556642440000",
+                      "direction": "NORTH",
+                      "status": "IDLE",
+                      "targetBlocks": 0,
+                      "blocksRemaining": 0,
+                      "hitPoints": 100,
+                      "maxHitPoints": 100
+                    },
+                    "radar": null,
+                    "laser": null
+                  }
+                ]
+                """)))
+@APIResponse(responseCode = "400", description = "Invalid IDs or an invalid command in the batch",
+        content = @Content(mediaType = "application/json",
+        schema = @Schema(implementation = HttpError.class)))
+@APIResponse(responseCode = "409", description = "Battle not in progress or robot cannot act",
+        content = @Content(mediaType = "application/json",
+        schema = @Schema(implementation = HttpError.class)))
+Response executeCommands(
+        @Parameter(description = "ID of the battle the robot is in") @PathParam("battleId") String battleId,
+        @Parameter(description = "ID of the robot") @PathParam("robotId") String robotId,
+        @Valid
+        @Parameter(description = "Commands to execute, in order",
+        content = @Content(examples = @ExampleObject(name = "CommandBatchRequest",
+                summary = "Command batch request",
+                description = "Example request to scan, turn and fire, then read the robot status",
+                value = """
+                    {
+                      "commands": [
+                        {"type": "RADAR", "range": 5},
+                        {"type": "LASER", "direction": "EAST"},
+                        {"type": "MOVE", "direction": "NORTH", "blocks": 2},
+                        {"type": "STATUS"}
+                      ]
+                    }
+                    """))) CommandBatchRequest commandBatchRequest);
+
     /**
      * Move request record.
      */
@@ -489,4 +609,18 @@ record LaserRequest(
             this(null);
         }
     }
+
+    /**
+     * Command batch request record.
+     */
+    @Schema(description = "Request for executing a batch of robot commands")
+    @RegisterForReflection
+record CommandBatchRequest(
+        @Schema(description = "Commands to execute, in order", required = true)
+        @NotEmpty List<RobotCommand> commands
+    ) {
+        public CommandBatchRequest() {
+            this(null);
+        }
+    }
 }
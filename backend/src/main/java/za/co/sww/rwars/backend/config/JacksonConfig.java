@@ -1,13 +1,22 @@
 package za.co.sww.rwars.backend.config;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.quarkus.jackson.ObjectMapperCustomizer;
 import jakarta.inject.Singleton;
+import za.co.sww.rwars.backend.model.Wall;
+
+import java.util.List;
 
 /**
- * Jackson configuration to handle Java 8 time types like LocalDateTime.
+ * Jackson configuration to handle Java 8 time types like LocalDateTime, and the wire form of walls.
+ *
+ * Walls are written with their positions only, as they always were, and read back from either their positions or
+ * their rectangles. Clients that ask for compact walls are written with {@link #withCompactWalls(ObjectMapper)}.
  */
 @Singleton
 public class JacksonConfig implements ObjectMapperCustomizer {
@@ -18,5 +27,54 @@ public class JacksonConfig implements ObjectMapperCustomizer {
         objectMapper.registerModule(new JavaTimeModule());
         // Configure to write dates as timestamps (strings) instead of arrays
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // Keep the wall payload unchanged; rectangles are only read
+        objectMapper.addMixIn(Wall.class, WallMixIn.class);
+        objectMapper.addMixIn(Wall.Position.class, PositionMixIn.class);
+        objectMapper.addMixIn(Wall.Rectangle.class, RectangleMixIn.class);
+    }
+
+    /**
+     * Creates a copy of a mapper that writes walls as their type and rectangles, without the per-cell positions.
+     *
+     * @param objectMapper The mapper to copy
+     * @return The compact wall mapper
+     */
+    public static ObjectMapper withCompactWalls(ObjectMapper objectMapper) {
+        return objectMapper.copy().addMixIn(Wall.class, CompactWallMixIn.class);
+    }
+
+    /**
+     * Mix-in that reads the rectangles list of walls but does not write it.
+     */
+    abstract static class WallMixIn {
+        @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+        abstract List<Wall.Rectangle> getRectangles();
+    }
+
+    /**
+     * Mix-in that leaves the positions list out of serialized walls.
+     */
+    abstract static class CompactWallMixIn {
+        @JsonIgnore
+        abstract List<Wall.Position> getPositions();
+    }
+
+    /**
+     * Mix-in that reads positions through their constructor.
+     */
+    abstract static class PositionMixIn {
+        @JsonCreator
+        PositionMixIn(@JsonProperty("x") int x, @JsonProperty("y") int y) {
+        }
+    }
+
+    /**
+     * Mix-in that reads rectangles through their constructor.
+     */
+    abstract static class RectangleMixIn {
+        @JsonCreator
+        RectangleMixIn(@JsonProperty("x") int x, @JsonProperty("y") int y, @JsonProperty("width") int width,
+                       @JsonProperty("height") int height) {
+        }
     }
 }
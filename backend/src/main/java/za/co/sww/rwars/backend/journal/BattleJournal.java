@@ -0,0 +1,288 @@
+package za.co.sww.rwars.backend.journal;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * The append-only journal of one battle, a directory of numbered {@link JournalSegment} files.
+ *
+ * Each record is framed as a four byte length, the eight byte event time in epoch milliseconds, the encoded event
+ * and a CRC32C over time and event; the length counts the time and event. Appending encodes the record into a
+ * reusable staging buffer and copies it into the current segment's mapping, so the writer never waits for the
+ * disk. Records reach the disk when {@link #flush()} forces the segments, which the journal service does for every
+ * journal written to since its last flush, in one pass per flush interval. A segment that is full is retired and
+ * closed by the next flush, and the record goes to a new segment; so is the segment of a journal that is sealed,
+ * because its battle is over or it has been idle, and an event after that starts a new segment.
+ *
+ * A closed journal is closed for good: it refuses further events, so nothing can be written after the records
+ * it flushed last. A journal that could not be written is marked failed on disk, so that it is not carried on
+ * after a restart either, as events after the gap could not be applied.
+ */
+final class BattleJournal {
+
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    /**
+     * File whose presence marks a journal that stopped at a write error.
+     */
+    static final String FAILED_MARKER = "failed";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final JournalCodec codec = new JournalCodec();
+    private final CRC32C checksum = new CRC32C();
+    private final List<JournalSegment> retired = new ArrayList<>();
+    private final Object flushLock = new Object();
+    private ByteBuffer staging = ByteBuffer.allocate(256);
+    private JournalSegment segment;
+    private int nextSegment;
+    private boolean dirty;
+    private boolean closed;
+    private long lastAppendMillis;
+
+    private BattleJournal(Path directory, int segmentBytes, int nextSegment) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.nextSegment = nextSegment;
+    }
+
+    /**
+     * Opens the journal in a directory, creating the directory if needed. Segments already in the directory are
+     * kept and read to learn the battle's robots; new records go to a new segment numbered after them.
+     *
+     * @param directory The battle's journal directory
+     * @param segmentBytes The size of new segment files
+     * @return The journal
+     * @throws IOException if the directory cannot be created or the segments in it cannot be read
+     * @throws IllegalArgumentException if the segment size leaves no room for records
+     */
+    static BattleJournal open(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes <= JournalSegment.HEADER_BYTES) {
+            throw new IllegalArgumentException("Journal segments must be larger than their header");
+        }
+        Files.createDirectories(directory);
+        int nextSegment = nextSegment(segmentFiles(directory));
+        BattleJournal journal = new BattleJournal(directory, segmentBytes, nextSegment);
+        if (nextSegment > 0) {
+            JournalReader.read(directory, journal.codec, record -> { });
+        }
+        return journal;
+    }
+
+    /**
+     * Appends an event.
+     *
+     * @param timeMillis The event time in epoch milliseconds
+     * @param event The event
+     * @return true if the journal had nothing left to flush before this event, so it now needs a flush
+     * @throws IOException if a new segment is needed and cannot be created
+     * @throws IllegalArgumentException if the event cannot be encoded
+     * @throws IllegalStateException if the journal is closed
+     */
+    synchronized boolean append(long timeMillis, JournalEvent event) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Journal " + directory + " is closed");
+        }
+        lastAppendMillis = timeMillis;
+        ByteBuffer record = encode(timeMillis, event);
+        if (segment == null || !segment.write(record)) {
+            if (segment != null) {
+                retired.add(segment);
+            }
+            Path file = directory.resolve(String.format("%08d%s", nextSegment++, SEGMENT_SUFFIX));
+            int capacity = Math.max(segmentBytes, JournalSegment.capacityFor(record.remaining()));
+            segment = JournalSegment.create(file, capacity);
+            segment.write(record);
+        }
+        boolean needsFlush = !dirty;
+        dirty = true;
+        return needsFlush;
+    }
+
+    /**
+     * Gets the position the next record is appended at.
+     *
+     * @return The position
+     */
+    synchronized JournalPosition position() {
+        if (segment == null) {
+            return new JournalPosition(nextSegment, JournalSegment.HEADER_BYTES);
+        }
+        return new JournalPosition(nextSegment - 1, segment.position());
+    }
+
+    /**
+     * Retires the current segment, so that the next flush closes it. Call once the battle is over; should another
+     * event follow, it starts a new segment.
+     *
+     * @return true if the journal now needs a flush
+     */
+    synchronized boolean seal() {
+        if (segment == null) {
+            return false;
+        }
+        retired.add(segment);
+        segment = null;
+        boolean needsFlush = !dirty;
+        dirty = true;
+        return needsFlush;
+    }
+
+    /**
+     * Seals the journal if no event was appended to it for a while, so that the next flush closes its segment and
+     * releases the file until another event comes.
+     *
+     * @param nowMillis The current time in epoch milliseconds
+     * @param idleMillis How long the journal must have been idle
+     * @return true if the journal now needs a flush
+     */
+    synchronized boolean sealIfIdle(long nowMillis, long idleMillis) {
+        return nowMillis - lastAppendMillis >= idleMillis && seal();
+    }
+
+    /**
+     * Writes every record appended so far to disk and closes retired segments. Appends carry on meanwhile; the
+     * records they add are written by the next flush.
+     *
+     * @throws IOException if a retired segment cannot be closed
+     */
+    void flush() throws IOException {
+        synchronized (flushLock) {
+            List<JournalSegment> closing;
+            JournalSegment current;
+            synchronized (this) {
+                dirty = false;
+                closing = retired.isEmpty() ? List.of() : new ArrayList<>(retired);
+                retired.clear();
+                current = segment;
+            }
+            for (JournalSegment closed : closing) {
+                closed.close();
+            }
+            if (current != null) {
+                current.force();
+            }
+        }
+    }
+
+    /**
+     * Flushes the journal and closes its segments for good; events appended afterwards are refused.
+     *
+     * @throws IOException if a segment cannot be closed
+     */
+    void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            seal();
+        }
+        flush();
+    }
+
+    /**
+     * Marks the journal in a directory as failed.
+     *
+     * @param directory The battle's journal directory
+     * @throws IOException if the marker cannot be written
+     */
+    static void markFailed(Path directory) throws IOException {
+        Path marker = directory.resolve(FAILED_MARKER);
+        if (Files.isDirectory(directory) && !Files.exists(marker)) {
+            Files.createFile(marker);
+        }
+    }
+
+    /**
+     * Tells whether the journal in a directory stopped at a write error.
+     *
+     * @param directory The battle's journal directory
+     * @return true if the journal is marked failed
+     */
+    static boolean isFailed(Path directory) {
+        return Files.exists(directory.resolve(FAILED_MARKER));
+    }
+
+    /**
+     * Closes the journal and deletes its files.
+     *
+     * @throws IOException if the files cannot be deleted
+     */
+    void delete() throws IOException {
+        close();
+        delete(directory);
+    }
+
+    /**
+     * Deletes the files of a journal that is not open.
+     *
+     * @param directory The battle's journal directory
+     * @throws IOException if the files cannot be deleted
+     */
+    static void delete(Path directory) throws IOException {
+        for (Path file : segmentFiles(directory)) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory.resolve(FAILED_MARKER));
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Lists the segment files in a journal directory, in the order they were written.
+     *
+     * @param directory The battle's journal directory
+     * @return The segment files, empty if the directory does not exist
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Path> segmentFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Gets the number of a segment file.
+     *
+     * @param file The segment file
+     * @return The segment number
+     */
+    static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int nextSegment(List<Path> files) {
+        return files.isEmpty() ? 0 : segmentNumber(files.get(files.size() - 1)) + 1;
+    }
+
+    private ByteBuffer encode(long timeMillis, JournalEvent event) {
+        while (true) {
+            ByteBuffer buffer = staging;
+            buffer.clear();
+            try {
+                buffer.position(4);
+                buffer.putLong(timeMillis);
+                codec.encode(event, buffer);
+                int end = buffer.position();
+                checksum.reset();
+                checksum.update(buffer.array(), 4, end - 4);
+                buffer.putInt(0, end - 4);
+                buffer.putInt((int) checksum.getValue());
+                return buffer.flip();
+            } catch (BufferOverflowException e) {
+                // Walls of a large arena; grow the staging buffer once and keep it for the next such record
+                staging = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+}
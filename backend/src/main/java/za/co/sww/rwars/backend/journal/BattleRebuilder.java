@@ -0,0 +1,129 @@
+package za.co.sww.rwars.backend.journal;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.BattleSnapshot;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.RobotAction;
+
+/**
+ * Rebuilds a battle from its journal, one event at a time.
+ *
+ * The battle and robots built are new objects, never the live ones, so a rebuilt battle can be read and changed
+ * without affecting the battle that is running. Robot actions are recreated from the moves, scans and shots
+ * journaled, with the time each was journaled.
+ */
+public final class BattleRebuilder {
+
+    private Battle battle;
+    private final Map<String, Robot> robotsById = new HashMap<>();
+
+    /**
+     * Creates a rebuilder for a journal read from its start.
+     */
+    public BattleRebuilder() {
+    }
+
+    /**
+     * Creates a rebuilder for the rest of a journal, starting from a snapshot of the battle.
+     *
+     * @param snapshot The battle as it was after the events already applied
+     */
+    public BattleRebuilder(BattleSnapshot snapshot) {
+        this.battle = snapshot.restore();
+        for (Robot robot : battle.getRobots()) {
+            robotsById.put(robot.getId(), robot);
+        }
+    }
+
+    /**
+     * Applies the next event of the journal.
+     *
+     * @param record The journaled event
+     * @throws IllegalArgumentException if the event does not fit the battle, such as any event before the battle
+     *     was created or one for an unknown robot
+     */
+    public void apply(JournalRecord record) {
+        JournalEvent event = record.event();
+        if (battle == null && !(event instanceof JournalEvent.BattleCreated)) {
+            throw new IllegalArgumentException("Journal does not start with the creation of the battle");
+        }
+        switch (event) {
+            case JournalEvent.BattleCreated created -> {
+                battle = new Battle(created.name(), created.arenaWidth(), created.arenaHeight(),
+                        created.robotMovementTimeSeconds());
+                battle.setId(created.battleId());
+                battle.setSeed(created.seed());
+                robotsById.clear();
+            }
+            case JournalEvent.WallsPlaced placed -> battle.setWalls(placed.walls());
+            case JournalEvent.RobotRegistered registered -> {
+                Robot robot = new Robot(registered.name(), battle.getId());
+                robot.setId(registered.robotId());
+                robot.setPositionX(registered.positionX());
+                robot.setPositionY(registered.positionY());
+                robot.setHitPoints(registered.hitPoints());
+                robot.setMaxHitPoints(registered.hitPoints());
+                robotsById.put(robot.getId(), robot);
+                battle.addRobot(robot);
+            }
+            case JournalEvent.StateChanged changed -> {
+                battle.setTestMode(changed.testMode());
+                battle.setAccelerated(changed.accelerated());
+                if (changed.winnerId() != null) {
+                    battle.setWinnerId(changed.winnerId());
+                    battle.setWinnerName(robot(changed.winnerId()).getName());
+                }
+                battle.setState(changed.state());
+            }
+            case JournalEvent.MoveOrdered move -> {
+                Robot robot = robot(move.robotId());
+                robot.setDirection(move.direction());
+                robot.setStatus(Robot.RobotStatus.MOVING);
+                robot.setTargetBlocks(move.blocks());
+                robot.setBlocksRemaining(move.blocks());
+                addAction(robot, "move", record);
+            }
+            case JournalEvent.BlockStepped step -> {
+                Robot robot = robot(step.robotId());
+                robot.setPositionX(step.positionX());
+                robot.setPositionY(step.positionY());
+                robot.setBlocksRemaining(step.blocksRemaining());
+            }
+            case JournalEvent.StatusChanged status -> {
+                Robot robot = robot(status.robotId());
+                robot.setHitPoints(status.hitPoints());
+                robot.setStatus(status.status());
+            }
+            case JournalEvent.RadarScanned radar -> addAction(robot(radar.robotId()), "radar", record);
+            case JournalEvent.LaserFired laser -> addAction(robot(laser.robotId()), "fire laser", record);
+        }
+    }
+
+    /**
+     * Gets the battle as rebuilt so far.
+     *
+     * @return The battle, or null if no event was applied yet
+     */
+    public Battle battle() {
+        return battle;
+    }
+
+    private Robot robot(String robotId) {
+        Robot robot = robotsById.get(robotId);
+        if (robot == null) {
+            throw new IllegalArgumentException("Robot " + robotId + " is not in the journal");
+        }
+        return robot;
+    }
+
+    private void addAction(Robot robot, String action, JournalRecord record) {
+        LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timeMillis()),
+                ZoneId.systemDefault());
+        battle.addRobotAction(new RobotAction(robot.getId(), robot.getName(), action, timestamp));
+    }
+}
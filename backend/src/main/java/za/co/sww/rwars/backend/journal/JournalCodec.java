@@ -0,0 +1,252 @@
+package za.co.sww.rwars.backend.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.Wall;
+
+/**
+ * Binary encoding of the events of one battle.
+ *
+ * Each event is written as a one byte type followed by its fields, big-endian. Robots are referred to by their
+ * registration index in the battle, two bytes, instead of their 36 character ID, which is written once when the
+ * robot registers; the codec therefore keeps the battle's robot table and must see every event of the battle in
+ * order. Enums are written as their ordinals, so constants may only ever be added at the end. Strings are written
+ * as a two byte UTF-8 length and the bytes, coordinates and counts as two byte values.
+ */
+final class JournalCodec {
+
+    static final byte BATTLE_CREATED = 1;
+    static final byte WALLS_PLACED = 2;
+    static final byte ROBOT_REGISTERED = 3;
+    static final byte STATE_CHANGED = 4;
+    static final byte MOVE_ORDERED = 5;
+    static final byte BLOCK_STEPPED = 6;
+    static final byte STATUS_CHANGED = 7;
+    static final byte RADAR_SCANNED = 8;
+    static final byte LASER_FIRED = 9;
+
+    private static final int NONE = 0xFFFF;
+
+    private static final Battle.BattleState[] STATES = Battle.BattleState.values();
+    private static final Robot.Direction[] DIRECTIONS = Robot.Direction.values();
+    private static final Robot.RobotStatus[] STATUSES = Robot.RobotStatus.values();
+    private static final Wall.WallType[] WALL_TYPES = Wall.WallType.values();
+
+    private final Map<String, Integer> robotIndexes = new HashMap<>();
+    private final List<String> robotIds = new ArrayList<>();
+
+    /**
+     * Writes an event.
+     *
+     * @param event The event
+     * @param out The buffer to write to, from its position
+     * @throws java.nio.BufferOverflowException if the buffer is too small; nothing is remembered in that case, so
+     *     the event can be written again to a larger buffer
+     * @throws IllegalArgumentException if the event refers to a robot that has not registered, or a value does
+     *     not fit its field
+     */
+    void encode(JournalEvent event, ByteBuffer out) {
+        switch (event) {
+            case JournalEvent.BattleCreated created -> {
+                out.put(BATTLE_CREATED);
+                putString(out, created.battleId());
+                putString(out, created.name());
+                putShort(out, created.arenaWidth());
+                putShort(out, created.arenaHeight());
+                out.putDouble(created.robotMovementTimeSeconds());
+                out.putLong(created.seed());
+            }
+            case JournalEvent.WallsPlaced placed -> {
+                out.put(WALLS_PLACED);
+                putShort(out, placed.walls().size());
+                for (Wall wall : placed.walls()) {
+                    out.put(wall.getType() == null ? (byte) -1 : (byte) wall.getType().ordinal());
+                    List<Wall.Rectangle> rectangles = wall.getRectangles();
+                    putShort(out, rectangles.size());
+                    for (Wall.Rectangle rectangle : rectangles) {
+                        putShort(out, rectangle.getX());
+                        putShort(out, rectangle.getY());
+                        putShort(out, rectangle.getWidth());
+                        putShort(out, rectangle.getHeight());
+                    }
+                }
+            }
+            case JournalEvent.RobotRegistered registered -> {
+                if (robotIndexes.containsKey(registered.robotId())) {
+                    throw new IllegalArgumentException("Robot " + registered.robotId() + " is already registered");
+                }
+                out.put(ROBOT_REGISTERED);
+                putString(out, registered.robotId());
+                putString(out, registered.name());
+                putShort(out, registered.positionX());
+                putShort(out, registered.positionY());
+                out.putInt(registered.hitPoints());
+                // Only remember the robot once it is written in full
+                robotIndexes.put(registered.robotId(), robotIds.size());
+                robotIds.add(registered.robotId());
+            }
+            case JournalEvent.StateChanged changed -> {
+                out.put(STATE_CHANGED);
+                out.put((byte) changed.state().ordinal());
+                putRobot(out, changed.winnerId());
+                out.put((byte) ((changed.testMode() ? 1 : 0) | (changed.accelerated() ? 2 : 0)));
+            }
+            case JournalEvent.MoveOrdered move -> {
+                out.put(MOVE_ORDERED);
+                putRobot(out, move.robotId());
+                out.put((byte) move.direction().ordinal());
+                putShort(out, move.blocks());
+            }
+            case JournalEvent.BlockStepped step -> {
+                out.put(BLOCK_STEPPED);
+                putRobot(out, step.robotId());
+                putShort(out, step.positionX());
+                putShort(out, step.positionY());
+                putShort(out, step.blocksRemaining());
+            }
+            case JournalEvent.StatusChanged status -> {
+                out.put(STATUS_CHANGED);
+                putRobot(out, status.robotId());
+                out.put((byte) status.status().ordinal());
+                out.putInt(status.hitPoints());
+            }
+            case JournalEvent.RadarScanned radar -> {
+                out.put(RADAR_SCANNED);
+                putRobot(out, radar.robotId());
+                putShort(out, radar.range());
+            }
+            case JournalEvent.LaserFired laser -> {
+                out.put(LASER_FIRED);
+                putRobot(out, laser.robotId());
+                out.put((byte) laser.direction().ordinal());
+                putShort(out, laser.range());
+                putRobot(out, laser.hitRobotId());
+                out.putInt(laser.damage());
+            }
+        }
+    }
+
+    /**
+     * Reads an event.
+     *
+     * @param in The buffer to read from, positioned at the event's type
+     * @return The event
+     * @throws IllegalArgumentException if the event type is unknown or it refers to a robot that has not registered
+     * @throws java.nio.BufferUnderflowException if the event is cut short
+     */
+    JournalEvent decode(ByteBuffer in) {
+        byte type = in.get();
+        return switch (type) {
+            case BATTLE_CREATED -> new JournalEvent.BattleCreated(getString(in), getString(in), getShort(in),
+                    getShort(in), in.getDouble(), in.getLong());
+            case WALLS_PLACED -> {
+                int count = getShort(in);
+                List<Wall> walls = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    byte wallType = in.get();
+                    Wall wall = new Wall(wallType < 0 ? null : WALL_TYPES[wallType]);
+                    int rectangles = getShort(in);
+                    for (int r = 0; r < rectangles; r++) {
+                        wall.addRectangle(getShort(in), getShort(in), getShort(in), getShort(in));
+                    }
+                    walls.add(wall);
+                }
+                yield new JournalEvent.WallsPlaced(walls);
+            }
+            case ROBOT_REGISTERED -> {
+                JournalEvent.RobotRegistered registered = new JournalEvent.RobotRegistered(getString(in),
+                        getString(in), getShort(in), getShort(in), in.getInt());
+                addRobot(registered.robotId());
+                yield registered;
+            }
+            case STATE_CHANGED -> {
+                Battle.BattleState state = STATES[in.get()];
+                String winnerId = getRobot(in);
+                byte flags = in.get();
+                yield new JournalEvent.StateChanged(state, winnerId, (flags & 1) != 0, (flags & 2) != 0);
+            }
+            case MOVE_ORDERED -> new JournalEvent.MoveOrdered(getRobot(in), DIRECTIONS[in.get()], getShort(in));
+            case BLOCK_STEPPED -> new JournalEvent.BlockStepped(getRobot(in), getShort(in), getShort(in),
+                    getShort(in));
+            case STATUS_CHANGED -> new JournalEvent.StatusChanged(getRobot(in), STATUSES[in.get()], in.getInt());
+            case RADAR_SCANNED -> new JournalEvent.RadarScanned(getRobot(in), getShort(in));
+            case LASER_FIRED -> new JournalEvent.LaserFired(getRobot(in), DIRECTIONS[in.get()], getShort(in),
+                    getRobot(in), in.getInt());
+            default -> throw new IllegalArgumentException("Unknown journal event type " + type);
+        };
+    }
+
+    /**
+     * Learns a robot registered in a part of the journal this codec has not seen, such as the part before a
+     * snapshot. Robots must be added in the order they registered.
+     *
+     * @param robotId The robot ID
+     */
+    void addRobot(String robotId) {
+        robotIndexes.put(robotId, robotIds.size());
+        robotIds.add(robotId);
+    }
+
+    private void putRobot(ByteBuffer out, String robotId) {
+        if (robotId == null) {
+            out.putShort((short) NONE);
+            return;
+        }
+        Integer index = robotIndexes.get(robotId);
+        if (index == null) {
+            throw new IllegalArgumentException("Robot " + robotId + " is not registered in the journal");
+        }
+        out.putShort((short) index.intValue());
+    }
+
+    private String getRobot(ByteBuffer in) {
+        int index = Short.toUnsignedInt(in.getShort());
+        if (index == NONE) {
+            return null;
+        }
+        if (index >= robotIds.size()) {
+            throw new IllegalArgumentException("Robot index " + index + " is not registered in the journal");
+        }
+        return robotIds.get(index);
+    }
+
+    private static void putShort(ByteBuffer out, int value) {
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value " + value + " does not fit a journal field");
+        }
+        out.putShort((short) value);
+    }
+
+    private static int getShort(ByteBuffer in) {
+        return in.getShort();
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) NONE);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NONE) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes does not fit a journal field");
+        }
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length == NONE) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,170 @@
+package za.co.sww.rwars.backend.journal;
+
+import java.util.List;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.Wall;
+
+/**
+ * An event that changed a battle, as written to the battle's journal.
+ *
+ * Events hold only what cannot be derived from the events before them, so that applying a battle's events in order
+ * rebuilds the battle: walls and spawn positions are recorded as laid out, not regenerated from the seed.
+ */
+public sealed interface JournalEvent {
+
+    /**
+     * The battle was created.
+     *
+     * @param battleId The battle ID
+     * @param name The battle name
+     * @param arenaWidth The arena width
+     * @param arenaHeight The arena height
+     * @param robotMovementTimeSeconds The time it takes a robot to move one block
+     * @param seed The battle seed
+     */
+    record BattleCreated(String battleId, String name, int arenaWidth, int arenaHeight,
+                         double robotMovementTimeSeconds, long seed) implements JournalEvent {
+
+        /**
+         * Describes the creation of a battle.
+         *
+         * @param battle The battle
+         * @return The event
+         */
+        public static BattleCreated of(Battle battle) {
+            return new BattleCreated(battle.getId(), battle.getName(), battle.getArenaWidth(),
+                    battle.getArenaHeight(), battle.getRobotMovementTimeSeconds(), battle.getSeed());
+        }
+    }
+
+    /**
+     * The arena's walls were laid out.
+     *
+     * @param walls The walls
+     */
+    record WallsPlaced(List<Wall> walls) implements JournalEvent {
+    }
+
+    /**
+     * A robot joined the battle.
+     *
+     * @param robotId The robot ID
+     * @param name The robot name
+     * @param positionX The spawn X coordinate
+     * @param positionY The spawn Y coordinate
+     * @param hitPoints The hit points the robot starts with, also its maximum
+     */
+    record RobotRegistered(String robotId, String name, int positionX, int positionY, int hitPoints)
+            implements JournalEvent {
+
+        /**
+         * Describes the registration of a robot.
+         *
+         * @param robot The robot
+         * @return The event
+         */
+        public static RobotRegistered of(Robot robot) {
+            return new RobotRegistered(robot.getId(), robot.getName(), robot.getPositionX(), robot.getPositionY(),
+                    robot.getMaxHitPoints());
+        }
+    }
+
+    /**
+     * The battle's state changed. The battle's mode flags are recorded alongside, as they can be set after the
+     * battle was created.
+     *
+     * @param state The new state
+     * @param winnerId The winning robot's ID, or null
+     * @param testMode Whether the battle is a test battle
+     * @param accelerated Whether the battle runs on a virtual clock
+     */
+    record StateChanged(Battle.BattleState state, String winnerId, boolean testMode, boolean accelerated)
+            implements JournalEvent {
+
+        /**
+         * Describes the current state of a battle.
+         *
+         * @param battle The battle
+         * @return The event
+         */
+        public static StateChanged of(Battle battle) {
+            return new StateChanged(battle.getState(), battle.getWinnerId(), battle.isTestMode(),
+                    battle.isAccelerated());
+        }
+    }
+
+    /**
+     * A robot was ordered to move.
+     *
+     * @param robotId The robot ID
+     * @param direction The direction to move in
+     * @param blocks The number of blocks to move
+     */
+    record MoveOrdered(String robotId, Robot.Direction direction, int blocks) implements JournalEvent {
+    }
+
+    /**
+     * A moving robot advanced one block, or was put somewhere for testing.
+     *
+     * @param robotId The robot ID
+     * @param positionX The new X coordinate
+     * @param positionY The new Y coordinate
+     * @param blocksRemaining The blocks the robot has left to move
+     */
+    record BlockStepped(String robotId, int positionX, int positionY, int blocksRemaining) implements JournalEvent {
+
+        /**
+         * Describes the current position of a robot.
+         *
+         * @param robot The robot
+         * @return The event
+         */
+        public static BlockStepped of(Robot robot) {
+            return new BlockStepped(robot.getId(), robot.getPositionX(), robot.getPositionY(),
+                    robot.getBlocksRemaining());
+        }
+    }
+
+    /**
+     * A robot's status or hit points changed, from stopping, crashing or taking damage.
+     *
+     * @param robotId The robot ID
+     * @param status The new status
+     * @param hitPoints The new hit points
+     */
+    record StatusChanged(String robotId, Robot.RobotStatus status, int hitPoints) implements JournalEvent {
+
+        /**
+         * Describes the current status of a robot.
+         *
+         * @param robot The robot
+         * @return The event
+         */
+        public static StatusChanged of(Robot robot) {
+            return new StatusChanged(robot.getId(), robot.getStatus(), robot.getHitPoints());
+        }
+    }
+
+    /**
+     * A robot scanned its surroundings.
+     *
+     * @param robotId The robot ID
+     * @param range The scan range
+     */
+    record RadarScanned(String robotId, int range) implements JournalEvent {
+    }
+
+    /**
+     * A robot fired its laser.
+     *
+     * @param robotId The firing robot's ID
+     * @param direction The direction fired in
+     * @param range The laser range
+     * @param hitRobotId The ID of the robot hit, or null for a miss
+     * @param damage The damage dealt, 0 for a miss
+     */
+    record LaserFired(String robotId, Robot.Direction direction, int range, String hitRobotId, int damage)
+            implements JournalEvent {
+    }
+}
@@ -0,0 +1,13 @@
+package za.co.sww.rwars.backend.journal;
+
+/**
+ * A place in a battle journal: where the next record is, or will be, written.
+ *
+ * Reading a journal from a position gives exactly the records appended after the position was taken, so a copy of
+ * the battle taken together with its journal position can be brought up to date with the journal's tail.
+ *
+ * @param segment The number of the segment
+ * @param offset The byte offset in the segment
+ */
+public record JournalPosition(int segment, int offset) {
+}
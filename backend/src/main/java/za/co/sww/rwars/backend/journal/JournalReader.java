@@ -0,0 +1,126 @@
+package za.co.sww.rwars.backend.journal;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads a battle journal back, in the order its events were written.
+ *
+ * A segment's records end at a zero length, or at the first record that was not completely written: one running
+ * past the end of the segment or with a checksum that does not match. Such a torn tail is what a crash between two
+ * flushes leaves behind; the records before it are returned and reading goes on with the next segment, which is
+ * where a journal reopened after the crash carries on.
+ */
+public final class JournalReader {
+
+    private JournalReader() {
+    }
+
+    /**
+     * Reads all events of a battle journal.
+     *
+     * @param directory The battle's journal directory
+     * @return The records, empty if the battle has no journal
+     * @throws IOException if a segment cannot be read or is not a journal segment
+     */
+    public static List<JournalRecord> read(Path directory) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        read(directory, records::add);
+        return records;
+    }
+
+    /**
+     * Reads all events of a battle journal and passes them on one at a time.
+     *
+     * @param directory The battle's journal directory
+     * @param consumer The consumer of the records
+     * @return The number of records read
+     * @throws IOException if a segment cannot be read or is not a journal segment
+     */
+    public static long read(Path directory, Consumer<JournalRecord> consumer) throws IOException {
+        return read(directory, new JournalCodec(), consumer);
+    }
+
+    /**
+     * Reads the events of a battle journal appended after a position was taken.
+     *
+     * @param directory The battle's journal directory
+     * @param from The position
+     * @param robotIds The IDs of the robots registered before the position, in the order they registered
+     * @param consumer The consumer of the records
+     * @return The number of records read
+     * @throws IOException if a segment cannot be read or is not a journal segment
+     */
+    public static long read(Path directory, JournalPosition from, List<String> robotIds,
+                            Consumer<JournalRecord> consumer) throws IOException {
+        JournalCodec codec = new JournalCodec();
+        for (String robotId : robotIds) {
+            codec.addRobot(robotId);
+        }
+        return read(directory, codec, from, consumer);
+    }
+
+    /**
+     * Reads all events of a battle journal with a given codec, which is left knowing the journal's robots.
+     */
+    static long read(Path directory, JournalCodec codec, Consumer<JournalRecord> consumer) throws IOException {
+        return read(directory, codec, new JournalPosition(0, JournalSegment.HEADER_BYTES), consumer);
+    }
+
+    private static long read(Path directory, JournalCodec codec, JournalPosition from,
+                             Consumer<JournalRecord> consumer) throws IOException {
+        CRC32C checksum = new CRC32C();
+        long count = 0;
+        for (Path file : BattleJournal.segmentFiles(directory)) {
+            int number = BattleJournal.segmentNumber(file);
+            if (number < from.segment()) {
+                continue;
+            }
+            // Segments are read, not mapped, as the live segment of a running battle is truncated when it closes
+            ByteBuffer segment = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (segment.remaining() < JournalSegment.HEADER_BYTES || segment.getInt(0) == 0) {
+                // Created but never forced
+                continue;
+            }
+            if (segment.getInt(0) != JournalSegment.MAGIC || segment.getShort(4) != JournalSegment.VERSION) {
+                throw new IOException("Not a version " + JournalSegment.VERSION + " journal segment: " + file);
+            }
+            int offset = number == from.segment() ? from.offset() : JournalSegment.HEADER_BYTES;
+            if (offset < JournalSegment.HEADER_BYTES || offset > segment.limit()) {
+                // The records up to the position never reached the disk
+                continue;
+            }
+            segment.position(offset);
+            while (segment.remaining() >= 4) {
+                int length = segment.getInt();
+                int start = segment.position();
+                if (length < 9 || length > segment.remaining() - 4) {
+                    // The unused rest of the segment, or a torn record
+                    break;
+                }
+                checksum.reset();
+                checksum.update(segment.array(), start, length);
+                if ((int) checksum.getValue() != segment.getInt(start + length)) {
+                    break;
+                }
+                JournalEvent event;
+                try {
+                    event = codec.decode(segment.slice(start + 8, length - 8));
+                } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+                    throw new IOException("Corrupt journal record at " + start + " in " + file, e);
+                }
+                consumer.accept(new JournalRecord(segment.getLong(start), event));
+                count++;
+                segment.position(start + length + 4);
+            }
+        }
+        return count;
+    }
+}
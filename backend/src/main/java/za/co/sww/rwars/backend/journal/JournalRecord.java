@@ -0,0 +1,10 @@
+package za.co.sww.rwars.backend.journal;
+
+/**
+ * An event read back from a battle journal.
+ *
+ * @param timeMillis The time the event was journaled, in epoch milliseconds
+ * @param event The event
+ */
+public record JournalRecord(long timeMillis, JournalEvent event) {
+}
@@ -0,0 +1,130 @@
+package za.co.sww.rwars.backend.journal;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One memory-mapped file of a battle journal.
+ *
+ * A segment is created at its full size and mapped once; records are copied into the mapping and reach the file
+ * when the segment is forced. The file starts with an eight byte header, the magic number and the format version,
+ * and the unused rest of the file reads as zeros, which marks the end of the records. A closed segment is
+ * truncated to the records written. The file is mapped in an arena of its own, so closing the segment unmaps it
+ * straight away rather than whenever the mapping is garbage collected.
+ *
+ * Records are written by the journal's single writer; forcing and closing are done by the flusher, never
+ * concurrently with each other.
+ */
+final class JournalSegment {
+
+    static final int MAGIC = 0x524A4E4C; // "RJNL"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 8;
+
+    private final FileChannel channel;
+    private final Arena arena;
+    private final MemorySegment mapping;
+    private final ByteBuffer buffer;
+    private volatile int position;
+    private int forced;
+
+    private JournalSegment(FileChannel channel, Arena arena, MemorySegment mapping) {
+        this.channel = channel;
+        this.arena = arena;
+        this.mapping = mapping;
+        this.buffer = mapping.asByteBuffer();
+    }
+
+    /**
+     * Creates and maps a new segment file.
+     *
+     * @param file The file, which must not exist yet
+     * @param capacity The size of the file in bytes
+     * @return The segment
+     * @throws IOException if the file cannot be created or mapped
+     */
+    static JournalSegment create(Path file, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Arena arena = Arena.ofShared();
+        try {
+            JournalSegment segment = new JournalSegment(channel, arena,
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity, arena));
+            segment.buffer.putInt(0, MAGIC).putShort(4, VERSION);
+            segment.position = HEADER_BYTES;
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Copies a record into the segment if it fits.
+     *
+     * @param record The record, from its position to its limit; the position is left unchanged
+     * @return true if the record was written, false if the segment is too full
+     */
+    boolean write(ByteBuffer record) {
+        int length = record.remaining();
+        int at = position;
+        if (length > buffer.capacity() - at) {
+            return false;
+        }
+        buffer.put(at, record, record.position(), length);
+        position = at + length;
+        return true;
+    }
+
+    /**
+     * Gets the offset the next record is written at.
+     *
+     * @return The offset in bytes
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Writes the records copied so far to the file.
+     */
+    void force() {
+        int end = position;
+        if (end > forced) {
+            mapping.asSlice(forced, end - forced).force();
+            forced = end;
+        }
+    }
+
+    /**
+     * Forces the segment, unmaps it, truncates the file to the records written and closes it.
+     *
+     * @throws IOException if the file cannot be truncated or closed
+     */
+    void close() throws IOException {
+        try (channel) {
+            try {
+                force();
+            } finally {
+                arena.close();
+            }
+            channel.truncate(position);
+        }
+    }
+
+    /**
+     * Gets the smallest segment size that holds a record.
+     *
+     * @param recordBytes The record's size
+     * @return The segment size
+     */
+    static int capacityFor(int recordBytes) {
+        return HEADER_BYTES + recordBytes;
+    }
+}
@@ -0,0 +1,370 @@
+package za.co.sww.rwars.backend.journal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the append-only journal of every battle.
+ *
+ * Battle events are appended on the battle's mailbox and only copied into memory-mapped segment files there. A
+ * single flusher thread writes them to disk with group commit: every flush interval it forces each journal that
+ * was appended to since its previous flush, so one disk write covers all events of that interval. An event is
+ * therefore durable at most one flush interval after it happened. A journal that fails to write is closed and
+ * marked failed, as the events after a gap could not be applied; the battle itself carries on unjournaled.
+ *
+ * A journal is opened by the event that creates its battle, or resumed once a battle restored from it is back, so
+ * events are never appended to a journal that misses the ones before. A journal idle for
+ * {@code battle.journal.idle-close-seconds} has its segment closed until its next event.
+ *
+ * Each battle's journal is a directory named after the battle under {@code battle.journal.directory}.
+ */
+@ApplicationScoped
+public class JournalService {
+
+    private static final Logger LOGGER = Logger.getLogger(JournalService.class.getName());
+
+    @ConfigProperty(name = "battle.journal.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @ConfigProperty(name = "battle.journal.directory", defaultValue = "data/journal")
+    private String directory;
+
+    @ConfigProperty(name = "battle.journal.segment-bytes", defaultValue = "1048576")
+    private int segmentBytes;
+
+    @ConfigProperty(name = "battle.journal.flush-interval-ms", defaultValue = "10")
+    private long flushIntervalMillis;
+
+    @ConfigProperty(name = "battle.journal.idle-close-seconds", defaultValue = "30")
+    private long idleCloseSeconds;
+
+    @Inject
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, BattleJournal> journalsByBattleId = new ConcurrentHashMap<>();
+    private final Set<String> failedBattleIds = ConcurrentHashMap.newKeySet();
+    private final Queue<String> dirtyBattleIds = new ConcurrentLinkedQueue<>();
+
+    private ScheduledExecutorService flusher;
+    private Timer flushTimer;
+
+    public JournalService() {
+    }
+
+    /**
+     * Creates an enabled journal service outside the container, for tests.
+     *
+     * @param directory The directory battle journals are kept in
+     * @param segmentBytes The size of new segment files
+     * @param idleCloseSeconds How long a journal may go without events before its segment is closed
+     * @param meterRegistry The registry the journal metrics are kept in
+     */
+    JournalService(String directory, int segmentBytes, long idleCloseSeconds, MeterRegistry meterRegistry) {
+        this.enabled = true;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.flushIntervalMillis = 10;
+        this.idleCloseSeconds = idleCloseSeconds;
+        this.meterRegistry = meterRegistry;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        flushTimer = meterRegistry.timer("battle.journal.flush");
+        meterRegistry.gauge("battle.journal.open", journalsByBattleId, Map::size);
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("battle-journal-flusher").daemon().factory());
+        flusher.scheduleWithFixedDelay(this::flushDirty, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        long idleCheckSeconds = Math.max(1, idleCloseSeconds);
+        flusher.scheduleWithFixedDelay(this::sealIdle, idleCheckSeconds, idleCheckSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Map.Entry<String, BattleJournal> entry : journalsByBattleId.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                LOGGER.severe("event=journal_close_error battleId=" + entry.getKey() + " error=" + e.getMessage());
+            }
+        }
+        journalsByBattleId.clear();
+    }
+
+    /**
+     * Tells whether battle events are journaled.
+     *
+     * @return true if the journal is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends an event to a battle's journal, opening the journal on the event that creates the battle. Other
+     * events of a battle whose journal is not open are dropped.
+     * Must be called from the battle's mailbox, so that the battle's events are journaled in order.
+     *
+     * @param battleId The battle ID
+     * @param event The event
+     */
+    public void append(String battleId, JournalEvent event) {
+        if (!enabled || battleId == null || failedBattleIds.contains(battleId)) {
+            return;
+        }
+        BattleJournal journal = journalsByBattleId.get(battleId);
+        if (journal == null && !(event instanceof JournalEvent.BattleCreated)) {
+            return;
+        }
+        try {
+            if (journal == null) {
+                journal = BattleJournal.open(battleDirectory(battleId), segmentBytes);
+                journalsByBattleId.put(battleId, journal);
+            }
+            if (journal.append(System.currentTimeMillis(), event)) {
+                dirtyBattleIds.add(battleId);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(battleId, e);
+        }
+    }
+
+    /**
+     * Opens the journal a battle was restored from, so that the battle's events carry on after the journaled
+     * ones. Call before the battle takes commands again, and only if the battle was restored from every event of
+     * its journal. A journal marked failed is not resumed.
+     *
+     * @param battleId The battle ID
+     */
+    public void resume(String battleId) {
+        if (!enabled || battleId == null || failedBattleIds.contains(battleId)
+                || journalsByBattleId.containsKey(battleId)) {
+            return;
+        }
+        Path battleDirectory = battleDirectory(battleId);
+        if (!Files.isDirectory(battleDirectory) || BattleJournal.isFailed(battleDirectory)) {
+            return;
+        }
+        try {
+            journalsByBattleId.put(battleId, BattleJournal.open(battleDirectory, segmentBytes));
+        } catch (IOException | RuntimeException e) {
+            fail(battleId, e);
+        }
+    }
+
+    /**
+     * Closes the current segment of a battle's journal once the battle is over, so its file is truncated to the
+     * events written. The journal stays open, and another event starts a new segment.
+     *
+     * @param battleId The battle ID
+     */
+    public void seal(String battleId) {
+        BattleJournal journal = battleId == null ? null : journalsByBattleId.get(battleId);
+        if (journal != null && journal.seal()) {
+            dirtyBattleIds.add(battleId);
+        }
+    }
+
+    /**
+     * Writes a battle's journal to disk straight away, rather than on the next flush interval.
+     *
+     * @param battleId The battle ID
+     */
+    public void flush(String battleId) {
+        BattleJournal journal = battleId == null ? null : journalsByBattleId.get(battleId);
+        if (journal != null) {
+            flush(battleId, journal);
+        }
+    }
+
+    /**
+     * Deletes a battle's journal.
+     *
+     * @param battleId The battle ID
+     */
+    public void delete(String battleId) {
+        if (!enabled || battleId == null) {
+            return;
+        }
+        failedBattleIds.remove(battleId);
+        BattleJournal journal = journalsByBattleId.remove(battleId);
+        try {
+            if (journal == null) {
+                BattleJournal.delete(battleDirectory(battleId));
+            } else {
+                journal.delete();
+            }
+        } catch (IOException e) {
+            LOGGER.severe("event=journal_delete_error battleId=" + battleId + " error=" + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a battle's journal back.
+     *
+     * @param battleId The battle ID
+     * @return The battle's journaled events, in order; empty if it has none
+     * @throws IOException if the journal cannot be read
+     */
+    public List<JournalRecord> read(String battleId) throws IOException {
+        flush(battleId);
+        return JournalReader.read(battleDirectory(battleId));
+    }
+
+    /**
+     * Reads the part of a battle's journal appended after a position was taken.
+     *
+     * @param battleId The battle ID
+     * @param from The position
+     * @param robotIds The IDs of the robots registered before the position, in the order they registered
+     * @param consumer The consumer of the records
+     * @return The number of records read
+     * @throws IOException if the journal cannot be read
+     */
+    public long read(String battleId, JournalPosition from, List<String> robotIds,
+                     Consumer<JournalRecord> consumer) throws IOException {
+        flush(battleId);
+        return JournalReader.read(battleDirectory(battleId), from, robotIds, consumer);
+    }
+
+    /**
+     * Gets the position the next event of a battle is journaled at.
+     * Call from the battle's mailbox for a position no event is appended at meanwhile; from elsewhere it only
+     * tells whether the journal has moved on.
+     *
+     * @param battleId The battle ID
+     * @return The position, or null if the battle's journal is not open
+     */
+    public JournalPosition position(String battleId) {
+        BattleJournal journal = battleId == null ? null : journalsByBattleId.get(battleId);
+        return journal != null ? journal.position() : null;
+    }
+
+    /**
+     * Tells whether a battle has a journal on disk.
+     *
+     * @param battleId The battle ID
+     * @return true if the battle's journal directory exists
+     */
+    public boolean hasJournal(String battleId) {
+        return enabled && Files.isDirectory(battleDirectory(battleId));
+    }
+
+    /**
+     * Lists the battles that have a journal on disk.
+     *
+     * @return The battle IDs, empty if the journal is disabled
+     * @throws IOException if the journal directory cannot be listed
+     */
+    public List<String> battleIds() throws IOException {
+        Path root = Path.of(directory);
+        if (!enabled || !Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> battles = Files.list(root)) {
+            return battles.filter(Files::isDirectory)
+                    .map(battle -> battle.getFileName().toString())
+                    .toList();
+        }
+    }
+
+    /**
+     * Gets the journal directory of a battle.
+     *
+     * @param battleId The battle ID
+     * @return The directory
+     */
+    public Path battleDirectory(String battleId) {
+        return Path.of(directory, battleId);
+    }
+
+    private void flushDirty() {
+        String battleId = dirtyBattleIds.poll();
+        if (battleId == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        do {
+            flush(battleId);
+            battleId = dirtyBattleIds.poll();
+        } while (battleId != null);
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void sealIdle() {
+        long now = System.currentTimeMillis();
+        long idleMillis = TimeUnit.SECONDS.toMillis(idleCloseSeconds);
+        journalsByBattleId.forEach((battleId, journal) -> {
+            if (journal.sealIfIdle(now, idleMillis)) {
+                dirtyBattleIds.add(battleId);
+            }
+        });
+    }
+
+    private void flush(String battleId, BattleJournal journal) {
+        try {
+            journal.flush();
+        } catch (IOException | RuntimeException e) {
+            fail(battleId, e);
+        }
+    }
+
+    private void fail(String battleId, Exception e) {
+        if (!failedBattleIds.add(battleId)) {
+            // An append that raced the first failure and found its journal closed
+            return;
+        }
+        LOGGER.severe("event=journal_write_error battleId=" + battleId + " error=" + e.getMessage());
+        BattleJournal journal = journalsByBattleId.remove(battleId);
+        if (journal != null) {
+            // Closing refuses any append the mailbox is about to make, so nothing lands after the gap
+            try {
+                journal.close();
+            } catch (IOException | RuntimeException closeError) {
+                LOGGER.severe("event=journal_close_error battleId=" + battleId + " error="
+                        + closeError.getMessage());
+            }
+        }
+        try {
+            BattleJournal.markFailed(battleDirectory(battleId));
+        } catch (IOException markError) {
+            LOGGER.severe("event=journal_mark_failed_error battleId=" + battleId + " error="
+                    + markError.getMessage());
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package za.co.sww.rwars.backend.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import io.quarkus.runtime.annotations.RegisterForReflection;
@@ -22,6 +29,14 @@ public class Battle {
         COMPLETED
     }
 
+    /**
+     * Listener notified whenever the state of a battle changes.
+     */
+    @FunctionalInterface
+    public interface StateChangeListener {
+        void stateChanged(Battle battle, BattleState previousState, BattleState newState);
+    }
+
     @Schema(description = "Unique identifier of the battle", example = "123e4567-e89b-12d3-a456-556642440000")
     private String id;
 
@@ -38,13 +53,13 @@ public class Battle {
     private double robotMovementTimeSeconds;
 
     @Schema(description = "List of robots participating in the battle")
-    private List<Robot> robots;
+    private RobotList robots;
 
     @Schema(description = "Current state of the battle")
     private BattleState state;
 
     @Schema(description = "List of walls in the arena")
-    private List<Wall> walls;
+    private WallList walls;
 
     @Schema(description = "ID of the winning robot", example = "robot-123")
     private String winnerId;
@@ -53,18 +68,38 @@ public class Battle {
     private String winnerName;
 
     @Schema(description = "List of robot actions that have occurred during the battle")
-    private List<RobotAction> robotActions;
+    private RobotActionLog robotActions;
 
     @Schema(description = "Indicates whether this battle is a developer test mode battle", example = "true")
     private boolean testMode;
 
+    @Schema(description = "Indicates whether this battle runs on a virtual clock, ticking as fast as possible",
+            example = "false")
+    private boolean accelerated;
+
+    @Schema(description = "Seed of every random decision in the battle; the same seed gives the same walls and "
+            + "spawn positions", example = "4242")
+    private long seed;
+
+    private BattleRandom random;
+
+    private StateChangeListener stateChangeListener;
+
+    private volatile WallGrid wallGrid;
+
+    private volatile RobotGrid robotGrid;
+
+    private final RobotStore robotStore = new RobotStore();
+
     public Battle() {
         this.id = UUID.randomUUID().toString();
-        this.robots = new ArrayList<>();
-        this.walls = new ArrayList<>();
-        this.robotActions = new ArrayList<>();
+        this.robots = new RobotList();
+        this.walls = new WallList();
+        this.robotActions = new RobotActionLog();
         this.state = BattleState.WAITING_ON_ROBOTS;
         this.robotMovementTimeSeconds = 1.0; // Default value
+        this.seed = BattleRandom.newSeed();
+        this.random = new BattleRandom(seed);
     }
 
     public Battle(String name, int arenaWidth, int arenaHeight) {
@@ -72,12 +107,14 @@ public class Battle {
         this.name = name;
         this.arenaWidth = arenaWidth;
         this.arenaHeight = arenaHeight;
-        this.robots = new ArrayList<>();
-        this.walls = new ArrayList<>();
-        this.robotActions = new ArrayList<>();
+        this.robots = new RobotList();
+        this.walls = new WallList();
+        this.robotActions = new RobotActionLog();
         this.state = BattleState.WAITING_ON_ROBOTS;
         this.robotMovementTimeSeconds = 1.0; // Default value
         this.testMode = false;
+        this.seed = BattleRandom.newSeed();
+        this.random = new BattleRandom(seed);
     }
 
     public Battle(String name, int arenaWidth, int arenaHeight, double robotMovementTimeSeconds) {
@@ -85,12 +122,14 @@ public class Battle {
         this.name = name;
         this.arenaWidth = arenaWidth;
         this.arenaHeight = arenaHeight;
-        this.robots = new ArrayList<>();
-        this.walls = new ArrayList<>();
-        this.robotActions = new ArrayList<>();
+        this.robots = new RobotList();
+        this.walls = new WallList();
+        this.robotActions = new RobotActionLog();
         this.state = BattleState.WAITING_ON_ROBOTS;
         this.robotMovementTimeSeconds = robotMovementTimeSeconds;
         this.testMode = false;
+        this.seed = BattleRandom.newSeed();
+        this.random = new BattleRandom(seed);
     }
 
     public String getId() {
@@ -101,25 +140,66 @@ public class Battle {
         this.id = id;
     }
 
+    /**
+     * Gets the robots in the battle, in registration order. Robots added to or removed from the list join or
+     * leave the robot store and robot grid with it.
+     *
+     * @return The robots
+     */
     public List<Robot> getRobots() {
         return robots;
     }
 
+    /**
+     * Replaces the robots in the battle.
+     *
+     * @param robots The robots, in registration order
+     */
     public void setRobots(List<Robot> robots) {
-        this.robots = robots;
+        this.robots = robots == null ? new RobotList() : new RobotList(robots);
+        robotStore.retainExactly(this.robots);
+        invalidateRobotGrid();
     }
 
+    /**
+     * Adds a robot to the battle, after the robots already in it, and updates the battle state.
+     *
+     * @param robot The robot
+     */
     public void addRobot(Robot robot) {
         this.robots.add(robot);
         updateState();
     }
 
+    /**
+     * Takes a robot out of the battle. Its state is copied back into the robot object.
+     *
+     * @param robot The robot
+     * @return true if the robot was in the battle
+     */
+    public boolean removeRobot(Robot robot) {
+        return this.robots.remove(robot);
+    }
+
     public BattleState getState() {
         return state;
     }
 
     public void setState(BattleState state) {
+        BattleState previousState = this.state;
         this.state = state;
+        if (stateChangeListener != null && previousState != state) {
+            stateChangeListener.stateChanged(this, previousState, state);
+        }
+    }
+
+    /**
+     * Registers the listener to notify of state changes, replacing any previous listener.
+     *
+     * @param listener The listener, or null to stop notifications
+     */
+    public void onStateChange(StateChangeListener listener) {
+        this.stateChangeListener = listener;
     }
 
     public String getName() {
@@ -160,13 +240,13 @@ public class Battle {
 
     private void updateState() {
         if ((testMode && robots.size() >= 1) || (!testMode && robots.size() >= 2)) {
-            this.state = BattleState.READY;
+            setState(BattleState.READY);
         }
     }
 
     public void startBattle() {
         if (this.state == BattleState.READY) {
-            this.state = BattleState.IN_PROGRESS;
+            setState(BattleState.IN_PROGRESS);
         }
     }
 
@@ -174,14 +254,31 @@ public class Battle {
         return walls;
     }
 
+    /**
+     * Replaces the walls of the arena. The walls are placed in the battle and can no longer change.
+     *
+     * @param walls The walls
+     * @throws NullPointerException if the list or one of its walls is null
+     */
     public void setWalls(List<Wall> walls) {
-        this.walls = walls;
+        this.walls = new WallList(Objects.requireNonNull(walls, "walls"), this.walls.version() + 1);
+        this.wallGrid = null;
     }
 
     public void addWall(Wall wall) {
         this.walls.add(wall);
     }
 
+    /**
+     * Gets the version of the arena's walls, which goes up with every change to them, replacing the list included.
+     * Two reads with the same version saw the same walls.
+     *
+     * @return The walls version
+     */
+    public int wallsVersion() {
+        return walls.version();
+    }
+
     public String getWinnerId() {
         return winnerId;
     }
@@ -201,35 +298,125 @@ public class Battle {
     public void declareWinner(Robot winner) {
         this.winnerId = winner.getId();
         this.winnerName = winner.getName();
-        this.state = BattleState.COMPLETED;
+        setState(BattleState.COMPLETED);
     }
 
     public boolean isPositionOccupiedByWall(int x, int y) {
-        return walls.stream().anyMatch(wall -> wall.containsPosition(x, y));
+        return wallGrid().isWall(x, y);
+    }
+
+    /**
+     * Gets the occupancy grid of the walls in the arena, rebuilding it if the walls or the arena size changed
+     * since it was last built.
+     *
+     * @return The wall grid
+     */
+    public WallGrid wallGrid() {
+        WallGrid grid = wallGrid;
+        int version = walls.version();
+        if (grid == null || !grid.isBuiltFor(arenaWidth, arenaHeight, version)) {
+            grid = WallGrid.build(arenaWidth, arenaHeight, walls, version);
+            wallGrid = grid;
+        }
+        return grid;
+    }
+
+    /**
+     * Gets the spatial index of the robots in the arena, rebuilding it if robots were added or removed or the
+     * arena size changed since it was last built. Robot moves keep the index up to date without a rebuild.
+     * Like every change to the battle, building the index and moving robots happen on the battle's mailbox, so
+     * the grid's own lock is the only one a move takes.
+     *
+     * @return The robot grid
+     */
+    public RobotGrid robotGrid() {
+        RobotGrid grid = robotGrid;
+        if (grid == null || !grid.isBuiltFor(arenaWidth, arenaHeight)) {
+            grid = new RobotGrid(arenaWidth, arenaHeight);
+            for (Robot robot : robots) {
+                robot.onPositionChange(this::robotMoved);
+                grid.add(robot);
+            }
+            robotGrid = grid;
+        }
+        return grid;
+    }
+
+    private void robotMoved(Robot robot, int previousX, int previousY) {
+        RobotGrid grid = robotGrid;
+        if (grid != null) {
+            grid.move(robot, previousX, previousY);
+        }
+    }
+
+    private void invalidateRobotGrid() {
+        robotGrid = null;
     }
 
     public long getActiveRobotCount() {
-        return robots.stream().filter(Robot::isActive).count();
+        return robotStore.countActive();
     }
 
     public Robot getActiveRobot() {
-        return robots.stream().filter(Robot::isActive).findFirst().orElse(null);
+        return robotStore.firstActive();
+    }
+
+    /**
+     * Gets the primitive store backing the state of this battle's robots.
+     *
+     * @return The robot store
+     */
+    public RobotStore robotStore() {
+        return robotStore;
     }
 
+    /**
+     * Gets the most recent robot actions; older ones are paged through with {@link #robotActionLog()}.
+     *
+     * @return The recent actions, oldest first
+     */
     public List<RobotAction> getRobotActions() {
-        return robotActions;
+        return robotActions.recent();
     }
 
+    /**
+     * Replaces the robot actions with a new log holding the given ones.
+     *
+     * @param robotActions The actions, oldest first
+     */
     public void setRobotActions(List<RobotAction> robotActions) {
-        this.robotActions = robotActions;
+        RobotActionLog log = new RobotActionLog(this.robotActions.capacity(), this.robotActions.recentCount());
+        for (RobotAction robotAction : robotActions) {
+            log.append(robotAction);
+        }
+        this.robotActions = log;
+    }
+
+    /**
+     * Gets the log holding this battle's robot actions.
+     *
+     * @return The action log
+     */
+    public RobotActionLog robotActionLog() {
+        return robotActions;
+    }
+
+    /**
+     * Replaces the robot action log with an empty one of the given size, before the battle starts.
+     *
+     * @param capacity The most actions held
+     * @param recentCount How many of the most recent actions full battle state embeds
+     */
+    public void configureRobotActionLog(int capacity, int recentCount) {
+        this.robotActions = new RobotActionLog(capacity, recentCount);
     }
 
     public void addRobotAction(RobotAction robotAction) {
-        this.robotActions.add(robotAction);
+        this.robotActions.append(robotAction);
     }
 
     public void addRobotAction(String robotId, String robotName, String action) {
-        this.robotActions.add(new RobotAction(robotId, robotName, action));
+        this.robotActions.append(new RobotAction(robotId, robotName, action));
     }
 
     public boolean isTestMode() {
@@ -239,4 +426,211 @@ public class Battle {
     public void setTestMode(boolean testMode) {
         this.testMode = testMode;
     }
+
+    public boolean isAccelerated() {
+        return accelerated;
+    }
+
+    public void setAccelerated(boolean accelerated) {
+        this.accelerated = accelerated;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the battle seed and restarts the battle's random streams from it.
+     *
+     * @param seed The battle seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.random = new BattleRandom(seed);
+    }
+
+    /**
+     * Gets the random streams of the battle.
+     *
+     * @return The battle's random streams
+     */
+    public BattleRandom random() {
+        return random;
+    }
+
+    /**
+     * Robot list that keeps the robot store and robot grid in step with its members. As with the wall list every
+     * change goes through {@link #add(int, Robot)}, {@link #set(int, Robot)} or {@link #remove(int)}, sub-lists
+     * and list iterators included. Iteration runs over a snapshot of the copy-on-write list behind it, so a
+     * robot leaving mid-loop does not disturb the loop; removing through the iterator removes from the battle.
+     */
+    private final class RobotList extends AbstractList<Robot> implements RandomAccess {
+
+        private final CopyOnWriteArrayList<Robot> robots;
+
+        RobotList() {
+            this.robots = new CopyOnWriteArrayList<>();
+        }
+
+        RobotList(Collection<Robot> robots) {
+            this.robots = new CopyOnWriteArrayList<>(robots);
+        }
+
+        @Override
+        public Robot get(int index) {
+            return robots.get(index);
+        }
+
+        @Override
+        public int size() {
+            return robots.size();
+        }
+
+        @Override
+        public Robot set(int index, Robot robot) {
+            Objects.requireNonNull(robot, "robot");
+            Robot previous = robots.set(index, robot);
+            if (previous != robot) {
+                left(previous);
+                robotStore.attach(robot);
+                invalidateRobotGrid();
+            }
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Robot robot) {
+            robots.add(index, Objects.requireNonNull(robot, "robot"));
+            modCount++;
+            robotStore.attach(robot);
+            invalidateRobotGrid();
+        }
+
+        @Override
+        public Robot remove(int index) {
+            Robot removed = robots.remove(index);
+            modCount++;
+            left(removed);
+            invalidateRobotGrid();
+            return removed;
+        }
+
+        @Override
+        public Iterator<Robot> iterator() {
+            Iterator<Robot> snapshot = robots.iterator();
+            return new Iterator<>() {
+                private Robot last;
+
+                @Override
+                public boolean hasNext() {
+                    return snapshot.hasNext();
+                }
+
+                @Override
+                public Robot next() {
+                    last = snapshot.next();
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    int index = robots.indexOf(last);
+                    if (index >= 0) {
+                        RobotList.this.remove(index);
+                    }
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<Robot> spliterator() {
+            return robots.spliterator();
+        }
+
+        /**
+         * Detaches a robot that left the list from the store, unless the list still holds it elsewhere.
+         */
+        private void left(Robot robot) {
+            if (!robots.contains(robot)) {
+                robotStore.detach(robot);
+            }
+        }
+    }
+
+    /**
+     * Wall list that counts its changes, so the wall grid and the battle's subscribers can tell when they are out
+     * of date however the list was changed. Every change goes through {@link #add(int, Wall)},
+     * {@link #set(int, Wall)} or {@link #remove(int)}, sub-lists and iterators included, and walls are placed as
+     * they are added, so they cannot change behind the list's back. A list that replaces another carries on from
+     * its version.
+     */
+    private static final class WallList extends AbstractList<Wall> implements RandomAccess {
+
+        private final ArrayList<Wall> walls;
+        private int version;
+
+        WallList() {
+            this.walls = new ArrayList<>();
+        }
+
+        WallList(Collection<Wall> walls, int version) {
+            this.walls = new ArrayList<>(walls.size());
+            for (Wall wall : walls) {
+                this.walls.add(placed(wall));
+            }
+            this.version = version;
+        }
+
+        int version() {
+            return version;
+        }
+
+        @Override
+        public Wall get(int index) {
+            return walls.get(index);
+        }
+
+        @Override
+        public int size() {
+            return walls.size();
+        }
+
+        @Override
+        public Wall set(int index, Wall wall) {
+            Wall previous = walls.set(index, placed(wall));
+            version++;
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Wall wall) {
+            walls.add(index, placed(wall));
+            modCount++;
+            version++;
+        }
+
+        @Override
+        public Wall remove(int index) {
+            Wall removed = walls.remove(index);
+            modCount++;
+            version++;
+            return removed;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            walls.subList(fromIndex, toIndex).clear();
+            modCount++;
+            version++;
+        }
+
+        private static Wall placed(Wall wall) {
+            Objects.requireNonNull(wall, "wall").place();
+            return wall;
+        }
+    }
 }
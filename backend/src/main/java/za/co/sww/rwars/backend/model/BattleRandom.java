@@ -0,0 +1,67 @@
+package za.co.sww.rwars.backend.model;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Per-battle source of randomness.
+ *
+ * Every random decision about a battle is drawn from a stream split off one {@link SplittableRandom} seeded with
+ * the battle's seed, one stream per concern. The same seed therefore always gives the same arena and the same
+ * spawn positions, however many draws the other streams make.
+ */
+public final class BattleRandom {
+
+    /**
+     * Generated seeds stay below 2^53 so that they survive a round trip through a JavaScript number.
+     */
+    private static final long MAX_GENERATED_SEED = 1L << 53;
+
+    private final long seed;
+    private final SplittableRandom walls;
+    private final SplittableRandom spawns;
+
+    /**
+     * Creates the random streams for a seed.
+     *
+     * @param seed The battle seed
+     */
+    public BattleRandom(long seed) {
+        this.seed = seed;
+        SplittableRandom root = new SplittableRandom(seed);
+        this.walls = root.split();
+        this.spawns = root.split();
+    }
+
+    /**
+     * Generates a fresh seed for a battle created without one.
+     *
+     * @return A non-negative seed below 2^53
+     */
+    public static long newSeed() {
+        return ThreadLocalRandom.current().nextLong(MAX_GENERATED_SEED);
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Gets the stream used to lay out the arena's walls.
+     *
+     * @return The wall stream
+     */
+    public RandomGenerator walls() {
+        return walls;
+    }
+
+    /**
+     * Gets the stream used to pick spawn positions, in registration order.
+     *
+     * @return The spawn stream
+     */
+    public RandomGenerator spawns() {
+        return spawns;
+    }
+}
@@ -0,0 +1,134 @@
+package za.co.sww.rwars.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A copy of a battle and its robots at one point in time, detached from the battle itself.
+ *
+ * Walls are shared with the battle rather than copied, as a wall placed in a battle is immutable; see {@link Wall}.
+ * Only the battle's most recent robot actions are kept; restoring numbers them afresh.
+ *
+ * @param id The battle ID
+ * @param name The battle name
+ * @param arenaWidth The arena width
+ * @param arenaHeight The arena height
+ * @param robotMovementTimeSeconds The time it takes a robot to move one block
+ * @param seed The battle seed
+ * @param state The battle state
+ * @param winnerId The winning robot's ID, or null
+ * @param winnerName The winning robot's name, or null
+ * @param testMode Whether the battle is a test battle
+ * @param accelerated Whether the battle runs on a virtual clock
+ * @param walls The walls
+ * @param robots The robots, in registration order
+ * @param robotActions The most recent robot actions, oldest first
+ */
+public record BattleSnapshot(String id, String name, int arenaWidth, int arenaHeight,
+                             double robotMovementTimeSeconds, long seed, Battle.BattleState state, String winnerId,
+                             String winnerName, boolean testMode, boolean accelerated, List<Wall> walls,
+                             List<RobotSnapshot> robots, List<RobotAction> robotActions) {
+
+    /**
+     * Copies a battle. Must be called where the battle is not being changed, such as its mailbox.
+     *
+     * @param battle The battle
+     * @return The snapshot
+     */
+    public static BattleSnapshot of(Battle battle) {
+        List<RobotSnapshot> robots = new ArrayList<>(battle.getRobotCount());
+        for (Robot robot : battle.getRobots()) {
+            robots.add(RobotSnapshot.of(robot));
+        }
+        return new BattleSnapshot(battle.getId(), battle.getName(), battle.getArenaWidth(), battle.getArenaHeight(),
+                battle.getRobotMovementTimeSeconds(), battle.getSeed(), battle.getState(), battle.getWinnerId(),
+                battle.getWinnerName(), battle.isTestMode(), battle.isAccelerated(), List.copyOf(battle.getWalls()),
+                List.copyOf(robots), copyActions(battle.getRobotActions()));
+    }
+
+    /**
+     * Creates a new battle from the snapshot. Each call gives a battle of its own, with robots of its own.
+     *
+     * @return The battle
+     */
+    public Battle restore() {
+        Battle battle = new Battle(name, arenaWidth, arenaHeight, robotMovementTimeSeconds);
+        battle.setId(id);
+        battle.setSeed(seed);
+        battle.setTestMode(testMode);
+        battle.setAccelerated(accelerated);
+        battle.setWalls(walls);
+        for (RobotSnapshot robot : robots) {
+            battle.addRobot(robot.restore(id));
+        }
+        battle.setWinnerId(winnerId);
+        battle.setWinnerName(winnerName);
+        battle.setState(state);
+        battle.setRobotActions(copyActions(robotActions));
+        return battle;
+    }
+
+    private static List<RobotAction> copyActions(List<RobotAction> actions) {
+        // Actions are numbered when they are appended to a log, so the snapshot keeps copies of its own
+        List<RobotAction> copies = new ArrayList<>(actions.size());
+        for (RobotAction action : actions) {
+            RobotAction copy = new RobotAction(action.getRobotId(), action.getRobotName(), action.getAction(),
+                    action.getTimestamp());
+            copy.setSeq(action.getSeq());
+            copies.add(copy);
+        }
+        return List.copyOf(copies);
+    }
+
+    /**
+     * A copy of a robot.
+     *
+     * @param id The robot ID
+     * @param name The robot name
+     * @param positionX The X coordinate
+     * @param positionY The Y coordinate
+     * @param direction The direction the robot faces
+     * @param status The robot status
+     * @param targetBlocks The blocks of the robot's current move
+     * @param blocksRemaining The blocks the robot has left to move
+     * @param hitPoints The hit points
+     * @param maxHitPoints The maximum hit points
+     */
+    public record RobotSnapshot(String id, String name, int positionX, int positionY, Robot.Direction direction,
+                                Robot.RobotStatus status, int targetBlocks, int blocksRemaining, int hitPoints,
+                                int maxHitPoints) {
+
+        /**
+         * Copies a robot.
+         *
+         * @param robot The robot
+         * @return The snapshot
+         */
+        public static RobotSnapshot of(Robot robot) {
+            return new RobotSnapshot(robot.getId(), robot.getName(), robot.getPositionX(), robot.getPositionY(),
+                    robot.getDirection(), robot.getStatus(), robot.getTargetBlocks(), robot.getBlocksRemaining(),
+                    robot.getHitPoints(), robot.getMaxHitPoints());
+        }
+
+        /**
+         * Creates a new robot from the snapshot.
+         *
+         * @param battleId The ID of the battle the robot belongs to
+         * @return The robot
+         */
+        public Robot restore(String battleId) {
+            Robot robot = new Robot(name, battleId);
+            robot.setId(id);
+            robot.setPositionX(positionX);
+            robot.setPositionY(positionY);
+            robot.setDirection(direction);
+            robot.setTargetBlocks(targetBlocks);
+            robot.setBlocksRemaining(blocksRemaining);
+            robot.setMaxHitPoints(maxHitPoints);
+            // Hit points first, as running out of them marks the robot destroyed
+            robot.setHitPoints(hitPoints);
+            robot.setStatus(status);
+            return robot;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package za.co.sww.rwars.backend.model;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Straight laser path stored as a start point, a step direction and a length.
+ *
+ * It is a read-only list of the cells the laser travelled through, starting with the firing robot's cell, so it
+ * serializes exactly like a list of positions. Positions are only created when the list is read, which keeps
+ * long lasers free of per-step allocation until the response is written out.
+ */
+public final class LaserPath extends AbstractList<LaserResponse.Position> implements RandomAccess {
+
+    private final int startX;
+    private final int startY;
+    private final int deltaX;
+    private final int deltaY;
+    private final int length;
+
+    /**
+     * Creates a path.
+     *
+     * @param startX The X coordinate of the firing robot
+     * @param startY The Y coordinate of the firing robot
+     * @param deltaX The X step per cell (-1, 0 or 1)
+     * @param deltaY The Y step per cell (-1, 0 or 1)
+     * @param length The number of cells travelled after the start cell
+     */
+    public LaserPath(int startX, int startY, int deltaX, int deltaY, int length) {
+        this.startX = startX;
+        this.startY = startY;
+        this.deltaX = deltaX;
+        this.deltaY = deltaY;
+        this.length = Math.max(0, length);
+    }
+
+    public int getStartX() {
+        return startX;
+    }
+
+    public int getStartY() {
+        return startY;
+    }
+
+    public int getDeltaX() {
+        return deltaX;
+    }
+
+    public int getDeltaY() {
+        return deltaY;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public LaserResponse.Position get(int index) {
+        if (index < 0 || index > length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return new LaserResponse.Position(startX + deltaX * index, startY + deltaY * index);
+    }
+
+    @Override
+    public int size() {
+        return length + 1;
+    }
+}
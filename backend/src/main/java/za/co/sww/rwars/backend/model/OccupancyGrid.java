@@ -0,0 +1,187 @@
+package za.co.sww.rwars.backend.model;
+
+/**
+ * Compact bitset over the cells of an arena, one bit per cell.
+ *
+ * Cells are stored row by row, so cell (x, y) is bit {@code y * width + x}. Coordinates outside the grid are
+ * never occupied and are ignored when set.
+ */
+public final class OccupancyGrid {
+
+    private final int width;
+    private final int height;
+    private final long[] bits;
+
+    /**
+     * Creates an empty grid.
+     *
+     * @param width The grid width in cells
+     * @param height The grid height in cells
+     */
+    public OccupancyGrid(int width, int height) {
+        this.width = Math.max(0, width);
+        this.height = Math.max(0, height);
+        this.bits = new long[(int) ((((long) this.width * this.height) + 63) >>> 6)];
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Checks whether a cell lies inside the grid.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @return true if the cell is inside the grid
+     */
+    public boolean contains(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * Checks whether a cell is occupied.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @return true if the cell is inside the grid and occupied
+     */
+    public boolean isOccupied(int x, int y) {
+        if (!contains(x, y)) {
+            return false;
+        }
+        int index = y * width + x;
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Marks a cell as occupied.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     */
+    public void set(int x, int y) {
+        if (contains(x, y)) {
+            int index = y * width + x;
+            bits[index >>> 6] |= 1L << index;
+        }
+    }
+
+    /**
+     * Marks a cell as free.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     */
+    public void clear(int x, int y) {
+        if (contains(x, y)) {
+            int index = y * width + x;
+            bits[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Checks whether every cell of a rectangle is free, testing up to 64 cells of a row at a time.
+     *
+     * @param x The X coordinate of the rectangle's lower left cell
+     * @param y The Y coordinate of the rectangle's lower left cell
+     * @param rectangleWidth The rectangle width in cells
+     * @param rectangleHeight The rectangle height in cells
+     * @return true if the rectangle lies inside the grid and none of its cells are occupied
+     */
+    public boolean isRectangleFree(int x, int y, int rectangleWidth, int rectangleHeight) {
+        if (rectangleWidth <= 0 || rectangleHeight <= 0) {
+            return true;
+        }
+        if (x < 0 || y < 0 || x + rectangleWidth > width || y + rectangleHeight > height) {
+            return false;
+        }
+        for (int row = y; row < y + rectangleHeight; row++) {
+            int from = row * width + x;
+            if (anySet(from, from + rectangleWidth)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks every cell of a rectangle as occupied. Cells outside the grid are ignored.
+     *
+     * @param x The X coordinate of the rectangle's lower left cell
+     * @param y The Y coordinate of the rectangle's lower left cell
+     * @param rectangleWidth The rectangle width in cells
+     * @param rectangleHeight The rectangle height in cells
+     */
+    public void setRectangle(int x, int y, int rectangleWidth, int rectangleHeight) {
+        int fromX = Math.max(0, x);
+        int toX = Math.min(width, x + rectangleWidth);
+        int fromY = Math.max(0, y);
+        int toY = Math.min(height, y + rectangleHeight);
+        if (fromX >= toX) {
+            return;
+        }
+        for (int row = fromY; row < toY; row++) {
+            int from = row * width + fromX;
+            setRange(from, from + (toX - fromX));
+        }
+    }
+
+    /**
+     * Checks whether any bit in [from, to) is set.
+     */
+    private boolean anySet(int from, int to) {
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (firstWord == lastWord) {
+            return (bits[firstWord] & firstMask & lastMask) != 0;
+        }
+        if ((bits[firstWord] & firstMask) != 0) {
+            return true;
+        }
+        for (int word = firstWord + 1; word < lastWord; word++) {
+            if (bits[word] != 0) {
+                return true;
+            }
+        }
+        return (bits[lastWord] & lastMask) != 0;
+    }
+
+    /**
+     * Sets every bit in [from, to).
+     */
+    private void setRange(int from, int to) {
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (firstWord == lastWord) {
+            bits[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        bits[firstWord] |= firstMask;
+        for (int word = firstWord + 1; word < lastWord; word++) {
+            bits[word] = -1L;
+        }
+        bits[lastWord] |= lastMask;
+    }
+
+    /**
+     * Counts the occupied cells.
+     *
+     * @return The number of occupied cells
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -37,6 +37,22 @@ public class Robot {
         SW
     }
 
+    /**
+     * Listener notified whenever the position of a robot changes.
+     */
+    @FunctionalInterface
+    public interface PositionChangeListener {
+        void positionChanged(Robot robot, int previousX, int previousY);
+    }
+
+    /**
+     * Listener notified whenever the status or hit points of a robot change.
+     */
+    @FunctionalInterface
+    public interface StatusChangeListener {
+        void statusChanged(Robot robot);
+    }
+
     @Schema(description = "Unique identifier of the robot", example = "robot-123")
     private String id;
 
@@ -70,6 +86,12 @@ public class Robot {
     @Schema(description = "Maximum hit points the robot can have", example = "100")
     private int maxHitPoints;
 
+    private PositionChangeListener positionChangeListener;
+
+    private StatusChangeListener statusChangeListener;
+
+    private volatile RobotStore.Slot slot;
+
     public Robot() {
         this.id = UUID.randomUUID().toString();
         this.positionX = 0;
@@ -134,35 +156,84 @@ public class Robot {
     }
 
     public int getPositionX() {
-        return positionX;
+        RobotStore.Slot current = slot;
+        return current == null ? positionX : current.positionX();
     }
 
     public void setPositionX(int positionX) {
-        this.positionX = positionX;
+        int previousX = getPositionX();
+        RobotStore.Slot current = slot;
+        if (current == null) {
+            this.positionX = positionX;
+        } else {
+            current.positionX(positionX);
+        }
+        if (positionChangeListener != null && previousX != positionX) {
+            positionChangeListener.positionChanged(this, previousX, getPositionY());
+        }
     }
 
     public int getPositionY() {
-        return positionY;
+        RobotStore.Slot current = slot;
+        return current == null ? positionY : current.positionY();
     }
 
     public void setPositionY(int positionY) {
-        this.positionY = positionY;
+        int previousY = getPositionY();
+        RobotStore.Slot current = slot;
+        if (current == null) {
+            this.positionY = positionY;
+        } else {
+            current.positionY(positionY);
+        }
+        if (positionChangeListener != null && previousY != positionY) {
+            positionChangeListener.positionChanged(this, getPositionX(), previousY);
+        }
+    }
+
+    /**
+     * Registers the listener to notify of position changes, replacing any previous listener.
+     *
+     * @param listener The listener, or null to stop notifications
+     */
+    public void onPositionChange(PositionChangeListener listener) {
+        this.positionChangeListener = listener;
     }
 
     public Direction getDirection() {
-        return direction;
+        RobotStore.Slot current = slot;
+        return current == null ? direction : current.direction();
     }
 
     public void setDirection(Direction direction) {
-        this.direction = direction;
+        RobotStore.Slot current = slot;
+        if (current == null) {
+            this.direction = direction;
+        } else {
+            current.direction(direction);
+        }
     }
 
     public RobotStatus getStatus() {
-        return status;
+        RobotStore.Slot current = slot;
+        return current == null ? status : current.status();
     }
 
     public void setStatus(RobotStatus status) {
-        this.status = status;
+        RobotStatus previousStatus = getStatus();
+        writeStatus(status);
+        if (statusChangeListener != null && previousStatus != status) {
+            statusChangeListener.statusChanged(this);
+        }
+    }
+
+    private void writeStatus(RobotStatus status) {
+        RobotStore.Slot current = slot;
+        if (current == null) {
+            this.status = status;
+        } else {
+            current.status(status);
+        }
     }
 
     public int getTargetBlocks() {
@@ -174,22 +245,26 @@ public class Robot {
     }
 
     public int getBlocksRemaining() {
-        return blocksRemaining;
+        RobotStore.Slot current = slot;
+        return current == null ? blocksRemaining : current.blocksRemaining();
     }
 
     public void setBlocksRemaining(int blocksRemaining) {
-        this.blocksRemaining = blocksRemaining;
+        RobotStore.Slot current = slot;
+        if (current == null) {
+            this.blocksRemaining = blocksRemaining;
+        } else {
+            current.blocksRemaining(blocksRemaining);
+        }
     }
 
     public int getHitPoints() {
-        return hitPoints;
+        RobotStore.Slot current = slot;
+        return current == null ? hitPoints : current.hitPoints();
     }
 
     public void setHitPoints(int hitPoints) {
-        this.hitPoints = hitPoints;
-        if (hitPoints <= 0 && status != RobotStatus.CRASHED) {
-            this.status = RobotStatus.DESTROYED;
-        }
+        changeHitPoints(hitPoints);
     }
 
     public int getMaxHitPoints() {
@@ -201,13 +276,87 @@ public class Robot {
     }
 
     public void takeDamage(int damage) {
-        this.hitPoints = Math.max(0, this.hitPoints - damage);
-        if (this.hitPoints == 0 && status != RobotStatus.CRASHED) {
-            this.status = RobotStatus.DESTROYED;
+        changeHitPoints(Math.max(0, getHitPoints() - damage));
+    }
+
+    /**
+     * Sets the hit points, destroys the robot when none are left and notifies the status listener once.
+     */
+    private void changeHitPoints(int hitPoints) {
+        int previousHitPoints = getHitPoints();
+        RobotStatus previousStatus = getStatus();
+        RobotStore.Slot current = slot;
+        if (current == null) {
+            this.hitPoints = hitPoints;
+        } else {
+            current.hitPoints(hitPoints);
+        }
+        if (hitPoints <= 0 && previousStatus != RobotStatus.CRASHED) {
+            writeStatus(RobotStatus.DESTROYED);
+        }
+        if (statusChangeListener != null
+            && (previousHitPoints != hitPoints || previousStatus != getStatus())) {
+            statusChangeListener.statusChanged(this);
         }
     }
 
+    /**
+     * Registers the listener to notify of status and hit point changes, replacing any previous listener.
+     *
+     * @param listener The listener, or null to stop notifications
+     */
+    public void onStatusChange(StatusChangeListener listener) {
+        this.statusChangeListener = listener;
+    }
+
     public boolean isActive() {
+        RobotStore.Slot current = slot;
+        if (current != null) {
+            return current.isActive();
+        }
         return hitPoints > 0 && status != RobotStatus.CRASHED && status != RobotStatus.DESTROYED;
     }
+
+    RobotStore store() {
+        RobotStore.Slot current = slot;
+        return current == null ? null : current.store();
+    }
+
+    /**
+     * Moves this robot's state into a store slot; from now on the robot is a view over the slot.
+     */
+    void bind(RobotStore.Slot robotSlot) {
+        robotSlot.positionX(positionX);
+        robotSlot.positionY(positionY);
+        robotSlot.hitPoints(hitPoints);
+        robotSlot.status(status);
+        robotSlot.direction(direction);
+        robotSlot.blocksRemaining(blocksRemaining);
+        this.slot = robotSlot;
+    }
+
+    /**
+     * Moves this robot over to a slot that already holds a copy of its state.
+     */
+    void rebind(RobotStore.Slot robotSlot) {
+        this.slot = robotSlot;
+    }
+
+    /**
+     * Copies this robot's state back out of its store slot.
+     *
+     * @return The slot the robot was bound to
+     */
+    RobotStore.Slot unbind() {
+        RobotStore.Slot previous = slot;
+        positionX = previous.positionX();
+        positionY = previous.positionY();
+        hitPoints = previous.hitPoints();
+        status = previous.status();
+        direction = previous.direction();
+        blocksRemaining = previous.blocksRemaining();
+        // Publishes the copied fields to readers that see the robot unbound
+        slot = null;
+        return previous;
+    }
 }
@@ -9,6 +9,7 @@ import io.quarkus.runtime.annotations.RegisterForReflection;
  */
 @RegisterForReflection
 public class RobotAction {
+    private long seq;
     private String robotId;
     private String robotName;
     private String action;
@@ -47,6 +48,20 @@ public class RobotAction {
     }
 
     // Getters and setters
+
+    /**
+     * Gets the sequence number the battle's action log gave this action, 0 until it is logged.
+     *
+     * @return The sequence number
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
     public String getRobotId() {
         return robotId;
     }
@@ -82,7 +97,8 @@ public class RobotAction {
     @Override
     public String toString() {
         return "RobotAction{"
-                + "robotId='" + robotId + '\''
+                + "seq=" + seq
+                + ", robotId='" + robotId + '\''
                 + ", robotName='" + robotName + '\''
                 + ", action='" + action + '\''
                 + ", timestamp=" + timestamp
@@ -0,0 +1,152 @@
+package za.co.sww.rwars.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The robot actions of a battle, kept in a ring buffer of fixed capacity.
+ *
+ * Every action appended gets the log's next sequence number, starting at 1. Once the buffer is full the oldest
+ * action is overwritten, so memory per battle stays bounded however long a battle runs, while sequence numbers
+ * keep increasing: a client pages through the actions still held with {@link #after(long, int)} and can tell from
+ * {@link #firstSeq()} whether any it has not seen were overwritten. Full battle state embeds only the most recent
+ * actions, see {@link #recent()}.
+ */
+public final class RobotActionLog {
+
+    public static final int DEFAULT_CAPACITY = 1000;
+    public static final int DEFAULT_RECENT = 50;
+
+    private final RobotAction[] entries;
+    private final int recentCount;
+    private long lastSeq;
+    private int size;
+
+    /**
+     * Creates a log with the default capacity.
+     */
+    public RobotActionLog() {
+        this(DEFAULT_CAPACITY, DEFAULT_RECENT);
+    }
+
+    /**
+     * Creates a log.
+     *
+     * @param capacity The most actions held
+     * @param recentCount How many of the most recent actions full battle state embeds, at most the capacity
+     * @throws IllegalArgumentException if the capacity is not positive or the recent count is negative
+     */
+    public RobotActionLog(int capacity, int recentCount) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Action log capacity must be positive");
+        }
+        if (recentCount < 0) {
+            throw new IllegalArgumentException("Recent action count must not be negative");
+        }
+        this.entries = new RobotAction[capacity];
+        this.recentCount = Math.min(recentCount, capacity);
+    }
+
+    /**
+     * Appends an action, overwriting the oldest one if the log is full, and gives it the next sequence number.
+     *
+     * @param action The action
+     * @return The action's sequence number
+     */
+    public synchronized long append(RobotAction action) {
+        long seq = ++lastSeq;
+        action.setSeq(seq);
+        entries[index(seq)] = action;
+        size = Math.min(size + 1, entries.length);
+        return seq;
+    }
+
+    /**
+     * Gets the actions after a sequence number, oldest first.
+     *
+     * @param seq The sequence number of the last action the caller has; 0 to start at the oldest held
+     * @param limit The most actions returned
+     * @return The actions, empty if there are none after the sequence number
+     */
+    public synchronized List<RobotAction> after(long seq, int limit) {
+        if (seq >= lastSeq) {
+            // Also keeps seq + 1 below from overflowing
+            return new ArrayList<>(0);
+        }
+        long from = Math.max(seq + 1, lastSeq - size + 1);
+        long to = Math.min(lastSeq, from + Math.max(limit, 0) - 1);
+        List<RobotAction> actions = new ArrayList<>((int) Math.max(to - from + 1, 0));
+        for (long s = from; s <= to; s++) {
+            actions.add(entries[index(s)]);
+        }
+        return actions;
+    }
+
+    /**
+     * Gets the most recent actions that full battle state embeds, oldest first.
+     *
+     * @return The recent actions
+     */
+    public List<RobotAction> recent() {
+        return last(recentCount);
+    }
+
+    /**
+     * Gets the most recent actions, oldest first.
+     *
+     * @param count How many actions to return at most
+     * @return The actions
+     */
+    public synchronized List<RobotAction> last(int count) {
+        return after(lastSeq - Math.min(Math.max(count, 0), size), count);
+    }
+
+    /**
+     * Gets the sequence number of the oldest action held.
+     *
+     * @return The sequence number, or the next one to be given out if the log is empty
+     */
+    public synchronized long firstSeq() {
+        return lastSeq - size + 1;
+    }
+
+    /**
+     * Gets the sequence number of the newest action.
+     *
+     * @return The sequence number, 0 if no action was ever appended
+     */
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Gets the number of actions held.
+     *
+     * @return The number of actions
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gets the most actions held.
+     *
+     * @return The capacity
+     */
+    public int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Gets how many of the most recent actions full battle state embeds.
+     *
+     * @return The recent action count
+     */
+    public int recentCount() {
+        return recentCount;
+    }
+
+    private int index(long seq) {
+        return (int) ((seq - 1) % entries.length);
+    }
+}
@@ -0,0 +1,37 @@
+package za.co.sww.rwars.backend.model;
+
+import java.util.List;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * A page of a battle's robot actions.
+ *
+ * @param actions The actions, oldest first
+ * @param firstSeq Sequence number of the oldest action the battle still holds
+ * @param lastSeq Sequence number of the newest action, 0 if there are none
+ */
+@Schema(description = "A page of a battle's robot actions, in sequence order")
+@RegisterForReflection
+public record RobotActionPage(
+        @Schema(description = "The actions, oldest first")
+        List<RobotAction> actions,
+
+        @Schema(description = "Sequence number of the oldest action still held; older actions were overwritten",
+                example = "1")
+        long firstSeq,
+
+        @Schema(description = "Sequence number of the newest action, 0 if there are none", example = "42")
+        long lastSeq) {
+
+    /**
+     * Gets the sequence number to page from next.
+     *
+     * @return The sequence number of the last action on this page, or of the newest action if the page is empty
+     */
+    @Schema(description = "Pass as the after parameter to get the next page", example = "42")
+    public long getNextAfter() {
+        return actions.isEmpty() ? lastSeq : actions.get(actions.size() - 1).getSeq();
+    }
+}
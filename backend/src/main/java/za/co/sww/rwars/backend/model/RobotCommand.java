@@ -0,0 +1,78 @@
+package za.co.sww.rwars.backend.model;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * One command in a robot command batch.
+ */
+@Schema(description = "A single robot command: MOVE, RADAR, LASER or STATUS")
+@RegisterForReflection
+public class RobotCommand {
+
+    @Schema(description = "Type of robot command")
+    public enum Type {
+        MOVE,
+        RADAR,
+        LASER,
+        STATUS
+    }
+
+    @Schema(description = "Type of the command", required = true)
+    private Type type;
+
+    @Schema(description = "Direction to move or fire in, for MOVE and LASER commands",
+            example = "NORTH",
+            enumeration = {"NORTH", "SOUTH", "EAST", "WEST", "NE", "NW", "SE", "SW"})
+    private String direction;
+
+    @Schema(description = "Number of blocks to move, for MOVE commands", example = "3", minimum = "1",
+            maximum = "10")
+    private Integer blocks;
+
+    @Schema(description = "Range of the radar scan, for RADAR commands; defaults to 5", example = "5",
+            minimum = "1", maximum = "20")
+    private Integer range;
+
+    public RobotCommand() {
+    }
+
+    public RobotCommand(Type type, String direction, Integer blocks, Integer range) {
+        this.type = type;
+        this.direction = direction;
+        this.blocks = blocks;
+        this.range = range;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+
+    public Integer getBlocks() {
+        return blocks;
+    }
+
+    public void setBlocks(Integer blocks) {
+        this.blocks = blocks;
+    }
+
+    public Integer getRange() {
+        return range;
+    }
+
+    public void setRange(Integer range) {
+        this.range = range;
+    }
+}
@@ -0,0 +1,75 @@
+package za.co.sww.rwars.backend.model;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Result of one command in a robot command batch.
+ * Only the field that matches the command type is set.
+ */
+@Schema(description = "Result of a single robot command, holding the same body the matching endpoint returns")
+@RegisterForReflection
+public class RobotCommandResult {
+
+    @Schema(description = "Type of the command this result belongs to")
+    private RobotCommand.Type type;
+
+    @Schema(description = "The robot after a MOVE command was accepted")
+    private Robot robot;
+
+    @Schema(description = "The robot status for a STATUS command")
+    private RobotStatus status;
+
+    @Schema(description = "The scan result of a RADAR command")
+    private RadarResponse radar;
+
+    @Schema(description = "The shot result of a LASER command")
+    private LaserResponse laser;
+
+    public RobotCommandResult() {
+    }
+
+    public RobotCommandResult(RobotCommand.Type type) {
+        this.type = type;
+    }
+
+    public RobotCommand.Type getType() {
+        return type;
+    }
+
+    public void setType(RobotCommand.Type type) {
+        this.type = type;
+    }
+
+    public Robot getRobot() {
+        return robot;
+    }
+
+    public void setRobot(Robot robot) {
+        this.robot = robot;
+    }
+
+    public RobotStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(RobotStatus status) {
+        this.status = status;
+    }
+
+    public RadarResponse getRadar() {
+        return radar;
+    }
+
+    public void setRadar(RadarResponse radar) {
+        this.radar = radar;
+    }
+
+    public LaserResponse getLaser() {
+        return laser;
+    }
+
+    public void setLaser(LaserResponse laser) {
+        this.laser = laser;
+    }
+}
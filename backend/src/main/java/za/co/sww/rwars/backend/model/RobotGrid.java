@@ -0,0 +1,233 @@
+package za.co.sww.rwars.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Uniform-grid spatial index of the robots in an arena.
+ *
+ * The arena is split into square buckets of {@value #BUCKET_SIZE} by {@value #BUCKET_SIZE} cells, each holding
+ * the robots positioned inside it. Looking up the robots in a cell only scans one bucket, and finding the
+ * robots within a range only scans the buckets overlapping that range, so neither depends on the total number
+ * of robots. Positions outside the arena are kept in the nearest edge bucket.
+ */
+public final class RobotGrid {
+
+    static final int BUCKET_SIZE = 8;
+    private static final int BUCKET_SHIFT = 3;
+
+    private final int width;
+    private final int height;
+    private final int bucketsX;
+    private final int bucketsY;
+    private final List<List<Robot>> buckets;
+
+    /**
+     * Creates an empty grid for an arena.
+     *
+     * @param width The arena width
+     * @param height The arena height
+     */
+    public RobotGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.bucketsX = Math.max(1, (Math.max(0, width) + BUCKET_SIZE - 1) >> BUCKET_SHIFT);
+        this.bucketsY = Math.max(1, (Math.max(0, height) + BUCKET_SIZE - 1) >> BUCKET_SHIFT);
+        int bucketCount = bucketsX * bucketsY;
+        this.buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(null);
+        }
+    }
+
+    /**
+     * Checks whether this grid was built for the given arena size.
+     *
+     * @param arenaWidth The arena width
+     * @param arenaHeight The arena height
+     * @return true if the grid matches the arena size
+     */
+    public boolean isBuiltFor(int arenaWidth, int arenaHeight) {
+        return width == arenaWidth && height == arenaHeight;
+    }
+
+    /**
+     * Adds a robot at its current position.
+     *
+     * @param robot The robot to add
+     */
+    public synchronized void add(Robot robot) {
+        int index = bucketIndex(robot.getPositionX(), robot.getPositionY());
+        List<Robot> bucket = buckets.get(index);
+        if (bucket == null) {
+            bucket = new ArrayList<>(2);
+            buckets.set(index, bucket);
+        }
+        bucket.add(robot);
+    }
+
+    /**
+     * Moves a robot from its previous position to its current position.
+     * Robots that are not in the grid are ignored.
+     *
+     * @param robot The robot that moved
+     * @param oldX The previous X coordinate
+     * @param oldY The previous Y coordinate
+     */
+    public synchronized void move(Robot robot, int oldX, int oldY) {
+        int oldIndex = bucketIndex(oldX, oldY);
+        int newIndex = bucketIndex(robot.getPositionX(), robot.getPositionY());
+        if (oldIndex != newIndex && removeFromBucket(oldIndex, robot)) {
+            add(robot);
+        }
+    }
+
+    /**
+     * Finds the first robot in a cell that matches a filter.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param filter The filter robots must match
+     * @return The matching robot, or null if there is none
+     */
+    public synchronized Robot findRobotAt(int x, int y, Predicate<Robot> filter) {
+        List<Robot> bucket = buckets.get(bucketIndex(x, y));
+        if (bucket != null) {
+            for (Robot robot : bucket) {
+                if (robot.getPositionX() == x && robot.getPositionY() == y && filter.test(robot)) {
+                    return robot;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first active robot in a cell other than the given one, which is what a laser hits.
+     *
+     * Unlike {@link #findRobotAt(int, int, Predicate)} this takes no filter, so a laser step allocates nothing.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param excludedRobotId The ID of the robot to skip, usually the one firing
+     * @return The active robot, or null if there is none
+     */
+    public synchronized Robot findActiveRobotAt(int x, int y, String excludedRobotId) {
+        List<Robot> bucket = buckets.get(bucketIndex(x, y));
+        if (bucket != null) {
+            for (int i = 0; i < bucket.size(); i++) {
+                Robot robot = bucket.get(i);
+                if (robot.getPositionX() == x && robot.getPositionY() == y && robot.isActive()
+                        && !robot.getId().equals(excludedRobotId)) {
+                    return robot;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether any robot is in a cell.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @return true if a robot is in the cell
+     */
+    public boolean isOccupied(int x, int y) {
+        return findRobotAt(x, y, robot -> true) != null;
+    }
+
+    /**
+     * Gets the robots within a Manhattan distance of a cell, including any robot in the cell itself.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param range The maximum Manhattan distance
+     * @return The robots within range
+     */
+    public synchronized List<Robot> robotsWithin(int x, int y, int range) {
+        List<Robot> result = new ArrayList<>();
+        int minBucketX = bucketX(x - range);
+        int maxBucketX = bucketX(x + range);
+        int minBucketY = bucketY(y - range);
+        int maxBucketY = bucketY(y + range);
+        for (int by = minBucketY; by <= maxBucketY; by++) {
+            for (int bx = minBucketX; bx <= maxBucketX; bx++) {
+                List<Robot> bucket = buckets.get(by * bucketsX + bx);
+                if (bucket == null) {
+                    continue;
+                }
+                for (Robot robot : bucket) {
+                    if (Math.abs(robot.getPositionX() - x) + Math.abs(robot.getPositionY() - y) <= range) {
+                        result.add(robot);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects the robots within a Manhattan distance of a cell into a caller-owned array, without allocating.
+     * Only the first {@code out.length} robots are stored; the return value tells the caller whether the array
+     * was large enough.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @param range The maximum Manhattan distance
+     * @param out The array to fill
+     * @return The number of robots within range, which may exceed the array length
+     */
+    public synchronized int collectWithin(int x, int y, int range, Robot[] out) {
+        int count = 0;
+        int minBucketX = bucketX(x - range);
+        int maxBucketX = bucketX(x + range);
+        int minBucketY = bucketY(y - range);
+        int maxBucketY = bucketY(y + range);
+        for (int by = minBucketY; by <= maxBucketY; by++) {
+            for (int bx = minBucketX; bx <= maxBucketX; bx++) {
+                List<Robot> bucket = buckets.get(by * bucketsX + bx);
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size(); i++) {
+                    Robot robot = bucket.get(i);
+                    if (Math.abs(robot.getPositionX() - x) + Math.abs(robot.getPositionY() - y) <= range) {
+                        if (count < out.length) {
+                            out[count] = robot;
+                        }
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean removeFromBucket(int index, Robot robot) {
+        List<Robot> bucket = buckets.get(index);
+        if (bucket == null) {
+            return false;
+        }
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == robot) {
+                bucket.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int bucketIndex(int x, int y) {
+        return bucketY(y) * bucketsX + bucketX(x);
+    }
+
+    private int bucketX(int x) {
+        return Math.min(Math.max(x, 0) >> BUCKET_SHIFT, bucketsX - 1);
+    }
+
+    private int bucketY(int y) {
+        return Math.min(Math.max(y, 0) >> BUCKET_SHIFT, bucketsY - 1);
+    }
+}
@@ -0,0 +1,315 @@
+package za.co.sww.rwars.backend.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Per-battle primitive store of robot state.
+ *
+ * The hot robot fields (position, hit points, status, direction and blocks remaining) live in parallel
+ * {@code int[]} arrays indexed by a dense slot, so whole-battle checks and simulation ticks are tight array
+ * loops that create no garbage. A {@link Robot} that belongs to a battle is a view over its slot; once it leaves
+ * the battle its state is copied back into the object. Slots stay in registration order: removing a robot shifts
+ * the slots after it down by one, so every scan over the store visits the robots in the order they joined.
+ *
+ * Only the battle's mailbox changes the store, but robots are read from other threads as well. The arrays are
+ * therefore never resized or shifted in place: growing the store or removing a robot copies them into a new
+ * {@link Columns} holder, which is published as a whole, and every robot is bound to a {@link Slot} that names
+ * the holder its index belongs to. A reader that still holds an old slot reads that robot's state as it was,
+ * never another robot's.
+ */
+public final class RobotStore {
+
+    private static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int MOVING = Robot.RobotStatus.MOVING.ordinal();
+    private static final int CRASHED = Robot.RobotStatus.CRASHED.ordinal();
+    private static final int DESTROYED = Robot.RobotStatus.DESTROYED.ordinal();
+    private static final Robot.RobotStatus[] STATUSES = Robot.RobotStatus.values();
+    private static final Robot.Direction[] DIRECTIONS = Robot.Direction.values();
+
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+
+    /**
+     * Gets the number of robots in the store.
+     *
+     * @return The robot count
+     */
+    public int size() {
+        return columns.size;
+    }
+
+    /**
+     * Gets the robot in a slot.
+     *
+     * @param slot The slot
+     * @return The robot view for the slot
+     */
+    public Robot robotAt(int slot) {
+        return columns.robots[slot];
+    }
+
+    /**
+     * Checks whether the robot in a slot is moving.
+     *
+     * @param slot The slot
+     * @return true if the robot's status is MOVING
+     */
+    public boolean isMoving(int slot) {
+        return columns.status[slot] == MOVING;
+    }
+
+    /**
+     * Checks whether the robot in a slot is still in the fight.
+     *
+     * @param slot The slot
+     * @return true if the robot has hit points left and has neither crashed nor been destroyed
+     */
+    public boolean isActive(int slot) {
+        return columns.isActive(slot);
+    }
+
+    /**
+     * Counts the active robots.
+     *
+     * @return The number of active robots
+     */
+    public int countActive() {
+        Columns current = columns;
+        int count = 0;
+        for (int slot = 0; slot < current.size; slot++) {
+            if (current.isActive(slot)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the first active robot.
+     *
+     * @return The first active robot, or null if there is none
+     */
+    public Robot firstActive() {
+        Columns current = columns;
+        for (int slot = 0; slot < current.size; slot++) {
+            if (current.isActive(slot)) {
+                return current.robots[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether any robot is moving.
+     *
+     * @return true if a robot's status is MOVING
+     */
+    public boolean anyMoving() {
+        Columns current = columns;
+        for (int slot = 0; slot < current.size; slot++) {
+            if (current.status[slot] == MOVING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves a robot's state into the store, taking it out of any other store first.
+     *
+     * @param robot The robot to attach
+     */
+    synchronized void attach(Robot robot) {
+        if (robot.store() == this) {
+            return;
+        }
+        if (robot.store() != null) {
+            robot.store().detach(robot);
+        }
+        Columns current = columns;
+        if (current.size == current.robots.length) {
+            current = current.copy(current.robots.length << 1, NONE);
+            rebindAll(current);
+        }
+        // The slot past the end is read by nobody until the size is raised
+        int slot = current.size;
+        current.robots[slot] = robot;
+        robot.bind(new Slot(this, current, slot));
+        current.size = slot + 1;
+    }
+
+    /**
+     * Copies a robot's state back into the object and frees its slot.
+     *
+     * @param robot The robot to detach
+     */
+    synchronized void detach(Robot robot) {
+        if (robot.store() != this) {
+            return;
+        }
+        int removed = robot.unbind().index;
+        rebindAll(columns.copy(columns.robots.length, removed));
+    }
+
+    /**
+     * Makes the store hold exactly the given robots, attaching new ones and detaching the ones that left.
+     *
+     * @param members The robots that belong to the battle
+     */
+    synchronized void retainExactly(Collection<Robot> members) {
+        Set<Robot> present = Collections.newSetFromMap(new IdentityHashMap<>());
+        present.addAll(members);
+        for (int slot = columns.size - 1; slot >= 0; slot--) {
+            Robot robot = columns.robots[slot];
+            if (!present.contains(robot)) {
+                detach(robot);
+            }
+        }
+        for (Robot robot : members) {
+            attach(robot);
+        }
+    }
+
+    /**
+     * Publishes a new holder and moves every robot in it over to its slot there.
+     */
+    private void rebindAll(Columns replacement) {
+        columns = replacement;
+        for (int slot = 0; slot < replacement.size; slot++) {
+            replacement.robots[slot].rebind(new Slot(this, replacement, slot));
+        }
+    }
+
+    /**
+     * The arrays of the store at one capacity. A holder never changes size; the store replaces it instead.
+     */
+    static final class Columns {
+        private final Robot[] robots;
+        private final int[] positionX;
+        private final int[] positionY;
+        private final int[] hitPoints;
+        private final int[] status;
+        private final int[] direction;
+        private final int[] blocksRemaining;
+        private volatile int size;
+
+        private Columns(int capacity) {
+            robots = new Robot[capacity];
+            positionX = new int[capacity];
+            positionY = new int[capacity];
+            hitPoints = new int[capacity];
+            status = new int[capacity];
+            direction = new int[capacity];
+            blocksRemaining = new int[capacity];
+        }
+
+        private boolean isActive(int slot) {
+            int slotStatus = status[slot];
+            return hitPoints[slot] > 0 && slotStatus != CRASHED && slotStatus != DESTROYED;
+        }
+
+        /**
+         * Copies the holder into a new one, leaving one slot out and closing the gap.
+         *
+         * @param capacity The capacity of the copy
+         * @param removed The slot to leave out, or NONE to copy every slot
+         */
+        private Columns copy(int capacity, int removed) {
+            Columns copy = new Columns(capacity);
+            int kept = 0;
+            for (int slot = 0; slot < size; slot++) {
+                if (slot == removed) {
+                    continue;
+                }
+                copy.robots[kept] = robots[slot];
+                copy.positionX[kept] = positionX[slot];
+                copy.positionY[kept] = positionY[slot];
+                copy.hitPoints[kept] = hitPoints[slot];
+                copy.status[kept] = status[slot];
+                copy.direction[kept] = direction[slot];
+                copy.blocksRemaining[kept] = blocksRemaining[slot];
+                kept++;
+            }
+            copy.size = kept;
+            return copy;
+        }
+    }
+
+    /**
+     * A robot's place in a store: the holder it was bound in and its index there. Robots read and write their
+     * state through their slot, so the holder and the index always belong together.
+     */
+    static final class Slot {
+        private final RobotStore store;
+        private final Columns columns;
+        private final int index;
+
+        private Slot(RobotStore store, Columns columns, int index) {
+            this.store = store;
+            this.columns = columns;
+            this.index = index;
+        }
+
+        RobotStore store() {
+            return store;
+        }
+
+        int positionX() {
+            return columns.positionX[index];
+        }
+
+        void positionX(int value) {
+            columns.positionX[index] = value;
+        }
+
+        int positionY() {
+            return columns.positionY[index];
+        }
+
+        void positionY(int value) {
+            columns.positionY[index] = value;
+        }
+
+        int hitPoints() {
+            return columns.hitPoints[index];
+        }
+
+        void hitPoints(int value) {
+            columns.hitPoints[index] = value;
+        }
+
+        Robot.RobotStatus status() {
+            int ordinal = columns.status[index];
+            return ordinal == NONE ? null : STATUSES[ordinal];
+        }
+
+        void status(Robot.RobotStatus value) {
+            columns.status[index] = value == null ? NONE : value.ordinal();
+        }
+
+        Robot.Direction direction() {
+            int ordinal = columns.direction[index];
+            return ordinal == NONE ? null : DIRECTIONS[ordinal];
+        }
+
+        void direction(Robot.Direction value) {
+            columns.direction[index] = value == null ? NONE : value.ordinal();
+        }
+
+        int blocksRemaining() {
+            return columns.blocksRemaining[index];
+        }
+
+        void blocksRemaining(int value) {
+            columns.blocksRemaining[index] = value;
+        }
+
+        boolean isActive() {
+            return columns.isActive(index);
+        }
+    }
+}
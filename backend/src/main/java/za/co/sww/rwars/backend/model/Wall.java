@@ -1,13 +1,25 @@
 package za.co.sww.rwars.backend.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
 /**
  * Represents a wall in the battle arena.
+ *
+ * A wall is stored as a few axis-aligned rectangles (a U-shape is three bars). The {@code positions} list is a
+ * read-only view that expands the rectangles cell by cell, in the order the cells were added, and the
+ * {@code rectangles} list is the compact wire form of the same wall. JSON normally carries the positions only;
+ * clients that ask for compact walls get the rectangles instead, and either form can be read back.
+ *
+ * A wall can only be changed while it is being built. Once it is placed in a battle it is immutable, so the wall
+ * grid, encoded arenas and battle snapshots can hold on to it without copying it or watching it for changes.
  */
 @Schema(description = "Wall obstacle in the battle arena")
 @RegisterForReflection
@@ -23,17 +35,24 @@ public class Wall {
     @Schema(description = "Type of the wall")
     private WallType type;
 
+    @Schema(description = "Axis-aligned rectangles covering the wall, a compact form of the positions list")
+    private final List<Rectangle> rectangles = new ArrayList<>(3);
+
     @Schema(description = "List of positions occupied by this wall")
-    private List<Position> positions;
+    private final List<Position> positions = new PositionList();
+
+    private boolean placed;
+
+    public Wall() {
+    }
 
     public Wall(WallType type) {
         this.type = type;
-        this.positions = new ArrayList<>();
     }
 
     public Wall(WallType type, List<Position> positions) {
         this.type = type;
-        this.positions = positions;
+        replacePositions(positions);
     }
 
     public WallType getType() {
@@ -41,6 +60,7 @@ public class Wall {
     }
 
     public void setType(WallType type) {
+        checkNotPlaced();
         this.type = type;
     }
 
@@ -49,15 +69,103 @@ public class Wall {
     }
 
     public void setPositions(List<Position> positions) {
-        this.positions = positions;
+        checkNotPlaced();
+        replacePositions(positions);
     }
 
+    private void replacePositions(List<Position> positions) {
+        List<Position> cells = new ArrayList<>(positions);
+        rectangles.clear();
+        for (Position position : cells) {
+            appendCell(position.getX(), position.getY());
+        }
+    }
+
+    public List<Rectangle> getRectangles() {
+        return Collections.unmodifiableList(rectangles);
+    }
+
+    /**
+     * Replaces the wall's cells with rectangles.
+     *
+     * @param rectangles The rectangles covering the wall
+     * @throws IllegalStateException if the wall is already placed in a battle
+     */
+    public void setRectangles(List<Rectangle> rectangles) {
+        checkNotPlaced();
+        List<Rectangle> replacement = new ArrayList<>(rectangles);
+        this.rectangles.clear();
+        for (Rectangle rectangle : replacement) {
+            addRectangle(rectangle.getX(), rectangle.getY(), rectangle.getWidth(), rectangle.getHeight());
+        }
+    }
+
+    /**
+     * Adds a cell to the wall, growing the last rectangle when the cell continues its row or column.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @throws IllegalStateException if the wall is already placed in a battle
+     */
     public void addPosition(int x, int y) {
-        this.positions.add(new Position(x, y));
+        checkNotPlaced();
+        appendCell(x, y);
+    }
+
+    private void appendCell(int x, int y) {
+        if (!rectangles.isEmpty()) {
+            int last = rectangles.size() - 1;
+            Rectangle rectangle = rectangles.get(last);
+            if (rectangle.getWidth() == 1 && rectangle.getX() == x
+                && rectangle.getY() + rectangle.getHeight() == y) {
+                rectangles.set(last, new Rectangle(x, rectangle.getY(), 1, rectangle.getHeight() + 1));
+                return;
+            }
+            if (rectangle.getHeight() == 1 && rectangle.getY() == y
+                && rectangle.getX() + rectangle.getWidth() == x) {
+                rectangles.set(last, new Rectangle(rectangle.getX(), y, rectangle.getWidth() + 1, 1));
+                return;
+            }
+        }
+        rectangles.add(new Rectangle(x, y, 1, 1));
+    }
+
+    /**
+     * Adds a rectangle of cells to the wall.
+     *
+     * @param x The X coordinate of the lower left cell
+     * @param y The Y coordinate of the lower left cell
+     * @param width The width in cells
+     * @param height The height in cells
+     * @throws IllegalStateException if the wall is already placed in a battle
+     */
+    public void addRectangle(int x, int y, int width, int height) {
+        checkNotPlaced();
+        if (width > 0 && height > 0) {
+            rectangles.add(new Rectangle(x, y, width, height));
+        }
+    }
+
+    /**
+     * Marks the wall as placed in a battle, after which it can no longer change.
+     */
+    void place() {
+        placed = true;
+    }
+
+    private void checkNotPlaced() {
+        if (placed) {
+            throw new IllegalStateException("A wall cannot change once it is placed in a battle");
+        }
     }
 
     public boolean containsPosition(int x, int y) {
-        return positions.stream().anyMatch(pos -> pos.getX() == x && pos.getY() == y);
+        for (Rectangle rectangle : rectangles) {
+            if (rectangle.contains(x, y)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Schema(description = "Position coordinates of a wall segment")
@@ -90,4 +198,117 @@ public class Wall {
             this.y = y;
         }
     }
+
+    @Schema(description = "Axis-aligned rectangle of wall cells")
+    @RegisterForReflection
+    public static final class Rectangle {
+        @Schema(description = "X coordinate of the lower left cell", example = "20")
+        private final int x;
+
+        @Schema(description = "Y coordinate of the lower left cell", example = "25")
+        private final int y;
+
+        @Schema(description = "Width in cells", example = "4")
+        private final int width;
+
+        @Schema(description = "Height in cells", example = "4")
+        private final int height;
+
+        public Rectangle(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Checks whether a cell lies inside the rectangle.
+         *
+         * @param cellX The X coordinate
+         * @param cellY The Y coordinate
+         * @return true if the cell is inside the rectangle
+         */
+        public boolean contains(int cellX, int cellY) {
+            return cellX >= x && cellX < x + width && cellY >= y && cellY < y + height;
+        }
+    }
+
+    /**
+     * Read-only view of the rectangles as cells, each rectangle column by column.
+     */
+    private final class PositionList extends AbstractList<Position> {
+
+        @Override
+        public Position get(int index) {
+            if (index >= 0) {
+                int remaining = index;
+                for (Rectangle rectangle : rectangles) {
+                    int area = rectangle.getWidth() * rectangle.getHeight();
+                    if (remaining < area) {
+                        return new Position(rectangle.getX() + remaining / rectangle.getHeight(),
+                            rectangle.getY() + remaining % rectangle.getHeight());
+                    }
+                    remaining -= area;
+                }
+            }
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (Rectangle rectangle : rectangles) {
+                size += rectangle.getWidth() * rectangle.getHeight();
+            }
+            return size;
+        }
+
+        @Override
+        public Iterator<Position> iterator() {
+            return new Iterator<>() {
+                private int rectangle;
+                private int cell;
+
+                @Override
+                public boolean hasNext() {
+                    while (rectangle < rectangles.size()) {
+                        Rectangle current = rectangles.get(rectangle);
+                        if (cell < current.getWidth() * current.getHeight()) {
+                            return true;
+                        }
+                        rectangle++;
+                        cell = 0;
+                    }
+                    return false;
+                }
+
+                @Override
+                public Position next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Rectangle current = rectangles.get(rectangle);
+                    int index = cell++;
+                    return new Position(current.getX() + index / current.getHeight(),
+                        current.getY() + index % current.getHeight());
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package za.co.sww.rwars.backend.model;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Occupancy grid of the walls in an arena.
+ *
+ * Built once from the battle's wall list, it answers "is there a wall at (x, y)" and "which type of wall" with
+ * a couple of bit lookups instead of scanning every wall and every wall position. A grid is immutable and
+ * remembers the arena size and wall list version it was built from, so the battle can tell when to rebuild it.
+ */
+public final class WallGrid {
+
+    private final int width;
+    private final int height;
+    private final int wallsVersion;
+    private final OccupancyGrid occupied;
+    private final Map<Wall.WallType, OccupancyGrid> occupiedByType = new EnumMap<>(Wall.WallType.class);
+
+    private WallGrid(int width, int height, int wallsVersion) {
+        this.width = width;
+        this.height = height;
+        this.wallsVersion = wallsVersion;
+        this.occupied = new OccupancyGrid(width, height);
+    }
+
+    /**
+     * Builds the grid for a set of walls.
+     *
+     * @param width The arena width
+     * @param height The arena height
+     * @param walls The walls in the arena
+     * @param wallsVersion The version of the wall list the grid is built from
+     * @return The wall grid
+     */
+    public static WallGrid build(int width, int height, Collection<Wall> walls, int wallsVersion) {
+        WallGrid grid = new WallGrid(width, height, wallsVersion);
+        for (Wall wall : walls) {
+            OccupancyGrid typeGrid = wall.getType() == null ? null
+                    : grid.occupiedByType.computeIfAbsent(wall.getType(), type -> new OccupancyGrid(width, height));
+            for (Wall.Rectangle rectangle : wall.getRectangles()) {
+                grid.occupied.setRectangle(rectangle.getX(), rectangle.getY(), rectangle.getWidth(),
+                    rectangle.getHeight());
+                if (typeGrid != null) {
+                    typeGrid.setRectangle(rectangle.getX(), rectangle.getY(), rectangle.getWidth(),
+                        rectangle.getHeight());
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Checks whether this grid still describes the given arena size and wall list version.
+     *
+     * @param arenaWidth The arena width
+     * @param arenaHeight The arena height
+     * @param version The current wall list version
+     * @return true if the grid is up to date
+     */
+    public boolean isBuiltFor(int arenaWidth, int arenaHeight, int version) {
+        return width == arenaWidth && height == arenaHeight && wallsVersion == version;
+    }
+
+    /**
+     * Checks whether a cell holds a wall.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @return true if a wall occupies the cell
+     */
+    public boolean isWall(int x, int y) {
+        return occupied.isOccupied(x, y);
+    }
+
+    /**
+     * Gets the type of the wall in a cell.
+     *
+     * @param x The X coordinate
+     * @param y The Y coordinate
+     * @return The wall type, or null if there is no typed wall in the cell
+     */
+    public Wall.WallType getWallType(int x, int y) {
+        if (!occupied.isOccupied(x, y)) {
+            return null;
+        }
+        for (Map.Entry<Wall.WallType, OccupancyGrid> entry : occupiedByType.entrySet()) {
+            if (entry.getValue().isOccupied(x, y)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the grid of all wall cells.
+     *
+     * @return The occupancy grid
+     */
+    public OccupancyGrid getOccupancy() {
+        return occupied;
+    }
+}
@@ -0,0 +1,172 @@
+package za.co.sww.rwars.backend.replay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import za.co.sww.rwars.backend.journal.BattleRebuilder;
+import za.co.sww.rwars.backend.journal.JournalEvent;
+import za.co.sww.rwars.backend.journal.JournalRecord;
+import za.co.sww.rwars.backend.model.BattleSnapshot;
+
+/**
+ * The decoded recording of one battle, shared by everyone replaying it.
+ *
+ * A replay holds the battle's journaled events together with a keyframe index: a snapshot of the battle after
+ * every N events. Seeking restores the last keyframe before the time sought and applies only the events after it,
+ * so a seek costs at most N events wherever it lands. Replays are immutable once built; each viewer plays one
+ * through a {@link ReplayCursor} of its own. A recording that has grown is {@link #extend(List) extended} into a
+ * new replay that keeps the keyframes already built.
+ *
+ * Times are offsets in milliseconds from the battle's creation.
+ */
+public final class BattleReplay {
+
+    private final String battleId;
+    private final int keyframeInterval;
+    private final List<JournalRecord> records;
+    private final long[] offsets;
+    private final List<Keyframe> keyframes;
+
+    private BattleReplay(String battleId, int keyframeInterval, List<JournalRecord> records, long[] offsets,
+                         List<Keyframe> keyframes) {
+        this.battleId = battleId;
+        this.keyframeInterval = keyframeInterval;
+        this.records = records;
+        this.offsets = offsets;
+        this.keyframes = keyframes;
+    }
+
+    /**
+     * Decodes a battle's recording.
+     *
+     * @param records The battle's journaled events, in order
+     * @param keyframeInterval The number of events between keyframes
+     * @return The replay
+     * @throws IllegalArgumentException if there are no events, the first one is not the battle's creation, the
+     *     events do not apply to the battle or the keyframe interval is not positive
+     */
+    public static BattleReplay of(List<JournalRecord> records, int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be positive");
+        }
+        if (records.isEmpty() || !(records.get(0).event() instanceof JournalEvent.BattleCreated created)) {
+            throw new IllegalArgumentException("Recording does not start with the creation of a battle");
+        }
+        return build(created.battleId(), keyframeInterval, records, new long[0], List.of(), new BattleRebuilder(),
+                0);
+    }
+
+    /**
+     * Extends the replay with the events journaled since it was built. Only the events after the last keyframe
+     * are applied again.
+     *
+     * @param recording The battle's journaled events, in order, starting with those of this replay
+     * @return The extended replay, or this one if the recording has no further events
+     * @throws IllegalArgumentException if the further events do not apply to the battle
+     */
+    public BattleReplay extend(List<JournalRecord> recording) {
+        if (recording.size() <= records.size()) {
+            return this;
+        }
+        Keyframe last = keyframes.isEmpty() ? null : keyframes.getLast();
+        BattleRebuilder rebuilder = last == null ? new BattleRebuilder() : new BattleRebuilder(last.snapshot());
+        return build(battleId, keyframeInterval, recording, offsets, keyframes, rebuilder,
+                last == null ? 0 : last.events());
+    }
+
+    /**
+     * Builds a replay from the events after those a rebuilder has applied.
+     */
+    private static BattleReplay build(String battleId, int keyframeInterval, List<JournalRecord> records,
+                                      long[] knownOffsets, List<Keyframe> knownKeyframes, BattleRebuilder rebuilder,
+                                      int from) {
+        long start = records.get(0).timeMillis();
+        long[] offsets = Arrays.copyOf(knownOffsets, records.size());
+        List<Keyframe> keyframes = new ArrayList<>(records.size() / keyframeInterval + 1);
+        keyframes.addAll(knownKeyframes);
+        long offset = from == 0 ? 0 : offsets[from - 1];
+        for (int i = from; i < records.size(); i++) {
+            JournalRecord record = records.get(i);
+            rebuilder.apply(record);
+            // Clocks can step back; keep offsets in order so that seeking can search them
+            offset = Math.max(offset, record.timeMillis() - start);
+            offsets[i] = offset;
+            if ((i + 1) % keyframeInterval == 0) {
+                keyframes.add(new Keyframe(i + 1, offset, BattleSnapshot.of(rebuilder.battle())));
+            }
+        }
+        return new BattleReplay(battleId, keyframeInterval, List.copyOf(records), offsets, List.copyOf(keyframes));
+    }
+
+    /**
+     * Gets a new cursor at the start of the replay.
+     *
+     * @return The cursor
+     */
+    public ReplayCursor cursor() {
+        return new ReplayCursor(this);
+    }
+
+    public String battleId() {
+        return battleId;
+    }
+
+    /**
+     * Gets the length of the replay.
+     *
+     * @return The offset of the last event in milliseconds
+     */
+    public long durationMillis() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * Gets the number of events in the replay.
+     *
+     * @return The number of events
+     */
+    public int eventCount() {
+        return records.size();
+    }
+
+    JournalRecord record(int index) {
+        return records.get(index);
+    }
+
+    long offset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Finds the last keyframe at or before a time.
+     *
+     * @param offsetMillis The time
+     * @return The keyframe, or null if the first one comes later
+     */
+    Keyframe keyframeAt(long offsetMillis) {
+        int low = 0;
+        int high = keyframes.size() - 1;
+        Keyframe found = null;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Keyframe keyframe = keyframes.get(middle);
+            if (keyframe.offsetMillis() <= offsetMillis) {
+                found = keyframe;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The battle after a number of events.
+     *
+     * @param events The number of events applied
+     * @param offsetMillis The time of the last event applied
+     * @param snapshot The battle
+     */
+    record Keyframe(int events, long offsetMillis, BattleSnapshot snapshot) {
+    }
+}
@@ -0,0 +1,87 @@
+package za.co.sww.rwars.backend.replay;
+
+import za.co.sww.rwars.backend.journal.BattleRebuilder;
+import za.co.sww.rwars.backend.model.Battle;
+
+/**
+ * One viewer's position in a {@link BattleReplay}, with the battle as it was at that position.
+ *
+ * The battle is rebuilt for this cursor alone, so moving the cursor changes neither the live battle nor any other
+ * viewer's. A cursor is not thread-safe.
+ */
+public final class ReplayCursor {
+
+    private final BattleReplay replay;
+    private BattleRebuilder rebuilder;
+    private int next;
+    private long positionMillis;
+
+    ReplayCursor(BattleReplay replay) {
+        this.replay = replay;
+        this.rebuilder = new BattleRebuilder();
+        this.positionMillis = -1;
+        advanceTo(0);
+    }
+
+    /**
+     * Moves the cursor to a time, forwards or backwards. Moving backwards, or far ahead, restores the nearest
+     * keyframe and applies the events after it.
+     *
+     * @param offsetMillis The time, clamped to the replay
+     * @return The battle at that time
+     */
+    public Battle seek(long offsetMillis) {
+        long target = Math.clamp(offsetMillis, 0, replay.durationMillis());
+        BattleReplay.Keyframe keyframe = replay.keyframeAt(target);
+        if (target < positionMillis || (keyframe != null && keyframe.events() > next)) {
+            if (keyframe == null) {
+                rebuilder = new BattleRebuilder();
+                next = 0;
+            } else {
+                rebuilder = new BattleRebuilder(keyframe.snapshot());
+                next = keyframe.events();
+            }
+        }
+        return advanceTo(target);
+    }
+
+    /**
+     * Moves the cursor forwards.
+     *
+     * @param millis How far to move
+     * @return The battle at the new position
+     */
+    public Battle advance(long millis) {
+        return advanceTo(Math.min(positionMillis + Math.max(millis, 0), replay.durationMillis()));
+    }
+
+    /**
+     * Tells whether the cursor has reached the end of the replay.
+     *
+     * @return true if every event has been applied
+     */
+    public boolean isFinished() {
+        return next >= replay.eventCount();
+    }
+
+    public long positionMillis() {
+        return positionMillis;
+    }
+
+    public Battle battle() {
+        return rebuilder.battle();
+    }
+
+    public BattleReplay replay() {
+        return replay;
+    }
+
+    private Battle advanceTo(long offsetMillis) {
+        while (next < replay.eventCount() && replay.offset(next) <= offsetMillis) {
+            rebuilder.apply(replay.record(next));
+            next++;
+        }
+        positionMillis = offsetMillis;
+        return rebuilder.battle();
+    }
+}
@@ -0,0 +1,110 @@
+package za.co.sww.rwars.backend.replay;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import za.co.sww.rwars.backend.journal.JournalPosition;
+import za.co.sww.rwars.backend.journal.JournalRecord;
+import za.co.sww.rwars.backend.journal.JournalService;
+
+/**
+ * Loads battle recordings from the journal for replay.
+ *
+ * A battle's recording is read and decoded once and shared by all of its viewers: the first viewer loads it,
+ * later viewers wait for and reuse the same {@link BattleReplay}, and it is dropped when the last one leaves. A
+ * viewer joining a battle whose journal has grown since gets the replay extended with the new events; viewers
+ * already watching keep the recording as it was when they joined. Replays are built only from the journal, never
+ * from the live battle.
+ */
+@ApplicationScoped
+public class ReplayService {
+
+    @Inject
+    private JournalService journalService;
+
+    @ConfigProperty(name = "battle.replay.keyframe-interval", defaultValue = "500")
+    private int keyframeInterval;
+
+    private final Map<String, SharedReplay> replaysByBattleId = new ConcurrentHashMap<>();
+
+    public ReplayService() {
+    }
+
+    /**
+     * Creates a replay service outside the container, for tests.
+     *
+     * @param journalService The journal recordings are read from
+     * @param keyframeInterval The number of events between keyframes
+     */
+    ReplayService(JournalService journalService, int keyframeInterval) {
+        this.journalService = journalService;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Gets the replay of a battle for a new viewer, loading it if no one is watching it yet.
+     * Every successful call must be matched by a call to {@link #release(String)}.
+     *
+     * @param battleId The battle ID
+     * @return The replay
+     * @throws IllegalArgumentException if the battle has no recording, or it cannot be replayed
+     * @throws IOException if the recording cannot be read
+     */
+    public BattleReplay acquire(String battleId) throws IOException {
+        SharedReplay shared = replaysByBattleId.compute(battleId, (id, replay) -> {
+            SharedReplay acquired = replay != null ? replay : new SharedReplay();
+            acquired.viewers++;
+            return acquired;
+        });
+        try {
+            return shared.get(battleId);
+        } catch (IOException | RuntimeException e) {
+            release(battleId);
+            throw e;
+        }
+    }
+
+    /**
+     * Lets go of a battle's replay once a viewer is done with it.
+     *
+     * @param battleId The battle ID
+     */
+    public void release(String battleId) {
+        replaysByBattleId.computeIfPresent(battleId, (id, replay) -> --replay.viewers == 0 ? null : replay);
+    }
+
+    /**
+     * A replay and the number of viewers sharing it. The viewer count is only changed inside the map's compute
+     * methods; the replay is loaded by the first viewer to ask for it, and extended for a later viewer if the
+     * battle's journal has moved on since.
+     */
+    private final class SharedReplay {
+
+        private int viewers;
+        private BattleReplay replay;
+        // Where the journal ended before the replay was last read; null if the journal is not open
+        private JournalPosition loadedAt;
+
+        synchronized BattleReplay get(String battleId) throws IOException {
+            JournalPosition position = journalService.position(battleId);
+            if (replay != null && (position == null || position.equals(loadedAt))) {
+                return replay;
+            }
+            List<JournalRecord> records = journalService.read(battleId);
+            if (replay != null) {
+                replay = replay.extend(records);
+            } else if (records.isEmpty()) {
+                throw new IllegalArgumentException("No recording of battle " + battleId);
+            } else {
+                replay = BattleReplay.of(records, keyframeInterval);
+            }
+            loadedAt = position;
+            return replay;
+        }
+    }
+}
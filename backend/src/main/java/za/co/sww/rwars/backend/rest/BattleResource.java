@@ -42,19 +42,10 @@ public class BattleResource implements BattleResourceApi {
     @Override
 public Response createBattle(CreateBattleRequest request) {
         try {
-            Battle battle;
-            if (request.width() != null && request.height() != null
-                    && request.robotMovementTimeSeconds() != null) {
-                battle = battleService.createBattle(request.name(), request.width(), request.height(),
-                        request.robotMovementTimeSeconds());
-            } else if (request.width() != null && request.height() != null) {
-                battle = battleService.createBattle(request.name(), request.width(), request.height());
-            } else if (request.robotMovementTimeSeconds() != null) {
-                battle = battleService.createBattle(request.name(), request.robotMovementTimeSeconds());
-            } else {
-                battle = battleService.createBattle(request.name());
-            }
-            LOGGER.info("event=battle_created battleId=" + battle.getId() + " name=" + battle.getName());
+            Battle battle = battleService.createBattle(request.name(), arenaWidth(request), arenaHeight(request),
+                    movementTimeSeconds(request), request.seed(), Boolean.TRUE.equals(request.accelerated()));
+            LOGGER.info("event=battle_created battleId=" + battle.getId() + " name=" + battle.getName()
+                    + " seed=" + battle.getSeed());
             return Response.created(URI.create("/api/battles/" + battle.getId())).entity(battle).build();
         } catch (IllegalArgumentException e) {
             return Response.status(Response.Status.BAD_REQUEST)
@@ -71,18 +62,9 @@ public Response createBattle(CreateBattleRequest request) {
     @Override
 public Response createTestBattle(CreateBattleRequest request) {
         try {
-            Battle battle;
-            if (request.width() != null && request.height() != null
-                    && request.robotMovementTimeSeconds() != null) {
-                battle = battleService.createTestBattle(request.name(), request.width(), request.height(),
-                        request.robotMovementTimeSeconds());
-            } else if (request.width() != null && request.height() != null) {
-                battle = battleService.createTestBattle(request.name(), request.width(), request.height());
-            } else if (request.robotMovementTimeSeconds() != null) {
-                battle = battleService.createTestBattle(request.name(), request.robotMovementTimeSeconds());
-            } else {
-                battle = battleService.createTestBattle(request.name());
-            }
+            Battle battle = battleService.createTestBattle(request.name(), arenaWidth(request),
+                    arenaHeight(request), movementTimeSeconds(request), request.seed(),
+                    Boolean.TRUE.equals(request.accelerated()));
             return Response.ok(battle).build();
         } catch (IllegalArgumentException e) {
             return Response.status(Response.Status.BAD_REQUEST)
@@ -113,6 +95,18 @@ public Response createTestBattle(CreateBattleRequest request) {
         }
     }
 
+    @RunOnVirtualThread
+    @Override
+    public Response getRobotActions(String battleId, long after, int limit) {
+        try {
+            return Response.ok(battleService.getRobotActions(battleId, after, limit)).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new HttpError(e.getMessage()))
+                    .build();
+        }
+    }
+
     @RunOnVirtualThread
     @Override
     public Response deleteBattle(String battleId) {
@@ -130,4 +124,22 @@ public Response createTestBattle(CreateBattleRequest request) {
                     .build();
         }
     }
+
+    /**
+     * Gets the requested arena width; custom dimensions only apply when both width and height are given.
+     */
+    private int arenaWidth(CreateBattleRequest request) {
+        return request.width() != null && request.height() != null
+                ? request.width() : battleService.getDefaultArenaWidth();
+    }
+
+    private int arenaHeight(CreateBattleRequest request) {
+        return request.width() != null && request.height() != null
+                ? request.height() : battleService.getDefaultArenaHeight();
+    }
+
+    private double movementTimeSeconds(CreateBattleRequest request) {
+        return request.robotMovementTimeSeconds() != null
+                ? request.robotMovementTimeSeconds() : battleService.getRobotMovementTimeSeconds();
+    }
 }
@@ -8,13 +8,21 @@ import za.co.sww.rwars.backend.api.RobotResourceApi;
 import za.co.sww.rwars.backend.api.RobotResourceApi.MoveRequest;
 import za.co.sww.rwars.backend.api.RobotResourceApi.RadarRequest;
 import za.co.sww.rwars.backend.api.RobotResourceApi.LaserRequest;
+import za.co.sww.rwars.backend.api.RobotResourceApi.CommandBatchRequest;
 import za.co.sww.rwars.backend.model.Battle;
 import za.co.sww.rwars.backend.model.Robot;
 import za.co.sww.rwars.backend.model.RobotStatus;
 import za.co.sww.rwars.backend.model.RadarResponse;
 import za.co.sww.rwars.backend.model.LaserResponse;
+import za.co.sww.rwars.backend.model.RobotCommandResult;
 import za.co.sww.rwars.backend.service.BattleService;
 
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
  * REST API implementation for robot registration and battle status checking.
  *
@@ -110,6 +118,31 @@ public class RobotResource implements RobotResourceApi {
         }
     }
 
+    @Override
+    public CompletionStage<Response> waitForRobotStatusChange(String battleId, String robotId, String knownStatus,
+                                                              Integer knownHitPoints, int timeoutSeconds) {
+        Robot.RobotStatus status;
+        try {
+            status = knownStatus == null ? null : Robot.RobotStatus.valueOf(knownStatus.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new HttpError("Invalid robot status: " + knownStatus))
+                    .build());
+        }
+        // The request is parked without holding a thread until the robot changes or the timeout expires
+        return battleService.awaitRobotStatusChangeAsync(battleId, robotId, status, knownHitPoints,
+                        TimeUnit.SECONDS.toMillis(timeoutSeconds))
+                .thenApply(robotStatus -> Response.ok(robotStatus).build())
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    Response.Status httpStatus = cause instanceof IllegalArgumentException
+                            ? Response.Status.BAD_REQUEST : Response.Status.INTERNAL_SERVER_ERROR;
+                    return Response.status(httpStatus)
+                            .entity(new HttpError(cause.getMessage()))
+                            .build();
+                });
+    }
+
     @RunOnVirtualThread
     @Override
 public Response moveRobot(String battleId, String robotId, MoveRequest moveRequest) {
@@ -185,4 +218,29 @@ public Response fireLaser(String battleId, String robotId, LaserRequest laserReq
                     .build();
         }
     }
+
+    @RunOnVirtualThread
+    @Override
+public Response executeCommands(String battleId, String robotId, CommandBatchRequest commandBatchRequest) {
+        try {
+            if (!battleService.isValidBattleAndRobotId(battleId, robotId)) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(new HttpError("Invalid battle ID or robot ID"))
+                        .build();
+            }
+            List<RobotCommandResult> results = battleService.executeCommands(
+                    battleId,
+                    robotId,
+                    commandBatchRequest.commands());
+            return Response.ok(results).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new HttpError(e.getMessage()))
+                    .build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(new HttpError(e.getMessage()))
+                    .build();
+        }
+    }
 }
@@ -0,0 +1,143 @@
+package za.co.sww.rwars.backend.service;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Single-writer mailbox that owns all mutations of one battle.
+ *
+ * Commands are queued and executed one at a time, in submission order, on a shared carrier executor. Because
+ * only one command of a battle runs at any moment, the battle and its robots need no locks, while different
+ * battles still run in parallel on the carrier.
+ */
+public class BattleMailbox implements Executor {
+
+    private static final Logger LOGGER = Logger.getLogger(BattleMailbox.class.getName());
+
+    /**
+     * Maximum number of commands drained in one go before the mailbox hands its carrier thread back.
+     */
+    private static final int DRAIN_BATCH_SIZE = 64;
+
+    private final String battleId;
+    private final Executor carrier;
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile Thread owner;
+
+    /**
+     * Creates a mailbox for a battle.
+     *
+     * @param battleId The battle ID, used for logging
+     * @param carrier The executor the mailbox drains its commands on
+     */
+    public BattleMailbox(String battleId, Executor carrier) {
+        this.battleId = battleId;
+        this.carrier = carrier;
+    }
+
+    /**
+     * Queues a command and returns a future for its result.
+     * A command submitted from within another command of the same battle runs straight away, as it already
+     * owns the battle.
+     *
+     * @param command The command to execute
+     * @param <T> The result type
+     * @return A future that completes with the command's result or with whatever it threw, errors included
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> command) {
+        if (isOwnedByCurrentThread()) {
+            return runNow(command);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                result.complete(command.get());
+            } catch (Throwable e) {
+                // Errors too, or a caller waiting for the result would wait forever
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Queues a command without a result.
+     *
+     * @param command The command to execute
+     */
+    @Override
+    public void execute(Runnable command) {
+        commands.add(command);
+        scheduleDrain();
+    }
+
+    /**
+     * Checks whether the calling thread is currently executing a command of this battle.
+     *
+     * @return true if called from inside one of this mailbox's commands
+     */
+    public boolean isOwnedByCurrentThread() {
+        return owner == Thread.currentThread();
+    }
+
+    /**
+     * Gets the number of commands waiting to be executed.
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        return commands.size();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            carrier.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        owner = Thread.currentThread();
+        try {
+            for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+                Runnable command = commands.poll();
+                if (command == null) {
+                    break;
+                }
+                try {
+                    command.run();
+                } catch (Throwable e) {
+                    // Keep draining, so one failed command never strands the commands behind it
+                    LOGGER.severe("event=battle_command_error battleId=" + battleId + " error=" + e);
+                }
+            }
+        } finally {
+            owner = null;
+            draining.set(false);
+        }
+        // Commands may have arrived after the last poll; pick them up rather than leave them stranded
+        if (!commands.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Runs a command on the calling thread and wraps its outcome in a future.
+     *
+     * @param command The command to execute
+     * @param <T> The result type
+     * @return A completed future holding the command's result or exception
+     */
+    static <T> CompletableFuture<T> runNow(Supplier<T> command) {
+        try {
+            return CompletableFuture.completedFuture(command.get());
+        } catch (Throwable e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package za.co.sww.rwars.backend.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Battle.BattleState;
+import za.co.sww.rwars.backend.model.Robot;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent registry of all battles and robots.
+ *
+ * Besides the primary maps by ID it keeps secondary indexes from battle name to battle, from battle to its
+ * robots and from battle state to battles, so that creating, joining, looking up and deleting battles never
+ * needs to scan every battle or robot. The state index is kept up to date through the battle's state change
+ * listener, so it also follows state changes made directly on a {@link Battle}.
+ */
+@ApplicationScoped
+public class BattleRegistry {
+
+    /**
+     * States a robot may still join, in order of preference.
+     */
+    private static final BattleState[] JOINABLE_STATES = {
+        BattleState.WAITING_ON_ROBOTS,
+        BattleState.READY,
+        BattleState.COMPLETED
+    };
+
+    private final Map<String, Battle> battlesById = new ConcurrentHashMap<>();
+    private final Map<String, Robot> robotsById = new ConcurrentHashMap<>();
+    private final Map<String, String> battleIdsByName = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> robotIdsByBattleId = new ConcurrentHashMap<>();
+    private final Map<BattleState, Set<String>> battleIdsByState = new EnumMap<>(BattleState.class);
+
+    public BattleRegistry() {
+        for (BattleState state : BattleState.values()) {
+            battleIdsByState.put(state, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Adds a battle to the registry.
+     *
+     * @param battle The battle to add
+     * @throws IllegalStateException if a battle with the same name already exists
+     */
+    public void addBattle(Battle battle) {
+        String battleId = battle.getId();
+        if (battle.getName() != null && battleIdsByName.putIfAbsent(battle.getName(), battleId) != null) {
+            throw new IllegalStateException("Battle with name '" + battle.getName() + "' already exists");
+        }
+        robotIdsByBattleId.put(battleId, ConcurrentHashMap.newKeySet());
+        battle.onStateChange(this::battleStateChanged);
+        battlesById.put(battleId, battle);
+        battleIdsByState.get(battle.getState()).add(battleId);
+    }
+
+    /**
+     * Removes a battle and all of its robots from the registry.
+     *
+     * @param battleId The battle ID
+     * @return The removed battle, or null if it was not registered
+     */
+    public Battle removeBattle(String battleId) {
+        Battle battle = battlesById.remove(battleId);
+        if (battle == null) {
+            return null;
+        }
+        battle.onStateChange(null);
+        for (Set<String> battleIds : battleIdsByState.values()) {
+            battleIds.remove(battleId);
+        }
+        if (battle.getName() != null) {
+            battleIdsByName.remove(battle.getName(), battleId);
+        }
+        Set<String> robotIds = robotIdsByBattleId.remove(battleId);
+        if (robotIds != null) {
+            for (String robotId : robotIds) {
+                robotsById.remove(robotId);
+            }
+        }
+        return battle;
+    }
+
+    /**
+     * Gets a battle by ID.
+     *
+     * @param battleId The battle ID
+     * @return The battle, or null if not found
+     */
+    public Battle getBattle(String battleId) {
+        return battleId == null ? null : battlesById.get(battleId);
+    }
+
+    /**
+     * Checks whether a battle with the given name exists.
+     *
+     * @param name The battle name
+     * @return true if the name is taken
+     */
+    public boolean containsBattleName(String name) {
+        return name != null && battleIdsByName.containsKey(name);
+    }
+
+    /**
+     * Gets a battle by name.
+     *
+     * @param name The battle name
+     * @return The battle, or null if not found
+     */
+    public Battle findBattleByName(String name) {
+        String battleId = name == null ? null : battleIdsByName.get(name);
+        return getBattle(battleId);
+    }
+
+    /**
+     * Finds a battle that robots may still join, preferring battles that are waiting on robots.
+     *
+     * @return A joinable battle, or null if every battle is in progress
+     */
+    public Battle findJoinableBattle() {
+        for (BattleState state : JOINABLE_STATES) {
+            Iterator<String> battleIds = battleIdsByState.get(state).iterator();
+            while (battleIds.hasNext()) {
+                Battle battle = battlesById.get(battleIds.next());
+                if (battle != null && battle.getState() != BattleState.IN_PROGRESS) {
+                    return battle;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the IDs of all battles in a given state.
+     *
+     * @param state The battle state
+     * @return An unmodifiable live view of the battle IDs
+     */
+    public Set<String> getBattleIdsInState(BattleState state) {
+        return Collections.unmodifiableSet(battleIdsByState.get(state));
+    }
+
+    /**
+     * Gets all battles.
+     *
+     * @return An unmodifiable live view of all battles
+     */
+    public Collection<Battle> getBattles() {
+        return Collections.unmodifiableCollection(battlesById.values());
+    }
+
+    /**
+     * Gets the number of battles.
+     *
+     * @return The battle count
+     */
+    public int getBattleCount() {
+        return battlesById.size();
+    }
+
+    /**
+     * Adds a robot to the registry and to the robot index of its battle.
+     *
+     * @param robot The robot to add
+     */
+    public void addRobot(Robot robot) {
+        Set<String> robotIds = robotIdsByBattleId.get(robot.getBattleId());
+        if (robotIds == null) {
+            throw new IllegalArgumentException("Invalid battle ID: " + robot.getBattleId());
+        }
+        robotsById.put(robot.getId(), robot);
+        robotIds.add(robot.getId());
+    }
+
+    /**
+     * Gets a robot by ID.
+     *
+     * @param robotId The robot ID
+     * @return The robot, or null if not found
+     */
+    public Robot getRobot(String robotId) {
+        return robotId == null ? null : robotsById.get(robotId);
+    }
+
+    /**
+     * Gets the IDs of the robots registered for a battle.
+     *
+     * @param battleId The battle ID
+     * @return An unmodifiable live view of the robot IDs, empty if the battle is unknown
+     */
+    public Set<String> getRobotIds(String battleId) {
+        Set<String> robotIds = robotIdsByBattleId.get(battleId);
+        return robotIds == null ? Collections.emptySet() : Collections.unmodifiableSet(robotIds);
+    }
+
+    /**
+     * Removes every battle and robot.
+     */
+    public void clear() {
+        for (Battle battle : battlesById.values()) {
+            battle.onStateChange(null);
+        }
+        battlesById.clear();
+        robotsById.clear();
+        battleIdsByName.clear();
+        robotIdsByBattleId.clear();
+        for (Set<String> battleIds : battleIdsByState.values()) {
+            battleIds.clear();
+        }
+    }
+
+    private void battleStateChanged(Battle battle, BattleState previousState, BattleState newState) {
+        String battleId = battle.getId();
+        if (!battlesById.containsKey(battleId)) {
+            return;
+        }
+        if (previousState != null) {
+            battleIdsByState.get(previousState).remove(battleId);
+        }
+        if (newState != null) {
+            battleIdsByState.get(newState).add(battleId);
+        }
+    }
+}
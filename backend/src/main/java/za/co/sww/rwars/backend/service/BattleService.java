@@ -1,32 +1,69 @@
 package za.co.sww.rwars.backend.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import za.co.sww.rwars.backend.journal.JournalEvent;
+import za.co.sww.rwars.backend.journal.JournalService;
 import za.co.sww.rwars.backend.model.Battle;
 import za.co.sww.rwars.backend.model.Robot;
 import za.co.sww.rwars.backend.model.Robot.Direction;
-import za.co.sww.rwars.backend.model.Robot.RobotStatus;
+import za.co.sww.rwars.backend.model.RobotAction;
+import za.co.sww.rwars.backend.model.RobotActionLog;
+import za.co.sww.rwars.backend.model.RobotActionPage;
+import za.co.sww.rwars.backend.model.RobotCommand;
+import za.co.sww.rwars.backend.model.RobotCommandResult;
+import za.co.sww.rwars.backend.model.RobotStatus;
+import za.co.sww.rwars.backend.model.RobotStore;
 import za.co.sww.rwars.backend.model.Wall;
 import za.co.sww.rwars.backend.model.RadarResponse;
 import za.co.sww.rwars.backend.model.LaserResponse;
 import za.co.sww.rwars.backend.websocket.BattleStateSocket;
+import za.co.sww.rwars.backend.websocket.RobotChannelSocket;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
 import java.util.stream.Collectors;
 
 /**
  * Service to manage battles and robots.
+ *
+ * Every battle is owned by a {@link BattleMailbox}: commands that change a battle or its robots are queued to
+ * that battle's mailbox and executed one at a time, while separate battles run in parallel. The asynchronous
+ * methods return the queued command's future; the synchronous methods wait for it.
  */
 @ApplicationScoped
 public class BattleService {
 
-    private final Map<String, Battle> battlesById = new HashMap<>();
-    private final Map<String, Robot> robotsById = new HashMap<>();
+    private static final Logger LOGGER = Logger.getLogger(BattleService.class.getName());
+
+    private static final String DEFAULT_BATTLE_NAME = "Default Battle";
+
+    private final Map<String, BattleMailbox> mailboxesByBattleId = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService broadcastTimer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("battle-broadcast-timer").daemon().factory());
+
+    private BattleStatePublisher statePublisher;
+
+    private final RobotStatusWaiters statusWaiters = new RobotStatusWaiters();
+    private final ExecutorService mailboxCarrier = Executors.newVirtualThreadPerTaskExecutor();
 
     @Inject
     @ConfigProperty(name = "battle.arena.default-width", defaultValue = "50")
@@ -59,12 +96,30 @@ public class BattleService {
     @Inject
     private BattleStateSocket battleStateSocket;
 
+    @Inject
+    private RobotChannelSocket robotChannelSocket;
+
     @Inject
     private WallService wallService;
 
     @Inject
     private RadarService radarService;
 
+    @Inject
+    private LaserEngine laserEngine;
+
+    @Inject
+    private BattleTickScheduler tickScheduler;
+
+    @Inject
+    private BattleRegistry registry;
+
+    @Inject
+    private JournalService journal;
+
+    @Inject
+    private SimulationClock clock;
+
     @ConfigProperty(name = "battle.robot.default-hit-points", defaultValue = "100")
     private int defaultHitPoints;
 
@@ -77,6 +132,33 @@ public class BattleService {
     @ConfigProperty(name = "battle.laser.damage", defaultValue = "20")
     private int laserDamage;
 
+    @ConfigProperty(name = "battle.radar.default-range", defaultValue = "5")
+    private int defaultRadarRange;
+
+    @ConfigProperty(name = "battle.robot.max-batch-commands", defaultValue = "16")
+    private int maxBatchCommands;
+
+    @ConfigProperty(name = "battle.broadcast.max-rate-hz", defaultValue = "20")
+    private double broadcastMaxRateHz;
+
+    @ConfigProperty(name = "battle.actions.capacity", defaultValue = "1000")
+    private int actionLogCapacity;
+
+    @ConfigProperty(name = "battle.actions.recent", defaultValue = "50")
+    private int recentActionCount;
+
+    @PostConstruct
+    void init() {
+        statePublisher = new BattleStatePublisher(broadcastMaxRateHz, clock, broadcastTimer,
+                this::doBroadcastBattleState);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        broadcastTimer.shutdownNow();
+        mailboxCarrier.shutdownNow();
+    }
+
     /**
      * Gets the default arena width.
      *
@@ -206,6 +288,50 @@ public class BattleService {
      * @throws IllegalArgumentException if the arena dimensions are invalid
      */
     public Battle createBattle(String battleName, int width, int height, double movementTimeSeconds) {
+        return createBattle(battleName, width, height, movementTimeSeconds, null);
+    }
+
+    /**
+     * Creates a new battle with the given name, arena dimensions, robot movement time and seed.
+     * Walls and spawn positions are drawn from the seed, so a battle created again with the same seed and
+     * the same robots registering in the same order is laid out identically.
+     *
+     * @param battleName The name of the battle
+     * @param width The width of the arena
+     * @param height The height of the arena
+     * @param movementTimeSeconds The time in seconds it takes for a robot to move one block
+     * @param seed The battle seed, or null to generate one; the seed used is reported by the battle
+     * @return The created battle
+     * @throws IllegalArgumentException if the arena dimensions are invalid
+     */
+    public Battle createBattle(String battleName, int width, int height, double movementTimeSeconds, Long seed) {
+        return createBattle(battleName, width, height, movementTimeSeconds, seed, false);
+    }
+
+    /**
+     * Creates a new battle with the given name, arena dimensions, robot movement time and seed, optionally
+     * accelerated. See {@link #createAcceleratedBattle(String, int, int, double)} for accelerated battles.
+     *
+     * @param battleName The name of the battle
+     * @param width The width of the arena
+     * @param height The height of the arena
+     * @param movementTimeSeconds The time in seconds it takes for a robot to move one block
+     * @param seed The battle seed, or null to generate one; the seed used is reported by the battle
+     * @param accelerated Whether the battle runs on a virtual clock
+     * @return The created battle
+     * @throws IllegalArgumentException if the arena dimensions are invalid
+     */
+    public Battle createBattle(String battleName, int width, int height, double movementTimeSeconds, Long seed,
+                               boolean accelerated) {
+        return createBattle(battleName, width, height, movementTimeSeconds, seed, false, accelerated);
+    }
+
+    /**
+     * Creates a battle with all its settings in place before it is published and journaled, so that the
+     * journal and snapshots record it as it was created.
+     */
+    private Battle createBattle(String battleName, int width, int height, double movementTimeSeconds, Long seed,
+                                boolean testMode, boolean accelerated) {
         if (width < minArenaWidth || height < minArenaHeight) {
             throw new IllegalArgumentException(
                     String.format("Arena dimensions must be at least %dx%d", minArenaWidth, minArenaHeight));
@@ -216,31 +342,68 @@ public class BattleService {
                     String.format("Arena dimensions must be at most %dx%d", maxArenaWidth, maxArenaHeight));
         }
 
-        // Check if battle name already exists
-        for (Battle existingBattle : battlesById.values()) {
-            if (battleName.equals(existingBattle.getName())) {
-                throw new IllegalStateException("Battle with name '" + battleName + "' already exists");
-            }
+        // Check if battle name already exists; the registry re-checks atomically when the battle is added
+        if (registry.containsBattleName(battleName)) {
+            throw new IllegalStateException("Battle with name '" + battleName + "' already exists");
         }
 
         Battle newBattle = new Battle(battleName, width, height, movementTimeSeconds);
+        if (seed != null) {
+            newBattle.setSeed(seed);
+        }
+        newBattle.setTestMode(testMode);
+        newBattle.setAccelerated(accelerated);
+        newBattle.configureRobotActionLog(actionLogCapacity, recentActionCount);
 
         // Generate random walls for the battle
         List<Wall> walls = wallService.generateWalls(newBattle);
         newBattle.setWalls(walls);
 
-        battlesById.put(newBattle.getId(), newBattle);
+        addBattle(newBattle);
         return newBattle;
     }
 
+    /**
+     * Creates a new accelerated battle with the given name, arena dimensions, and robot movement time.
+     * An accelerated battle runs on a virtual clock: each movement tick advances the simulated time by the robot
+     * movement time and follows the previous tick straight away. Commands are handled exactly as in a normal
+     * battle, so an in-process driver can play a whole match in milliseconds, using {@link #awaitIdle(String)}
+     * where a bot would otherwise sleep until its robot stopped moving.
+     *
+     * @param battleName The name of the battle
+     * @param width The width of the arena
+     * @param height The height of the arena
+     * @param movementTimeSeconds The simulated time in seconds it takes for a robot to move one block
+     * @return The created battle
+     * @throws IllegalArgumentException if the arena dimensions are invalid
+     */
+    public Battle createAcceleratedBattle(String battleName, int width, int height, double movementTimeSeconds) {
+        return createBattle(battleName, width, height, movementTimeSeconds, null, true);
+    }
+
     /**
      * Creates a new test battle with the given name, arena dimensions, and robot movement time.
      * In test mode, the battle becomes READY when a single robot is registered.
      */
     public Battle createTestBattle(String battleName, int width, int height, double movementTimeSeconds) {
-        Battle battle = createBattle(battleName, width, height, movementTimeSeconds);
-        battle.setTestMode(true);
-        return battle;
+        return createTestBattle(battleName, width, height, movementTimeSeconds, null);
+    }
+
+    /**
+     * Creates a new test battle with the given name, arena dimensions, robot movement time and seed.
+     */
+    public Battle createTestBattle(String battleName, int width, int height, double movementTimeSeconds,
+                                   Long seed) {
+        return createTestBattle(battleName, width, height, movementTimeSeconds, seed, false);
+    }
+
+    /**
+     * Creates a new test battle with the given name, arena dimensions, robot movement time and seed, optionally
+     * accelerated.
+     */
+    public Battle createTestBattle(String battleName, int width, int height, double movementTimeSeconds,
+                                   Long seed, boolean accelerated) {
+        return createBattle(battleName, width, height, movementTimeSeconds, seed, true, accelerated);
     }
 
     /**
@@ -253,19 +416,12 @@ public class BattleService {
      */
     public Robot registerRobot(String robotName) {
         // Find the first available battle (not in progress)
-        Battle availableBattle = battlesById.values().stream()
-                .filter(battle -> battle.getState() != Battle.BattleState.IN_PROGRESS)
-                .findFirst()
-                .orElse(null);
+        Battle availableBattle = registry.findJoinableBattle();
 
         if (availableBattle == null) {
             // If no battles exist at all, create a default battle
-            if (battlesById.isEmpty()) {
-                availableBattle = new Battle("Default Battle", defaultArenaWidth, defaultArenaHeight);
-                // Generate random walls for the battle
-                List<Wall> walls = wallService.generateWalls(availableBattle);
-                availableBattle.setWalls(walls);
-                battlesById.put(availableBattle.getId(), availableBattle);
+            if (registry.getBattleCount() == 0) {
+                availableBattle = createDefaultBattle();
             } else {
                 // All existing battles are in progress, can't join any
                 throw new IllegalStateException("Cannot join a battle in progress");
@@ -275,6 +431,24 @@ public class BattleService {
         return registerRobotForBattle(robotName, availableBattle.getId());
     }
 
+    /**
+     * Creates the default battle, or returns it if a concurrent registration created it first.
+     *
+     * @return The default battle
+     */
+    private Battle createDefaultBattle() {
+        Battle defaultBattle = new Battle(DEFAULT_BATTLE_NAME, defaultArenaWidth, defaultArenaHeight);
+        // Generate random walls for the battle
+        List<Wall> walls = wallService.generateWalls(defaultBattle);
+        defaultBattle.setWalls(walls);
+        try {
+            addBattle(defaultBattle);
+            return defaultBattle;
+        } catch (IllegalStateException e) {
+            return registry.findBattleByName(DEFAULT_BATTLE_NAME);
+        }
+    }
+
     /**
      * Registers a robot for a specific battle.
      *
@@ -285,7 +459,22 @@ public class BattleService {
      * @throws IllegalStateException if the battle is in progress
      */
     public Robot registerRobotForBattle(String robotName, String battleId) {
-        Battle battle = battlesById.get(battleId);
+        return await(registerRobotForBattleAsync(robotName, battleId));
+    }
+
+    /**
+     * Queues the registration of a robot for a specific battle.
+     *
+     * @param robotName The name of the robot
+     * @param battleId The ID of the battle to join
+     * @return A future for the registered robot
+     */
+    public CompletableFuture<Robot> registerRobotForBattleAsync(String robotName, String battleId) {
+        return submit(battleId, () -> doRegisterRobotForBattle(robotName, battleId));
+    }
+
+    private Robot doRegisterRobotForBattle(String robotName, String battleId) {
+        Battle battle = registry.getBattle(battleId);
         if (battle == null) {
             throw new IllegalArgumentException("Invalid battle ID: " + battleId);
         }
@@ -298,26 +487,35 @@ public class BattleService {
         robot.setHitPoints(defaultHitPoints);
         robot.setMaxHitPoints(defaultHitPoints);
 
-        // Randomly position the robot within the arena boundaries, avoiding walls
+        // Randomly position the robot within the arena boundaries, avoiding walls and other robots
         int arenaWidth = battle.getArenaWidth();
         int arenaHeight = battle.getArenaHeight();
 
-        // Generate random position within arena boundaries that doesn't overlap with walls
+        // Generate random position within arena boundaries that doesn't overlap with walls or robots.
+        // Positions come from the battle's spawn stream, so the same seed gives the same spawns.
+        RandomGenerator spawnRandom = battle.random().spawns();
         int randomX;
         int randomY;
         int attempts = 0;
         do {
-            randomX = (int) (Math.random() * arenaWidth);
-            randomY = (int) (Math.random() * arenaHeight);
+            randomX = spawnRandom.nextInt(arenaWidth);
+            randomY = spawnRandom.nextInt(arenaHeight);
             attempts++;
-        } while (battle.isPositionOccupiedByWall(randomX, randomY) && attempts < 100);
+        } while ((battle.isPositionOccupiedByWall(randomX, randomY)
+            || battle.robotGrid().isOccupied(randomX, randomY)) && attempts < 100);
 
         robot.setPositionX(randomX);
         robot.setPositionY(randomY);
+        robot.onStatusChange(this::robotStatusChanged);
 
+        Battle.BattleState previousState = battle.getState();
         battle.addRobot(robot);
-        robotsById.put(robot.getId(), robot);
+        registry.addRobot(robot);
 
+        journal.append(battleId, JournalEvent.RobotRegistered.of(robot));
+        if (battle.getState() != previousState) {
+            journal.append(battleId, JournalEvent.StateChanged.of(battle));
+        }
         return robot;
     }
 
@@ -329,7 +527,7 @@ public class BattleService {
      * @throws IllegalArgumentException if the battle ID is invalid
      */
     public Battle getBattleStatus(String battleId) {
-        Battle battle = battlesById.get(battleId);
+        Battle battle = registry.getBattle(battleId);
         if (battle == null) {
             throw new IllegalArgumentException("Invalid battle ID: " + battleId);
         }
@@ -345,16 +543,16 @@ public class BattleService {
      * @throws IllegalArgumentException if the battle ID or robot ID is invalid
      */
     public Battle getBattleStatusForRobot(String battleId, String robotId) {
-        Battle battle = battlesById.get(battleId);
+        Battle battle = registry.getBattle(battleId);
         if (battle == null) {
             throw new IllegalArgumentException("Invalid battle ID: " + battleId);
         }
 
-        if (!robotsById.containsKey(robotId)) {
+        if (registry.getRobot(robotId) == null) {
             throw new IllegalArgumentException("Invalid robot ID: " + robotId);
         }
 
-        Robot robot = robotsById.get(robotId);
+        Robot robot = registry.getRobot(robotId);
         if (!robot.getBattleId().equals(battleId)) {
             throw new IllegalArgumentException("Robot does not belong to this battle");
         }
@@ -371,16 +569,16 @@ public class BattleService {
      * @throws IllegalArgumentException if the battle ID or robot ID is invalid
      */
     public Robot getRobotDetails(String battleId, String robotId) {
-        Battle battle = battlesById.get(battleId);
+        Battle battle = registry.getBattle(battleId);
         if (battle == null) {
             throw new IllegalArgumentException("Invalid battle ID: " + battleId);
         }
 
-        if (!robotsById.containsKey(robotId)) {
+        if (registry.getRobot(robotId) == null) {
             throw new IllegalArgumentException("Invalid robot ID: " + robotId);
         }
 
-        Robot robot = robotsById.get(robotId);
+        Robot robot = registry.getRobot(robotId);
         if (!robot.getBattleId().equals(battleId)) {
             throw new IllegalArgumentException("Robot does not belong to this battle");
         }
@@ -397,7 +595,21 @@ public class BattleService {
      * @throws IllegalStateException if the battle is not ready to start
      */
     public Battle startBattle(String battleId) {
-        Battle battle = battlesById.get(battleId);
+        return await(startBattleAsync(battleId));
+    }
+
+    /**
+     * Queues the start of a battle.
+     *
+     * @param battleId The battle ID
+     * @return A future for the started battle
+     */
+    public CompletableFuture<Battle> startBattleAsync(String battleId) {
+        return submit(battleId, () -> doStartBattle(battleId));
+    }
+
+    private Battle doStartBattle(String battleId) {
+        Battle battle = registry.getBattle(battleId);
         if (battle == null) {
             throw new IllegalArgumentException("Invalid battle ID: " + battleId);
         }
@@ -407,9 +619,35 @@ public class BattleService {
         }
 
         battle.startBattle();
+        journal.append(battleId, JournalEvent.StateChanged.of(battle));
         return battle;
     }
 
+    /**
+     * Gets a page of a battle's robot actions.
+     * The battle only holds its most recent actions, so a page starts at the oldest one held if older ones asked
+     * for were overwritten; the page reports the oldest sequence number held so the caller can tell.
+     *
+     * @param battleId The battle ID
+     * @param after The sequence number of the last action the caller has; 0 to start at the oldest held
+     * @param limit The most actions on the page
+     * @return The page of actions
+     * @throws IllegalArgumentException if the battle ID is invalid, after is negative or limit is not positive
+     */
+    public RobotActionPage getRobotActions(String battleId, long after, int limit) {
+        if (after < 0) {
+            throw new IllegalArgumentException("after must not be negative");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        RobotActionLog log = getBattleStatus(battleId).robotActionLog();
+        // Read the page and its bounds under the log's lock so they agree with each other
+        synchronized (log) {
+            return new RobotActionPage(log.after(after, limit), log.firstSeq(), log.lastSeq());
+        }
+    }
+
     /**
      * Checks if a battle ID is valid.
      *
@@ -417,7 +655,7 @@ public class BattleService {
      * @return true if the battle ID is valid, false otherwise
      */
     public boolean isValidBattleId(String battleId) {
-        return battlesById.containsKey(battleId);
+        return registry.getBattle(battleId) != null;
     }
 
     /**
@@ -427,7 +665,7 @@ public class BattleService {
      * @return true if the robot ID is valid, false otherwise
      */
     public boolean isValidRobotId(String robotId) {
-        return robotsById.containsKey(robotId);
+        return registry.getRobot(robotId) != null;
     }
 
     /**
@@ -441,7 +679,7 @@ public class BattleService {
         if (!isValidBattleId(battleId) || !isValidRobotId(robotId)) {
             return false;
         }
-        Robot robot = robotsById.get(robotId);
+        Robot robot = registry.getRobot(robotId);
         return robot.getBattleId().equals(battleId);
     }
 
@@ -451,7 +689,7 @@ public class BattleService {
      * @return A list of all battles
      */
     public List<Battle> getAllBattles() {
-        return new ArrayList<>(battlesById.values());
+        return new ArrayList<>(registry.getBattles());
     }
 
     /**
@@ -461,7 +699,7 @@ public class BattleService {
      * @return A list of battle summaries
      */
     public List<BattleSummary> getAllBattleSummaries() {
-        return battlesById.values().stream()
+        return registry.getBattles().stream()
                 .map(battle -> new BattleSummary(
                     battle.getId(),
                     battle.getName(),
@@ -490,15 +728,17 @@ public class BattleService {
      * @return The first available battle, or null if no battle exists
      */
     public Battle getCurrentBattle() {
-        return battlesById.values().stream().findFirst().orElse(null);
+        return registry.getBattles().stream().findFirst().orElse(null);
     }
 
     /**
      * Resets all battles for testing purposes.
      */
     public void resetBattle() {
-        battlesById.clear();
-        robotsById.clear();
+        tickScheduler.stopAll();
+        statusWaiters.clear();
+        registry.clear();
+        mailboxesByBattleId.clear();
     }
 
     /**
@@ -531,8 +771,39 @@ public class BattleService {
     ) {
     }
 
+    /**
+     * Waits until a robot's status or hit points differ from what the caller last saw, or a timeout expires.
+     * Nothing blocks while waiting: the request is parked as a future and completed by the change itself.
+     *
+     * @param battleId The battle ID
+     * @param robotId The robot ID
+     * @param knownStatus The status the caller last saw, or null to wait for the next change
+     * @param knownHitPoints The hit points the caller last saw, or null to wait for the next change
+     * @param timeoutMillis How long to wait for a change before returning the current status
+     * @return A future for the robot's status, either after the change or at the timeout
+     */
+    public CompletableFuture<RobotStatus> awaitRobotStatusChangeAsync(String battleId, String robotId,
+            Robot.RobotStatus knownStatus, Integer knownHitPoints, long timeoutMillis) {
+        return submit(battleId, () -> {
+            if (!isValidBattleAndRobotId(battleId, robotId)) {
+                throw new IllegalArgumentException("Invalid battle ID or robot ID");
+            }
+            Robot robot = registry.getRobot(robotId);
+            if ((knownStatus != null && knownStatus != robot.getStatus())
+                || (knownHitPoints != null && knownHitPoints != robot.getHitPoints())) {
+                return CompletableFuture.completedFuture(new RobotStatus(robot));
+            }
+            return statusWaiters.park(robotId).completeOnTimeout(null, timeoutMillis, TimeUnit.MILLISECONDS);
+        }).thenCompose(change -> change)
+            .thenCompose(status -> status != null
+                ? CompletableFuture.completedFuture(status)
+                : submit(battleId, () -> new RobotStatus(getRobotDetails(battleId, robotId))));
+    }
+
     /**
      * Moves a robot in the specified direction for the specified number of blocks.
+     * The robot is advanced one block per tick of the battle's simulation loop, where a tick lasts the
+     * battle's robot movement time.
      *
      * @param battleId The battle ID
      * @param robotId The robot ID
@@ -543,47 +814,44 @@ public class BattleService {
      * @throws IllegalStateException if the battle is not in progress
      */
     public Robot moveRobot(String battleId, String robotId, String directionStr, int blocks) {
-        return moveRobot(battleId, robotId, directionStr, blocks, robotMovementTimeSeconds);
+        return await(moveRobotAsync(battleId, robotId, directionStr, blocks));
     }
 
     /**
-     * Moves a robot in the specified direction for the specified number of blocks with a custom movement time.
+     * Queues a move command for a robot.
      *
      * @param battleId The battle ID
      * @param robotId The robot ID
      * @param directionStr The direction to move
      * @param blocks The number of blocks to move
-     * @param movementTimeSeconds The time in seconds it takes to move one block
-     * @return The robot with updated position
-     * @throws IllegalArgumentException if the battle ID or robot ID is invalid
-     * @throws IllegalStateException if the battle is not in progress
+     * @return A future for the robot once the move has been accepted
      */
-    public Robot moveRobot(String battleId, String robotId, String directionStr, int blocks,
-                            double movementTimeSeconds) {
+    public CompletableFuture<Robot> moveRobotAsync(String battleId, String robotId, String directionStr,
+                                                   int blocks) {
+        return submit(battleId, () -> doMoveRobot(battleId, robotId, directionStr, blocks));
+    }
+
+    private Robot doMoveRobot(String battleId, String robotId, String directionStr, int blocks) {
         if (!isValidBattleAndRobotId(battleId, robotId)) {
             throw new IllegalArgumentException("Invalid battle ID or robot ID");
         }
 
-        Battle battle = battlesById.get(battleId);
+        Battle battle = registry.getBattle(battleId);
         if (battle.getState() != Battle.BattleState.IN_PROGRESS) {
             throw new IllegalStateException("Battle is not in progress");
         }
 
-        Robot robot = robotsById.get(robotId);
+        Robot robot = registry.getRobot(robotId);
 
         // Parse the direction
-        Direction direction;
-        try {
-            direction = Direction.valueOf(directionStr.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Invalid direction: " + directionStr);
-        }
+        Direction direction = parseDirection(directionStr);
 
         // Set the robot's direction and status
         robot.setDirection(direction);
-        robot.setStatus(RobotStatus.MOVING);
+        robot.setStatus(Robot.RobotStatus.MOVING);
         robot.setTargetBlocks(blocks);
         robot.setBlocksRemaining(blocks);
+        journal.append(battleId, new JournalEvent.MoveOrdered(robotId, direction, blocks));
 
         // Record the robot action
         battle.addRobotAction(robotId, robot.getName(), "move");
@@ -591,8 +859,8 @@ public class BattleService {
         // Broadcast the state change to WebSocket clients
         broadcastBattleStateUpdate(battleId);
 
-        // Start the movement process
-        startRobotMovement(robot, movementTimeSeconds);
+        // Make sure the battle's simulation loop picks up the movement
+        startSimulation(battle);
 
         return robot;
     }
@@ -608,15 +876,18 @@ public class BattleService {
      * @throws IllegalArgumentException if the battle ID or robot ID is invalid
      */
     public Robot updateRobotPosition(String battleId, String robotId, int positionX, int positionY) {
-        if (!isValidBattleAndRobotId(battleId, robotId)) {
-            throw new IllegalArgumentException("Invalid battle ID or robot ID");
-        }
+        return await(submit(battleId, () -> {
+            if (!isValidBattleAndRobotId(battleId, robotId)) {
+                throw new IllegalArgumentException("Invalid battle ID or robot ID");
+            }
 
-        Robot robot = robotsById.get(robotId);
-        robot.setPositionX(positionX);
-        robot.setPositionY(positionY);
+            Robot robot = registry.getRobot(robotId);
+            robot.setPositionX(positionX);
+            robot.setPositionY(positionY);
+            journal.append(battleId, JournalEvent.BlockStepped.of(robot));
 
-        return robot;
+            return robot;
+        }));
     }
 
     /**
@@ -631,11 +902,15 @@ public class BattleService {
      * @throws IllegalArgumentException if the battle ID, robot ID, or position is invalid
      */
     public Robot setRobotPositionForTesting(String battleId, String robotId, int positionX, int positionY) {
+        return await(submit(battleId, () -> doSetRobotPositionForTesting(battleId, robotId, positionX, positionY)));
+    }
+
+    private Robot doSetRobotPositionForTesting(String battleId, String robotId, int positionX, int positionY) {
         if (!isValidBattleAndRobotId(battleId, robotId)) {
             throw new IllegalArgumentException("Invalid battle ID or robot ID");
         }
 
-        Battle battle = battlesById.get(battleId);
+        Battle battle = registry.getBattle(battleId);
 
         // Validate position is within arena bounds
         if (positionX < 0 || positionX >= battle.getArenaWidth()
@@ -650,54 +925,121 @@ public class BattleService {
             throw new IllegalArgumentException("Position " + positionX + "," + positionY + " is occupied by a wall");
         }
 
-        Robot robot = robotsById.get(robotId);
+        Robot robot = registry.getRobot(robotId);
         robot.setPositionX(positionX);
         robot.setPositionY(positionY);
+        journal.append(battleId, JournalEvent.BlockStepped.of(robot));
 
         return robot;
     }
 
     /**
-     * Starts the robot movement process.
+     * Wakes the simulation loop of a battle so that moving robots are advanced on each tick.
+     * Ticks are executed by the battle's mailbox, in line with all other commands for the battle.
+     * If the loop gives up after repeated failures the robots it was moving are stopped.
      *
-     * @param robot The robot to move
+     * @param battle The battle to simulate
      */
-    private void startRobotMovement(Robot robot) {
-        startRobotMovement(robot, robotMovementTimeSeconds);
+    private void startSimulation(Battle battle) {
+        BattleMailbox mailbox = mailboxesByBattleId.get(battle.getId());
+        if (mailbox == null) {
+            return;
+        }
+        tickScheduler.wake(battle.getId(), battle.getRobotMovementTimeSeconds(), battle.isAccelerated(), mailbox,
+                () -> advanceMovingRobots(battle), () -> hasMovingRobots(battle), () -> stopMovingRobots(battle));
     }
 
     /**
-     * Starts the robot movement process with a custom movement time.
+     * Sets every robot that is still moving in a battle to idle, once the battle's simulation loop has given up,
+     * so that clients waiting for those robots to stop are not left waiting forever.
      *
-     * @param robot The robot to move
-     * @param movementTimeSeconds The time in seconds it takes to move one block
+     * @param battle The battle whose robots to stop
      */
-    private void startRobotMovement(Robot robot, double movementTimeSeconds) {
-        // Convert movement time to milliseconds for more precise scheduling
-        long movementTimeMillis = (long) (movementTimeSeconds * 1000);
+    private void stopMovingRobots(Battle battle) {
+        RobotStore store = battle.robotStore();
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (store.isMoving(slot)) {
+                Robot robot = store.robotAt(slot);
+                robot.setBlocksRemaining(0);
+                robot.setStatus(Robot.RobotStatus.IDLE);
+            }
+        }
+        broadcastBattleStateNow(battle.getId());
+    }
 
-        // Use a virtual thread to handle the robot movement
-        Thread.startVirtualThread(() -> {
-            try {
-                // Continue moving until the robot reaches its target or crashes
-                while (robot.getBlocksRemaining() > 0 && robot.getStatus() != RobotStatus.CRASHED) {
-                    // Move the robot one block in the specified direction
-                    moveRobotOneBlock(robot);
+    /**
+     * Waits until no robot in a battle is moving any more.
+     *
+     * @param battleId The battle ID
+     * @throws IllegalArgumentException if the battle ID is invalid
+     */
+    public void awaitIdle(String battleId) {
+        await(awaitIdleAsync(battleId));
+    }
 
-                    // Sleep for the specified movement time
-                    Thread.sleep(movementTimeMillis);
-                }
+    /**
+     * Gets a future that completes once no robot in a battle is moving any more.
+     * Commands queued for the battle before this call are taken into account.
+     *
+     * @param battleId The battle ID
+     * @return A future that completes when the battle's simulation loop has gone idle
+     */
+    public CompletableFuture<Void> awaitIdleAsync(String battleId) {
+        return submit(battleId, () -> {
+            Battle battle = registry.getBattle(battleId);
+            if (battle == null) {
+                throw new IllegalArgumentException("Invalid battle ID: " + battleId);
+            }
+            return hasMovingRobots(battle)
+                ? tickScheduler.whenIdle(battleId)
+                : CompletableFuture.<Void>completedFuture(null);
+        }).thenCompose(idle -> idle);
+    }
 
-                // Update the robot's status if it's not crashed
-                if (robot.getStatus() != RobotStatus.CRASHED) {
-                    robot.setStatus(RobotStatus.IDLE);
-                    // Broadcast the status change to IDLE
-                    broadcastBattleStateUpdate(robot.getBattleId());
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    /**
+     * Advances every moving robot in a battle by one block.
+     * Robots are processed in registration order so that every tick resolves in the same order.
+     * A robot that has no blocks left is set to idle on the tick after its last block.
+     *
+     * @param battle The battle to advance
+     * @return true if any robot is still moving after this tick
+     */
+    private boolean advanceMovingRobots(Battle battle) {
+        if (battle.getState() != Battle.BattleState.IN_PROGRESS) {
+            return false;
+        }
+
+        // Scan the status column of the robot store and only touch the robots that are moving
+        RobotStore store = battle.robotStore();
+        boolean stillMoving = false;
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (!store.isMoving(slot)) {
+                continue;
             }
-        });
+            Robot robot = store.robotAt(slot);
+            if (robot.getBlocksRemaining() > 0) {
+                moveRobotOneBlock(robot);
+                stillMoving |= robot.getStatus() == Robot.RobotStatus.MOVING;
+            } else {
+                robot.setStatus(Robot.RobotStatus.IDLE);
+                // Broadcast the status change to IDLE
+                broadcastBattleStateUpdate(robot.getBattleId());
+            }
+        }
+        return stillMoving;
+    }
+
+    /**
+     * Checks whether any robot in a battle is waiting to be moved.
+     *
+     * @param battle The battle to check
+     * @return true if the battle is in progress and has a moving robot
+     */
+    private boolean hasMovingRobots(Battle battle) {
+        if (battle.getState() != Battle.BattleState.IN_PROGRESS) {
+            return false;
+        }
+        return battle.robotStore().anyMoving();
     }
 
     /**
@@ -749,10 +1091,10 @@ public class BattleService {
         }
 
         // Get the battle this robot belongs to
-        Battle battle = battlesById.get(robot.getBattleId());
+        Battle battle = registry.getBattle(robot.getBattleId());
         if (battle == null) {
             // This shouldn't happen, but handle it gracefully
-            robot.setStatus(RobotStatus.CRASHED);
+            robot.setStatus(Robot.RobotStatus.CRASHED);
             return;
         }
 
@@ -761,7 +1103,7 @@ public class BattleService {
             || newY < 0 || newY >= battle.getArenaHeight()) {
             // Robot has crashed into the arena boundary
             robot.setHitPoints(0);
-            robot.setStatus(RobotStatus.CRASHED);
+            robot.setStatus(Robot.RobotStatus.CRASHED);
             // Broadcast the crash state change
             broadcastBattleStateUpdate(robot.getBattleId());
             // Check if battle should end
@@ -773,7 +1115,7 @@ public class BattleService {
         if (battle.isPositionOccupiedByWall(newX, newY)) {
             // Robot has crashed into a wall
             robot.setHitPoints(0);
-            robot.setStatus(RobotStatus.CRASHED);
+            robot.setStatus(Robot.RobotStatus.CRASHED);
             // Broadcast the crash state change
             broadcastBattleStateUpdate(robot.getBattleId());
             // Check if battle should end
@@ -787,6 +1129,7 @@ public class BattleService {
 
         // Decrement the blocks remaining
         robot.setBlocksRemaining(robot.getBlocksRemaining() - 1);
+        journal.append(robot.getBattleId(), JournalEvent.BlockStepped.of(robot));
 
         // Broadcast the position change
         broadcastBattleStateUpdate(robot.getBattleId());
@@ -807,7 +1150,9 @@ public class BattleService {
                 } else {
                     battle.setState(Battle.BattleState.COMPLETED);
                 }
-                broadcastBattleStateUpdate(battle.getId());
+                journal.append(battle.getId(), JournalEvent.StateChanged.of(battle));
+                journal.seal(battle.getId());
+                broadcastBattleStateNow(battle.getId());
             }
         }
     }
@@ -823,22 +1168,39 @@ public class BattleService {
      * @throws IllegalStateException if the battle is not in progress
      */
     public RadarResponse performRadarScan(String battleId, String robotId, int range) {
+        return await(performRadarScanAsync(battleId, robotId, range));
+    }
+
+    /**
+     * Queues a radar scan for a robot.
+     *
+     * @param battleId The battle ID
+     * @param robotId The robot ID
+     * @param range The scan range
+     * @return A future for the radar response
+     */
+    public CompletableFuture<RadarResponse> performRadarScanAsync(String battleId, String robotId, int range) {
+        return submit(battleId, () -> doPerformRadarScan(battleId, robotId, range));
+    }
+
+    private RadarResponse doPerformRadarScan(String battleId, String robotId, int range) {
         if (!isValidBattleAndRobotId(battleId, robotId)) {
             throw new IllegalArgumentException("Invalid battle ID or robot ID");
         }
 
-        Battle battle = battlesById.get(battleId);
+        Battle battle = registry.getBattle(battleId);
         if (battle.getState() != Battle.BattleState.IN_PROGRESS) {
             throw new IllegalStateException("Battle is not in progress");
         }
 
-        Robot robot = robotsById.get(robotId);
+        Robot robot = registry.getRobot(robotId);
         if (!robot.isActive()) {
             throw new IllegalStateException("Robot is not active");
         }
 
         // Record the robot action
         battle.addRobotAction(robotId, robot.getName(), "radar");
+        journal.append(battleId, new JournalEvent.RadarScanned(robotId, range));
 
         RadarResponse response = radarService.scanArea(battle, robot, range);
 
@@ -855,7 +1217,14 @@ public class BattleService {
      * @throws IllegalStateException if the battle is not completed
      */
     public void deleteBattle(String battleId) {
-        Battle battle = battlesById.get(battleId);
+        await(submit(battleId, () -> {
+            doDeleteBattle(battleId);
+            return null;
+        }));
+    }
+
+    private void doDeleteBattle(String battleId) {
+        Battle battle = registry.getBattle(battleId);
         if (battle == null) {
             throw new IllegalArgumentException("Battle not found");
         }
@@ -864,21 +1233,64 @@ public class BattleService {
             throw new IllegalStateException("Cannot delete battle that is not completed");
         }
 
-        // Remove all robots associated with this battle
-        List<String> robotIdsToRemove = new ArrayList<>();
-        for (Map.Entry<String, Robot> entry : robotsById.entrySet()) {
-            if (entry.getValue().getBattleId().equals(battleId)) {
-                robotIdsToRemove.add(entry.getKey());
-            }
+        // Remove the battle itself together with all robots associated with it
+        for (Robot robot : battle.getRobots()) {
+            statusWaiters.forget(robot.getId());
         }
-
-        // Remove the robots from the robotsById map
-        for (String robotId : robotIdsToRemove) {
-            robotsById.remove(robotId);
+        registry.removeBattle(battleId);
+        mailboxesByBattleId.remove(battleId);
+        statePublisher.forget(battleId);
+        tickScheduler.stop(battleId);
+        journal.delete(battleId);
+        if (battleStateSocket != null) {
+            battleStateSocket.closeBattle(battleId);
         }
+    }
+
+    /**
+     * Reads a battle on its mailbox, between two of its commands, so that the reader sees the battle and its
+     * journal in step. The reader must not change the battle.
+     *
+     * @param battleId The battle ID
+     * @param reader The function reading the battle
+     * @param <T> The result type
+     * @return A future for the reader's result, which is null if the battle no longer exists
+     */
+    public <T> CompletableFuture<T> readBattleAsync(String battleId, Function<Battle, T> reader) {
+        return submit(battleId, () -> {
+            Battle battle = registry.getBattle(battleId);
+            return battle == null ? null : reader.apply(battle);
+        });
+    }
 
-        // Remove the battle itself
-        battlesById.remove(battleId);
+    /**
+     * Adds a battle rebuilt after a restart, together with its robots, and carries on moving the robots that were
+     * moving. The battle's events are journaled already, so nothing is journaled again.
+     *
+     * @param battle The rebuilt battle
+     * @throws IllegalStateException if a battle with the same ID or name already exists
+     */
+    public void restoreBattle(Battle battle) {
+        String battleId = battle.getId();
+        if (mailboxesByBattleId.putIfAbsent(battleId, new BattleMailbox(battleId, mailboxCarrier)) != null) {
+            throw new IllegalStateException("Battle " + battleId + " already exists");
+        }
+        try {
+            registry.addBattle(battle);
+        } catch (IllegalStateException e) {
+            mailboxesByBattleId.remove(battleId);
+            throw e;
+        }
+        List<RobotAction> actions = battle.getRobotActions();
+        battle.configureRobotActionLog(actionLogCapacity, recentActionCount);
+        battle.setRobotActions(actions);
+        for (Robot robot : battle.getRobots()) {
+            robot.onStatusChange(this::robotStatusChanged);
+            registry.addRobot(robot);
+        }
+        if (hasMovingRobots(battle)) {
+            startSimulation(battle);
+        }
     }
 
     /**
@@ -892,27 +1304,38 @@ public class BattleService {
      * @throws IllegalStateException if the battle is not in progress or robot is not active
      */
     public LaserResponse fireLaser(String battleId, String robotId, String direction) {
+        return await(fireLaserAsync(battleId, robotId, direction));
+    }
+
+    /**
+     * Queues a laser shot for a robot.
+     *
+     * @param battleId The battle ID
+     * @param robotId The robot ID
+     * @param direction The direction to fire the laser
+     * @return A future for the laser response
+     */
+    public CompletableFuture<LaserResponse> fireLaserAsync(String battleId, String robotId, String direction) {
+        return submit(battleId, () -> doFireLaser(battleId, robotId, direction));
+    }
+
+    private LaserResponse doFireLaser(String battleId, String robotId, String direction) {
         if (!isValidBattleAndRobotId(battleId, robotId)) {
             throw new IllegalArgumentException("Invalid battle ID or robot ID");
         }
 
-        Battle battle = battlesById.get(battleId);
+        Battle battle = registry.getBattle(battleId);
         if (battle.getState() != Battle.BattleState.IN_PROGRESS) {
             throw new IllegalStateException("Battle is not in progress");
         }
 
-        Robot firingRobot = robotsById.get(robotId);
+        Robot firingRobot = registry.getRobot(robotId);
         if (!firingRobot.isActive()) {
             throw new IllegalStateException("Robot is not active and cannot fire laser");
         }
 
         // Validate and normalize direction
-        Direction laserDirection;
-        try {
-            laserDirection = Direction.valueOf(direction.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Invalid direction: " + direction);
-        }
+        Direction laserDirection = parseDirection(direction);
 
         // Use default laser range
         int effectiveRange = defaultLaserRange;
@@ -923,125 +1346,260 @@ public class BattleService {
         // Broadcast the state change to include the new action
         broadcastBattleStateUpdate(battleId);
 
-        // Calculate laser path and check for hits
-        List<LaserResponse.Position> laserPath = new ArrayList<>();
-        int currentX = firingRobot.getPositionX();
-        int currentY = firingRobot.getPositionY();
+        // Trace the laser over the wall grid and robot index
+        LaserEngine.Trace trace = laserEngine.trace(battle, firingRobot, laserDirection, effectiveRange);
+        Robot hitRobot = trace.hitRobot();
+        journal.append(battleId, new JournalEvent.LaserFired(robotId, laserDirection, effectiveRange,
+                hitRobot == null ? null : hitRobot.getId(), hitRobot == null ? 0 : laserDamage));
+        LaserResponse response;
+        if (trace.hitRobot() != null) {
+            Robot robot = trace.hitRobot();
+
+            // Hit! Deal damage to the robot
+            robot.takeDamage(laserDamage);
+
+            // Broadcast battle state update due to robot damage, ahead of the laser event
+            broadcastBattleStateNow(battleId);
+
+            response = new LaserResponse(
+                robot.getId(),
+                robot.getName(),
+                laserDamage,
+                effectiveRange,
+                direction,
+                trace.path(),
+                new LaserResponse.Position(robot.getPositionX(), robot.getPositionY())
+            );
+        } else {
+            // Return the requested range, not the actual distance traveled
+            response = new LaserResponse(effectiveRange, direction, trace.path(), trace.blockedBy());
+        }
+        // Broadcast laser event to WebSocket clients
+        broadcastLaserEvent(battleId, response);
+        return response;
+    }
 
-        // Always add the robot's starting position as the first point in the path
-        laserPath.add(new LaserResponse.Position(currentX, currentY));
+    /**
+     * Executes an ordered batch of commands for a robot.
+     *
+     * @param battleId The battle ID
+     * @param robotId The robot ID
+     * @param commands The commands to execute, in order
+     * @return One result per command, in the same order
+     * @throws IllegalArgumentException if the IDs or any of the commands are invalid
+     * @throws IllegalStateException if the battle is not in progress or the robot cannot act
+     */
+    public List<RobotCommandResult> executeCommands(String battleId, String robotId, List<RobotCommand> commands) {
+        return await(executeCommandsAsync(battleId, robotId, commands));
+    }
 
-        // Direction deltas - consistent with movement system
-        int deltaX = 0;
-        int deltaY = 0;
-        switch (laserDirection) {
-            case NORTH:
-                deltaY = 1;
-                break;
-            case SOUTH:
-                deltaY = -1;
-                break;
-            case EAST:
-                deltaX = 1;
-                break;
-            case WEST:
-                deltaX = -1;
-                break;
-            case NE:
-                deltaX = 1;
-                deltaY = 1;
-                break;
-            case NW:
-                deltaX = -1;
-                deltaY = 1;
-                break;
-            case SE:
-                deltaX = 1;
-                deltaY = -1;
-                break;
-            case SW:
-                deltaX = -1;
-                deltaY = -1;
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported direction: " + laserDirection);
-        }
-
-        // Trace the laser path
-        for (int i = 1; i <= effectiveRange; i++) {
-            int nextX = currentX + (deltaX * i);
-            int nextY = currentY + (deltaY * i);
-
-            // Check if laser goes out of bounds
-            if (nextX < 0 || nextX >= battle.getArenaWidth()
-                || nextY < 0 || nextY >= battle.getArenaHeight()) {
-                // Don't add the out-of-bounds position to the path
-                // Return the requested range, not the actual distance traveled
-                LaserResponse response = new LaserResponse(effectiveRange, direction, laserPath, "BOUNDARY");
-                // Broadcast laser event to WebSocket clients
-                broadcastLaserEvent(battleId, response);
-                return response;
-            }
+    /**
+     * Queues an ordered batch of commands for a robot.
+     * The whole batch runs as a single command of the battle, so no tick or other robot's command can interleave
+     * with it and every command sees the state left by the one before. All commands are validated before the
+     * first one is applied, so an invalid batch changes nothing. State broadcasts are published from the
+     * battle's mailbox, so the batch's changes go out together after it is done.
+     *
+     * @param battleId The battle ID
+     * @param robotId The robot ID
+     * @param commands The commands to execute, in order
+     * @return A future for the results, one per command in the same order
+     */
+    public CompletableFuture<List<RobotCommandResult>> executeCommandsAsync(String battleId, String robotId,
+                                                                           List<RobotCommand> commands) {
+        return submit(battleId, () -> doExecuteCommands(battleId, robotId, commands));
+    }
+
+    /**
+     * Queues an ordered batch of commands for a robot and hands the results to a consumer before the batch gives
+     * up the battle. The consumer runs on the battle's mailbox, so whatever it sends is ordered with the status
+     * changes the robot sees before and after the batch.
+     *
+     * @param battleId The battle ID
+     * @param robotId The robot ID
+     * @param commands The commands to execute, in order
+     * @param onResults Receives the results, one per command in the same order
+     * @return A future that completes once the results were handed over, or with the batch's exception
+     */
+    public CompletableFuture<Void> executeCommandsAsync(String battleId, String robotId, List<RobotCommand> commands,
+                                                        Consumer<List<RobotCommandResult>> onResults) {
+        return submit(battleId, () -> {
+            onResults.accept(doExecuteCommands(battleId, robotId, commands));
+            return null;
+        });
+    }
+
+    private List<RobotCommandResult> doExecuteCommands(String battleId, String robotId, List<RobotCommand> commands) {
+        if (commands == null || commands.isEmpty()) {
+            throw new IllegalArgumentException("A command batch needs at least one command");
+        }
+        if (commands.size() > maxBatchCommands) {
+            throw new IllegalArgumentException("A command batch can hold at most " + maxBatchCommands + " commands");
+        }
+        if (!isValidBattleAndRobotId(battleId, robotId)) {
+            throw new IllegalArgumentException("Invalid battle ID or robot ID");
+        }
+        for (RobotCommand command : commands) {
+            validateCommand(battleId, robotId, command);
+        }
+
+        List<RobotCommandResult> results = new ArrayList<>(commands.size());
+        for (RobotCommand command : commands) {
+            results.add(executeCommand(battleId, robotId, command));
+        }
+        return results;
+    }
 
-            laserPath.add(new LaserResponse.Position(nextX, nextY));
+    /**
+     * Checks a batched command against the same rules as the matching single-command endpoint.
+     */
+    private void validateCommand(String battleId, String robotId, RobotCommand command) {
+        if (command == null || command.getType() == null) {
+            throw new IllegalArgumentException("Every command needs a type: MOVE, RADAR, LASER or STATUS");
+        }
+        if (command.getType() == RobotCommand.Type.STATUS) {
+            return;
+        }
 
-            // Check if laser hits a wall
-            boolean hitWall = false;
-            for (Wall wall : battle.getWalls()) {
-                if (wall.containsPosition(nextX, nextY)) {
-                    hitWall = true;
-                    break;
+        if (registry.getBattle(battleId).getState() != Battle.BattleState.IN_PROGRESS) {
+            throw new IllegalStateException("Battle is not in progress");
+        }
+        switch (command.getType()) {
+            case MOVE -> {
+                parseDirection(command.getDirection());
+                if (command.getBlocks() == null || command.getBlocks() < 1 || command.getBlocks() > 10) {
+                    throw new IllegalArgumentException("Invalid number of blocks. Must be between 1 and 10.");
                 }
             }
-            if (hitWall) {
-                LaserResponse response = new LaserResponse(effectiveRange, direction, laserPath, "WALL");
-                // Broadcast laser event to WebSocket clients
-                broadcastLaserEvent(battleId, response);
-                return response;
-            }
-
-            // Check if laser hits a robot
-            for (Robot robot : battle.getRobots()) {
-                if (!robot.getId().equals(robotId) && robot.isActive()
-                    && robot.getPositionX() == nextX && robot.getPositionY() == nextY) {
-
-                    // Hit! Deal damage to the robot
-                    robot.takeDamage(laserDamage);
-
-                    // Broadcast battle state update due to robot damage
-                    broadcastBattleStateUpdate(battleId);
-
-                    LaserResponse response = new LaserResponse(
-                        robot.getId(),
-                        robot.getName(),
-                        laserDamage,
-                        effectiveRange,
-                        direction,
-                        laserPath,
-                        new LaserResponse.Position(nextX, nextY)
-                    );
-                    // Broadcast laser event to WebSocket clients
-                    broadcastLaserEvent(battleId, response);
-                    return response;
+            case RADAR -> {
+                if (command.getRange() != null && (command.getRange() < 1 || command.getRange() > 20)) {
+                    throw new IllegalArgumentException("Invalid radar range. Must be between 1 and 20.");
                 }
+                requireActive(robotId, "Robot is not active");
             }
+            case LASER -> {
+                parseDirection(command.getDirection());
+                requireActive(robotId, "Robot is not active and cannot fire laser");
+            }
+            default -> throw new IllegalArgumentException("Unsupported command type: " + command.getType());
+        }
+    }
+
+    private RobotCommandResult executeCommand(String battleId, String robotId, RobotCommand command) {
+        RobotCommandResult result = new RobotCommandResult(command.getType());
+        switch (command.getType()) {
+            case MOVE -> result.setRobot(doMoveRobot(battleId, robotId, command.getDirection(), command.getBlocks()));
+            case RADAR -> result.setRadar(doPerformRadarScan(battleId, robotId,
+                command.getRange() == null ? defaultRadarRange : command.getRange()));
+            case LASER -> result.setLaser(doFireLaser(battleId, robotId, command.getDirection()));
+            case STATUS -> result.setStatus(new RobotStatus(registry.getRobot(robotId)));
+            default -> throw new IllegalArgumentException("Unsupported command type: " + command.getType());
         }
+        return result;
+    }
 
-        // Laser reached maximum range without hitting anything
-        LaserResponse response = new LaserResponse(effectiveRange, direction, laserPath, null);
-        // Broadcast laser event to WebSocket clients
-        broadcastLaserEvent(battleId, response);
-        return response;
+    private void requireActive(String robotId, String message) {
+        if (!registry.getRobot(robotId).isActive()) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    private static Direction parseDirection(String direction) {
+        if (direction == null) {
+            throw new IllegalArgumentException("Invalid direction: " + direction);
+        }
+        try {
+            return Direction.valueOf(direction.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid direction: " + direction);
+        }
+    }
+
+    /**
+     * Registers a new battle together with the mailbox that owns it, and starts the battle's journal.
+     *
+     * @param battle The battle to add
+     */
+    private void addBattle(Battle battle) {
+        // Journal the battle before it can be reached, so its first commands are journaled after it
+        journal.append(battle.getId(), JournalEvent.BattleCreated.of(battle));
+        journal.append(battle.getId(), new JournalEvent.WallsPlaced(List.copyOf(battle.getWalls())));
+        journal.append(battle.getId(), JournalEvent.StateChanged.of(battle));
+        mailboxesByBattleId.put(battle.getId(), new BattleMailbox(battle.getId(), mailboxCarrier));
+        try {
+            registry.addBattle(battle);
+        } catch (IllegalStateException e) {
+            mailboxesByBattleId.remove(battle.getId());
+            journal.delete(battle.getId());
+            throw e;
+        }
+    }
+
+    /**
+     * Queues a command to the mailbox of a battle.
+     * Commands for unknown battles run on the calling thread so that they report the invalid ID themselves.
+     *
+     * @param battleId The battle ID
+     * @param command The command to execute
+     * @param <T> The result type
+     * @return A future for the command's result
+     */
+    private <T> CompletableFuture<T> submit(String battleId, Supplier<T> command) {
+        BattleMailbox mailbox = battleId == null ? null : mailboxesByBattleId.get(battleId);
+        if (mailbox == null) {
+            return BattleMailbox.runNow(command);
+        }
+        return mailbox.submit(command);
+    }
+
+    /**
+     * Waits for a queued command and rethrows its exception as thrown by the command itself.
+     *
+     * @param future The future of the command
+     * @param <T> The result type
+     * @return The command's result
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
     }
 
     /**
      * Broadcasts battle state updates to all connected WebSocket clients.
-     * This method is called whenever robot state changes to ensure real-time updates.
+     * This method is called whenever robot state changes; the change is coalesced with others and published at
+     * most {@code battle.broadcast.max-rate-hz} times per second.
      *
      * @param battleId The battle ID to broadcast updates for
      */
     private void broadcastBattleStateUpdate(String battleId) {
-        if (battleStateSocket != null && battleId != null) {
+        if (battleId != null) {
+            statePublisher.markDirty(battleId, mailboxesByBattleId.get(battleId));
+        }
+    }
+
+    /**
+     * Broadcasts the battle state once the current command is done, for notable events that should not wait for
+     * the next publish.
+     *
+     * @param battleId The battle ID to broadcast updates for
+     */
+    private void broadcastBattleStateNow(String battleId) {
+        if (battleId != null) {
+            statePublisher.publishNow(battleId, mailboxesByBattleId.get(battleId));
+        }
+    }
+
+    private void doBroadcastBattleState(String battleId) {
+        if (battleStateSocket != null) {
             try {
                 battleStateSocket.broadcastBattleState(battleId);
             } catch (Exception e) {
@@ -1052,21 +1610,51 @@ public class BattleService {
         }
     }
 
+    /**
+     * Journals a robot's status or hit point change and passes it on to parked long-poll requests and the robot's
+     * own channel.
+     * Changes are made on the battle's mailbox, so each robot's changes arrive in the order they happened.
+     *
+     * @param robot The robot that changed
+     */
+    private void robotStatusChanged(Robot robot) {
+        journal.append(robot.getBattleId(), JournalEvent.StatusChanged.of(robot));
+        statusWaiters.robotChanged(robot);
+        if (robotChannelSocket != null) {
+            try {
+                robotChannelSocket.sendRobotStatus(robot);
+            } catch (Exception e) {
+                // Log the error but don't fail the operation
+                LOGGER.severe("event=robot_status_send_error battleId=" + robot.getBattleId() + " robotId="
+                        + robot.getId() + " error=" + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Broadcasts laser events to all connected WebSocket clients.
-     * This method is called whenever a laser is fired to provide real-time laser visualization.
+     * This method is called whenever a laser is fired to provide real-time laser visualization. The event is
+     * queued to the battle's mailbox behind the state broadcast of a hit, so clients see the damage first.
      *
      * @param battleId The battle ID to broadcast laser events for
      * @param response The laser response containing path and hit information
      */
     private void broadcastLaserEvent(String battleId, LaserResponse response) {
         if (battleStateSocket != null && battleId != null) {
-            try {
-                battleStateSocket.broadcastLaserEvent(battleId, response);
-            } catch (Exception e) {
-                // Log the error but don't fail the operation
-                System.err.println("Error broadcasting laser event for battle " + battleId + ": "
-                        + e.getMessage());
+            Runnable send = () -> {
+                try {
+                    battleStateSocket.broadcastLaserEvent(battleId, response);
+                } catch (Exception e) {
+                    // Log the error but don't fail the operation
+                    System.err.println("Error broadcasting laser event for battle " + battleId + ": "
+                            + e.getMessage());
+                }
+            };
+            BattleMailbox mailbox = mailboxesByBattleId.get(battleId);
+            if (mailbox != null) {
+                mailbox.execute(send);
+            } else {
+                send.run();
             }
         }
     }
@@ -0,0 +1,121 @@
+package za.co.sww.rwars.backend.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces battle state broadcasts and publishes each battle at most a configured number of times per second.
+ *
+ * A change only marks its battle dirty. The first change after a quiet spell is published straight after the
+ * command that made it; later changes wait until the battle's minimum interval has passed and are then published
+ * together. Publishing is queued to the battle's mailbox, so it sees a consistent battle and never runs inside a
+ * command, and the command that made the change never waits for WebSocket fan-out. Notable events skip the wait
+ * but are queued the same way.
+ */
+final class BattleStatePublisher {
+
+    private final long minIntervalNanos;
+    private final SimulationClock clock;
+    private final ScheduledExecutorService timer;
+    private final Consumer<String> broadcast;
+    private final Map<String, Pending> pendingByBattleId = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a publisher.
+     *
+     * @param maxRateHz The most broadcasts per second and battle; 0 or less publishes after every command
+     * @param clock The clock publishing intervals are measured on
+     * @param timer The executor that delays publishing until the interval has passed
+     * @param broadcast Broadcasts the state of a battle, given its ID
+     */
+    BattleStatePublisher(double maxRateHz, SimulationClock clock, ScheduledExecutorService timer,
+                         Consumer<String> broadcast) {
+        this.minIntervalNanos = maxRateHz > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxRateHz) : 0L;
+        this.clock = clock;
+        this.timer = timer;
+        this.broadcast = broadcast;
+    }
+
+    /**
+     * Marks a battle dirty and makes sure a broadcast is coming.
+     *
+     * @param battleId The battle ID
+     * @param mailbox The battle's mailbox the broadcast is queued to, or null to broadcast on the timer
+     */
+    void markDirty(String battleId, Executor mailbox) {
+        Pending pending = pendingByBattleId.computeIfAbsent(battleId, this::newPending);
+        pending.dirty.set(true);
+        if (!pending.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Executor target = mailbox != null ? mailbox : Runnable::run;
+        Runnable publish = () -> target.execute(() -> publishIfDirty(battleId, pending));
+        long delay = clock.delayUntil(pending.lastPublishNanos + minIntervalNanos);
+        if (delay <= 0) {
+            publish.run();
+        } else {
+            timer.schedule(publish, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Broadcasts a battle as soon as the current command is done, for notable events such as the end of a battle.
+     * Changes waiting to be published are included, so the pending broadcast finds nothing to do.
+     *
+     * @param battleId The battle ID
+     * @param mailbox The battle's mailbox the broadcast is queued to, or null to broadcast straight away
+     */
+    void publishNow(String battleId, Executor mailbox) {
+        Pending pending = pendingByBattleId.computeIfAbsent(battleId, this::newPending);
+        pending.dirty.set(true);
+        Executor target = mailbox != null ? mailbox : Runnable::run;
+        target.execute(() -> publish(battleId, pending));
+    }
+
+    /**
+     * Forgets a battle that was removed; a broadcast already queued finds nothing to do.
+     *
+     * @param battleId The battle ID
+     */
+    void forget(String battleId) {
+        Pending pending = pendingByBattleId.remove(battleId);
+        if (pending != null) {
+            pending.dirty.set(false);
+        }
+    }
+
+    private void publishIfDirty(String battleId, Pending pending) {
+        pending.scheduled.set(false);
+        publish(battleId, pending);
+    }
+
+    private void publish(String battleId, Pending pending) {
+        if (pending.dirty.getAndSet(false)) {
+            pending.lastPublishNanos = clock.nanoTime();
+            broadcast.accept(battleId);
+        }
+    }
+
+    private Pending newPending(String battleId) {
+        // Let the first change go out straight away
+        return new Pending(clock.nanoTime() - minIntervalNanos);
+    }
+
+    /**
+     * Publishing state of one battle.
+     */
+    private static final class Pending {
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long lastPublishNanos;
+
+        Pending(long lastPublishNanos) {
+            this.lastPublishNanos = lastPublishNanos;
+        }
+    }
+}
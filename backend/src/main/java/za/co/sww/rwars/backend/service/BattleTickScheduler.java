@@ -0,0 +1,356 @@
+package za.co.sww.rwars.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Runs the per-battle simulation loops on a small, fixed pool of scheduler threads.
+ *
+ * Each battle gets one fixed-rate loop that only runs while the battle has work to do. The scheduler threads
+ * only keep time; each tick is handed to the executor given for the battle, so it runs in line with the
+ * battle's other commands. The loop keeps its
+ * own schedule based on a {@link SimulationClock} so that slow ticks do not push later ticks out, and it
+ * records tick duration and lag so that an overloaded scheduler is visible in the metrics.
+ *
+ * Accelerated battles each run on a clock of their own, by default a {@link VirtualClock}: each tick is queued as
+ * soon as the previous one finishes, so the battle runs as fast as the CPU allows while its commands still
+ * interleave with the ticks.
+ *
+ * A tick that throws is retried after twice as long as the previous attempt; once several ticks in a row have
+ * failed the loop gives up: it tells the battle through the give-up callback given on waking, so that the battle can
+ * settle whatever the ticks left unfinished, and then goes idle until the battle is woken again. A battle with a
+ * lasting fault therefore does not log an error at the tick rate forever.
+ */
+@ApplicationScoped
+public class BattleTickScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(BattleTickScheduler.class.getName());
+
+    /**
+     * Once a loop falls this many ticks behind it stops trying to catch up and restarts its schedule from now.
+     */
+    private static final int MAX_CATCH_UP_TICKS = 10;
+
+    /**
+     * Once this many ticks in a row have failed the loop goes idle until it is woken again.
+     */
+    static final int MAX_FAILED_TICKS = 5;
+
+    @ConfigProperty(name = "battle.tick.threads", defaultValue = "0")
+    private int tickThreads;
+
+    @Inject
+    private MeterRegistry meterRegistry;
+
+    @Inject
+    private SimulationClock clock;
+
+    private Supplier<SimulationClock> acceleratedClocks = VirtualClock::new;
+
+    private final Map<String, TickLoop> loopsByBattleId = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService executor;
+    private Timer tickDurationTimer;
+    private Timer tickLagTimer;
+    private Counter tickErrorCounter;
+
+    BattleTickScheduler() {
+    }
+
+    /**
+     * Creates a scheduler outside the container, for tests.
+     *
+     * @param meterRegistry The registry the tick metrics are kept in
+     * @param clock The clock battles that are not accelerated run on
+     * @param acceleratedClocks Creates the clock of each accelerated battle
+     * @param tickThreads The number of scheduler threads
+     */
+    BattleTickScheduler(MeterRegistry meterRegistry, SimulationClock clock,
+                        Supplier<SimulationClock> acceleratedClocks, int tickThreads) {
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.acceleratedClocks = acceleratedClocks;
+        this.tickThreads = tickThreads;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        int threads = tickThreads > 0 ? tickThreads : Runtime.getRuntime().availableProcessors();
+        executor = Executors.newScheduledThreadPool(threads, new TickThreadFactory());
+        tickDurationTimer = meterRegistry.timer("battle.tick.duration");
+        tickLagTimer = meterRegistry.timer("battle.tick.lag");
+        tickErrorCounter = meterRegistry.counter("battle.tick.errors");
+        meterRegistry.gauge("battle.tick.active-loops", loopsByBattleId, Map::size);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Makes sure the simulation loop for a battle is running.
+     * If the loop is idle it is started straight away, so the first tick happens without waiting a full period.
+     * The tick callback returns {@code true} while the battle still has work for the next tick; once it returns
+     * {@code false} the loop goes idle until it is woken again.
+     *
+     * @param battleId The battle ID
+     * @param tickSeconds The time in seconds between ticks
+     * @param tickExecutor The executor each tick runs on
+     * @param tick The work to perform on each tick
+     * @param hasWork Tells an idle loop whether work arrived while it was going idle
+     */
+    public void wake(String battleId, double tickSeconds, Executor tickExecutor, BooleanSupplier tick,
+                     BooleanSupplier hasWork) {
+        wake(battleId, tickSeconds, false, tickExecutor, tick, hasWork);
+    }
+
+    /**
+     * Makes sure the simulation loop for a battle is running, optionally on a virtual clock.
+     * The clock is chosen when the loop is first created.
+     *
+     * @param battleId The battle ID
+     * @param tickSeconds The simulated time in seconds between ticks
+     * @param accelerated Whether ticks follow each other as fast as possible instead of in real time
+     * @param tickExecutor The executor each tick runs on
+     * @param tick The work to perform on each tick
+     * @param hasWork Tells an idle loop whether work arrived while it was going idle
+     */
+    public void wake(String battleId, double tickSeconds, boolean accelerated, Executor tickExecutor,
+                     BooleanSupplier tick, BooleanSupplier hasWork) {
+        wake(battleId, tickSeconds, accelerated, tickExecutor, tick, hasWork, () -> { });
+    }
+
+    /**
+     * Makes sure the simulation loop for a battle is running, and tells the battle if the loop gives up on it.
+     * The give-up callback runs on the tick executor after too many ticks in a row have failed, before anyone
+     * waiting for the loop to go idle is told, so that it can settle the work the ticks left unfinished.
+     * The clock and the callback are chosen when the loop is first created.
+     *
+     * @param battleId The battle ID
+     * @param tickSeconds The simulated time in seconds between ticks
+     * @param accelerated Whether ticks follow each other as fast as possible instead of in real time
+     * @param tickExecutor The executor each tick runs on
+     * @param tick The work to perform on each tick
+     * @param hasWork Tells an idle loop whether work arrived while it was going idle
+     * @param giveUp The work to perform when the loop stops after repeated failures
+     */
+    public void wake(String battleId, double tickSeconds, boolean accelerated, Executor tickExecutor,
+                     BooleanSupplier tick, BooleanSupplier hasWork, Runnable giveUp) {
+        long periodNanos = Math.max(1L, Math.round(tickSeconds * TimeUnit.SECONDS.toNanos(1)));
+        TickLoop loop = loopsByBattleId.computeIfAbsent(battleId, id -> new TickLoop(id, periodNanos,
+                accelerated ? acceleratedClocks.get() : clock, tickExecutor, tick, hasWork, giveUp));
+        loop.wake();
+    }
+
+    /**
+     * Gets a future that completes once a battle's simulation loop has gone idle.
+     * Call it from the battle's tick executor, after queueing the work to wait for, so that the loop cannot go
+     * idle in between.
+     *
+     * @param battleId The battle ID
+     * @return A future that completes when the loop has no more work, straight away if it is already idle
+     */
+    public CompletableFuture<Void> whenIdle(String battleId) {
+        TickLoop loop = loopsByBattleId.get(battleId);
+        return loop == null ? CompletableFuture.completedFuture(null) : loop.whenIdle();
+    }
+
+    /**
+     * Stops the simulation loop for a battle and forgets about it.
+     *
+     * @param battleId The battle ID
+     */
+    public void stop(String battleId) {
+        TickLoop loop = loopsByBattleId.remove(battleId);
+        if (loop != null) {
+            loop.cancel();
+            loop.completeIdleWaiters();
+        }
+    }
+
+    /**
+     * Stops all simulation loops.
+     */
+    public void stopAll() {
+        for (String battleId : loopsByBattleId.keySet()) {
+            stop(battleId);
+        }
+    }
+
+    /**
+     * The fixed-rate loop of one battle.
+     */
+    private final class TickLoop implements Runnable {
+        private final String battleId;
+        private final long periodNanos;
+        private final SimulationClock clock;
+        private final Executor tickExecutor;
+        private final BooleanSupplier tick;
+        private final BooleanSupplier hasWork;
+        private final Runnable giveUp;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Queue<CompletableFuture<Void>> idleWaiters = new ConcurrentLinkedQueue<>();
+        private volatile boolean cancelled;
+        private long nextTickNanos;
+        private int failedTicks;
+
+        private TickLoop(String battleId, long periodNanos, SimulationClock clock, Executor tickExecutor,
+                         BooleanSupplier tick, BooleanSupplier hasWork, Runnable giveUp) {
+            this.battleId = battleId;
+            this.periodNanos = periodNanos;
+            this.clock = clock;
+            this.tickExecutor = tickExecutor;
+            this.tick = tick;
+            this.hasWork = hasWork;
+            this.giveUp = giveUp;
+        }
+
+        private void wake() {
+            if (!cancelled && scheduled.compareAndSet(false, true)) {
+                nextTickNanos = clock.nanoTime();
+                tickExecutor.execute(this);
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+
+        private CompletableFuture<Void> whenIdle() {
+            if (!scheduled.get() || cancelled) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> idle = new CompletableFuture<>();
+            idleWaiters.add(idle);
+            // The loop may have gone idle while the waiter was being added
+            if (!scheduled.get() || cancelled) {
+                completeIdleWaiters();
+            }
+            return idle;
+        }
+
+        private void completeIdleWaiters() {
+            for (CompletableFuture<Void> idle = idleWaiters.poll(); idle != null; idle = idleWaiters.poll()) {
+                idle.complete(null);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            long start = System.nanoTime();
+            long lag = Math.max(0L, clock.nanoTime() - nextTickNanos);
+            boolean moreWork;
+            try {
+                moreWork = tick.getAsBoolean();
+                failedTicks = 0;
+            } catch (RuntimeException e) {
+                failedTicks++;
+                tickErrorCounter.increment();
+                LOGGER.severe("event=battle_tick_error battleId=" + battleId + " failedTicks=" + failedTicks
+                        + " error=" + e.getMessage());
+                moreWork = false;
+            }
+            tickDurationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            tickLagTimer.record(lag, TimeUnit.NANOSECONDS);
+
+            if (failedTicks > 0) {
+                retryOrStop();
+                return;
+            }
+            if (moreWork && !cancelled) {
+                scheduleNext();
+                return;
+            }
+
+            // Go idle, but re-check for work that arrived after the tick finished so a wake-up is never lost
+            scheduled.set(false);
+            if (!cancelled && hasWork.getAsBoolean() && scheduled.compareAndSet(false, true)) {
+                scheduleNext();
+            } else {
+                completeIdleWaiters();
+            }
+        }
+
+        /**
+         * Retries a failed tick after twice as long as the previous attempt, or gives up and goes idle once too many
+         * ticks in a row have failed. Waking the loop again starts over with a single attempt.
+         */
+        private void retryOrStop() {
+            if (failedTicks < MAX_FAILED_TICKS && !cancelled) {
+                nextTickNanos = clock.nanoTime() + (periodNanos << failedTicks);
+                scheduleAt(nextTickNanos);
+                return;
+            }
+            LOGGER.severe("event=battle_tick_stopped battleId=" + battleId + " failedTicks=" + failedTicks);
+            failedTicks = 0;
+            scheduled.set(false);
+            if (!cancelled) {
+                try {
+                    giveUp.run();
+                } catch (RuntimeException e) {
+                    LOGGER.severe("event=battle_tick_give_up_error battleId=" + battleId + " error=" + e.getMessage());
+                }
+            }
+            completeIdleWaiters();
+        }
+
+        private void scheduleNext() {
+            long now = clock.nanoTime();
+            nextTickNanos += periodNanos;
+            if (now - nextTickNanos > periodNanos * MAX_CATCH_UP_TICKS) {
+                nextTickNanos = now;
+            }
+            scheduleAt(nextTickNanos);
+        }
+
+        private void scheduleAt(long tickNanos) {
+            long delay = clock.delayUntil(tickNanos);
+            if (delay <= 0L) {
+                tickExecutor.execute(this);
+            } else {
+                executor.schedule(() -> tickExecutor.execute(this), delay, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Creates named daemon threads for the tick pool.
+     */
+    private static final class TickThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "battle-tick-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package za.co.sww.rwars.backend.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.LaserPath;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.Robot.Direction;
+import za.co.sww.rwars.backend.model.RobotGrid;
+import za.co.sww.rwars.backend.model.WallGrid;
+
+/**
+ * Resolves laser shots by ray-marching over the battle's wall grid and robot index.
+ *
+ * The march first clips the ray to the arena, so each step is a wall bit lookup and a robot bucket lookup with
+ * no bounds checks and no allocation; only the result is allocated, and it describes the path as a start point,
+ * direction and length.
+ */
+@ApplicationScoped
+public class LaserEngine {
+
+    /**
+     * What stopped a laser.
+     */
+    public enum Outcome {
+        /** The laser reached its full range. */
+        NONE,
+        /** The laser left the arena. */
+        BOUNDARY,
+        /** The laser hit a wall. */
+        WALL,
+        /** The laser hit a robot. */
+        ROBOT
+    }
+
+    /**
+     * Result of a laser trace.
+     *
+     * @param outcome What stopped the laser
+     * @param path The cells the laser travelled through, including the firing robot's cell
+     * @param hitRobot The robot that was hit, or null
+     */
+    public record Trace(Outcome outcome, LaserPath path, Robot hitRobot) {
+
+        /**
+         * Gets the name used for the outcome in laser responses.
+         *
+         * @return WALL, BOUNDARY or ROBOT, or null if the laser reached its full range
+         */
+        public String blockedBy() {
+            return outcome == Outcome.NONE ? null : outcome.name();
+        }
+    }
+
+    /**
+     * Traces a laser fired by a robot.
+     *
+     * @param battle The battle the robot is in
+     * @param firingRobot The robot firing the laser
+     * @param direction The direction of the laser
+     * @param range The maximum number of cells the laser travels
+     * @return The trace result
+     */
+    public Trace trace(Battle battle, Robot firingRobot, Direction direction, int range) {
+        int startX = firingRobot.getPositionX();
+        int startY = firingRobot.getPositionY();
+        int deltaX = deltaX(direction);
+        int deltaY = deltaY(direction);
+
+        // Clip the ray to the arena so the march itself needs no bounds checks
+        int inArena = Math.min(stepsInArena(startX, deltaX, battle.getArenaWidth()),
+            stepsInArena(startY, deltaY, battle.getArenaHeight()));
+        int steps = Math.max(0, Math.min(range, inArena));
+
+        WallGrid walls = battle.wallGrid();
+        RobotGrid robots = battle.robotGrid();
+        String firingRobotId = firingRobot.getId();
+
+        int x = startX;
+        int y = startY;
+        for (int step = 1; step <= steps; step++) {
+            x += deltaX;
+            y += deltaY;
+            if (walls.isWall(x, y)) {
+                return new Trace(Outcome.WALL, new LaserPath(startX, startY, deltaX, deltaY, step), null);
+            }
+            Robot robot = robots.findActiveRobotAt(x, y, firingRobotId);
+            if (robot != null) {
+                return new Trace(Outcome.ROBOT, new LaserPath(startX, startY, deltaX, deltaY, step), robot);
+            }
+        }
+        Outcome outcome = range > steps ? Outcome.BOUNDARY : Outcome.NONE;
+        return new Trace(outcome, new LaserPath(startX, startY, deltaX, deltaY, steps), null);
+    }
+
+    /**
+     * Gets how many steps can be taken along one axis before leaving the arena.
+     */
+    private static int stepsInArena(int start, int delta, int size) {
+        if (start < 0 || start >= size) {
+            return 0;
+        }
+        if (delta > 0) {
+            return size - 1 - start;
+        }
+        if (delta < 0) {
+            return start;
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private static int deltaX(Direction direction) {
+        return switch (direction) {
+            case EAST, NE, SE -> 1;
+            case WEST, NW, SW -> -1;
+            case NORTH, SOUTH -> 0;
+        };
+    }
+
+    private static int deltaY(Direction direction) {
+        return switch (direction) {
+            case NORTH, NE, NW -> 1;
+            case SOUTH, SE, SW -> -1;
+            case EAST, WEST -> 0;
+        };
+    }
+}
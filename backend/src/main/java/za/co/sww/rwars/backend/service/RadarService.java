@@ -5,98 +5,242 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 import za.co.sww.rwars.backend.model.Battle;
 import za.co.sww.rwars.backend.model.Robot;
 import za.co.sww.rwars.backend.model.RadarResponse;
+import za.co.sww.rwars.backend.model.RobotGrid;
 import za.co.sww.rwars.backend.model.Wall;
+import za.co.sww.rwars.backend.model.WallGrid;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Service for robot radar functionality.
+ *
+ * Scans walk a precomputed table of the cell offsets inside the radar's diamond for the requested range,
+ * checking walls and robots through the battle's grids, and record hits in a pooled primitive buffer. Detection
+ * objects are only created once the scan is complete, so the cost of a scan depends on its range and on what
+ * it finds, not on the number of walls or robots in the arena.
  */
 @ApplicationScoped
 public class RadarService {
 
+    private static final String BOUNDARY_DETAILS = "Arena boundary wall";
+    private static final String ROBOT_DETAILS_PREFIX = "Robot: ";
+
+    private static final int KIND_BOUNDARY = 0;
+    private static final int KIND_WALL = 1;
+    private static final int KIND_ROBOT = 2;
+
     @ConfigProperty(name = "battle.radar.default-range", defaultValue = "5")
     private int defaultRange;
 
     @ConfigProperty(name = "battle.radar.max-range", defaultValue = "20")
     private int maxRange;
 
+    private final Queue<ScanBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+
+    private volatile int[][] offsetsByRange;
+
+    public RadarService() {
+    }
+
+    RadarService(int defaultRange, int maxRange) {
+        this.defaultRange = defaultRange;
+        this.maxRange = maxRange;
+    }
+
     /**
      * Scan the area around a robot for obstacles and other robots.
      * Returns coordinates relative to the robot's position.
      */
     public RadarResponse scanArea(Battle battle, Robot robot, int range) {
-        List<RadarResponse.Detection> detections = new ArrayList<>();
-
         // Ensure range is within limits
         range = Math.min(range, maxRange);
 
+        ScanBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = new ScanBuffer();
+        }
+        try {
+            scan(battle, robot, range, buffer);
+            return new RadarResponse(range, buffer.toDetections());
+        } finally {
+            buffer.clear();
+            bufferPool.offer(buffer);
+        }
+    }
+
+    private void scan(Battle battle, Robot robot, int range, ScanBuffer buffer) {
+        if (range <= 0) {
+            return;
+        }
         int robotX = robot.getPositionX();
         int robotY = robot.getPositionY();
+        int arenaWidth = battle.getArenaWidth();
+        int arenaHeight = battle.getArenaHeight();
+        WallGrid walls = battle.wallGrid();
 
-        // Scan within the specified range
-        for (int x = Math.max(0, robotX - range); x <= Math.min(battle.getArenaWidth() - 1, robotX + range); x++) {
-            for (int y = Math.max(0, robotY - range); y <= Math.min(battle.getArenaHeight() - 1, robotY + range); y++) {
-                // Skip the robot's own position
-                if (x == robotX && y == robotY) {
-                    continue;
-                }
+        // Walls: every cell of the diamond, in scan order (column by column)
+        int[] offsets = offsetsFor(range);
+        for (int i = 0; i < offsets.length; i += 2) {
+            int x = robotX + offsets[i];
+            int y = robotY + offsets[i + 1];
+            if (x < 0 || y < 0 || x >= arenaWidth || y >= arenaHeight) {
+                continue;
+            }
+            if (isBoundary(x, y, arenaWidth, arenaHeight)) {
+                buffer.add(i >> 1, offsets[i], offsets[i + 1], KIND_BOUNDARY, null, null);
+            } else if (walls.isWall(x, y)) {
+                buffer.add(i >> 1, offsets[i], offsets[i + 1], KIND_WALL, walls.getWallType(x, y), null);
+            }
+        }
 
-                // Check if position is within range (circular/diamond range)
-                if (calculateDistance(robotX, robotY, x, y) <= range) {
-                    boolean wallDetected = false;
-
-                    // Check for arena edge walls (boundaries)
-                    if (x == 0 || x == battle.getArenaWidth() - 1
-                        || y == 0 || y == battle.getArenaHeight() - 1) {
-                        // Convert absolute coordinates to relative coordinates
-                        int relativeX = x - robotX;
-                        int relativeY = y - robotY;
-                        detections.add(new RadarResponse.Detection(relativeX, relativeY,
-                            RadarResponse.DetectionType.WALL, "Arena boundary wall"));
-                        wallDetected = true;
-                    }
+        // Robots: only the ones the spatial index finds within range, unless hidden by a wall in their cell
+        RobotGrid robots = battle.robotGrid();
+        int count = robots.collectWithin(robotX, robotY, range, buffer.nearbyRobots);
+        if (count > buffer.nearbyRobots.length) {
+            buffer.nearbyRobots = new Robot[Integer.highestOneBit(count) << 1];
+            count = robots.collectWithin(robotX, robotY, range, buffer.nearbyRobots);
+        }
+        for (int i = 0; i < count; i++) {
+            Robot otherRobot = buffer.nearbyRobots[i];
+            buffer.nearbyRobots[i] = null;
+            int x = otherRobot.getPositionX();
+            int y = otherRobot.getPositionY();
+            if (otherRobot.getId().equals(robot.getId()) || (x == robotX && y == robotY)
+                || x < 0 || y < 0 || x >= arenaWidth || y >= arenaHeight
+                || isBoundary(x, y, arenaWidth, arenaHeight) || walls.isWall(x, y)) {
+                continue;
+            }
+            int relativeX = x - robotX;
+            int relativeY = y - robotY;
+            buffer.add(scanIndex(range, relativeX, relativeY), relativeX, relativeY, KIND_ROBOT, null, otherRobot);
+        }
+    }
 
-                    // Check for internal walls at this position (only if no boundary wall detected)
-                    if (!wallDetected) {
-                        for (Wall wall : battle.getWalls()) {
-                            if (wall.containsPosition(x, y)) {
-                                // Convert absolute coordinates to relative coordinates
-                                int relativeX = x - robotX;
-                                int relativeY = y - robotY;
-                                detections.add(new RadarResponse.Detection(relativeX, relativeY,
-                                    RadarResponse.DetectionType.WALL, "Wall of type " + wall.getType()));
-                                wallDetected = true;
-                                break;
-                            }
-                        }
-                    }
+    private static boolean isBoundary(int x, int y, int arenaWidth, int arenaHeight) {
+        return x == 0 || x == arenaWidth - 1 || y == 0 || y == arenaHeight - 1;
+    }
+
+    /**
+     * Gets the diamond offsets for a range as (dx, dy) pairs, column by column from the left, bottom to top
+     * within a column, skipping the centre cell.
+     */
+    private int[] offsetsFor(int range) {
+        int[][] table = offsetsByRange;
+        if (table == null || table.length <= range) {
+            table = buildOffsetTable(Math.max(range, maxRange));
+            offsetsByRange = table;
+        }
+        return table[range];
+    }
 
-                    // Check for other robots at this position (only if no wall detected)
-                    if (!wallDetected) {
-                        for (Robot otherRobot : battle.getRobots()) {
-                            if (!otherRobot.getId().equals(robot.getId())
-                                && otherRobot.getPositionX() == x && otherRobot.getPositionY() == y) {
-                                // Convert absolute coordinates to relative coordinates
-                                int relativeX = x - robotX;
-                                int relativeY = y - robotY;
-                                detections.add(new RadarResponse.Detection(relativeX, relativeY,
-                                    RadarResponse.DetectionType.ROBOT, "Robot: " + otherRobot.getName()));
-                            }
-                        }
+    private static int[][] buildOffsetTable(int maxRange) {
+        int[][] table = new int[maxRange + 1][];
+        for (int range = 0; range <= maxRange; range++) {
+            int[] offsets = new int[4 * range * (range + 1)];
+            int i = 0;
+            for (int dx = -range; dx <= range; dx++) {
+                int span = range - Math.abs(dx);
+                for (int dy = -span; dy <= span; dy++) {
+                    if (dx != 0 || dy != 0) {
+                        offsets[i++] = dx;
+                        offsets[i++] = dy;
                     }
                 }
             }
+            table[range] = offsets;
         }
+        return table;
+    }
 
-        return new RadarResponse(range, detections);
+    /**
+     * Gets the position of an offset in the scan order of {@link #offsetsFor(int)}.
+     */
+    private static int scanIndex(int range, int dx, int dy) {
+        int index = 0;
+        // Cells in the columns to the left of dx
+        for (int column = -range; column < dx; column++) {
+            index += 2 * (range - Math.abs(column)) + 1;
+        }
+        index += dy + (range - Math.abs(dx));
+        // The centre cell is not part of the table
+        if (dx > 0 || (dx == 0 && dy > 0)) {
+            index--;
+        }
+        return index;
     }
 
     /**
-     * Calculate Manhattan distance between two points.
+     * Reusable, growable buffer of scan hits stored as parallel primitive arrays.
      */
-    private int calculateDistance(int x1, int y1, int x2, int y2) {
-        return Math.abs(x1 - x2) + Math.abs(y1 - y2);
+    private static final class ScanBuffer {
+
+        private static final int INITIAL_CAPACITY = 64;
+        private static final String[] WALL_DETAILS = wallDetails();
+
+        private int size;
+        private long[] order = new long[INITIAL_CAPACITY];
+        private int[] relativeX = new int[INITIAL_CAPACITY];
+        private int[] relativeY = new int[INITIAL_CAPACITY];
+        private int[] kind = new int[INITIAL_CAPACITY];
+        private Wall.WallType[] wallType = new Wall.WallType[INITIAL_CAPACITY];
+        private Robot[] robot = new Robot[INITIAL_CAPACITY];
+        private Robot[] nearbyRobots = new Robot[INITIAL_CAPACITY];
+
+        private static String[] wallDetails() {
+            Wall.WallType[] types = Wall.WallType.values();
+            String[] details = new String[types.length];
+            for (Wall.WallType type : types) {
+                details[type.ordinal()] = "Wall of type " + type;
+            }
+            return details;
+        }
+
+        void add(int scanIndex, int x, int y, int hitKind, Wall.WallType type, Robot hitRobot) {
+            if (size == order.length) {
+                int capacity = size << 1;
+                order = Arrays.copyOf(order, capacity);
+                relativeX = Arrays.copyOf(relativeX, capacity);
+                relativeY = Arrays.copyOf(relativeY, capacity);
+                kind = Arrays.copyOf(kind, capacity);
+                wallType = Arrays.copyOf(wallType, capacity);
+                robot = Arrays.copyOf(robot, capacity);
+            }
+            // Sort key: scan position first, then insertion order, so output follows the scan order
+            order[size] = ((long) scanIndex << 32) | size;
+            relativeX[size] = x;
+            relativeY[size] = y;
+            kind[size] = hitKind;
+            wallType[size] = type;
+            robot[size] = hitRobot;
+            size++;
+        }
+
+        List<RadarResponse.Detection> toDetections() {
+            Arrays.sort(order, 0, size);
+            List<RadarResponse.Detection> detections = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int entry = (int) order[i];
+                detections.add(switch (kind[entry]) {
+                    case KIND_BOUNDARY -> new RadarResponse.Detection(relativeX[entry], relativeY[entry],
+                        RadarResponse.DetectionType.WALL, BOUNDARY_DETAILS);
+                    case KIND_WALL -> new RadarResponse.Detection(relativeX[entry], relativeY[entry],
+                        RadarResponse.DetectionType.WALL, wallType[entry] == null ? "Wall of type null"
+                            : WALL_DETAILS[wallType[entry].ordinal()]);
+                    default -> new RadarResponse.Detection(relativeX[entry], relativeY[entry],
+                        RadarResponse.DetectionType.ROBOT, ROBOT_DETAILS_PREFIX + robot[entry].getName());
+                });
+            }
+            return detections;
+        }
+
+        void clear() {
+            Arrays.fill(robot, 0, size, null);
+            Arrays.fill(wallType, 0, size, null);
+            size = 0;
+        }
     }
 }
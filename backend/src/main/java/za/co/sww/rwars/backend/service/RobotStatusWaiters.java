@@ -0,0 +1,68 @@
+package za.co.sww.rwars.backend.service;
+
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.RobotStatus;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Parked long-poll requests waiting for a robot's status or hit points to change.
+ *
+ * A waiter is a future; nothing blocks and nothing polls. When a robot changes, every future parked on it is
+ * completed with the same status snapshot. Futures that time out or are cancelled remove themselves.
+ */
+final class RobotStatusWaiters {
+
+    private final Map<String, Queue<CompletableFuture<RobotStatus>>> waitersByRobotId = new ConcurrentHashMap<>();
+
+    /**
+     * Parks a waiter for a robot.
+     *
+     * @param robotId The robot ID
+     * @return A future completed with the robot's status on its next change
+     */
+    CompletableFuture<RobotStatus> park(String robotId) {
+        CompletableFuture<RobotStatus> waiter = new CompletableFuture<>();
+        Queue<CompletableFuture<RobotStatus>> waiters =
+                waitersByRobotId.computeIfAbsent(robotId, id -> new ConcurrentLinkedQueue<>());
+        waiters.add(waiter);
+        waiter.whenComplete((status, error) -> waiters.remove(waiter));
+        return waiter;
+    }
+
+    /**
+     * Completes every waiter parked on a robot.
+     *
+     * @param robot The robot that changed
+     */
+    void robotChanged(Robot robot) {
+        Queue<CompletableFuture<RobotStatus>> waiters = waitersByRobotId.get(robot.getId());
+        if (waiters == null || waiters.isEmpty()) {
+            return;
+        }
+        RobotStatus status = new RobotStatus(robot);
+        for (CompletableFuture<RobotStatus> waiter = waiters.poll(); waiter != null; waiter = waiters.poll()) {
+            waiter.complete(status);
+        }
+    }
+
+    /**
+     * Forgets the waiters of a robot that left; they time out on their own.
+     *
+     * @param robotId The robot ID
+     */
+    void forget(String robotId) {
+        waitersByRobotId.remove(robotId);
+    }
+
+    /**
+     * Forgets all waiters.
+     */
+    void clear() {
+        waitersByRobotId.clear();
+    }
+}
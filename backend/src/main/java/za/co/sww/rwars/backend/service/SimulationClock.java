@@ -0,0 +1,26 @@
+package za.co.sww.rwars.backend.service;
+
+/**
+ * Source of time for the battle simulation loops.
+ *
+ * Battles normally run on {@link SystemClock}, which follows real time. Accelerated battles run on a
+ * {@link VirtualClock}, which jumps straight to the next tick instead of waiting for it.
+ */
+public interface SimulationClock {
+
+    /**
+     * Gets the current time of the clock.
+     *
+     * @return The current time in nanoseconds, only meaningful relative to other readings of the same clock
+     */
+    long nanoTime();
+
+    /**
+     * Gets how long to wait until the clock reaches a deadline.
+     * A clock that does not follow real time moves itself forward to the deadline and returns zero.
+     *
+     * @param deadlineNanos The deadline, as read from {@link #nanoTime()}
+     * @return The time to wait in real nanoseconds, zero or less if the deadline has passed
+     */
+    long delayUntil(long deadlineNanos);
+}
@@ -0,0 +1,20 @@
+package za.co.sww.rwars.backend.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Simulation clock that follows real time.
+ */
+@ApplicationScoped
+public class SystemClock implements SimulationClock {
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public long delayUntil(long deadlineNanos) {
+        return deadlineNanos - System.nanoTime();
+    }
+}
@@ -0,0 +1,25 @@
+package za.co.sww.rwars.backend.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulation clock that only moves when the simulation asks it to.
+ *
+ * Waiting for a deadline never blocks: the clock moves forward to the deadline, so the next tick runs as soon as
+ * the CPU gets to it. Time never moves backwards.
+ */
+public final class VirtualClock implements SimulationClock {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long nanoTime() {
+        return nanos.get();
+    }
+
+    @Override
+    public long delayUntil(long deadlineNanos) {
+        nanos.accumulateAndGet(deadlineNanos, Math::max);
+        return 0L;
+    }
+}
@@ -4,10 +4,11 @@ import jakarta.enterprise.context.ApplicationScoped;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import za.co.sww.rwars.backend.model.Wall;
 import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.OccupancyGrid;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Service for generating random walls in the arena.
@@ -33,12 +34,35 @@ public class WallService {
     @ConfigProperty(name = "battle.walls.u-height", defaultValue = "10")
     private int uHeight;
 
-    private final Random random = new Random();
+    public WallService() {
+    }
+
+    WallService(int maxCoveragePercentage, int squareSize, int longWidth, int longHeight, int uWidth, int uHeight) {
+        this.maxCoveragePercentage = maxCoveragePercentage;
+        this.squareSize = squareSize;
+        this.longWidth = longWidth;
+        this.longHeight = longHeight;
+        this.uWidth = uWidth;
+        this.uHeight = uHeight;
+    }
 
     /**
-     * Generate random walls for the battle arena.
+     * Generate random walls for the battle arena from the battle's wall stream, so that the same battle seed
+     * always gives the same layout.
      */
     public List<Wall> generateWalls(Battle battle) {
+        return generateWalls(battle, battle.random().walls());
+    }
+
+    /**
+     * Generate walls for the battle arena.
+     * Placement checks run against a bitset of the cells taken so far, a row of a candidate rectangle at a time.
+     *
+     * @param battle The battle to generate walls for
+     * @param layoutRandom The source of every random decision in the layout
+     * @return The generated walls
+     */
+    public List<Wall> generateWalls(Battle battle, RandomGenerator layoutRandom) {
         List<Wall> walls = new ArrayList<>();
         int arenaWidth = battle.getArenaWidth();
         int arenaHeight = battle.getArenaHeight();
@@ -55,18 +79,24 @@ public class WallService {
             maxWallCoverage = 10; // Minimum wall coverage for small arenas
         }
 
+        // Cells taken by the walls placed so far
+        OccupancyGrid occupied = new OccupancyGrid(arenaWidth, arenaHeight);
         int currentCoverage = 0;
         int attempts = 0;
         int maxAttempts = 200; // Increased attempts
 
         while (currentCoverage < maxWallCoverage && attempts < maxAttempts) {
-            Wall.WallType wallType = getRandomWallType();
-            Wall wall = generateWall(wallType, arenaWidth, arenaHeight, walls);
+            Wall.WallType wallType = getRandomWallType(layoutRandom);
+            Wall wall = generateWall(wallType, arenaWidth, arenaHeight, occupied, layoutRandom);
 
             if (wall != null) {
                 int wallSize = wall.getPositions().size();
                 if (currentCoverage + wallSize <= maxWallCoverage) {
                     walls.add(wall);
+                    for (Wall.Rectangle rectangle : wall.getRectangles()) {
+                        occupied.setRectangle(rectangle.getX(), rectangle.getY(), rectangle.getWidth(),
+                            rectangle.getHeight());
+                    }
                     currentCoverage += wallSize;
                 }
             }
@@ -84,173 +114,55 @@ public class WallService {
         return walls;
     }
 
-    private Wall.WallType getRandomWallType() {
+    private Wall.WallType getRandomWallType(RandomGenerator layoutRandom) {
         Wall.WallType[] types = Wall.WallType.values();
-        return types[random.nextInt(types.length)];
+        return types[layoutRandom.nextInt(types.length)];
     }
 
-    private Wall generateWall(Wall.WallType type, int arenaWidth, int arenaHeight, List<Wall> existingWalls) {
+    private Wall generateWall(Wall.WallType type, int arenaWidth, int arenaHeight, OccupancyGrid occupied,
+                              RandomGenerator layoutRandom) {
         return switch (type) {
-            case SQUARE -> generateSquareWall(arenaWidth, arenaHeight, existingWalls);
-            case LONG -> generateLongWall(arenaWidth, arenaHeight, existingWalls);
-            case U_SHAPE -> generateUShapeWall(arenaWidth, arenaHeight, existingWalls);
+            // One square block
+            case SQUARE -> placeWall(type, arenaWidth, arenaHeight, occupied, layoutRandom,
+                squareSize, squareSize, new int[] {0, 0, squareSize, squareSize});
+            case LONG -> layoutRandom.nextBoolean()
+                // Horizontal bar
+                ? placeWall(type, arenaWidth, arenaHeight, occupied, layoutRandom,
+                    longHeight, longWidth, new int[] {0, 0, longHeight, longWidth})
+                // Vertical bar
+                : placeWall(type, arenaWidth, arenaHeight, occupied, layoutRandom,
+                    longWidth, longHeight, new int[] {0, 0, longWidth, longHeight});
+            // Bottom horizontal bar and two vertical bars
+            case U_SHAPE -> placeWall(type, arenaWidth, arenaHeight, occupied, layoutRandom, uWidth, uHeight,
+                new int[] {0, 0, uWidth, 1, 0, 0, 1, uHeight, uWidth - 1, 0, 1, uHeight});
         };
     }
 
-    private Wall generateSquareWall(int arenaWidth, int arenaHeight, List<Wall> existingWalls) {
-        if (arenaWidth < squareSize || arenaHeight < squareSize) {
-            return null;
-        }
-
-        int attempts = 0;
-        while (attempts < 20) {
-            int startX = random.nextInt(arenaWidth - squareSize);
-            int startY = random.nextInt(arenaHeight - squareSize);
-
-            Wall wall = new Wall(Wall.WallType.SQUARE);
-            boolean canPlace = true;
-
-            for (int x = startX; x < startX + squareSize && canPlace; x++) {
-                for (int y = startY; y < startY + squareSize && canPlace; y++) {
-                    if (isPositionOccupied(x, y, existingWalls)) {
-                        canPlace = false;
-                    }
-                }
-            }
-
-            if (canPlace) {
-                for (int x = startX; x < startX + squareSize; x++) {
-                    for (int y = startY; y < startY + squareSize; y++) {
-                        wall.addPosition(x, y);
-                    }
-                }
-                return wall;
-            }
-            attempts++;
-        }
-        return null;
-    }
-
-    private Wall generateLongWall(int arenaWidth, int arenaHeight, List<Wall> existingWalls) {
-        boolean horizontal = random.nextBoolean();
-
-        if (horizontal) {
-            if (arenaWidth < longHeight || arenaHeight < longWidth) {
-                return null;
-            }
-
-            int attempts = 0;
-            while (attempts < 20) {
-                int startX = random.nextInt(arenaWidth - longHeight);
-                int startY = random.nextInt(arenaHeight - longWidth);
-
-                Wall wall = new Wall(Wall.WallType.LONG);
-                boolean canPlace = true;
-
-                for (int x = startX; x < startX + longHeight && canPlace; x++) {
-                    for (int y = startY; y < startY + longWidth && canPlace; y++) {
-                        if (isPositionOccupied(x, y, existingWalls)) {
-                            canPlace = false;
-                        }
-                    }
-                }
-
-                if (canPlace) {
-                    for (int x = startX; x < startX + longHeight; x++) {
-                        for (int y = startY; y < startY + longWidth; y++) {
-                            wall.addPosition(x, y);
-                        }
-                    }
-                    return wall;
-                }
-                attempts++;
-            }
-        } else {
-            if (arenaWidth < longWidth || arenaHeight < longHeight) {
-                return null;
-            }
-
-            int attempts = 0;
-            while (attempts < 20) {
-                int startX = random.nextInt(arenaWidth - longWidth);
-                int startY = random.nextInt(arenaHeight - longHeight);
-
-                Wall wall = new Wall(Wall.WallType.LONG);
-                boolean canPlace = true;
-
-                for (int x = startX; x < startX + longWidth && canPlace; x++) {
-                    for (int y = startY; y < startY + longHeight && canPlace; y++) {
-                        if (isPositionOccupied(x, y, existingWalls)) {
-                            canPlace = false;
-                        }
-                    }
-                }
-
-                if (canPlace) {
-                    for (int x = startX; x < startX + longWidth; x++) {
-                        for (int y = startY; y < startY + longHeight; y++) {
-                            wall.addPosition(x, y);
-                        }
-                    }
-                    return wall;
-                }
-                attempts++;
-            }
-        }
-        return null;
-    }
-
-    private Wall generateUShapeWall(int arenaWidth, int arenaHeight, List<Wall> existingWalls) {
-        if (arenaWidth < uWidth || arenaHeight < uHeight) {
+    /**
+     * Tries up to 20 random positions for a wall made of bars, given as (x, y, width, height) rectangles
+     * relative to the wall's lower left corner, and builds the wall at the first position where all bars are free.
+     */
+    private Wall placeWall(Wall.WallType type, int arenaWidth, int arenaHeight, OccupancyGrid occupied,
+                           RandomGenerator layoutRandom, int width, int height, int[] bars) {
+        if (arenaWidth <= width || arenaHeight <= height) {
             return null;
         }
 
         int attempts = 0;
         while (attempts < 20) {
-            int startX = random.nextInt(arenaWidth - uWidth);
-            int startY = random.nextInt(arenaHeight - uHeight);
+            int startX = layoutRandom.nextInt(arenaWidth - width);
+            int startY = layoutRandom.nextInt(arenaHeight - height);
 
-            Wall wall = new Wall(Wall.WallType.U_SHAPE);
             boolean canPlace = true;
-
-            // Check if U-shape can be placed (bottom horizontal bar and two vertical bars)
-            // Bottom horizontal bar
-            for (int x = startX; x < startX + uWidth && canPlace; x++) {
-                if (isPositionOccupied(x, startY, existingWalls)) {
-                    canPlace = false;
-                }
-            }
-
-            // Left vertical bar
-            for (int y = startY; y < startY + uHeight && canPlace; y++) {
-                if (isPositionOccupied(startX, y, existingWalls)) {
-                    canPlace = false;
-                }
-            }
-
-            // Right vertical bar
-            for (int y = startY; y < startY + uHeight && canPlace; y++) {
-                if (isPositionOccupied(startX + uWidth - 1, y, existingWalls)) {
-                    canPlace = false;
-                }
+            for (int i = 0; i < bars.length && canPlace; i += 4) {
+                canPlace = occupied.isRectangleFree(startX + bars[i], startY + bars[i + 1], bars[i + 2], bars[i + 3]);
             }
 
             if (canPlace) {
-                // Add bottom horizontal bar
-                for (int x = startX; x < startX + uWidth; x++) {
-                    wall.addPosition(x, startY);
+                Wall wall = new Wall(type);
+                for (int i = 0; i < bars.length; i += 4) {
+                    wall.addRectangle(startX + bars[i], startY + bars[i + 1], bars[i + 2], bars[i + 3]);
                 }
-
-                // Add left vertical bar
-                for (int y = startY; y < startY + uHeight; y++) {
-                    wall.addPosition(startX, y);
-                }
-
-                // Add right vertical bar
-                for (int y = startY; y < startY + uHeight; y++) {
-                    wall.addPosition(startX + uWidth - 1, y);
-                }
-
                 return wall;
             }
             attempts++;
@@ -258,10 +170,6 @@ public class WallService {
         return null;
     }
 
-    private boolean isPositionOccupied(int x, int y, List<Wall> existingWalls) {
-        return existingWalls.stream().anyMatch(wall -> wall.containsPosition(x, y));
-    }
-
     /**
      * Generate a simple square wall when normal generation fails.
      */
@@ -277,11 +185,7 @@ public class WallService {
         int startY = arenaHeight / 2 - size / 2;
 
         Wall wall = new Wall(Wall.WallType.SQUARE);
-        for (int x = startX; x < startX + size; x++) {
-            for (int y = startY; y < startY + size; y++) {
-                wall.addPosition(x, y);
-            }
-        }
+        wall.addRectangle(startX, startY, size, size);
         return wall;
     }
 }
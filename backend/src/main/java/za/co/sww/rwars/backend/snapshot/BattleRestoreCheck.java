@@ -0,0 +1,24 @@
+package za.co.sww.rwars.backend.snapshot;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+
+/**
+ * Reports the service ready only once the battles saved before the last restart are restored, so that no request
+ * is routed here while they are still missing.
+ */
+@Readiness
+@ApplicationScoped
+public class BattleRestoreCheck implements HealthCheck {
+
+    @Inject
+    private SnapshotService snapshotService;
+
+    @Override
+    public HealthCheckResponse call() {
+        return HealthCheckResponse.named("battle-restore").status(snapshotService.isRestored()).build();
+    }
+}
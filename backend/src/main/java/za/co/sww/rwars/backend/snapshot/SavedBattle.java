@@ -0,0 +1,14 @@
+package za.co.sww.rwars.backend.snapshot;
+
+import za.co.sww.rwars.backend.journal.JournalPosition;
+import za.co.sww.rwars.backend.model.BattleSnapshot;
+
+/**
+ * A battle as saved in a registry snapshot, with the place in its journal the copy was taken at.
+ *
+ * @param battle The copy of the battle
+ * @param journalPosition The position of the battle's journal when the copy was taken, or null if the battle was
+ *     not journaled
+ */
+public record SavedBattle(BattleSnapshot battle, JournalPosition journalPosition) {
+}
@@ -0,0 +1,216 @@
+package za.co.sww.rwars.backend.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import za.co.sww.rwars.backend.journal.JournalPosition;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.BattleSnapshot;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.RobotAction;
+import za.co.sww.rwars.backend.model.Wall;
+
+/**
+ * Binary encoding of one battle in a registry snapshot.
+ *
+ * A battle is written as its journal position, its attributes, its walls, its robots in registration order and its
+ * recent robot actions, all big-endian. Actions refer to their robot by its index among the battle's robots. As in
+ * the journal, enums are written as their ordinals, strings as a two byte UTF-8 length and the bytes, and
+ * coordinates and counts as two byte values; any change to this layout needs a new {@link SnapshotFile#VERSION}.
+ */
+final class SnapshotCodec {
+
+    private static final int NONE = 0xFFFF;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final Battle.BattleState[] STATES = Battle.BattleState.values();
+    private static final Robot.Direction[] DIRECTIONS = Robot.Direction.values();
+    private static final Robot.RobotStatus[] STATUSES = Robot.RobotStatus.values();
+    private static final Wall.WallType[] WALL_TYPES = Wall.WallType.values();
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Writes a battle.
+     *
+     * @param saved The battle
+     * @param out The buffer to write to, from its position
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     * @throws IllegalArgumentException if a value does not fit its field
+     */
+    static void encode(SavedBattle saved, ByteBuffer out) {
+        JournalPosition position = saved.journalPosition();
+        out.putInt(position == null ? -1 : position.segment());
+        out.putInt(position == null ? -1 : position.offset());
+
+        BattleSnapshot battle = saved.battle();
+        putString(out, battle.id());
+        putString(out, battle.name());
+        putShort(out, battle.arenaWidth());
+        putShort(out, battle.arenaHeight());
+        out.putDouble(battle.robotMovementTimeSeconds());
+        out.putLong(battle.seed());
+        putEnum(out, battle.state());
+        putString(out, battle.winnerId());
+        putString(out, battle.winnerName());
+        out.put((byte) ((battle.testMode() ? 1 : 0) | (battle.accelerated() ? 2 : 0)));
+
+        putShort(out, battle.walls().size());
+        for (Wall wall : battle.walls()) {
+            putEnum(out, wall.getType());
+            List<Wall.Rectangle> rectangles = wall.getRectangles();
+            putShort(out, rectangles.size());
+            for (Wall.Rectangle rectangle : rectangles) {
+                putShort(out, rectangle.getX());
+                putShort(out, rectangle.getY());
+                putShort(out, rectangle.getWidth());
+                putShort(out, rectangle.getHeight());
+            }
+        }
+
+        Map<String, Integer> robotIndexes = new HashMap<>();
+        putShort(out, battle.robots().size());
+        for (BattleSnapshot.RobotSnapshot robot : battle.robots()) {
+            robotIndexes.put(robot.id(), robotIndexes.size());
+            putString(out, robot.id());
+            putString(out, robot.name());
+            putShort(out, robot.positionX());
+            putShort(out, robot.positionY());
+            putEnum(out, robot.direction());
+            putEnum(out, robot.status());
+            out.putInt(robot.targetBlocks());
+            out.putInt(robot.blocksRemaining());
+            out.putInt(robot.hitPoints());
+            out.putInt(robot.maxHitPoints());
+        }
+
+        putShort(out, battle.robotActions().size());
+        for (RobotAction action : battle.robotActions()) {
+            Integer index = robotIndexes.get(action.getRobotId());
+            if (index == null) {
+                out.putShort((short) NONE);
+                putString(out, action.getRobotId());
+                putString(out, action.getRobotName());
+            } else {
+                out.putShort((short) index.intValue());
+            }
+            putString(out, action.getAction());
+            LocalDateTime timestamp = action.getTimestamp();
+            out.putLong(timestamp == null ? NO_TIME : timestamp.toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+    }
+
+    /**
+     * Reads a battle.
+     *
+     * @param in The buffer to read from, positioned at the battle
+     * @return The battle
+     * @throws java.nio.BufferUnderflowException if the battle is cut short
+     * @throws IndexOutOfBoundsException if an enum or robot index is out of range
+     */
+    static SavedBattle decode(ByteBuffer in) {
+        int segment = in.getInt();
+        int offset = in.getInt();
+        JournalPosition position = segment < 0 ? null : new JournalPosition(segment, offset);
+
+        String id = getString(in);
+        String name = getString(in);
+        int arenaWidth = in.getShort();
+        int arenaHeight = in.getShort();
+        double robotMovementTimeSeconds = in.getDouble();
+        long seed = in.getLong();
+        Battle.BattleState state = getEnum(in, STATES);
+        String winnerId = getString(in);
+        String winnerName = getString(in);
+        byte flags = in.get();
+
+        int wallCount = in.getShort();
+        List<Wall> walls = new ArrayList<>(wallCount);
+        for (int i = 0; i < wallCount; i++) {
+            Wall wall = new Wall(getEnum(in, WALL_TYPES));
+            int rectangles = in.getShort();
+            for (int r = 0; r < rectangles; r++) {
+                wall.addRectangle(in.getShort(), in.getShort(), in.getShort(), in.getShort());
+            }
+            walls.add(wall);
+        }
+
+        int robotCount = in.getShort();
+        List<BattleSnapshot.RobotSnapshot> robots = new ArrayList<>(robotCount);
+        for (int i = 0; i < robotCount; i++) {
+            robots.add(new BattleSnapshot.RobotSnapshot(getString(in), getString(in), in.getShort(), in.getShort(),
+                    getEnum(in, DIRECTIONS), getEnum(in, STATUSES), in.getInt(), in.getInt(), in.getInt(),
+                    in.getInt()));
+        }
+
+        int actionCount = in.getShort();
+        List<RobotAction> actions = new ArrayList<>(actionCount);
+        for (int i = 0; i < actionCount; i++) {
+            int index = Short.toUnsignedInt(in.getShort());
+            String robotId;
+            String robotName;
+            if (index == NONE) {
+                robotId = getString(in);
+                robotName = getString(in);
+            } else {
+                robotId = robots.get(index).id();
+                robotName = robots.get(index).name();
+            }
+            String action = getString(in);
+            long time = in.getLong();
+            LocalDateTime timestamp = time == NO_TIME ? null : LocalDateTime.ofEpochSecond(
+                    Math.floorDiv(time, 1000), Math.floorMod(time, 1000) * 1_000_000, ZoneOffset.UTC);
+            actions.add(new RobotAction(robotId, robotName, action, timestamp));
+        }
+
+        BattleSnapshot battle = new BattleSnapshot(id, name, arenaWidth, arenaHeight, robotMovementTimeSeconds, seed,
+                state, winnerId, winnerName, (flags & 1) != 0, (flags & 2) != 0, List.copyOf(walls),
+                List.copyOf(robots), List.copyOf(actions));
+        return new SavedBattle(battle, position);
+    }
+
+    private static void putEnum(ByteBuffer out, Enum<?> value) {
+        out.put(value == null ? (byte) -1 : (byte) value.ordinal());
+    }
+
+    private static <E extends Enum<E>> E getEnum(ByteBuffer in, E[] values) {
+        byte ordinal = in.get();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    private static void putShort(ByteBuffer out, int value) {
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Value " + value + " does not fit a snapshot field");
+        }
+        out.putShort((short) value);
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) NONE);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NONE) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes does not fit a snapshot field");
+        }
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length == NONE) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
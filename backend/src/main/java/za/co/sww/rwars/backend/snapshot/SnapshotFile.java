@@ -0,0 +1,152 @@
+package za.co.sww.rwars.backend.snapshot;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * A registry snapshot file: every battle of the registry, each encoded by {@link SnapshotCodec}.
+ *
+ * The file starts with an eighteen byte header, the magic number, the format version, the time the snapshot was
+ * taken in epoch milliseconds and the number of battles. Each battle follows as a four byte length, the encoded
+ * battle and a CRC32C over it, so that battles can be decoded independently and in parallel, and a damaged battle
+ * costs only itself. A battle that cannot be encoded is left out of the file rather than failing the others. A
+ * file is written under a temporary name, forced and then renamed over the previous one, so a crash while writing
+ * leaves the previous snapshot in place.
+ */
+final class SnapshotFile {
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotFile.class.getName());
+
+    static final int MAGIC = 0x5257534E; // "RWSN"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 18;
+
+    // Offset of the battle count in the header
+    private static final int COUNT_OFFSET = 14;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot, replacing the file atomically.
+     *
+     * @param file The snapshot file
+     * @param createdMillis The time the snapshot was taken, in epoch milliseconds
+     * @param battles The battles
+     * @return The number of battles written; a battle with a value that does not fit its field is left out
+     * @throws IOException if the file cannot be written
+     */
+    static int write(Path file, long createdMillis, List<SavedBattle> battles) throws IOException {
+        int written = 0;
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+            out.putInt(MAGIC).putShort(VERSION).putLong(createdMillis).putInt(battles.size());
+            ByteBuffer staging = ByteBuffer.allocate(4096);
+            CRC32C checksum = new CRC32C();
+            for (SavedBattle battle : battles) {
+                try {
+                    staging = encode(battle, staging);
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("event=snapshot_battle_encode_error battleId=" + battle.battle().id()
+                            + " error=" + e.getMessage());
+                    continue;
+                }
+                int length = staging.remaining();
+                if (out.remaining() < length + 8) {
+                    drain(channel, out);
+                    if (out.capacity() < length + 8) {
+                        out = ByteBuffer.allocate(length + 8);
+                    }
+                }
+                checksum.reset();
+                checksum.update(staging.array(), 0, length);
+                out.putInt(length).put(staging).putInt((int) checksum.getValue());
+                written++;
+            }
+            drain(channel, out);
+            if (written != battles.size()) {
+                channel.write(ByteBuffer.allocate(4).putInt(0, written), COUNT_OFFSET);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    /**
+     * Reads a snapshot and splits it into its battles, without decoding them. Battles whose checksum does not
+     * match are left out.
+     *
+     * @param file The snapshot file
+     * @return The encoded battles, each to be decoded with {@link SnapshotCodec#decode(ByteBuffer)}
+     * @throws IOException if the file cannot be read, is not a snapshot or is of another version
+     */
+    static List<ByteBuffer> read(Path file) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC) {
+            throw new IOException("Not a battle snapshot: " + file);
+        }
+        short version = in.getShort();
+        if (version != VERSION) {
+            throw new IOException("Battle snapshot " + file + " is version " + version + ", expected " + VERSION);
+        }
+        in.getLong();
+        int count = in.getInt();
+        List<ByteBuffer> battles = new ArrayList<>(count);
+        CRC32C checksum = new CRC32C();
+        for (int i = 0; i < count; i++) {
+            if (in.remaining() < 4) {
+                throw new IOException("Battle snapshot " + file + " ends after " + i + " of " + count + " battles");
+            }
+            int length = in.getInt();
+            int start = in.position();
+            if (length < 0 || length > in.remaining() - 4) {
+                throw new IOException("Battle snapshot " + file + " ends after " + i + " of " + count + " battles");
+            }
+            checksum.reset();
+            checksum.update(in.array(), start, length);
+            if ((int) checksum.getValue() == in.getInt(start + length)) {
+                battles.add(in.slice(start, length));
+            } else {
+                LOGGER.warning("event=snapshot_battle_corrupt file=" + file + " offset=" + start);
+            }
+            in.position(start + length + 4);
+        }
+        return battles;
+    }
+
+    private static ByteBuffer encode(SavedBattle battle, ByteBuffer staging) {
+        ByteBuffer buffer = staging;
+        while (true) {
+            buffer.clear();
+            try {
+                SnapshotCodec.encode(battle, buffer);
+                return buffer.flip();
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
@@ -0,0 +1,295 @@
+package za.co.sww.rwars.backend.snapshot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import za.co.sww.rwars.backend.journal.BattleRebuilder;
+import za.co.sww.rwars.backend.journal.JournalPosition;
+import za.co.sww.rwars.backend.journal.JournalRecord;
+import za.co.sww.rwars.backend.journal.JournalService;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.BattleSnapshot;
+import za.co.sww.rwars.backend.service.BattleRegistry;
+import za.co.sww.rwars.backend.service.BattleService;
+
+/**
+ * Saves the battle registry to disk and restores it on startup, so that a restart carries on every battle.
+ *
+ * Every snapshot interval a background thread copies each battle on its mailbox, between two of its commands, and
+ * writes the copies to one {@link SnapshotFile}. Battles are never locked or paused for longer than their own copy
+ * takes, and a battle whose journal has not moved since the previous snapshot is not copied again: the previous
+ * copy is written once more. Each copy records the position of the battle's journal, so on startup a battle is
+ * restored from its copy plus the events journaled after it; battles created after the last snapshot are rebuilt
+ * from their journal alone. A battle restored from every event of its journal carries on journaling after them;
+ * one restored without its journal tail is not journaled again, as its journal would have a gap. Battles are
+ * restored in parallel, and the service reports ready once all of them are back. A final snapshot is written on
+ * shutdown.
+ */
+@ApplicationScoped
+public class SnapshotService {
+
+    private static final Logger LOGGER = Logger.getLogger(SnapshotService.class.getName());
+
+    static final String SNAPSHOT_FILE = "battles.snapshot";
+
+    @ConfigProperty(name = "battle.snapshot.enabled", defaultValue = "true")
+    private boolean enabled;
+
+    @ConfigProperty(name = "battle.snapshot.directory", defaultValue = "data/snapshot")
+    private String directory;
+
+    @ConfigProperty(name = "battle.snapshot.interval-seconds", defaultValue = "30")
+    private long intervalSeconds;
+
+    @ConfigProperty(name = "battle.snapshot.copy-timeout-seconds", defaultValue = "10")
+    private long copyTimeoutSeconds;
+
+    @Inject
+    private BattleService battleService;
+
+    @Inject
+    private BattleRegistry registry;
+
+    @Inject
+    private JournalService journal;
+
+    @Inject
+    private MeterRegistry meterRegistry;
+
+    // The copies written by the last snapshot, by battle ID
+    private volatile Map<String, SavedBattle> savedByBattleId = Map.of();
+
+    private ScheduledExecutorService writer;
+    private Timer writeTimer;
+    private volatile boolean restored;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            restored = true;
+            return;
+        }
+        writeTimer = meterRegistry.timer("battle.snapshot.write");
+        Timer restoreTimer = meterRegistry.timer("battle.snapshot.restore");
+        long start = System.nanoTime();
+        restore();
+        restoreTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        restored = true;
+        writer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("battle-snapshot-writer").daemon().factory());
+        writer.scheduleWithFixedDelay(this::writeSnapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeSnapshot();
+    }
+
+    /**
+     * Tells whether the battles saved before the last restart have been restored.
+     *
+     * @return true once restoring is done, or straight away if snapshots are disabled
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * Writes a snapshot of every battle now. A battle whose mailbox does not copy it within the copy timeout is
+     * left out, so one stuck battle cannot hold up the snapshot of the others.
+     *
+     * @return The number of battles written
+     * @throws IOException if the snapshot cannot be written
+     */
+    public synchronized int write() throws IOException {
+        long start = System.nanoTime();
+        Map<String, SavedBattle> previous = savedByBattleId;
+        List<CompletableFuture<SavedBattle>> copies = new ArrayList<>(registry.getBattleCount());
+        for (Battle battle : registry.getBattles()) {
+            copies.add(battleService.readBattleAsync(battle.getId(), live -> save(live, previous))
+                    .orTimeout(copyTimeoutSeconds, TimeUnit.SECONDS));
+        }
+        Map<String, SavedBattle> saved = new HashMap<>(copies.size() * 2);
+        List<SavedBattle> battles = new ArrayList<>(copies.size());
+        for (CompletableFuture<SavedBattle> copy : copies) {
+            SavedBattle battle;
+            try {
+                battle = copy.join();
+            } catch (CompletionException e) {
+                LOGGER.warning("event=snapshot_copy_error error=" + e.getCause());
+                continue;
+            }
+            if (battle != null) {
+                saved.put(battle.battle().id(), battle);
+                battles.add(battle);
+            }
+        }
+        // Put the journals on disk as far as the copies go, so a restart never finds a journal behind its copy
+        for (SavedBattle battle : battles) {
+            if (battle.journalPosition() != null) {
+                journal.flush(battle.battle().id());
+            }
+        }
+        Path root = Path.of(directory);
+        Files.createDirectories(root);
+        int written = SnapshotFile.write(root.resolve(SNAPSHOT_FILE), System.currentTimeMillis(), battles);
+        savedByBattleId = saved;
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return written;
+    }
+
+    /**
+     * Restores the battles of the last snapshot and of the journal.
+     *
+     * @return The number of battles restored
+     */
+    int restore() {
+        long start = System.nanoTime();
+        List<ByteBuffer> saved = List.of();
+        Path file = Path.of(directory, SNAPSHOT_FILE);
+        if (Files.exists(file)) {
+            try {
+                saved = SnapshotFile.read(file);
+            } catch (IOException e) {
+                // Fall back on the journal alone
+                LOGGER.severe("event=snapshot_read_error file=" + file + " error=" + e.getMessage());
+            }
+        }
+        Set<String> restoredIds = ConcurrentHashMap.newKeySet();
+        AtomicLong journalEvents = new AtomicLong();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ByteBuffer battle : saved) {
+                workers.execute(() -> restoreSaved(battle, restoredIds, journalEvents));
+            }
+        }
+        int fromSnapshot = restoredIds.size();
+        List<String> journaledIds;
+        try {
+            journaledIds = journal.battleIds();
+        } catch (IOException e) {
+            LOGGER.severe("event=journal_list_error error=" + e.getMessage());
+            journaledIds = List.of();
+        }
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String battleId : journaledIds) {
+                if (!restoredIds.contains(battleId)) {
+                    workers.execute(() -> restoreJournaled(battleId, restoredIds, journalEvents));
+                }
+            }
+        }
+        LOGGER.info("event=battles_restored battles=" + restoredIds.size() + " fromSnapshot=" + fromSnapshot
+                + " journalEvents=" + journalEvents.get()
+                + " durationMs=" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return restoredIds.size();
+    }
+
+    private SavedBattle save(Battle battle, Map<String, SavedBattle> previous) {
+        JournalPosition position = journal.position(battle.getId());
+        SavedBattle copy = previous.get(battle.getId());
+        if (copy != null && position != null && position.equals(copy.journalPosition())) {
+            // Nothing has happened in the battle since the last snapshot
+            return copy;
+        }
+        return new SavedBattle(BattleSnapshot.of(battle), position);
+    }
+
+    private void restoreSaved(ByteBuffer encoded, Set<String> restoredIds, AtomicLong journalEvents) {
+        SavedBattle saved;
+        try {
+            saved = SnapshotCodec.decode(encoded);
+        } catch (RuntimeException e) {
+            LOGGER.severe("event=snapshot_battle_corrupt error=" + e);
+            return;
+        }
+        BattleSnapshot snapshot = saved.battle();
+        Battle battle;
+        boolean journaled = false;
+        if (saved.journalPosition() == null || !journal.isEnabled()) {
+            battle = snapshot.restore();
+        } else if (!journal.hasJournal(snapshot.id())) {
+            // Deleted after the snapshot was taken
+            return;
+        } else {
+            BattleRebuilder rebuilder = new BattleRebuilder(snapshot);
+            List<String> robotIds = snapshot.robots().stream().map(BattleSnapshot.RobotSnapshot::id).toList();
+            try {
+                journalEvents.addAndGet(journal.read(snapshot.id(), saved.journalPosition(), robotIds,
+                        rebuilder::apply));
+                battle = rebuilder.battle();
+                journaled = true;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warning("event=journal_tail_error battleId=" + snapshot.id() + " error=" + e.getMessage());
+                battle = snapshot.restore();
+            }
+        }
+        add(battle, journaled, restoredIds);
+    }
+
+    private void restoreJournaled(String battleId, Set<String> restoredIds, AtomicLong journalEvents) {
+        BattleRebuilder rebuilder = new BattleRebuilder();
+        try {
+            List<JournalRecord> records = journal.read(battleId);
+            for (JournalRecord record : records) {
+                rebuilder.apply(record);
+            }
+            journalEvents.addAndGet(records.size());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warning("event=journal_restore_error battleId=" + battleId + " error=" + e.getMessage());
+            return;
+        }
+        if (rebuilder.battle() != null) {
+            add(rebuilder.battle(), true, restoredIds);
+        }
+    }
+
+    private void add(Battle battle, boolean journaled, Set<String> restoredIds) {
+        try {
+            if (journaled) {
+                journal.resume(battle.getId());
+            }
+            battleService.restoreBattle(battle);
+            restoredIds.add(battle.getId());
+        } catch (IllegalStateException e) {
+            LOGGER.warning("event=battle_restore_error battleId=" + battle.getId() + " error=" + e.getMessage());
+        }
+    }
+
+    private void writeSnapshot() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.severe("event=snapshot_write_error error=" + e.getMessage());
+        }
+    }
+}
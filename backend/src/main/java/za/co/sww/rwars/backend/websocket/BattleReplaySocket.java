@@ -0,0 +1,243 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnMessage;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import za.co.sww.rwars.backend.replay.BattleReplay;
+import za.co.sww.rwars.backend.replay.ReplayService;
+
+/**
+ * A WebSocket endpoint that replays a recorded battle.
+ *
+ * The replay is read from the battle's journal, never from the live battle, so a battle can be watched again while
+ * it is still running or long after it is over. Each session gets {@code replay} messages holding the battle state
+ * at a point in the recording, starting where {@code ?at=<ms>} says, or at the start, and playing at the speed
+ * {@code ?speed=1x|4x|max} says, or 1x. While connected a client can send "seek &lt;ms&gt;", "speed &lt;1x|4x|max&gt;",
+ * "pause" and "play". Sessions watching the same battle share one decoded recording; see {@link ReplayService}.
+ */
+@ServerEndpoint("/battle-replay/{battleId}")
+@ApplicationScoped
+public class BattleReplaySocket {
+
+    private static final Logger LOGGER = Logger.getLogger(BattleReplaySocket.class.getName());
+
+    @Inject
+    private ReplayService replayService;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "battle.replay.frame-millis", defaultValue = "50")
+    private long frameMillis;
+
+    @ConfigProperty(name = "battle.websocket.max-queued-frames", defaultValue = "16")
+    private int maxQueuedFrames;
+
+    @ConfigProperty(name = "battle.websocket.stuck-timeout-seconds", defaultValue = "10")
+    private int stuckTimeoutSeconds;
+
+    private FrameEncoder encoder;
+
+    private SessionOutbox.Stats outboxStats;
+
+    private ScheduledExecutorService scheduler;
+
+    // Viewers of all open sessions by session ID
+    private final Map<String, ReplayViewer> viewersBySessionId = new ConcurrentHashMap<>();
+
+    public BattleReplaySocket() {
+    }
+
+    /**
+     * Creates a socket outside the container, for tests.
+     *
+     * @param replayService The service replays are loaded from
+     * @param objectMapper The mapper frames are written with
+     * @param meterRegistry The registry the outbox metrics are kept in
+     * @param frameMillis The battle time each frame moves on by
+     * @param maxQueuedFrames The most frames waiting per session
+     * @param stuckTimeoutSeconds How long a frame may be in flight before the session is disconnected
+     */
+    BattleReplaySocket(ReplayService replayService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                       long frameMillis, int maxQueuedFrames, int stuckTimeoutSeconds) {
+        this.replayService = replayService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.frameMillis = frameMillis;
+        this.maxQueuedFrames = maxQueuedFrames;
+        this.stuckTimeoutSeconds = stuckTimeoutSeconds;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        encoder = new FrameEncoder(objectMapper, meterRegistry);
+        outboxStats = new SessionOutbox.Stats(
+                meterRegistry.gauge("battle.replay.queue-depth", new AtomicInteger(), AtomicInteger::get),
+                meterRegistry.counter("battle.replay.dropped-frames"),
+                meterRegistry.counter("battle.replay.slow-disconnects"));
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("battle-replay").daemon().factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Called when a new WebSocket connection is established.
+     *
+     * @param session The WebSocket session
+     * @param battleId The battle ID from the path parameter
+     */
+    @OnOpen
+    public void onOpen(Session session, @PathParam("battleId") String battleId) {
+        SessionOutbox outbox = new SessionOutbox(session, battleId, maxQueuedFrames,
+                TimeUnit.SECONDS.toNanos(stuckTimeoutSeconds), outboxStats);
+        ReplayViewer.Speed speed;
+        long at;
+        try {
+            speed = ReplayViewer.Speed.parse(parameter(session, "speed", "1x"));
+            at = Long.parseLong(parameter(session, "at", "0"));
+        } catch (IllegalArgumentException e) {
+            reject(battleId, outbox, e.getMessage(),
+                    new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Invalid replay request"));
+            return;
+        }
+
+        BattleReplay replay;
+        try {
+            replay = replayService.acquire(battleId);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warning("event=replay_load_error battleId=" + battleId + " error=" + e.getMessage());
+            reject(battleId, outbox, "Cannot replay battle " + battleId + ": " + e.getMessage(),
+                    new CloseReason(CloseReason.CloseCodes.CANNOT_ACCEPT, "Battle cannot be replayed"));
+            return;
+        }
+
+        ReplayViewer viewer = new ReplayViewer(outbox, replay.cursor(), encoder, scheduler, frameMillis, speed);
+        viewersBySessionId.put(session.getId(), viewer);
+        LOGGER.info("event=replay_open battleId=" + battleId + " sessionId=" + session.getId() + " speed=" + speed
+                + " at=" + at);
+        viewer.seek(at);
+        viewer.play();
+    }
+
+    /**
+     * Called when a WebSocket connection is closed.
+     *
+     * @param session The WebSocket session
+     * @param battleId The battle ID from the path parameter
+     */
+    @OnClose
+    public void onClose(Session session, @PathParam("battleId") String battleId) {
+        removeSession(battleId, session);
+
+        LOGGER.info("event=replay_close battleId=" + battleId + " sessionId=" + session.getId());
+    }
+
+    /**
+     * Called when an error occurs in the WebSocket connection.
+     *
+     * @param session The WebSocket session
+     * @param battleId The battle ID from the path parameter
+     * @param throwable The error that occurred
+     */
+    @OnError
+    public void onError(Session session, @PathParam("battleId") String battleId, Throwable throwable) {
+        removeSession(battleId, session);
+
+        LOGGER.severe("event=replay_error battleId=" + battleId + " sessionId=" + session.getId()
+                + " error=" + throwable.getMessage());
+    }
+
+    /**
+     * Called when a message is received from a client: "seek &lt;ms&gt;", "speed &lt;1x|4x|max&gt;", "pause" or
+     * "play".
+     *
+     * @param message The message received
+     * @param session The WebSocket session
+     * @param battleId The battle ID from the path parameter
+     */
+    @OnMessage
+    public void onMessage(String message, Session session, @PathParam("battleId") String battleId) {
+        ReplayViewer viewer = viewersBySessionId.get(session.getId());
+        if (viewer == null) {
+            return;
+        }
+        String[] parts = message.trim().split("\\s+", 2);
+        try {
+            switch (parts[0].toLowerCase(Locale.ROOT)) {
+                case "seek" -> viewer.seek(Long.parseLong(argument(parts)));
+                case "speed" -> viewer.speed(ReplayViewer.Speed.parse(argument(parts)));
+                case "pause" -> viewer.pause();
+                case "play" -> viewer.play();
+                default -> LOGGER.info("event=replay_message_ignored battleId=" + battleId
+                        + " sessionId=" + session.getId() + " message=" + message);
+            }
+        } catch (IllegalArgumentException e) {
+            LOGGER.info("event=replay_message_invalid battleId=" + battleId + " sessionId=" + session.getId()
+                    + " message=" + message);
+        }
+    }
+
+    private void removeSession(String battleId, Session session) {
+        ReplayViewer viewer = viewersBySessionId.remove(session.getId());
+        if (viewer != null) {
+            viewer.close();
+            replayService.release(battleId);
+        }
+    }
+
+    private static String argument(String[] parts) {
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Missing argument");
+        }
+        return parts[1];
+    }
+
+    private static String parameter(Session session, String name, String defaultValue) {
+        List<String> values = session.getRequestParameterMap().get(name);
+        return values == null || values.isEmpty() ? defaultValue : values.get(0);
+    }
+
+    /**
+     * Sends an error to a session that cannot watch the replay and closes it once the error is sent.
+     */
+    private void reject(String battleId, SessionOutbox outbox, String message, CloseReason reason) {
+        try {
+            String jsonError = objectMapper.writeValueAsString(new BattleStateSocket.ErrorResponse(message));
+            outbox.offer(jsonError, SessionOutbox.FrameType.EVENT);
+        } catch (JsonProcessingException e) {
+            LOGGER.severe("event=error_serialize_error battleId=" + battleId + " error=" + e.getMessage());
+        }
+        outbox.closeAfterSending(reason);
+    }
+}
@@ -0,0 +1,356 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.websocket.Session;
+import java.util.Collection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.RobotAction;
+import za.co.sww.rwars.backend.model.RobotActionLog;
+import za.co.sww.rwars.backend.model.Wall;
+
+/**
+ * The delta stream of one battle.
+ *
+ * Delta sessions get a full snapshot when they subscribe and after that only what changed since the previous
+ * message: changed robot fields, robots that left, new robot actions, state transitions and replaced walls. The
+ * stream remembers what it last sent, and every message carries the battle's stream sequence number, so all
+ * subscribers of a battle share one baseline and each delta is serialized once for all of them.
+ */
+final class BattleStateDeltas {
+
+    static final String SNAPSHOT = "snapshot";
+    static final String DELTA = "delta";
+
+    private final String battleId;
+    private final FrameEncoder encoder;
+    private final Map<String, SessionOutbox> sessions = new ConcurrentHashMap<>();
+    private long sequence;
+    private Map<String, RobotView> robots = Map.of();
+    private int wallsVersion = -1;
+    private RobotActionLog actionLog;
+    private long actionSeq;
+    private String battleState;
+    private String winnerId;
+    private String winnerName;
+
+    /**
+     * Creates the delta stream of a battle.
+     *
+     * @param battleId The battle ID
+     * @param encoder The encoder messages are written with
+     */
+    BattleStateDeltas(String battleId, FrameEncoder encoder) {
+        this.battleId = battleId;
+        this.encoder = encoder;
+    }
+
+    /**
+     * Adds a session to the stream and sends it a snapshot. Changes not yet sent to the other sessions are sent
+     * to them first, so the snapshot and the existing sessions share the same baseline. Call it on the battle's
+     * mailbox, as broadcasts are, so that the battle does not change while the snapshot is taken.
+     *
+     * @param outbox The outbox of the session
+     * @param battle The battle
+     */
+    synchronized void subscribe(SessionOutbox outbox, Battle battle) {
+        if (!sessions.isEmpty()) {
+            sendChanges(battle);
+        }
+        sessions.put(outbox.session().getId(), outbox);
+        send(List.of(outbox), SNAPSHOT, rememberAll(battle), battle);
+    }
+
+    /**
+     * Removes a session from the stream.
+     *
+     * @param session The session
+     * @return true if no sessions are left
+     */
+    synchronized boolean unsubscribe(Session session) {
+        sessions.remove(session.getId());
+        return sessions.isEmpty();
+    }
+
+    /**
+     * Sends what changed since the previous message to every session. Nothing is sent if nothing changed.
+     *
+     * @param battle The battle
+     */
+    synchronized void broadcast(Battle battle) {
+        sendChanges(battle);
+    }
+
+    /**
+     * Sends an encoded message that is not part of the battle state, such as a laser event, to every session.
+     *
+     * @param event The encoded message
+     */
+    synchronized void sendEvent(String event) {
+        for (SessionOutbox outbox : sessions.values()) {
+            outbox.offer(event, SessionOutbox.FrameType.EVENT);
+        }
+    }
+
+    private void sendChanges(Battle battle) {
+        RobotActionLog log = battle.robotActionLog();
+        if (log != actionLog) {
+            // The action log was replaced, so a delta cannot describe it; start everyone over
+            sequence++;
+            send(sessions.values(), SNAPSHOT, rememberAll(battle), battle);
+            return;
+        }
+
+        DeltaResponse delta = new DeltaResponse(DELTA, sequence + 1, battleId);
+        String state = battle.getState().toString();
+        if (!state.equals(battleState)) {
+            delta.battleState = state;
+        }
+        if (!Objects.equals(battle.getWinnerId(), winnerId)) {
+            delta.winnerId = battle.getWinnerId();
+            delta.winnerName = battle.getWinnerName();
+        }
+        if (battle.wallsVersion() != wallsVersion) {
+            delta.walls = battle.getWalls();
+        }
+        // The log only holds so many actions, so more than that cannot have been added since the last delta
+        List<RobotAction> actions = log.after(actionSeq, log.capacity());
+        if (!actions.isEmpty()) {
+            delta.robotActions = actions;
+            actionSeq = actions.get(actions.size() - 1).getSeq();
+        }
+
+        Map<String, RobotView> current = new LinkedHashMap<>();
+        List<Map<String, Object>> changedRobots = new ArrayList<>();
+        for (Robot robot : battle.getRobots()) {
+            RobotView view = new RobotView(robot);
+            current.put(view.id(), view);
+            Map<String, Object> changes = view.changesSince(robots.get(view.id()));
+            if (changes != null) {
+                changedRobots.add(changes);
+            }
+        }
+        if (!changedRobots.isEmpty()) {
+            delta.robots = changedRobots;
+        }
+        List<String> removedRobots = new ArrayList<>();
+        for (String robotId : robots.keySet()) {
+            if (!current.containsKey(robotId)) {
+                removedRobots.add(robotId);
+            }
+        }
+        if (!removedRobots.isEmpty()) {
+            delta.removedRobots = removedRobots;
+        }
+
+        remember(battle, current);
+        if (delta.isEmpty()) {
+            return;
+        }
+        sequence = delta.seq;
+        send(sessions.values(), DELTA, delta, battle);
+    }
+
+    /**
+     * Takes a new baseline and the snapshot that goes with it. Both come from one read of the battle: the robots
+     * in the snapshot are copies of the views remembered, and the action baseline is the last action in it.
+     *
+     * @param battle The battle
+     * @return The snapshot at the current sequence
+     */
+    private BattleStateSocket.BattleStateResponse rememberAll(Battle battle) {
+        BattleStateSocket.BattleStateResponse snapshot = snapshot(battle);
+        Map<String, RobotView> current = new LinkedHashMap<>();
+        List<Robot> robotsSent = new ArrayList<>();
+        for (Robot robot : battle.getRobots()) {
+            RobotView view = new RobotView(robot);
+            current.put(view.id(), view);
+            robotsSent.add(view.toRobot(battleId));
+        }
+        snapshot.setRobots(robotsSent);
+        remember(battle, current);
+        actionLog = battle.robotActionLog();
+        List<RobotAction> actionsSent = snapshot.getRobotActions();
+        actionSeq = actionsSent.isEmpty() ? actionLog.lastSeq() : actionsSent.get(actionsSent.size() - 1).getSeq();
+        return snapshot;
+    }
+
+    private BattleStateSocket.BattleStateResponse snapshot(Battle battle) {
+        BattleStateSocket.BattleStateResponse snapshot = BattleStateSocket.stateOf(battle);
+        snapshot.setType(SNAPSHOT);
+        snapshot.setSeq(sequence);
+        return snapshot;
+    }
+
+    private void remember(Battle battle, Map<String, RobotView> current) {
+        robots = current;
+        wallsVersion = battle.wallsVersion();
+        battleState = battle.getState().toString();
+        winnerId = battle.getWinnerId();
+        winnerName = battle.getWinnerName();
+    }
+
+    /**
+     * Sends a stream message. A session too far behind to take it has its queue replaced by a snapshot at the
+     * current sequence; that snapshot is built right after the message on the same thread, so it matches the
+     * baseline the next delta is taken against.
+     */
+    private void send(Collection<SessionOutbox> targets, String kind, Object message, Battle battle) {
+        String json = encoder.encode(battleId, kind, message);
+        if (json == null) {
+            return;
+        }
+        String resync = null;
+        for (SessionOutbox outbox : targets) {
+            if (!outbox.offer(json, SessionOutbox.FrameType.STREAM)) {
+                if (resync == null) {
+                    resync = encoder.encode(battleId, SNAPSHOT, snapshot(battle));
+                }
+                if (resync != null) {
+                    outbox.replaceAll(resync);
+                }
+            }
+        }
+    }
+
+    /**
+     * The robot fields spectators see, as last sent.
+     */
+    private record RobotView(String id, String name, int positionX, int positionY, Robot.Direction direction,
+                             Robot.RobotStatus status, int targetBlocks, int blocksRemaining, int hitPoints,
+                             int maxHitPoints, boolean active) {
+
+        RobotView(Robot robot) {
+            this(robot.getId(), robot.getName(), robot.getPositionX(), robot.getPositionY(), robot.getDirection(),
+                    robot.getStatus(), robot.getTargetBlocks(), robot.getBlocksRemaining(), robot.getHitPoints(),
+                    robot.getMaxHitPoints(), robot.isActive());
+        }
+
+        /**
+         * Creates a robot outside any battle that holds this view's fields, to send in a snapshot.
+         *
+         * @param battleId The ID of the battle the robot is in
+         * @return The robot
+         */
+        Robot toRobot(String battleId) {
+            Robot robot = new Robot(name, battleId);
+            robot.setId(id);
+            robot.setPositionX(positionX);
+            robot.setPositionY(positionY);
+            robot.setDirection(direction);
+            robot.setTargetBlocks(targetBlocks);
+            robot.setBlocksRemaining(blocksRemaining);
+            robot.setMaxHitPoints(maxHitPoints);
+            robot.setHitPoints(hitPoints);
+            // After the hit points, which set a robot without any left to destroyed
+            robot.setStatus(status);
+            return robot;
+        }
+
+        /**
+         * Lists the fields that differ from an earlier view, or all fields for a new robot.
+         *
+         * @param before The view last sent, or null if the robot is new
+         * @return The robot ID and changed fields, or null if nothing changed
+         */
+        Map<String, Object> changesSince(RobotView before) {
+            Map<String, Object> changes = new LinkedHashMap<>();
+            changes.put("id", id);
+            putIfChanged(changes, before, "name", before == null ? null : before.name, name);
+            putIfChanged(changes, before, "positionX", before == null ? null : before.positionX, positionX);
+            putIfChanged(changes, before, "positionY", before == null ? null : before.positionY, positionY);
+            putIfChanged(changes, before, "direction", before == null ? null : before.direction, direction);
+            putIfChanged(changes, before, "status", before == null ? null : before.status, status);
+            putIfChanged(changes, before, "targetBlocks", before == null ? null : before.targetBlocks, targetBlocks);
+            putIfChanged(changes, before, "blocksRemaining", before == null ? null : before.blocksRemaining,
+                    blocksRemaining);
+            putIfChanged(changes, before, "hitPoints", before == null ? null : before.hitPoints, hitPoints);
+            putIfChanged(changes, before, "maxHitPoints", before == null ? null : before.maxHitPoints, maxHitPoints);
+            putIfChanged(changes, before, "active", before == null ? null : before.active, active);
+            return changes.size() > 1 ? changes : null;
+        }
+
+        private static void putIfChanged(Map<String, Object> changes, RobotView before, String field,
+                                         Object previous, Object value) {
+            if (before == null || !Objects.equals(previous, value)) {
+                changes.put(field, value);
+            }
+        }
+    }
+
+    /**
+     * A delta message; fields that did not change are left out.
+     */
+    @RegisterForReflection
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class DeltaResponse {
+        private final String type;
+        private final long seq;
+        private final String battleId;
+        private String battleState;
+        private String winnerId;
+        private String winnerName;
+        private List<Map<String, Object>> robots;
+        private List<String> removedRobots;
+        private List<Wall> walls;
+        private List<RobotAction> robotActions;
+
+        DeltaResponse(String type, long seq, String battleId) {
+            this.type = type;
+            this.seq = seq;
+            this.battleId = battleId;
+        }
+
+        boolean isEmpty() {
+            return battleState == null && winnerId == null && winnerName == null && robots == null
+                    && removedRobots == null && walls == null && robotActions == null;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public String getBattleId() {
+            return battleId;
+        }
+
+        public String getBattleState() {
+            return battleState;
+        }
+
+        public String getWinnerId() {
+            return winnerId;
+        }
+
+        public String getWinnerName() {
+            return winnerName;
+        }
+
+        public List<Map<String, Object>> getRobots() {
+            return robots;
+        }
+
+        public List<String> getRemovedRobots() {
+            return removedRobots;
+        }
+
+        public List<Wall> getWalls() {
+            return walls;
+        }
+
+        public List<RobotAction> getRobotActions() {
+            return robotActions;
+        }
+    }
+}
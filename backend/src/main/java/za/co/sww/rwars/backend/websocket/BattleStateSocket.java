@@ -1,10 +1,16 @@
 package za.co.sww.rwars.backend.websocket;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.websocket.CloseReason;
 import jakarta.websocket.OnClose;
 import jakarta.websocket.OnError;
 import jakarta.websocket.OnMessage;
@@ -12,9 +18,20 @@ import jakarta.websocket.OnOpen;
 import jakarta.websocket.Session;
 import jakarta.websocket.server.PathParam;
 import jakarta.websocket.server.ServerEndpoint;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
+import za.co.sww.rwars.backend.config.JacksonConfig;
 import za.co.sww.rwars.backend.model.Battle;
 import za.co.sww.rwars.backend.model.Robot;
 import za.co.sww.rwars.backend.model.LaserResponse;
@@ -24,21 +41,113 @@ import za.co.sww.rwars.backend.service.BattleService;
 /**
  * A WebSocket endpoint for battle state information.
  * This provides real-time updates about battle state, arena attributes, and registered robots.
+ *
+ * By default every update is the whole battle. Clients that connect with {@code ?mode=delta} get one snapshot
+ * on connect and after that only deltas, each with a sequence number; see {@link BattleStateDeltas}. Either way a
+ * broadcast is encoded once and the same payload is written to every session. Clients that negotiate the
+ * {@value BinaryBattleState#SUBPROTOCOL} subprotocol in the handshake get compact binary frames instead of JSON;
+ * see {@link BinaryBattleState}. Full state clients that connect with {@code ?arena} get the arena's dimensions
+ * and walls in a separate {@code arena} message with a content hash, sent again only when the arena changes or on
+ * request, and state messages without them; a client that connects with {@code ?arena=<hash>} of an arena it
+ * already has is not sent it at all. Full state clients that connect with {@code ?walls=compact} get walls as their
+ * rectangles instead of cell by cell, in state and arena messages alike. Each session sends through its own bounded
+ * {@link SessionOutbox}, so a slow spectator only ever holds a few frames and is disconnected if it stays stuck;
+ * a watchdog checks for stuck sessions periodically, so a session is disconnected even if no further frame comes.
+ * The outbox metrics of a battle are tagged with its ID and removed when its last session closes.
  */
-@ServerEndpoint("/battle-state/{battleId}")
+@ServerEndpoint(value = "/battle-state/{battleId}", subprotocols = BinaryBattleState.SUBPROTOCOL)
 @ApplicationScoped
 public class BattleStateSocket {
 
     private static final Logger LOGGER = Logger.getLogger(BattleStateSocket.class.getName());
 
+    private static final String QUEUE_DEPTH = "battle.websocket.queue-depth";
+    private static final String DROPPED_FRAMES = "battle.websocket.dropped-frames";
+    private static final String SLOW_DISCONNECTS = "battle.websocket.slow-disconnects";
+
     @Inject
     private BattleService battleService;
 
     @Inject
     private ObjectMapper objectMapper;
 
+    @Inject
+    private MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "battle.websocket.max-queued-frames", defaultValue = "16")
+    private int maxQueuedFrames;
+
+    @ConfigProperty(name = "battle.websocket.stuck-timeout-seconds", defaultValue = "10")
+    private int stuckTimeoutSeconds;
+
+    private FrameEncoder encoder;
+
+    private FrameEncoder compactWallEncoder;
+
     // Store active sessions by battle ID
-    private final Map<String, Map<String, Session>> sessionsByBattleId = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, SessionOutbox>> sessionsByBattleId = new ConcurrentHashMap<>();
+
+    // Outboxes of all open sessions, full and delta, by session ID
+    private final Map<String, SessionOutbox> outboxesBySessionId = new ConcurrentHashMap<>();
+
+    // Outbox metrics and the number of sessions using them by battle ID
+    private final Map<String, BattleOutboxStats> outboxStatsByBattleId = new ConcurrentHashMap<>();
+
+    // Delta streams by battle ID, holding the sessions that connected in delta mode
+    private final Map<String, BattleStateDeltas> deltasByBattleId = new ConcurrentHashMap<>();
+
+    // Binary streams by battle ID, holding the sessions that negotiated the binary subprotocol
+    private final Map<String, BinaryBattleState> binaryByBattleId = new ConcurrentHashMap<>();
+
+    // Hash of the arena each split arena session has, empty until it has one, by session ID
+    private final Map<String, String> arenaHashBySessionId = new ConcurrentHashMap<>();
+
+    // IDs of the full state sessions that asked for compact walls
+    private final Set<String> compactWallSessionIds = ConcurrentHashMap.newKeySet();
+
+    // Encoded static arenas by battle ID, kept while a battle has full state sessions
+    private final Map<String, StaticArena> arenaByBattleId = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService watchdog;
+
+    public BattleStateSocket() {
+    }
+
+    /**
+     * Creates a socket outside the container, for tests.
+     *
+     * @param battleService The service battles are read from
+     * @param objectMapper The mapper frames are written with
+     * @param meterRegistry The registry the metrics are kept in
+     * @param maxQueuedFrames The most frames waiting per session
+     * @param stuckTimeoutSeconds How long a frame may be in flight before the session is disconnected
+     */
+    BattleStateSocket(BattleService battleService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                      int maxQueuedFrames, int stuckTimeoutSeconds) {
+        this.battleService = battleService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxQueuedFrames = maxQueuedFrames;
+        this.stuckTimeoutSeconds = stuckTimeoutSeconds;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        encoder = new FrameEncoder(objectMapper, meterRegistry);
+        compactWallEncoder = new FrameEncoder(JacksonConfig.withCompactWalls(objectMapper), meterRegistry);
+        // Check twice per timeout, so a stuck session is disconnected at most half a timeout late
+        long checkMillis = Math.max(1, stuckTimeoutSeconds) * 500L;
+        watchdog = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("battle-websocket-watchdog").daemon().factory());
+        watchdog.scheduleWithFixedDelay(this::disconnectStuckSessions, checkMillis, checkMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        watchdog.shutdownNow();
+    }
 
     /**
      * Called when a new WebSocket connection is established.
@@ -48,14 +157,36 @@ public class BattleStateSocket {
      */
     @OnOpen
     public void onOpen(Session session, @PathParam("battleId") String battleId) {
+        SessionOutbox outbox = new SessionOutbox(session, battleId, maxQueuedFrames,
+                TimeUnit.SECONDS.toNanos(stuckTimeoutSeconds), acquireOutboxStats(battleId));
+        outboxesBySessionId.put(session.getId(), outbox);
+        if (isBinary(session)) {
+            LOGGER.info("event=ws_open battleId=" + battleId + " sessionId=" + session.getId() + " mode=binary");
+            subscribeBinary(battleId, outbox);
+            return;
+        }
+        if (isDeltaMode(session)) {
+            LOGGER.info("event=ws_open battleId=" + battleId + " sessionId=" + session.getId() + " mode=delta");
+            subscribeDeltas(battleId, outbox);
+            return;
+        }
+
+        String arenaHash = arenaParameter(session);
+        if (arenaHash != null) {
+            arenaHashBySessionId.put(session.getId(), arenaHash);
+        }
+        if (isCompactWalls(session)) {
+            compactWallSessionIds.add(session.getId());
+        }
+
         // Add the session to the sessions map for this battle
         sessionsByBattleId.computeIfAbsent(battleId, k -> new ConcurrentHashMap<>())
-                .put(session.getId(), session);
+                .put(session.getId(), outbox);
 
         LOGGER.info("event=ws_open battleId=" + battleId + " sessionId=" + session.getId());
 
         // Send the initial battle state to the client
-        sendBattleState(battleId, session);
+        sendBattleState(battleId, List.of(outbox));
     }
 
     /**
@@ -66,14 +197,7 @@ public class BattleStateSocket {
      */
     @OnClose
     public void onClose(Session session, @PathParam("battleId") String battleId) {
-        // Remove the session from the sessions map for this battle
-        Map<String, Session> battleSessions = sessionsByBattleId.get(battleId);
-        if (battleSessions != null) {
-            battleSessions.remove(session.getId());
-            if (battleSessions.isEmpty()) {
-                sessionsByBattleId.remove(battleId);
-            }
-        }
+        removeSession(battleId, session);
 
         LOGGER.info("event=ws_close battleId=" + battleId + " sessionId=" + session.getId());
     }
@@ -87,14 +211,7 @@ public class BattleStateSocket {
      */
     @OnError
     public void onError(Session session, @PathParam("battleId") String battleId, Throwable throwable) {
-        // Remove the session from the sessions map for this battle
-        Map<String, Session> battleSessions = sessionsByBattleId.get(battleId);
-        if (battleSessions != null) {
-            battleSessions.remove(session.getId());
-            if (battleSessions.isEmpty()) {
-                sessionsByBattleId.remove(battleId);
-            }
-        }
+        removeSession(battleId, session);
 
         String errMsg = "event=ws_error battleId=" + battleId
                 + " sessionId=" + session.getId()
@@ -104,7 +221,8 @@ public class BattleStateSocket {
 
     /**
      * Called when a message is received from a client.
-     * The client can request updates by sending "update" as a message.
+     * The client can request updates by sending "update" as a message, and a split arena client can request the
+     * arena again by sending "arena".
      *
      * @param message The message received
      * @param session The WebSocket session
@@ -115,73 +233,346 @@ public class BattleStateSocket {
         LOGGER.info("event=ws_message battleId=" + battleId + " sessionId=" + session.getId() + " message=" + message);
 
         // If the client requests an update, send the current battle state
-        if ("update".equalsIgnoreCase(message)) {
-            sendBattleState(battleId, session);
+        SessionOutbox outbox = outboxesBySessionId.get(session.getId());
+        if ("update".equalsIgnoreCase(message) && outbox != null) {
+            if (isBinary(session)) {
+                subscribeBinary(battleId, outbox);
+            } else if (isDeltaMode(session)) {
+                subscribeDeltas(battleId, outbox);
+            } else {
+                sendBattleState(battleId, List.of(outbox));
+            }
+        } else if ("arena".equalsIgnoreCase(message) && outbox != null
+                && arenaHashBySessionId.replace(session.getId(), "") != null) {
+            sendBattleState(battleId, List.of(outbox));
+        }
+    }
+
+    private void removeSession(String battleId, Session session) {
+        // Remove the session from the sessions map for this battle
+        Map<String, SessionOutbox> battleSessions = sessionsByBattleId.get(battleId);
+        if (battleSessions != null) {
+            battleSessions.remove(session.getId());
+            if (battleSessions.isEmpty()) {
+                sessionsByBattleId.remove(battleId);
+                arenaByBattleId.remove(battleId);
+            }
+        }
+        arenaHashBySessionId.remove(session.getId());
+        compactWallSessionIds.remove(session.getId());
+        unsubscribeDeltas(battleId, session);
+        binaryByBattleId.computeIfPresent(battleId, (id, binary) -> binary.unsubscribe(session) ? null : binary);
+        SessionOutbox outbox = outboxesBySessionId.remove(session.getId());
+        if (outbox != null) {
+            outbox.close();
+            releaseOutboxStats(battleId);
+        }
+    }
+
+    private SessionOutbox.Stats acquireOutboxStats(String battleId) {
+        return outboxStatsByBattleId.compute(battleId, (id, stats) -> {
+            BattleOutboxStats battleStats = stats != null ? stats : new BattleOutboxStats(new SessionOutbox.Stats(
+                    meterRegistry.gauge(QUEUE_DEPTH, Tags.of("battleId", id), new AtomicInteger(), AtomicInteger::get),
+                    meterRegistry.counter(DROPPED_FRAMES, "battleId", id),
+                    meterRegistry.counter(SLOW_DISCONNECTS, "battleId", id)));
+            battleStats.sessions++;
+            return battleStats;
+        }).stats;
+    }
+
+    private void releaseOutboxStats(String battleId) {
+        outboxStatsByBattleId.computeIfPresent(battleId, (id, stats) -> {
+            if (--stats.sessions > 0) {
+                return stats;
+            }
+            removeOutboxMeters(id);
+            return null;
+        });
+    }
+
+    private void removeOutboxMeters(String battleId) {
+        for (String name : List.of(QUEUE_DEPTH, DROPPED_FRAMES, SLOW_DISCONNECTS)) {
+            meterRegistry.find(name).tag("battleId", battleId).meters().forEach(meterRegistry::remove);
         }
     }
 
     /**
-     * Sends the current battle state to a specific session.
+     * Disconnects every session whose frame in flight has been stuck for longer than the stuck timeout.
+     * Runs periodically on the watchdog.
+     */
+    void disconnectStuckSessions() {
+        for (SessionOutbox outbox : outboxesBySessionId.values()) {
+            try {
+                outbox.disconnectIfStuck();
+            } catch (RuntimeException e) {
+                // Keep checking the other sessions, and keep the watchdog running
+                LOGGER.warning("event=ws_watchdog_error battleId=" + outbox.battleId()
+                        + " sessionId=" + outbox.session().getId() + " error=" + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Closes the sessions of a battle that was deleted, once their queued frames are sent, and removes the
+     * battle's outbox metrics straight away rather than when the last session has closed.
+     *
+     * @param battleId The battle ID
+     */
+    public void closeBattle(String battleId) {
+        CloseReason reason = new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Battle deleted");
+        for (SessionOutbox outbox : outboxesBySessionId.values()) {
+            if (battleId.equals(outbox.battleId())) {
+                outbox.closeAfterSending(reason);
+            }
+        }
+        if (outboxStatsByBattleId.remove(battleId) != null) {
+            removeOutboxMeters(battleId);
+        }
+    }
+
+    /**
+     * Sends the current battle state to sessions, encoding it once for all of them.
      *
      * @param battleId The battle ID
-     * @param session The WebSocket session to send the state to
+     * @param outboxes The outboxes of the WebSocket sessions to send the state to
      */
-    private void sendBattleState(String battleId, Session session) {
+    private void sendBattleState(String battleId, Collection<SessionOutbox> outboxes) {
         try {
             if (battleService.isValidBattleId(battleId)) {
                 Battle battle = battleService.getBattleStatus(battleId);
 
-                // Create a response with battle state information
-                BattleStateResponse response = new BattleStateResponse();
-                response.setBattleId(battle.getId());
-                response.setBattleName(battle.getName());
-                response.setArenaWidth(battle.getArenaWidth());
-                response.setArenaHeight(battle.getArenaHeight());
-                response.setRobotMovementTimeSeconds(battle.getRobotMovementTimeSeconds());
-                response.setBattleState(battle.getState().toString());
-                response.setRobots(battle.getRobots());
-                response.setWalls(battle.getWalls());
-                response.setWinnerId(battle.getWinnerId());
-                response.setWinnerName(battle.getWinnerName());
-                response.setRobotActions(battle.getRobotActions());
-
-                // Convert to JSON and send
-                try {
-                    String jsonResponse = objectMapper.writeValueAsString(response);
-                    session.getAsyncRemote().sendText(jsonResponse);
-                } catch (JsonProcessingException e) {
-                    String serErr = "event=battle_state_serialize_error battleId=" + battleId
-                            + " error=" + e.getMessage();
-                    LOGGER.severe(serErr);
+                // Convert to JSON once per form and send the same payload to every session
+                String jsonResponse = null;
+                String compactWallResponse = null;
+                String splitResponse = null;
+                StaticArena arena = null;
+                for (SessionOutbox outbox : outboxes) {
+                    String sessionId = outbox.session().getId();
+                    String arenaHash = arenaHashBySessionId.get(sessionId);
+                    boolean compactWalls = compactWallSessionIds.contains(sessionId);
+                    if (arenaHash == null) {
+                        String response;
+                        if (compactWalls) {
+                            if (compactWallResponse == null) {
+                                compactWallResponse = compactWallEncoder.encode(battleId, "state", stateOf(battle));
+                            }
+                            response = compactWallResponse;
+                        } else {
+                            if (jsonResponse == null) {
+                                jsonResponse = encoder.encode(battleId, "state", stateOf(battle));
+                            }
+                            response = jsonResponse;
+                        }
+                        if (response != null) {
+                            outbox.offer(response, SessionOutbox.FrameType.STATE);
+                        }
+                        continue;
+                    }
+                    if (arena == null) {
+                        arena = arenaOf(battle);
+                        splitResponse = encoder.encode(battleId, "state-split", splitStateOf(battle, arena));
+                    }
+                    if (arena == null || splitResponse == null) {
+                        continue;
+                    }
+                    String arenaJson = compactWalls ? arena.compactWallJson(compactWallEncoder) : arena.json();
+                    if (!arena.hash().equals(arenaHash) && arenaJson != null) {
+                        // The arena must not be lost, as state messages no longer carry it
+                        if (!outbox.offer(arenaJson, SessionOutbox.FrameType.STREAM)) {
+                            outbox.replaceAll(arenaJson);
+                        }
+                        arenaHashBySessionId.replace(sessionId, arena.hash());
+                    }
+                    outbox.offer(splitResponse, SessionOutbox.FrameType.STATE);
                 }
             } else {
-                // Send an error message if the battle ID is invalid
-                ErrorResponse error = new ErrorResponse("Invalid battle ID: " + battleId);
-                try {
-                    String jsonError = objectMapper.writeValueAsString(error);
-                    session.getAsyncRemote().sendText(jsonError);
-                } catch (JsonProcessingException e) {
-                    String errSerErr = "event=error_serialize_error battleId=" + battleId
-                            + " error=" + e.getMessage();
-                    LOGGER.severe(errSerErr);
+                for (SessionOutbox outbox : outboxes) {
+                    sendInvalidBattle(battleId, outbox);
                 }
             }
         } catch (Exception e) {
-            String sendErr = "event=battle_state_send_error battleId=" + battleId
-                    + " error=" + e.getMessage();
-            LOGGER.severe(sendErr);
+            for (SessionOutbox outbox : outboxes) {
+                sendStateError(battleId, outbox, e);
+            }
+        }
+    }
 
-            // Send an error message
-            ErrorResponse error = new ErrorResponse("Error retrieving battle state: " + e.getMessage());
-            try {
-                String jsonError = objectMapper.writeValueAsString(error);
-                session.getAsyncRemote().sendText(jsonError);
-            } catch (JsonProcessingException jsonException) {
-                String sendErr2 = "event=error_send_error battleId=" + battleId
-                        + " error=" + jsonException.getMessage();
-                LOGGER.severe(sendErr2);
+    /**
+     * Creates a full battle state response.
+     *
+     * @param battle The battle
+     * @return The battle state
+     */
+    static BattleStateResponse stateOf(Battle battle) {
+        BattleStateResponse response = new BattleStateResponse();
+        response.setBattleId(battle.getId());
+        response.setBattleName(battle.getName());
+        response.setArenaWidth(battle.getArenaWidth());
+        response.setArenaHeight(battle.getArenaHeight());
+        response.setRobotMovementTimeSeconds(battle.getRobotMovementTimeSeconds());
+        response.setBattleState(battle.getState().toString());
+        response.setRobots(battle.getRobots());
+        response.setWalls(battle.getWalls());
+        response.setWinnerId(battle.getWinnerId());
+        response.setWinnerName(battle.getWinnerName());
+        response.setRobotActions(battle.getRobotActions());
+        return response;
+    }
+
+    /**
+     * Creates a battle state response without the static arena, for split arena sessions.
+     *
+     * @param battle The battle
+     * @param arena The battle's arena
+     * @return The battle state, holding the arena's hash instead of its dimensions and walls
+     */
+    private static BattleStateResponse splitStateOf(Battle battle, StaticArena arena) {
+        BattleStateResponse response = stateOf(battle);
+        response.setArenaWidth(null);
+        response.setArenaHeight(null);
+        response.setWalls(null);
+        response.setArenaHash(arena.hash());
+        return response;
+    }
+
+    /**
+     * Gets the encoded arena of a battle, encoding it again only if it changed.
+     *
+     * @param battle The battle
+     * @return The arena, or null if it could not be serialized
+     */
+    private StaticArena arenaOf(Battle battle) {
+        StaticArena arena = arenaByBattleId.get(battle.getId());
+        if (arena == null || !arena.matches(battle)) {
+            arena = StaticArena.of(battle, encoder);
+            if (arena != null) {
+                arenaByBattleId.put(battle.getId(), arena);
             }
         }
+        return arena;
+    }
+
+    /**
+     * Adds a session to the delta stream of a battle, which sends it a snapshot.
+     *
+     * @param battleId The battle ID
+     * @param outbox The outbox of the WebSocket session
+     */
+    private void subscribeDeltas(String battleId, SessionOutbox outbox) {
+        subscribeOnMailbox(battleId, outbox, battle -> {
+            // Subscribing inside compute keeps a stream from being dropped by its last session at the same time
+            deltasByBattleId.compute(battleId, (id, deltas) -> {
+                BattleStateDeltas stream = deltas != null ? deltas : new BattleStateDeltas(id, encoder);
+                stream.subscribe(outbox, battle);
+                return stream;
+            });
+        });
+    }
+
+    /**
+     * Runs a stream subscription on the battle's mailbox, in line with the battle's commands and broadcasts, so
+     * that what the session is first sent is taken from the battle between two of its changes.
+     *
+     * @param battleId The battle ID
+     * @param outbox The outbox of the WebSocket session
+     * @param subscription Subscribes the session to a stream of the battle
+     */
+    private void subscribeOnMailbox(String battleId, SessionOutbox outbox, Consumer<Battle> subscription) {
+        try {
+            if (!battleService.isValidBattleId(battleId)) {
+                sendInvalidBattle(battleId, outbox);
+                return;
+            }
+            battleService.readBattleAsync(battleId, battle -> {
+                subscription.accept(battle);
+                return battle;
+            }).whenComplete((battle, error) -> {
+                if (error != null) {
+                    sendStateError(battleId, outbox, error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                } else if (battle == null) {
+                    sendInvalidBattle(battleId, outbox);
+                }
+            });
+        } catch (Exception e) {
+            sendStateError(battleId, outbox, e);
+        }
+    }
+
+    private void unsubscribeDeltas(String battleId, Session session) {
+        deltasByBattleId.computeIfPresent(battleId, (id, deltas) -> deltas.unsubscribe(session) ? null : deltas);
+    }
+
+    /**
+     * Adds a session to the binary stream of a battle, which sends it the dictionary and the current state.
+     *
+     * @param battleId The battle ID
+     * @param outbox The outbox of the WebSocket session
+     */
+    private void subscribeBinary(String battleId, SessionOutbox outbox) {
+        subscribeOnMailbox(battleId, outbox, battle -> binaryByBattleId.compute(battleId, (id, binary) -> {
+            BinaryBattleState stream = binary != null ? binary : new BinaryBattleState(id, encoder);
+            stream.subscribe(outbox, battle);
+            return stream;
+        }));
+    }
+
+    private static boolean isBinary(Session session) {
+        return BinaryBattleState.SUBPROTOCOL.equals(session.getNegotiatedSubprotocol());
+    }
+
+    /**
+     * Gets the arena hash a split arena client connected with.
+     *
+     * @param session The WebSocket session
+     * @return The hash, empty if the client has no arena yet, or null if the client wants the arena in every message
+     */
+    private static String arenaParameter(Session session) {
+        List<String> arena = session.getRequestParameterMap().get("arena");
+        if (arena == null) {
+            return null;
+        }
+        return arena.isEmpty() || arena.get(0) == null ? "" : arena.get(0);
+    }
+
+    private static boolean isCompactWalls(Session session) {
+        List<String> walls = session.getRequestParameterMap().get("walls");
+        return walls != null && walls.contains("compact");
+    }
+
+    private static boolean isDeltaMode(Session session) {
+        List<String> mode = session.getRequestParameterMap().get("mode");
+        return mode != null && mode.contains("delta");
+    }
+
+    private void sendInvalidBattle(String battleId, SessionOutbox outbox) {
+        // Send an error message if the battle ID is invalid
+        ErrorResponse error = new ErrorResponse("Invalid battle ID: " + battleId);
+        try {
+            String jsonError = objectMapper.writeValueAsString(error);
+            outbox.offer(jsonError, SessionOutbox.FrameType.EVENT);
+        } catch (JsonProcessingException e) {
+            String errSerErr = "event=error_serialize_error battleId=" + battleId
+                    + " error=" + e.getMessage();
+            LOGGER.severe(errSerErr);
+        }
+    }
+
+    private void sendStateError(String battleId, SessionOutbox outbox, Throwable e) {
+        String sendErr = "event=battle_state_send_error battleId=" + battleId
+                + " error=" + e.getMessage();
+        LOGGER.severe(sendErr);
+
+        // Send an error message
+        ErrorResponse error = new ErrorResponse("Error retrieving battle state: " + e.getMessage());
+        try {
+            String jsonError = objectMapper.writeValueAsString(error);
+            outbox.offer(jsonError, SessionOutbox.FrameType.EVENT);
+        } catch (JsonProcessingException jsonException) {
+            String sendErr2 = "event=error_send_error battleId=" + battleId
+                    + " error=" + jsonException.getMessage();
+            LOGGER.severe(sendErr2);
+        }
     }
 
     /**
@@ -191,10 +582,24 @@ public class BattleStateSocket {
      * @param battleId The battle ID
      */
     public void broadcastBattleState(String battleId) {
-        Map<String, Session> battleSessions = sessionsByBattleId.get(battleId);
+        Map<String, SessionOutbox> battleSessions = sessionsByBattleId.get(battleId);
         if (battleSessions != null && !battleSessions.isEmpty()) {
-            for (Session session : battleSessions.values()) {
-                sendBattleState(battleId, session);
+            sendBattleState(battleId, battleSessions.values());
+        }
+
+        BattleStateDeltas deltas = deltasByBattleId.get(battleId);
+        BinaryBattleState binary = binaryByBattleId.get(battleId);
+        if ((deltas != null || binary != null) && battleService.isValidBattleId(battleId)) {
+            try {
+                Battle battle = battleService.getBattleStatus(battleId);
+                if (deltas != null) {
+                    deltas.broadcast(battle);
+                }
+                if (binary != null) {
+                    binary.broadcast(battle);
+                }
+            } catch (Exception e) {
+                LOGGER.severe("event=battle_stream_send_error battleId=" + battleId + " error=" + e.getMessage());
             }
         }
     }
@@ -206,17 +611,42 @@ public class BattleStateSocket {
      * @param response The laser response
      */
     public void broadcastLaserEvent(String battleId, LaserResponse response) {
-        Map<String, Session> battleSessions = sessionsByBattleId.get(battleId);
-        if (battleSessions != null && !battleSessions.isEmpty()) {
-            for (Session session : battleSessions.values()) {
-                try {
-                    String jsonResponse = objectMapper.writeValueAsString(response);
-                    session.getAsyncRemote().sendText(jsonResponse);
-                } catch (JsonProcessingException e) {
-                    LOGGER.severe("Error serializing laser event to JSON: " + e.getMessage());
-                }
+        Map<String, SessionOutbox> battleSessions = sessionsByBattleId.get(battleId);
+        BattleStateDeltas deltas = deltasByBattleId.get(battleId);
+        BinaryBattleState binary = binaryByBattleId.get(battleId);
+        if ((battleSessions == null || battleSessions.isEmpty()) && deltas == null && binary == null) {
+            return;
+        }
+
+        String jsonResponse = encoder.encode(battleId, "laser", response);
+        if (jsonResponse == null) {
+            return;
+        }
+        if (battleSessions != null) {
+            for (SessionOutbox outbox : battleSessions.values()) {
+                outbox.offer(jsonResponse, SessionOutbox.FrameType.EVENT);
             }
         }
+        // Laser events are not part of the battle state, so delta and binary sessions get them as JSON
+        if (deltas != null) {
+            deltas.sendEvent(jsonResponse);
+        }
+        if (binary != null) {
+            binary.sendEvent(jsonResponse);
+        }
+    }
+
+    /**
+     * Outbox metrics of a battle, with the number of open sessions using them.
+     * Only changed inside a compute of {@code outboxStatsByBattleId}.
+     */
+    private static final class BattleOutboxStats {
+        private final SessionOutbox.Stats stats;
+        private int sessions;
+
+        BattleOutboxStats(SessionOutbox.Stats stats) {
+            this.stats = stats;
+        }
     }
 
     /**
@@ -226,19 +656,54 @@ public class BattleStateSocket {
     public static class BattleStateResponse {
         private String battleId;
         private String battleName;
-        private int arenaWidth;
-        private int arenaHeight;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Integer arenaWidth;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Integer arenaHeight;
         private double robotMovementTimeSeconds;
         private String battleState;
         private java.util.List<Robot> robots;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         private java.util.List<Wall> walls;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String arenaHash;
         private String winnerId;
         private String winnerName;
         private java.util.List<za.co.sww.rwars.backend.model.RobotAction> robotActions;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String type;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Long seq;
 
         public BattleStateResponse() {
         }
 
+        /**
+         * Gets the message type, "snapshot" in delta mode and absent otherwise.
+         *
+         * @return The message type
+         */
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        /**
+         * Gets the delta stream sequence number the snapshot is at, absent outside delta mode.
+         *
+         * @return The sequence number
+         */
+        public Long getSeq() {
+            return seq;
+        }
+
+        public void setSeq(Long seq) {
+            this.seq = seq;
+        }
+
         public String getBattleId() {
             return battleId;
         }
@@ -255,22 +720,45 @@ public class BattleStateSocket {
             this.battleName = battleName;
         }
 
-        public int getArenaWidth() {
+        /**
+         * Gets the arena width, absent for split arena clients, which get it in the arena message.
+         *
+         * @return The arena width
+         */
+        public Integer getArenaWidth() {
             return arenaWidth;
         }
 
-        public void setArenaWidth(int arenaWidth) {
+        public void setArenaWidth(Integer arenaWidth) {
             this.arenaWidth = arenaWidth;
         }
 
-        public int getArenaHeight() {
+        /**
+         * Gets the arena height, absent for split arena clients, which get it in the arena message.
+         *
+         * @return The arena height
+         */
+        public Integer getArenaHeight() {
             return arenaHeight;
         }
 
-        public void setArenaHeight(int arenaHeight) {
+        public void setArenaHeight(Integer arenaHeight) {
             this.arenaHeight = arenaHeight;
         }
 
+        /**
+         * Gets the content hash of the arena, only present for split arena clients.
+         *
+         * @return The arena hash
+         */
+        public String getArenaHash() {
+            return arenaHash;
+        }
+
+        public void setArenaHash(String arenaHash) {
+            this.arenaHash = arenaHash;
+        }
+
         public double getRobotMovementTimeSeconds() {
             return robotMovementTimeSeconds;
         }
@@ -0,0 +1,319 @@
+package za.co.sww.rwars.backend.websocket;
+
+import jakarta.websocket.Session;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.RobotAction;
+import za.co.sww.rwars.backend.model.Wall;
+
+/**
+ * The binary battle state stream of one battle, for sessions that negotiated the {@value #SUBPROTOCOL}
+ * subprotocol.
+ *
+ * Everything a spectator sees more than once is sent in a dictionary frame: the battle's name and arena, its
+ * walls, the names of the enum and action codes, and one slot per robot with its ID and name. State frames then
+ * refer to robots by slot and to states, directions, statuses and actions by code, in a fixed layout. Slots and
+ * action codes are only ever added, so a code keeps its meaning for the life of the stream; whenever something in
+ * the dictionary changes a new dictionary with the next version is sent ahead of the state frame that needs it.
+ *
+ * All numbers are big-endian. A string is an unsigned 16-bit byte length followed by UTF-8 bytes, with length
+ * 0xFFFF for null. An enum code is its position in the matching code table, 0xFF for null.
+ *
+ * <pre>
+ * dictionary: u8 1, u32 version, str battleId, str battleName, u16 arenaWidth, u16 arenaHeight,
+ *             f64 robotMovementTimeSeconds,
+ *             u8 n + n str battle states, u8 n + n str directions, u8 n + n str robot statuses,
+ *             u8 n + n str wall types, u16 n + n str actions,
+ *             u16 n + n (str robotId, str robotName) indexed by slot,
+ *             u16 n + n (u8 wallType, u16 m + m (u16 x, u16 y, u16 width, u16 height))
+ * state:      u8 2, u32 dictionary version, u8 battleState, u16 winner slot (0xFFFF for none),
+ *             u16 n + n (u16 slot, u16 x, u16 y, u8 direction, u8 status, u16 targetBlocks,
+ *                        u16 blocksRemaining, i16 hitPoints, u16 maxHitPoints, u8 active),
+ *             u32 n, u64 seq of the first action, n (u16 slot, u16 action, i64 timestamp)
+ * </pre>
+ *
+ * The actions are the battle's most recent ones, as in the JSON form, and have consecutive sequence numbers.
+ * An action timestamp is the server's local date and time in milliseconds since 1970-01-01T00:00, the same clock
+ * reading the JSON form shows. Laser events and errors are sent to binary sessions as JSON text frames.
+ */
+final class BinaryBattleState {
+
+    static final String SUBPROTOCOL = "rwars.battle-state.v1";
+
+    static final int DICTIONARY = 1;
+    static final int STATE = 2;
+
+    private static final int NONE = 0xFFFF;
+    private static final int NO_CODE = 0xFF;
+
+    private final String battleId;
+    private final FrameEncoder encoder;
+    private final Map<String, SessionOutbox> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> slotsByRobotId = new HashMap<>();
+    private final List<String> robotIds = new ArrayList<>();
+    private final List<String> robotNames = new ArrayList<>();
+    private final Map<String, Integer> actionCodes = new HashMap<>();
+    private final List<String> actionNames = new ArrayList<>();
+    private List<Wall> walls = List.of();
+    private int wallsVersion = -1;
+    private String battleName;
+    private int arenaWidth;
+    private int arenaHeight;
+    private double robotMovementTimeSeconds;
+    private int version;
+    private byte[] dictionary;
+
+    /**
+     * Creates the binary stream of a battle.
+     *
+     * @param battleId The battle ID
+     * @param encoder The encoder whose metrics the frames are recorded in
+     */
+    BinaryBattleState(String battleId, FrameEncoder encoder) {
+        this.battleId = battleId;
+        this.encoder = encoder;
+    }
+
+    /**
+     * Adds a session to the stream and sends it the dictionary and the current state.
+     *
+     * @param outbox The outbox of the session
+     * @param battle The battle
+     */
+    synchronized void subscribe(SessionOutbox outbox, Battle battle) {
+        sessions.put(outbox.session().getId(), outbox);
+        if (updateDictionary(battle)) {
+            sendDictionary(sessions.values());
+        } else {
+            sendDictionary(List.of(outbox));
+        }
+        outbox.offer(state(battle), SessionOutbox.FrameType.STATE);
+    }
+
+    /**
+     * Removes a session from the stream.
+     *
+     * @param session The session
+     * @return true if no sessions are left
+     */
+    synchronized boolean unsubscribe(Session session) {
+        sessions.remove(session.getId());
+        return sessions.isEmpty();
+    }
+
+    /**
+     * Sends the current state to every session, preceded by a new dictionary if it changed.
+     *
+     * @param battle The battle
+     */
+    synchronized void broadcast(Battle battle) {
+        if (updateDictionary(battle)) {
+            sendDictionary(sessions.values());
+        }
+        byte[] state = state(battle);
+        for (SessionOutbox outbox : sessions.values()) {
+            outbox.offer(state, SessionOutbox.FrameType.STATE);
+        }
+    }
+
+    /**
+     * Sends an encoded JSON message that is not part of the battle state, such as a laser event, to every session.
+     *
+     * @param event The encoded message
+     */
+    synchronized void sendEvent(String event) {
+        for (SessionOutbox outbox : sessions.values()) {
+            outbox.offer(event, SessionOutbox.FrameType.EVENT);
+        }
+    }
+
+    /**
+     * Sends the dictionary. It must not be lost, so a session too far behind to take it has its queue replaced by
+     * it; the state frame that follows brings the session up to date.
+     */
+    private void sendDictionary(Iterable<SessionOutbox> targets) {
+        for (SessionOutbox outbox : targets) {
+            if (!outbox.offer(dictionary, SessionOutbox.FrameType.STREAM)) {
+                outbox.replaceAll(dictionary);
+            }
+        }
+    }
+
+    /**
+     * Adds new robots and actions to the dictionary and picks up other changes to it.
+     *
+     * @return true if the dictionary changed, in which case it has been encoded under the next version
+     */
+    private boolean updateDictionary(Battle battle) {
+        boolean changed = dictionary == null;
+        for (Robot robot : battle.getRobots()) {
+            changed |= addRobot(robot.getId(), robot.getName());
+        }
+        for (RobotAction action : battle.getRobotActions()) {
+            changed |= addRobot(action.getRobotId(), action.getRobotName());
+            if (action.getAction() != null && !actionCodes.containsKey(action.getAction())) {
+                actionCodes.put(action.getAction(), actionNames.size());
+                actionNames.add(action.getAction());
+                changed = true;
+            }
+        }
+        changed |= addRobot(battle.getWinnerId(), battle.getWinnerName());
+        if (battle.wallsVersion() != wallsVersion || !Objects.equals(battleName, battle.getName())
+                || arenaWidth != battle.getArenaWidth() || arenaHeight != battle.getArenaHeight()
+                || robotMovementTimeSeconds != battle.getRobotMovementTimeSeconds()) {
+            walls = List.copyOf(battle.getWalls());
+            wallsVersion = battle.wallsVersion();
+            battleName = battle.getName();
+            arenaWidth = battle.getArenaWidth();
+            arenaHeight = battle.getArenaHeight();
+            robotMovementTimeSeconds = battle.getRobotMovementTimeSeconds();
+            changed = true;
+        }
+        if (changed) {
+            version++;
+            dictionary = encodeDictionary();
+        }
+        return changed;
+    }
+
+    private boolean addRobot(String robotId, String robotName) {
+        if (robotId == null) {
+            return false;
+        }
+        Integer slot = slotsByRobotId.get(robotId);
+        if (slot == null) {
+            slotsByRobotId.put(robotId, robotIds.size());
+            robotIds.add(robotId);
+            robotNames.add(robotName);
+            return true;
+        }
+        if (robotName != null && !robotName.equals(robotNames.get(slot))) {
+            robotNames.set(slot, robotName);
+            return true;
+        }
+        return false;
+    }
+
+    private byte[] encodeDictionary() {
+        long start = System.nanoTime();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + 64 * robotIds.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(DICTIONARY);
+            out.writeInt(version);
+            writeString(out, battleId);
+            writeString(out, battleName);
+            out.writeShort(arenaWidth);
+            out.writeShort(arenaHeight);
+            out.writeDouble(robotMovementTimeSeconds);
+            writeCodes(out, Battle.BattleState.values());
+            writeCodes(out, Robot.Direction.values());
+            writeCodes(out, Robot.RobotStatus.values());
+            writeCodes(out, Wall.WallType.values());
+            out.writeShort(actionNames.size());
+            for (String action : actionNames) {
+                writeString(out, action);
+            }
+            out.writeShort(robotIds.size());
+            for (int slot = 0; slot < robotIds.size(); slot++) {
+                writeString(out, robotIds.get(slot));
+                writeString(out, robotNames.get(slot));
+            }
+            out.writeShort(walls.size());
+            for (Wall wall : walls) {
+                out.writeByte(code(wall.getType()));
+                List<Wall.Rectangle> rectangles = wall.getRectangles();
+                out.writeShort(rectangles.size());
+                for (Wall.Rectangle rectangle : rectangles) {
+                    out.writeShort(rectangle.getX());
+                    out.writeShort(rectangle.getY());
+                    out.writeShort(rectangle.getWidth());
+                    out.writeShort(rectangle.getHeight());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] frame = bytes.toByteArray();
+        encoder.record("dictionary", start, frame.length);
+        return frame;
+    }
+
+    private byte[] state(Battle battle) {
+        long start = System.nanoTime();
+        List<Robot> robots = battle.getRobots();
+        List<RobotAction> actions = battle.getRobotActions();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(24 + 18 * robots.size() + 12 * actions.size());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(STATE);
+            out.writeInt(version);
+            out.writeByte(code(battle.getState()));
+            out.writeShort(slotOf(battle.getWinnerId()));
+            out.writeShort(robots.size());
+            for (Robot robot : robots) {
+                out.writeShort(slotOf(robot.getId()));
+                out.writeShort(robot.getPositionX());
+                out.writeShort(robot.getPositionY());
+                out.writeByte(code(robot.getDirection()));
+                out.writeByte(code(robot.getStatus()));
+                out.writeShort(robot.getTargetBlocks());
+                out.writeShort(robot.getBlocksRemaining());
+                out.writeShort(robot.getHitPoints());
+                out.writeShort(robot.getMaxHitPoints());
+                out.writeBoolean(robot.isActive());
+            }
+            out.writeInt(actions.size());
+            out.writeLong(actions.isEmpty() ? 0L : actions.get(0).getSeq());
+            for (RobotAction action : actions) {
+                out.writeShort(slotOf(action.getRobotId()));
+                Integer actionCode = action.getAction() == null ? null : actionCodes.get(action.getAction());
+                out.writeShort(actionCode == null ? NONE : actionCode);
+                LocalDateTime timestamp = action.getTimestamp();
+                out.writeLong(timestamp == null ? 0L : timestamp.toInstant(ZoneOffset.UTC).toEpochMilli());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] frame = bytes.toByteArray();
+        encoder.record("state-binary", start, frame.length);
+        return frame;
+    }
+
+    private int slotOf(String robotId) {
+        Integer slot = robotId == null ? null : slotsByRobotId.get(robotId);
+        return slot == null ? NONE : slot;
+    }
+
+    private static int code(Enum<?> value) {
+        return value == null ? NO_CODE : value.ordinal();
+    }
+
+    private static void writeCodes(DataOutputStream out, Enum<?>[] values) throws IOException {
+        out.writeByte(values.length);
+        for (Enum<?> value : values) {
+            writeString(out, value.name());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(NONE);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+}
@@ -0,0 +1,107 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Encodes broadcast messages once so that the same payload can be written to every session.
+ *
+ * Each encoding is measured by message kind: {@code battle.broadcast.bytes} records the payload size in bytes
+ * and {@code battle.broadcast.encode} the time spent serializing it. Messages are serialized straight to the text
+ * that is sent, and the size is counted from that text without encoding it again.
+ */
+final class FrameEncoder {
+
+    private static final Logger LOGGER = Logger.getLogger(FrameEncoder.class.getName());
+
+    private final ObjectMapper mapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Meters> metersByKind = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an encoder.
+     *
+     * @param mapper The mapper messages are written with
+     * @param meterRegistry The registry the metrics are kept in
+     */
+    FrameEncoder(ObjectMapper mapper, MeterRegistry meterRegistry) {
+        this.mapper = mapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Encodes a message.
+     *
+     * @param battleId The battle ID, used for logging
+     * @param kind The message kind the metrics are tagged with
+     * @param message The message
+     * @return The encoded message, or null if it could not be serialized
+     */
+    String encode(String battleId, String kind, Object message) {
+        long start = System.nanoTime();
+        String text;
+        try {
+            text = mapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            LOGGER.severe("event=broadcast_serialize_error battleId=" + battleId + " kind=" + kind
+                    + " error=" + e.getMessage());
+            return null;
+        }
+        long encodeNanos = System.nanoTime() - start;
+        recordEncoding(kind, encodeNanos, utf8Length(text));
+        return text;
+    }
+
+    /**
+     * Records the metrics of a payload encoded elsewhere, such as a binary frame.
+     *
+     * @param kind The message kind the metrics are tagged with
+     * @param startNanos When encoding started, from {@link System#nanoTime()}
+     * @param bytes The payload size in bytes
+     */
+    void record(String kind, long startNanos, int bytes) {
+        recordEncoding(kind, System.nanoTime() - startNanos, bytes);
+    }
+
+    private void recordEncoding(String kind, long encodeNanos, long bytes) {
+        Meters meters = metersByKind.computeIfAbsent(kind, this::meters);
+        meters.encodeTime().record(encodeNanos, TimeUnit.NANOSECONDS);
+        meters.bytes().record(bytes);
+    }
+
+    /**
+     * Counts the bytes a text takes in UTF-8 without encoding it.
+     *
+     * @param text The text
+     * @return The UTF-8 length in bytes
+     */
+    static long utf8Length(CharSequence text) {
+        int length = text.length();
+        long bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x800) {
+                // Three bytes, or four for a surrogate pair, which is two chars
+                bytes += Character.isSurrogate(c) ? 1 : 2;
+            } else if (c >= 0x80) {
+                bytes++;
+            }
+        }
+        return bytes;
+    }
+
+    private Meters meters(String kind) {
+        return new Meters(meterRegistry.summary("battle.broadcast.bytes", "kind", kind),
+                meterRegistry.timer("battle.broadcast.encode", "kind", kind));
+    }
+
+    private record Meters(DistributionSummary bytes, Timer encodeTime) {
+    }
+}
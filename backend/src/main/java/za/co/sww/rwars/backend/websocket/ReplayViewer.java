@@ -0,0 +1,211 @@
+package za.co.sww.rwars.backend.websocket;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.replay.ReplayCursor;
+
+/**
+ * Plays a battle replay to one WebSocket session.
+ *
+ * Each frame moves the viewer's cursor on by a fixed step of battle time and sends the battle state at the new
+ * position. At 1x and 4x frames are sent on a schedule that keeps battle time running at that multiple of real
+ * time; at max speed the next frame is sent when the session's outbox reports it has sent the previous one, so
+ * playback runs as fast as the client can keep up without anything being dropped or polled.
+ */
+final class ReplayViewer {
+
+    private static final Logger LOGGER = Logger.getLogger(ReplayViewer.class.getName());
+
+    static final String REPLAY = "replay";
+
+    /**
+     * Playback speeds.
+     */
+    enum Speed {
+        NORMAL("1x", 1),
+        FAST("4x", 4),
+        MAX("max", 0);
+
+        private final String label;
+        private final int factor;
+
+        Speed(String label, int factor) {
+            this.label = label;
+            this.factor = factor;
+        }
+
+        /**
+         * Parses a speed such as "1", "4x" or "max".
+         *
+         * @param speed The speed
+         * @return The speed
+         * @throws IllegalArgumentException if the speed is not one of 1x, 4x and max
+         */
+        static Speed parse(String speed) {
+            String normalized = speed.trim().toLowerCase(Locale.ROOT);
+            for (Speed candidate : values()) {
+                if (candidate.label.equals(normalized) || candidate.label.equals(normalized + "x")) {
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("Invalid replay speed: " + speed + " (expected 1x, 4x or max)");
+        }
+    }
+
+    private final SessionOutbox outbox;
+    private final ReplayCursor cursor;
+    private final FrameEncoder encoder;
+    private final ScheduledExecutorService scheduler;
+    private final long frameMillis;
+    private Speed speed;
+    private boolean playing;
+    private boolean closed;
+    private ScheduledFuture<?> nextFrame;
+
+    /**
+     * Creates a viewer, paused at the start of the replay.
+     *
+     * @param outbox The session's outbox
+     * @param cursor The viewer's own cursor
+     * @param encoder The frame encoder
+     * @param scheduler The scheduler frames are sent on
+     * @param frameMillis The battle time each frame moves on by
+     * @param speed The playback speed
+     */
+    ReplayViewer(SessionOutbox outbox, ReplayCursor cursor, FrameEncoder encoder, ScheduledExecutorService scheduler,
+                 long frameMillis, Speed speed) {
+        this.outbox = outbox;
+        this.cursor = cursor;
+        this.encoder = encoder;
+        this.scheduler = scheduler;
+        this.frameMillis = Math.max(1, frameMillis);
+        this.speed = speed;
+        outbox.onIdle(this::outboxIdle);
+    }
+
+    /**
+     * Moves to a time, sends the battle as it was then and carries on playing from there.
+     *
+     * @param offsetMillis The time in milliseconds from the start of the battle
+     */
+    synchronized void seek(long offsetMillis) {
+        cursor.seek(offsetMillis);
+        sendFrame();
+        if (playing) {
+            schedule(0);
+        }
+    }
+
+    synchronized void play() {
+        playing = true;
+        schedule(0);
+    }
+
+    synchronized void pause() {
+        playing = false;
+        cancel();
+        sendFrame();
+    }
+
+    synchronized void speed(Speed newSpeed) {
+        speed = newSpeed;
+        if (playing) {
+            schedule(0);
+        }
+    }
+
+    synchronized void close() {
+        closed = true;
+        playing = false;
+        cancel();
+    }
+
+    private synchronized void nextFrame() {
+        nextFrame = null;
+        if (closed || !playing) {
+            return;
+        }
+        if (speed == Speed.MAX && !outbox.isIdle()) {
+            // Wait for the client rather than replace a frame it has not taken yet; outboxIdle carries on
+            return;
+        }
+        try {
+            cursor.advance(frameMillis);
+        } catch (RuntimeException e) {
+            LOGGER.severe("event=replay_error battleId=" + cursor.replay().battleId() + " error=" + e.getMessage());
+            playing = false;
+            return;
+        }
+        if (cursor.positionMillis() >= cursor.replay().durationMillis()) {
+            playing = false;
+        }
+        sendFrame();
+        if (playing && speed != Speed.MAX) {
+            schedule(frameMillis / speed.factor);
+        }
+    }
+
+    /**
+     * Called by the outbox with its lock held once every frame has been sent, so the next frame at max speed is
+     * sent from the scheduler.
+     */
+    private void outboxIdle() {
+        try {
+            scheduler.execute(this::frameTaken);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private synchronized void frameTaken() {
+        if (speed == Speed.MAX && nextFrame == null) {
+            nextFrame();
+        }
+    }
+
+    private void schedule(long delayMillis) {
+        cancel();
+        if (!closed) {
+            nextFrame = scheduler.schedule(this::nextFrame, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancel() {
+        if (nextFrame != null) {
+            nextFrame.cancel(false);
+            nextFrame = null;
+        }
+    }
+
+    private void sendFrame() {
+        Battle battle = cursor.battle();
+        String battleId = cursor.replay().battleId();
+        String json = encoder.encode(battleId, REPLAY, new ReplayFrame(REPLAY, battleId, cursor.positionMillis(),
+                cursor.replay().durationMillis(), speed.label, playing, BattleStateSocket.stateOf(battle)));
+        if (json != null) {
+            outbox.offer(json, SessionOutbox.FrameType.STATE);
+        }
+    }
+
+    /**
+     * A replay frame.
+     *
+     * @param type Always "replay"
+     * @param battleId The battle ID
+     * @param positionMillis The time of the frame in milliseconds from the start of the battle
+     * @param durationMillis The length of the replay in milliseconds
+     * @param speed The playback speed, 1x, 4x or max
+     * @param playing Whether playback carries on after this frame; false once paused or at the end
+     * @param state The battle state at that time
+     */
+    @RegisterForReflection
+    public record ReplayFrame(String type, String battleId, long positionMillis, long durationMillis, String speed,
+                              boolean playing, BattleStateSocket.BattleStateResponse state) {
+    }
+}
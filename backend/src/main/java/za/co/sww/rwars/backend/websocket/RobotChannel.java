@@ -0,0 +1,118 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import java.util.List;
+import java.util.logging.Logger;
+import za.co.sww.rwars.backend.model.RobotCommandResult;
+import za.co.sww.rwars.backend.model.RobotStatus;
+
+/**
+ * One open robot channel: the frames sent to a robot, in order.
+ *
+ * Every outbound frame gets the next sequence number of the channel as it is queued to the session's bounded
+ * {@link SessionOutbox}, which sends one frame at a time, so the robot sees frames in exactly the order they were
+ * queued. Status frames are queued from the battle's mailbox, which makes them ordered with the command results
+ * queued there. A robot frame is never dropped, as that would leave a gap in the sequence numbers: a robot that
+ * falls so far behind that its outbox is full is disconnected instead.
+ */
+final class RobotChannel {
+
+    private static final Logger LOGGER = Logger.getLogger(RobotChannel.class.getName());
+
+    private final String battleId;
+    private final String robotId;
+    private final SessionOutbox outbox;
+    private final ObjectMapper mapper;
+    private long sequence;
+    private int lastHitPoints = -1;
+
+    /**
+     * Creates a channel for a robot's session.
+     *
+     * @param battleId The battle ID
+     * @param robotId The robot ID
+     * @param outbox The outbox of the robot's WebSocket session
+     * @param mapper The mapper frames are written with
+     */
+    RobotChannel(String battleId, String robotId, SessionOutbox outbox, ObjectMapper mapper) {
+        this.battleId = battleId;
+        this.robotId = robotId;
+        this.outbox = outbox;
+        this.mapper = mapper;
+    }
+
+    Session session() {
+        return outbox.session();
+    }
+
+    /**
+     * Queues the results of a command frame.
+     *
+     * @param id The client's frame ID, or null
+     * @param results The command results
+     */
+    synchronized void sendResults(Long id, List<RobotCommandResult> results) {
+        for (RobotCommandResult result : results) {
+            if (result.getStatus() != null) {
+                lastHitPoints = result.getStatus().getHitPoints();
+            }
+        }
+        queue(new RobotChannelSocket.ResultFrame(RobotChannelSocket.ResultFrame.KIND, ++sequence, id, results));
+    }
+
+    /**
+     * Queues a status change of the robot, with the damage taken since the last status the robot saw.
+     *
+     * @param status The robot's new status
+     */
+    synchronized void sendStatus(RobotStatus status) {
+        Integer damage = lastHitPoints > status.getHitPoints() ? lastHitPoints - status.getHitPoints() : null;
+        lastHitPoints = status.getHitPoints();
+        queue(new RobotChannelSocket.StatusFrame(RobotChannelSocket.StatusFrame.KIND, ++sequence, status, damage));
+    }
+
+    /**
+     * Queues an error for a command frame.
+     *
+     * @param id The client's frame ID, or null
+     * @param status The HTTP status code matching the error
+     * @param message The error message
+     */
+    synchronized void sendError(Long id, int status, String message) {
+        queue(new RobotChannelSocket.ErrorFrame(RobotChannelSocket.ErrorFrame.KIND, ++sequence, id, status,
+                message));
+    }
+
+    /**
+     * Closes the session once every frame queued so far has been sent.
+     *
+     * @param reason The close reason
+     */
+    void closeAfterSending(CloseReason reason) {
+        outbox.closeAfterSending(reason);
+    }
+
+    /**
+     * Drops everything waiting once the session has closed.
+     */
+    void close() {
+        outbox.close();
+    }
+
+    private void queue(Object frame) {
+        String text;
+        try {
+            text = mapper.writeValueAsString(frame);
+        } catch (JsonProcessingException e) {
+            LOGGER.severe("event=robot_channel_serialize_error battleId=" + battleId + " robotId=" + robotId
+                    + " error=" + e.getMessage());
+            return;
+        }
+        if (!outbox.offer(text, SessionOutbox.FrameType.STREAM)) {
+            outbox.disconnect();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.OnClose;
+import jakarta.websocket.OnError;
+import jakarta.websocket.OnMessage;
+import jakarta.websocket.OnOpen;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.PathParam;
+import jakarta.websocket.server.ServerEndpoint;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.RobotCommand;
+import za.co.sww.rwars.backend.model.RobotCommandResult;
+import za.co.sww.rwars.backend.model.RobotStatus;
+import za.co.sww.rwars.backend.service.BattleService;
+
+/**
+ * A WebSocket endpoint a robot uses to send commands and receive its own status over one connection.
+ *
+ * A client frame holds either one command ({@code {"id":1,"type":"MOVE","direction":"NORTH","blocks":3}}) or a
+ * batch ({@code {"id":2,"commands":[...]}}); it runs exactly like the REST command batch and is answered with a
+ * {@code result} frame carrying the same ID, or an {@code error} frame with the HTTP status the REST endpoint would
+ * have returned. Whenever the robot's status or hit points change the robot is sent a {@code status} frame, which
+ * also reports the damage taken. Every server frame has a per-channel sequence number, and frames are sent in the
+ * order they happened in the battle. On connect the robot is sent its current status as a result frame. Frames go
+ * out through a bounded {@link SessionOutbox}, and a robot that stops reading is disconnected.
+ */
+@ServerEndpoint("/robot-channel/{battleId}/{robotId}")
+@ApplicationScoped
+public class RobotChannelSocket {
+
+    private static final Logger LOGGER = Logger.getLogger(RobotChannelSocket.class.getName());
+
+    private static final List<RobotCommand> STATUS_COMMAND =
+            List.of(new RobotCommand(RobotCommand.Type.STATUS, null, null, null));
+
+    @Inject
+    private BattleService battleService;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "battle.robot-channel.max-queued-frames", defaultValue = "64")
+    private int maxQueuedFrames;
+
+    @ConfigProperty(name = "battle.websocket.stuck-timeout-seconds", defaultValue = "10")
+    private int stuckTimeoutSeconds;
+
+    /**
+     * Mapper for channel frames, which leaves out null fields to keep frames small.
+     */
+    private ObjectMapper frameMapper;
+
+    private SessionOutbox.Stats outboxStats;
+
+    // Open channels by robot ID, then by session ID
+    private final Map<String, Map<String, RobotChannel>> channelsByRobotId = new ConcurrentHashMap<>();
+
+    public RobotChannelSocket() {
+    }
+
+    /**
+     * Creates a socket outside the container, for tests.
+     *
+     * @param battleService The service commands are run on
+     * @param objectMapper The mapper frames are read and written with
+     * @param meterRegistry The registry the outbox metrics are kept in
+     * @param maxQueuedFrames The most frames waiting per channel
+     * @param stuckTimeoutSeconds How long a frame may be in flight before the robot is disconnected
+     */
+    RobotChannelSocket(BattleService battleService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                       int maxQueuedFrames, int stuckTimeoutSeconds) {
+        this.battleService = battleService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxQueuedFrames = maxQueuedFrames;
+        this.stuckTimeoutSeconds = stuckTimeoutSeconds;
+        init();
+    }
+
+    @PostConstruct
+    void init() {
+        frameMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        // Shared by all channels, so the number of meters does not grow with the number of robots
+        outboxStats = new SessionOutbox.Stats(
+                meterRegistry.gauge("robot.channel.queue-depth", new AtomicInteger(), AtomicInteger::get),
+                meterRegistry.counter("robot.channel.dropped-frames"),
+                meterRegistry.counter("robot.channel.slow-disconnects"));
+    }
+
+    /**
+     * Called when a robot opens its channel. The robot is sent its current status, or an error after which the
+     * channel is closed if the robot is not in the battle.
+     *
+     * @param session The WebSocket session
+     * @param battleId The battle ID from the path parameter
+     * @param robotId The robot ID from the path parameter
+     */
+    @OnOpen
+    public void onOpen(Session session, @PathParam("battleId") String battleId,
+                       @PathParam("robotId") String robotId) {
+        SessionOutbox outbox = new SessionOutbox(session, battleId, maxQueuedFrames,
+                TimeUnit.SECONDS.toNanos(stuckTimeoutSeconds), outboxStats);
+        RobotChannel channel = new RobotChannel(battleId, robotId, outbox, frameMapper);
+        // Register before reading the status so that no change after it can be missed
+        channelsByRobotId.computeIfAbsent(robotId, k -> new ConcurrentHashMap<>()).put(session.getId(), channel);
+
+        LOGGER.info("event=robot_channel_open battleId=" + battleId + " robotId=" + robotId
+                + " sessionId=" + session.getId());
+
+        battleService.executeCommandsAsync(battleId, robotId, STATUS_COMMAND,
+                results -> channel.sendResults(null, results))
+                .exceptionally(error -> {
+                    removeChannel(robotId, session);
+                    sendError(channel, null, error);
+                    channel.closeAfterSending(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY,
+                            "Invalid battle ID or robot ID"));
+                    return null;
+                });
+    }
+
+    /**
+     * Called when a robot's channel is closed.
+     *
+     * @param session The WebSocket session
+     * @param battleId The battle ID from the path parameter
+     * @param robotId The robot ID from the path parameter
+     */
+    @OnClose
+    public void onClose(Session session, @PathParam("battleId") String battleId,
+                        @PathParam("robotId") String robotId) {
+        closeChannel(robotId, session);
+        LOGGER.info("event=robot_channel_close battleId=" + battleId + " robotId=" + robotId
+                + " sessionId=" + session.getId());
+    }
+
+    /**
+     * Called when an error occurs on a robot's channel.
+     *
+     * @param session The WebSocket session
+     * @param battleId The battle ID from the path parameter
+     * @param robotId The robot ID from the path parameter
+     * @param throwable The error that occurred
+     */
+    @OnError
+    public void onError(Session session, @PathParam("battleId") String battleId,
+                        @PathParam("robotId") String robotId, Throwable throwable) {
+        closeChannel(robotId, session);
+        LOGGER.severe("event=robot_channel_error battleId=" + battleId + " robotId=" + robotId
+                + " sessionId=" + session.getId() + " error=" + throwable.getMessage());
+    }
+
+    /**
+     * Called when a robot sends a command frame.
+     *
+     * @param message The command frame
+     * @param session The WebSocket session
+     * @param battleId The battle ID from the path parameter
+     * @param robotId The robot ID from the path parameter
+     */
+    @OnMessage
+    public void onMessage(String message, Session session, @PathParam("battleId") String battleId,
+                          @PathParam("robotId") String robotId) {
+        RobotChannel channel = findChannel(robotId, session);
+        if (channel == null) {
+            return;
+        }
+
+        CommandFrame frame;
+        try {
+            frame = frameMapper.readValue(message, CommandFrame.class);
+        } catch (JsonProcessingException e) {
+            channel.sendError(null, 400, "Malformed command frame: " + e.getOriginalMessage());
+            return;
+        }
+
+        battleService.executeCommandsAsync(battleId, robotId, frame.toCommands(),
+                results -> channel.sendResults(frame.id(), results))
+                .exceptionally(error -> {
+                    sendError(channel, frame.id(), error);
+                    return null;
+                });
+    }
+
+    /**
+     * Sends a robot's new status to its open channels.
+     * This is called on the battle's mailbox whenever the robot's status or hit points change.
+     *
+     * @param robot The robot that changed
+     */
+    public void sendRobotStatus(Robot robot) {
+        Map<String, RobotChannel> channels = channelsByRobotId.get(robot.getId());
+        if (channels == null || channels.isEmpty()) {
+            return;
+        }
+        RobotStatus status = new RobotStatus(robot);
+        for (RobotChannel channel : channels.values()) {
+            channel.sendStatus(status);
+        }
+    }
+
+    private RobotChannel findChannel(String robotId, Session session) {
+        Map<String, RobotChannel> channels = channelsByRobotId.get(robotId);
+        return channels == null ? null : channels.get(session.getId());
+    }
+
+    private RobotChannel removeChannel(String robotId, Session session) {
+        Map<String, RobotChannel> channels = channelsByRobotId.get(robotId);
+        if (channels == null) {
+            return null;
+        }
+        RobotChannel channel = channels.remove(session.getId());
+        if (channels.isEmpty()) {
+            channelsByRobotId.remove(robotId);
+        }
+        return channel;
+    }
+
+    private void closeChannel(String robotId, Session session) {
+        RobotChannel channel = removeChannel(robotId, session);
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Sends a failed command frame's error with the status code the REST endpoints use for it.
+     */
+    private static void sendError(RobotChannel channel, Long id, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof IllegalArgumentException) {
+            channel.sendError(id, 400, cause.getMessage());
+        } else if (cause instanceof IllegalStateException) {
+            channel.sendError(id, 409, cause.getMessage());
+        } else {
+            LOGGER.severe("event=robot_channel_command_error sessionId=" + channel.session().getId()
+                    + " error=" + cause.getMessage());
+            channel.sendError(id, 500, "Internal server error");
+        }
+    }
+
+    /**
+     * A command frame sent by a robot: a single command, or a batch in {@code commands}.
+     *
+     * @param id Optional client-chosen ID echoed in the answer
+     * @param type Type of a single command
+     * @param direction Direction of a single MOVE or LASER command
+     * @param blocks Blocks of a single MOVE command
+     * @param range Range of a single RADAR command
+     * @param commands Commands of a batch; when set the single command fields are ignored
+     */
+    @RegisterForReflection
+    public record CommandFrame(Long id, RobotCommand.Type type, String direction, Integer blocks, Integer range,
+                               List<RobotCommand> commands) {
+
+        List<RobotCommand> toCommands() {
+            if (commands != null) {
+                return commands;
+            }
+            return List.of(new RobotCommand(type, direction, blocks, range));
+        }
+    }
+
+    /**
+     * Answer to a command frame.
+     *
+     * @param kind Always "result"
+     * @param seq Sequence number of the frame on its channel
+     * @param id ID of the command frame, if it had one
+     * @param results One result per command, in order
+     */
+    @RegisterForReflection
+    public record ResultFrame(String kind, long seq, Long id, List<RobotCommandResult> results) {
+        static final String KIND = "result";
+    }
+
+    /**
+     * Change of the robot's status or hit points.
+     *
+     * @param kind Always "status"
+     * @param seq Sequence number of the frame on its channel
+     * @param status The robot's status after the change
+     * @param damage Hit points lost since the previous status the robot was sent, if any
+     */
+    @RegisterForReflection
+    public record StatusFrame(String kind, long seq, RobotStatus status, Integer damage) {
+        static final String KIND = "status";
+    }
+
+    /**
+     * Failure of a command frame.
+     *
+     * @param kind Always "error"
+     * @param seq Sequence number of the frame on its channel
+     * @param id ID of the command frame, if it had one
+     * @param status The HTTP status code the REST endpoint would have returned
+     * @param error The error message
+     */
+    @RegisterForReflection
+    public record ErrorFrame(String kind, long seq, Long id, int status, String error) {
+        static final String KIND = "error";
+    }
+}
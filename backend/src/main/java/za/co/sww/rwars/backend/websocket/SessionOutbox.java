@@ -0,0 +1,318 @@
+package za.co.sww.rwars.backend.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Bounded outbound queue of one WebSocket session, a spectator's or a robot's.
+ *
+ * Only one frame per session is handed to the container at a time; the rest wait here, up to a fixed number of
+ * frames. A new full state frame replaces any state frame still waiting, as it makes that one obsolete. When the
+ * queue is full the oldest droppable frame makes room, and a delta stream frame is refused so that the stream can
+ * resend a snapshot instead. A session whose frame has been in flight for longer than the stuck timeout is
+ * disconnected, either when the next frame is offered or by a periodic {@link #disconnectIfStuck()}. A producer
+ * that sets its own pace can ask to be told {@link #onIdle(Runnable) when the last frame has been sent}.
+ */
+final class SessionOutbox {
+
+    private static final Logger LOGGER = Logger.getLogger(SessionOutbox.class.getName());
+
+    /**
+     * How a queued frame may be treated when the session falls behind.
+     */
+    enum FrameType {
+        /** A full battle state, made obsolete by the next one. */
+        STATE,
+        /** A frame of a delta stream, which must not be dropped on its own. */
+        STREAM,
+        /** Anything else, dropped when there is no room. */
+        EVENT
+    }
+
+    private final Session session;
+    private final String battleId;
+    private final int capacity;
+    private final long stuckTimeoutNanos;
+    private final Stats stats;
+    private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+    private boolean sending;
+    private long sendingSinceNanos;
+    private boolean closed;
+    private CloseReason closeReason;
+    private Runnable idleListener;
+
+    /**
+     * Creates the outbox of a session.
+     *
+     * @param session The WebSocket session
+     * @param battleId The battle ID
+     * @param capacity The most frames waiting at once
+     * @param stuckTimeoutNanos How long a frame may be in flight before the session is disconnected
+     * @param stats The metrics of the battle
+     */
+    SessionOutbox(Session session, String battleId, int capacity, long stuckTimeoutNanos, Stats stats) {
+        this.session = session;
+        this.battleId = battleId;
+        this.capacity = Math.max(1, capacity);
+        this.stuckTimeoutNanos = stuckTimeoutNanos;
+        this.stats = stats;
+    }
+
+    Session session() {
+        return session;
+    }
+
+    String battleId() {
+        return battleId;
+    }
+
+    /**
+     * Queues a text frame.
+     *
+     * @param text The encoded frame
+     * @param type How the frame may be treated when the session falls behind
+     * @return false if a stream frame was refused because the queue is full, true otherwise
+     */
+    boolean offer(String text, FrameType type) {
+        return offer(new Frame(text, null, type));
+    }
+
+    /**
+     * Queues a binary frame.
+     *
+     * @param data The encoded frame
+     * @param type How the frame may be treated when the session falls behind
+     * @return false if a stream frame was refused because the queue is full, true otherwise
+     */
+    boolean offer(byte[] data, FrameType type) {
+        return offer(new Frame(null, data, type));
+    }
+
+    private synchronized boolean offer(Frame frame) {
+        if (closed) {
+            return true;
+        }
+        if (isStuck()) {
+            disconnect();
+            return true;
+        }
+        if (frame.type() == FrameType.STATE) {
+            dropQueued(FrameType.STATE);
+        }
+        if (queue.size() >= capacity) {
+            if (frame.type() == FrameType.STREAM) {
+                return false;
+            }
+            if (!dropOldestDroppable()) {
+                stats.dropped().increment();
+                return true;
+            }
+        }
+        add(frame);
+        return true;
+    }
+
+    /**
+     * Drops everything waiting and queues a single text frame in its place, used to resend a snapshot.
+     *
+     * @param text The encoded frame
+     */
+    void replaceAll(String text) {
+        replaceAll(new Frame(text, null, FrameType.STREAM));
+    }
+
+    /**
+     * Drops everything waiting and queues a single binary frame in its place.
+     *
+     * @param data The encoded frame
+     */
+    void replaceAll(byte[] data) {
+        replaceAll(new Frame(null, data, FrameType.STREAM));
+    }
+
+    private synchronized void replaceAll(Frame frame) {
+        if (closed) {
+            return;
+        }
+        stats.dropped().increment(queue.size());
+        stats.depth().addAndGet(-queue.size());
+        queue.clear();
+        add(frame);
+    }
+
+    /**
+     * Tells whether every frame offered has been sent, so a producer that sets its own pace can send the next one.
+     *
+     * @return true if no frame is waiting or in flight
+     */
+    synchronized boolean isIdle() {
+        return !sending && queue.isEmpty();
+    }
+
+    /**
+     * Sets a listener called whenever a send completes and leaves nothing waiting or in flight. The listener is
+     * called on the container's thread with the outbox locked, so it must only hand the work on.
+     *
+     * @param listener The listener
+     */
+    synchronized void onIdle(Runnable listener) {
+        idleListener = listener;
+    }
+
+    /**
+     * Closes the session once every frame queued so far has been sent.
+     *
+     * @param reason The close reason
+     */
+    synchronized void closeAfterSending(CloseReason reason) {
+        if (closed) {
+            return;
+        }
+        closeReason = reason;
+        if (!sending && queue.isEmpty()) {
+            closeSession();
+        }
+    }
+
+    /**
+     * Disconnects the session if its frame in flight has been stuck for longer than the stuck timeout, so that a
+     * session is not left hanging when no further frame is offered to it.
+     *
+     * @return true if the session was disconnected
+     */
+    synchronized boolean disconnectIfStuck() {
+        if (closed || !isStuck()) {
+            return false;
+        }
+        disconnect();
+        return true;
+    }
+
+    /**
+     * Drops everything waiting once the session has closed.
+     */
+    synchronized void close() {
+        closed = true;
+        stats.depth().addAndGet(-queue.size());
+        queue.clear();
+    }
+
+    private boolean isStuck() {
+        return sending && System.nanoTime() - sendingSinceNanos > stuckTimeoutNanos;
+    }
+
+    private void add(Frame frame) {
+        queue.add(frame);
+        stats.depth().incrementAndGet();
+        if (!sending) {
+            sendNext();
+        }
+    }
+
+    private void sendNext() {
+        Frame frame = queue.poll();
+        if (frame == null) {
+            return;
+        }
+        stats.depth().decrementAndGet();
+        sending = true;
+        sendingSinceNanos = System.nanoTime();
+        try {
+            if (frame.data() != null) {
+                session.getAsyncRemote().sendBinary(ByteBuffer.wrap(frame.data()), this::sent);
+            } else {
+                session.getAsyncRemote().sendText(frame.text(), this::sent);
+            }
+        } catch (RuntimeException e) {
+            sending = false;
+            LOGGER.warning("event=ws_send_error battleId=" + battleId + " sessionId=" + session.getId()
+                    + " error=" + e.getMessage());
+        }
+    }
+
+    private synchronized void sent(SendResult result) {
+        sending = false;
+        if (!result.isOK()) {
+            String error = result.getException() == null ? "unknown" : result.getException().getMessage();
+            LOGGER.warning("event=ws_send_error battleId=" + battleId + " sessionId=" + session.getId()
+                    + " error=" + error);
+        }
+        if (!closed) {
+            sendNext();
+            if (!sending && closeReason != null) {
+                closeSession();
+            } else if (!sending && idleListener != null) {
+                idleListener.run();
+            }
+        }
+    }
+
+    private void dropQueued(FrameType type) {
+        for (Iterator<Frame> frames = queue.iterator(); frames.hasNext();) {
+            if (frames.next().type() == type) {
+                frames.remove();
+                stats.depth().decrementAndGet();
+                stats.dropped().increment();
+            }
+        }
+    }
+
+    private boolean dropOldestDroppable() {
+        for (Iterator<Frame> frames = queue.iterator(); frames.hasNext();) {
+            if (frames.next().type() != FrameType.STREAM) {
+                frames.remove();
+                stats.depth().decrementAndGet();
+                stats.dropped().increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Disconnects the session for being too slow, dropping everything waiting.
+     */
+    synchronized void disconnect() {
+        if (closed) {
+            return;
+        }
+        stats.disconnected().increment();
+        LOGGER.warning("event=ws_slow_consumer_disconnect battleId=" + battleId + " sessionId=" + session.getId());
+        closeReason = new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too slow to keep up");
+        closeSession();
+    }
+
+    private void closeSession() {
+        close();
+        try {
+            session.close(closeReason);
+        } catch (IOException e) {
+            LOGGER.warning("event=ws_close_error battleId=" + battleId + " sessionId=" + session.getId()
+                    + " error=" + e.getMessage());
+        }
+    }
+
+    /**
+     * A queued frame, holding either text or binary data.
+     */
+    private record Frame(String text, byte[] data, FrameType type) {
+    }
+
+    /**
+     * Outbox metrics of one battle, shared by its sessions.
+     *
+     * @param depth Frames waiting in the battle's outboxes
+     * @param dropped Frames dropped or replaced before they were sent
+     * @param disconnected Sessions disconnected for being stuck
+     */
+    record Stats(AtomicInteger depth, Counter dropped, Counter disconnected) {
+    }
+}
@@ -0,0 +1,132 @@
+package za.co.sww.rwars.backend.websocket;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Wall;
+
+/**
+ * The static part of a battle's arena, its dimensions and walls, encoded once with a content hash.
+ *
+ * The hash is taken over the dimensions and the wall types and rectangles, so two arenas with the same layout have
+ * the same hash whatever battle they belong to, and a client can keep an arena it has seen and skip downloading it
+ * again.
+ */
+final class StaticArena {
+
+    static final String ARENA = "arena";
+
+    private final int arenaWidth;
+    private final int arenaHeight;
+    private final int wallsVersion;
+    private final String hash;
+    private final ArenaResponse message;
+    private final String json;
+    private volatile String compactWallJson;
+
+    private StaticArena(int arenaWidth, int arenaHeight, int wallsVersion, String hash, ArenaResponse message,
+                        String json) {
+        this.arenaWidth = arenaWidth;
+        this.arenaHeight = arenaHeight;
+        this.wallsVersion = wallsVersion;
+        this.hash = hash;
+        this.message = message;
+        this.json = json;
+    }
+
+    /**
+     * Encodes the arena of a battle.
+     *
+     * @param battle The battle
+     * @param encoder The encoder the arena message is written with
+     * @return The arena, or null if it could not be serialized
+     */
+    static StaticArena of(Battle battle, FrameEncoder encoder) {
+        List<Wall> walls = List.copyOf(battle.getWalls());
+        String hash = hash(battle.getArenaWidth(), battle.getArenaHeight(), walls);
+        ArenaResponse message = new ArenaResponse(ARENA, battle.getId(), hash, battle.getArenaWidth(),
+                battle.getArenaHeight(), walls);
+        String json = encoder.encode(battle.getId(), ARENA, message);
+        return json == null ? null : new StaticArena(battle.getArenaWidth(), battle.getArenaHeight(),
+                battle.wallsVersion(), hash, message, json);
+    }
+
+    /**
+     * Tells whether this is still the arena of a battle. A wall placed in a battle is immutable (see {@link Wall}),
+     * so the walls are the ones encoded as long as the battle's walls version is.
+     *
+     * @param battle The battle
+     * @return true if the battle's dimensions and walls are the ones encoded
+     */
+    boolean matches(Battle battle) {
+        return battle.getArenaWidth() == arenaWidth && battle.getArenaHeight() == arenaHeight
+                && battle.wallsVersion() == wallsVersion;
+    }
+
+    String hash() {
+        return hash;
+    }
+
+    String json() {
+        return json;
+    }
+
+    /**
+     * Gets the arena message with compact walls, encoding it the first time a client asks for it.
+     *
+     * @param compactWallEncoder The encoder that writes walls as rectangles
+     * @return The encoded message, or null if it could not be serialized
+     */
+    String compactWallJson(FrameEncoder compactWallEncoder) {
+        String compact = compactWallJson;
+        if (compact == null) {
+            compact = compactWallEncoder.encode(message.battleId(), ARENA, message);
+            compactWallJson = compact;
+        }
+        return compact;
+    }
+
+    private static String hash(int arenaWidth, int arenaHeight, List<Wall> walls) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        ByteBuffer numbers = ByteBuffer.allocate(16);
+        digest.update(numbers.putInt(arenaWidth).putInt(arenaHeight).putInt(walls.size()).array(), 0, 12);
+        for (Wall wall : walls) {
+            digest.update(String.valueOf(wall.getType()).getBytes(StandardCharsets.UTF_8));
+            for (Wall.Rectangle rectangle : wall.getRectangles()) {
+                numbers.clear();
+                digest.update(numbers.putInt(rectangle.getX()).putInt(rectangle.getY()).putInt(rectangle.getWidth())
+                        .putInt(rectangle.getHeight()).array());
+            }
+            digest.update((byte) ';');
+        }
+        // 128 bits are plenty to tell arenas apart and keep the hash short in every state message
+        byte[] hash = digest.digest();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+    }
+
+    /**
+     * The arena message.
+     *
+     * @param type Always "arena"
+     * @param battleId The battle ID
+     * @param hash The content hash of the arena
+     * @param arenaWidth The arena width
+     * @param arenaHeight The arena height
+     * @param walls The walls
+     */
+    @RegisterForReflection
+    public record ArenaResponse(String type, String battleId, String hash, int arenaWidth, int arenaHeight,
+                                List<Wall> walls) {
+    }
+}
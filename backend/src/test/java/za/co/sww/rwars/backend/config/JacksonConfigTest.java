@@ -0,0 +1,69 @@
+package za.co.sww.rwars.backend.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.model.Wall;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the wire form of walls.
+ */
+class JacksonConfigTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    JacksonConfigTest() {
+        new JacksonConfig().customize(mapper);
+    }
+
+    @Test
+    void testWallsAreWrittenCellByCellByDefault() throws Exception {
+        JsonNode json = mapper.readTree(mapper.writeValueAsString(uShape()));
+
+        assertEquals("U_SHAPE", json.get("type").asText());
+        assertEquals(6, json.get("positions").size());
+        assertFalse(json.has("rectangles"), "The default payload should not grow");
+    }
+
+    @Test
+    void testCompactWallsAreWrittenAsRectangles() throws Exception {
+        ObjectMapper compact = JacksonConfig.withCompactWalls(mapper);
+        JsonNode json = compact.readTree(compact.writeValueAsString(uShape()));
+
+        assertEquals(3, json.get("rectangles").size());
+        assertEquals(2, json.get("rectangles").get(1).get("width").asInt());
+        assertFalse(json.has("positions"));
+        // The shared mapper is left as it was
+        assertTrue(mapper.readTree(mapper.writeValueAsString(uShape())).has("positions"));
+    }
+
+    @Test
+    void testEitherFormIsReadBack() throws Exception {
+        Wall wall = uShape();
+        String full = mapper.writeValueAsString(wall);
+        String compact = JacksonConfig.withCompactWalls(mapper).writeValueAsString(wall);
+
+        for (String json : List.of(full, compact)) {
+            Wall read = mapper.readValue(json, Wall.class);
+            assertEquals(Wall.WallType.U_SHAPE, read.getType());
+            assertEquals(wall.getPositions().size(), read.getPositions().size());
+            assertTrue(read.containsPosition(2, 6));
+            assertFalse(read.containsPosition(2, 5));
+        }
+        assertEquals(3, mapper.readValue(compact, Wall.class).getRectangles().size());
+    }
+
+    private static Wall uShape() {
+        Wall wall = new Wall(Wall.WallType.U_SHAPE);
+        wall.addRectangle(1, 5, 1, 2);
+        wall.addRectangle(1, 6, 2, 1);
+        wall.addRectangle(3, 5, 1, 2);
+        return wall;
+    }
+}
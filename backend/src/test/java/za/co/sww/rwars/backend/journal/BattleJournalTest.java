@@ -0,0 +1,201 @@
+package za.co.sww.rwars.backend.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.Wall;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for writing battle journals and reading them back.
+ */
+class BattleJournalTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("battle-journal-test").resolve("battle");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        BattleJournal.delete(directory);
+        Files.deleteIfExists(directory.getParent());
+    }
+
+    @Test
+    void testEventsAreReadBackInOrder() throws IOException {
+        Battle battle = new Battle("Journal", 30, 20);
+        battle.setSeed(42);
+        Wall wall = new Wall(Wall.WallType.U_SHAPE);
+        wall.addRectangle(3, 4, 1, 10);
+        wall.addRectangle(4, 4, 3, 1);
+        Robot first = new Robot("First", battle.getId());
+        Robot second = new Robot("Second", battle.getId());
+
+        BattleJournal journal = BattleJournal.open(directory, 1024);
+        journal.append(1000, JournalEvent.BattleCreated.of(battle));
+        journal.append(1001, new JournalEvent.WallsPlaced(List.of(wall)));
+        journal.append(1002, JournalEvent.RobotRegistered.of(first));
+        journal.append(1003, JournalEvent.RobotRegistered.of(second));
+        List<JournalEvent> moves = List.of(
+                new JournalEvent.StateChanged(Battle.BattleState.IN_PROGRESS, null, true, false),
+                new JournalEvent.MoveOrdered(first.getId(), Robot.Direction.NE, 3),
+                new JournalEvent.BlockStepped(first.getId(), 5, 6, 2),
+                new JournalEvent.RadarScanned(second.getId(), 5),
+                new JournalEvent.LaserFired(second.getId(), Robot.Direction.SW, 5, first.getId(), 20),
+                new JournalEvent.StatusChanged(first.getId(), Robot.RobotStatus.DESTROYED, 0),
+                new JournalEvent.StateChanged(Battle.BattleState.COMPLETED, second.getId(), true, false));
+        for (JournalEvent event : moves) {
+            journal.append(2000, event);
+        }
+        journal.close();
+
+        List<JournalRecord> records = JournalReader.read(directory);
+        assertEquals(11, records.size());
+        assertEquals(1000, records.get(0).timeMillis());
+        assertEquals(JournalEvent.BattleCreated.of(battle), records.get(0).event());
+        List<Wall> walls = ((JournalEvent.WallsPlaced) records.get(1).event()).walls();
+        assertEquals(Wall.WallType.U_SHAPE, walls.get(0).getType());
+        assertEquals(wall.getPositions().size(), walls.get(0).getPositions().size());
+        assertTrue(walls.get(0).containsPosition(6, 4));
+        assertEquals(JournalEvent.RobotRegistered.of(second), records.get(3).event());
+        assertEquals(moves, records.subList(4, 11).stream().map(JournalRecord::event).toList());
+    }
+
+    @Test
+    void testReadingStopsAtATornTail() throws IOException {
+        BattleJournal journal = BattleJournal.open(directory, 1024);
+        Robot robot = new Robot("Torn", "battle");
+        journal.append(1, JournalEvent.RobotRegistered.of(robot));
+        journal.append(2, new JournalEvent.RadarScanned(robot.getId(), 3));
+        journal.append(3, new JournalEvent.RadarScanned(robot.getId(), 4));
+        journal.close();
+
+        // Corrupt the checksum of the last record, as if the crash came before it was completely written
+        Path segment = BattleJournal.segmentFiles(directory).get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1]++;
+        Files.write(segment, bytes);
+
+        List<JournalRecord> records = JournalReader.read(directory);
+        assertEquals(2, records.size());
+        assertEquals(new JournalEvent.RadarScanned(robot.getId(), 3), records.get(1).event());
+    }
+
+    @Test
+    void testFullSegmentsRollOverAndReopenedJournalsAppend() throws IOException {
+        Robot robot = new Robot("Roller", "battle");
+        BattleJournal journal = BattleJournal.open(directory, 128);
+        journal.append(1, JournalEvent.RobotRegistered.of(robot));
+        for (int i = 0; i < 20; i++) {
+            journal.append(2, new JournalEvent.BlockStepped(robot.getId(), i, i, 20 - i));
+        }
+        journal.flush();
+        assertTrue(BattleJournal.segmentFiles(directory).size() > 1, "A full segment should roll over");
+        assertEquals(21, JournalReader.read(directory).size(), "A flushed journal should read back in full");
+        journal.close();
+
+        int segments = BattleJournal.segmentFiles(directory).size();
+        BattleJournal reopened = BattleJournal.open(directory, 128);
+        assertTrue(reopened.append(3, new JournalEvent.RadarScanned(robot.getId(), 5)),
+                "The first event after opening should ask for a flush");
+        reopened.close();
+
+        assertEquals(segments + 1, BattleJournal.segmentFiles(directory).size());
+        List<JournalRecord> records = JournalReader.read(directory);
+        assertEquals(22, records.size());
+        assertEquals(new JournalEvent.BlockStepped(robot.getId(), 19, 19, 1), records.get(20).event());
+        assertEquals(new JournalEvent.RadarScanned(robot.getId(), 5), records.get(21).event());
+    }
+
+    @Test
+    void testReadingFromAPositionGivesOnlyLaterEvents() throws IOException {
+        Robot robot = new Robot("Tail", "battle");
+        BattleJournal journal = BattleJournal.open(directory, 128);
+        journal.append(1, JournalEvent.RobotRegistered.of(robot));
+        for (int i = 0; i < 5; i++) {
+            journal.append(2, new JournalEvent.BlockStepped(robot.getId(), i, 0, 10 - i));
+        }
+        JournalPosition position = journal.position();
+        for (int i = 5; i < 10; i++) {
+            journal.append(3, new JournalEvent.BlockStepped(robot.getId(), i, 0, 10 - i));
+        }
+        journal.close();
+        // Events after a reopen go to a new segment, which the position taken before must still reach
+        BattleJournal reopened = BattleJournal.open(directory, 128);
+        reopened.append(4, new JournalEvent.RadarScanned(robot.getId(), 5));
+        reopened.close();
+
+        List<JournalRecord> tail = new ArrayList<>();
+        long count = JournalReader.read(directory, position, List.of(robot.getId()), tail::add);
+
+        assertEquals(6, count);
+        assertEquals(new JournalEvent.BlockStepped(robot.getId(), 5, 0, 5), tail.get(0).event());
+        assertEquals(new JournalEvent.RadarScanned(robot.getId(), 5), tail.get(5).event());
+        assertEquals(0, JournalReader.read(directory, reopened.position(), List.of(robot.getId()), record -> { }));
+    }
+
+    @Test
+    void testClosedJournalRefusesEvents() throws IOException {
+        Robot robot = new Robot("Closed", "battle");
+        BattleJournal journal = BattleJournal.open(directory, 1024);
+        journal.append(1, JournalEvent.RobotRegistered.of(robot));
+        journal.close();
+
+        assertThrows(IllegalStateException.class,
+                () -> journal.append(2, new JournalEvent.RadarScanned(robot.getId(), 3)));
+        assertFalse(journal.seal());
+        journal.close();
+        assertEquals(1, BattleJournal.segmentFiles(directory).size(), "No segment should follow the close");
+        assertEquals(1, JournalReader.read(directory).size());
+    }
+
+    @Test
+    void testIdleJournalClosesItsSegmentUntilTheNextEvent() throws IOException {
+        Robot robot = new Robot("Idle", "battle");
+        BattleJournal journal = BattleJournal.open(directory, 1024);
+        journal.append(1000, JournalEvent.RobotRegistered.of(robot));
+        journal.flush();
+
+        assertFalse(journal.sealIfIdle(1500, 1000), "A journal written to recently stays open");
+        assertTrue(journal.sealIfIdle(2000, 1000));
+        journal.flush();
+        assertFalse(journal.sealIfIdle(5000, 1000), "A sealed journal has nothing left to seal");
+        Path first = BattleJournal.segmentFiles(directory).get(0);
+        assertTrue(Files.size(first) < 1024, "The closed segment should be truncated to its records");
+
+        journal.append(6000, new JournalEvent.RadarScanned(robot.getId(), 3));
+        journal.close();
+        assertEquals(2, BattleJournal.segmentFiles(directory).size());
+        assertEquals(new JournalEvent.RadarScanned(robot.getId(), 3), JournalReader.read(directory).get(1).event());
+    }
+
+    @Test
+    void testFailedJournalIsMarkedUntilDeleted() throws IOException {
+        BattleJournal journal = BattleJournal.open(directory, 1024);
+        journal.append(1, JournalEvent.RobotRegistered.of(new Robot("Failed", "battle")));
+        journal.close();
+        assertFalse(BattleJournal.isFailed(directory));
+
+        BattleJournal.markFailed(directory);
+        BattleJournal.markFailed(directory);
+        assertTrue(BattleJournal.isFailed(directory));
+
+        BattleJournal.delete(directory);
+        assertFalse(Files.exists(directory));
+    }
+}
@@ -0,0 +1,102 @@
+package za.co.sww.rwars.backend.journal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for opening, resuming and failing battle journals.
+ */
+class JournalServiceTest {
+
+    private final Battle battle = new Battle("Journaled", 10, 10);
+    private final Robot robot = new Robot("Writer", battle.getId());
+    private Path root;
+    private JournalService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("journal-service-test");
+        service = start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        service.shutdown();
+        service.delete(battle.getId());
+        Files.deleteIfExists(root);
+    }
+
+    @Test
+    void testOnlyTheBattleCreationOpensAJournal() throws IOException {
+        service.append(battle.getId(), JournalEvent.RobotRegistered.of(robot));
+        assertFalse(service.hasJournal(battle.getId()), "An event of a battle that was never created is dropped");
+        assertNull(service.position(battle.getId()));
+
+        service.append(battle.getId(), JournalEvent.BattleCreated.of(battle));
+        service.append(battle.getId(), JournalEvent.RobotRegistered.of(robot));
+
+        assertNotNull(service.position(battle.getId()));
+        assertEquals(List.of(JournalEvent.BattleCreated.of(battle), JournalEvent.RobotRegistered.of(robot)),
+                events());
+    }
+
+    @Test
+    void testRestoredBattleResumesItsJournal() throws IOException {
+        service.append(battle.getId(), JournalEvent.BattleCreated.of(battle));
+        service.append(battle.getId(), JournalEvent.RobotRegistered.of(robot));
+        service.shutdown();
+
+        service = start();
+        service.append(battle.getId(), new JournalEvent.RadarScanned(robot.getId(), 2));
+        assertEquals(2, events().size(), "Events before the journal is resumed are dropped");
+
+        service.resume(battle.getId());
+        service.append(battle.getId(), new JournalEvent.RadarScanned(robot.getId(), 3));
+
+        assertEquals(new JournalEvent.RadarScanned(robot.getId(), 3), events().get(2));
+        assertEquals(3, events().size());
+    }
+
+    @Test
+    void testFailedJournalTakesNoMoreEventsAndIsNotResumed() throws IOException {
+        service.append(battle.getId(), JournalEvent.BattleCreated.of(battle));
+        // A robot the journal never registered cannot be encoded, which fails the journal
+        service.append(battle.getId(), new JournalEvent.RadarScanned("unknown", 2));
+        service.append(battle.getId(), JournalEvent.RobotRegistered.of(robot));
+
+        assertNull(service.position(battle.getId()));
+        assertTrue(BattleJournal.isFailed(service.battleDirectory(battle.getId())));
+        assertEquals(List.of(JournalEvent.BattleCreated.of(battle)), events());
+
+        service.shutdown();
+        service = start();
+        service.resume(battle.getId());
+        assertNull(service.position(battle.getId()), "A failed journal would carry on after its gap");
+
+        service.delete(battle.getId());
+        assertFalse(service.hasJournal(battle.getId()));
+    }
+
+    private JournalService start() {
+        return new JournalService(root.toString(), 1024, 30, new SimpleMeterRegistry());
+    }
+
+    private List<JournalEvent> events() throws IOException {
+        return service.read(battle.getId()).stream().map(JournalRecord::event).toList();
+    }
+}
@@ -0,0 +1,66 @@
+package za.co.sww.rwars.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the bounded robot action log kept by Battle.
+ */
+class RobotActionLogTest {
+
+    @Test
+    void testOldestActionsAreOverwrittenButSequenceNumbersKeepIncreasing() {
+        RobotActionLog log = new RobotActionLog(4, 2);
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(i, log.append(new RobotAction("r1", "Robot", "move " + i)));
+        }
+
+        assertEquals(4, log.size());
+        assertEquals(7, log.firstSeq());
+        assertEquals(10, log.lastSeq());
+        assertEquals(List.of("move 9", "move 10"), log.recent().stream().map(RobotAction::getAction).toList());
+    }
+
+    @Test
+    void testPagesStartAfterTheGivenSequenceNumber() {
+        RobotActionLog log = new RobotActionLog(8, 2);
+        for (int i = 1; i <= 10; i++) {
+            log.append(new RobotAction("r1", "Robot", "move " + i));
+        }
+
+        List<RobotAction> page = log.after(4, 3);
+        assertEquals(List.of(5L, 6L, 7L), page.stream().map(RobotAction::getSeq).toList());
+        assertEquals(List.of(3L, 4L), log.after(0, 2).stream().map(RobotAction::getSeq).toList(),
+                "A page asking for overwritten actions should start at the oldest one held");
+        assertTrue(log.after(10, 5).isEmpty());
+    }
+
+    @Test
+    void testSequenceNumbersBeyondTheLastActionReturnNothing() {
+        RobotActionLog log = new RobotActionLog(8, 2);
+        log.append(new RobotAction("r1", "Robot", "move"));
+
+        assertTrue(log.after(Long.MAX_VALUE, 5).isEmpty(), "The sequence number must not overflow");
+        assertTrue(log.after(2, Integer.MAX_VALUE).isEmpty());
+        assertEquals(List.of(1L), log.after(Long.MIN_VALUE, 5).stream().map(RobotAction::getSeq).toList());
+    }
+
+    @Test
+    void testBattleEmbedsOnlyRecentActions() {
+        Battle battle = new Battle("Log Arena", 20, 20);
+        battle.configureRobotActionLog(100, 3);
+        for (int i = 0; i < 10; i++) {
+            battle.addRobotAction("r1", "Robot", "radar");
+        }
+
+        assertEquals(3, battle.getRobotActions().size());
+        assertEquals(10, battle.getRobotActions().get(2).getSeq());
+        assertEquals(10, battle.robotActionLog().size());
+        assertThrows(IllegalArgumentException.class, () -> new RobotActionLog(0, 0));
+    }
+}
@@ -0,0 +1,93 @@
+package za.co.sww.rwars.backend.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the robot spatial index kept by Battle.
+ */
+class RobotGridTest {
+
+    private Battle battle;
+
+    @BeforeEach
+    void setUp() {
+        battle = new Battle();
+        battle.setArenaWidth(40);
+        battle.setArenaHeight(40);
+        battle.setRobots(new ArrayList<>());
+    }
+
+    @Test
+    void testGridFollowsRobotMoves() {
+        Robot robot = new Robot();
+        battle.addRobot(robot);
+        robot.setPositionX(20);
+        robot.setPositionY(20);
+        assertSame(robot, battle.robotGrid().findRobotAt(20, 20, candidate -> true));
+
+        // Move across bucket boundaries after the grid was built
+        robot.setPositionX(3);
+        robot.setPositionY(4);
+        assertFalse(battle.robotGrid().isOccupied(20, 20));
+        assertTrue(battle.robotGrid().isOccupied(3, 4));
+    }
+
+    @Test
+    void testRobotsWithinUsesManhattanDistance() {
+        Robot center = robotAt(10, 10);
+        Robot near = robotAt(12, 11);
+        robotAt(13, 11);
+        robotAt(30, 30);
+
+        assertEquals(2, battle.robotGrid().robotsWithin(10, 10, 3).size());
+        assertTrue(battle.robotGrid().robotsWithin(10, 10, 3).contains(center));
+        assertTrue(battle.robotGrid().robotsWithin(10, 10, 3).contains(near));
+        assertEquals(4, battle.robotGrid().robotsWithin(10, 10, 50).size());
+    }
+
+    @Test
+    void testRemovedRobotsLeaveTheGrid() {
+        Robot robot = robotAt(5, 5);
+        assertTrue(battle.robotGrid().isOccupied(5, 5));
+
+        battle.removeRobot(robot);
+        assertNull(battle.robotGrid().findRobotAt(5, 5, candidate -> true));
+
+        // Moving a robot that left the battle must not bring it back
+        robot.setPositionX(6);
+        assertFalse(battle.robotGrid().isOccupied(6, 5));
+    }
+
+    @Test
+    void testRobotsChangedThroughTheRobotListLeaveAndJoinTheGrid() {
+        Robot robot = robotAt(5, 5);
+        assertTrue(battle.robotGrid().isOccupied(5, 5));
+
+        Robot replacement = new Robot();
+        replacement.setPositionX(9);
+        battle.getRobots().set(0, replacement);
+
+        assertFalse(battle.robotGrid().isOccupied(5, 5));
+        assertTrue(battle.robotGrid().isOccupied(9, 0));
+        assertSame(replacement, battle.robotStore().robotAt(0));
+        robot.setPositionX(7);
+        assertFalse(battle.robotGrid().isOccupied(7, 5));
+    }
+
+    private Robot robotAt(int x, int y) {
+        Robot robot = new Robot();
+        robot.setPositionX(x);
+        robot.setPositionY(y);
+        battle.addRobot(robot);
+        return robot;
+    }
+}
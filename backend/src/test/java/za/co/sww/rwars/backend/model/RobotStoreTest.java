@@ -0,0 +1,192 @@
+package za.co.sww.rwars.backend.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the struct-of-arrays robot store kept by Battle.
+ */
+class RobotStoreTest {
+
+    private Battle battle;
+
+    @BeforeEach
+    void setUp() {
+        battle = new Battle();
+        battle.setArenaWidth(20);
+        battle.setArenaHeight(20);
+        battle.setRobots(new ArrayList<>());
+    }
+
+    @Test
+    void testRobotStateMovesIntoTheStore() {
+        Robot robot = new Robot("Store Bot");
+        robot.setPositionX(4);
+        robot.setDirection(Robot.Direction.EAST);
+        battle.addRobot(robot);
+
+        RobotStore store = battle.robotStore();
+        assertEquals(1, store.size());
+        assertSame(robot, store.robotAt(0));
+        assertEquals(4, robot.getPositionX());
+        assertEquals(Robot.Direction.EAST, robot.getDirection());
+
+        robot.setStatus(Robot.RobotStatus.MOVING);
+        assertTrue(store.isMoving(0));
+        assertTrue(store.anyMoving());
+    }
+
+    @Test
+    void testActiveRobotsAreCountedFromTheStore() {
+        Robot first = new Robot("First");
+        Robot second = new Robot("Second");
+        battle.addRobot(first);
+        battle.addRobot(second);
+        assertEquals(2, battle.getActiveRobotCount());
+
+        first.takeDamage(first.getHitPoints());
+        assertEquals(Robot.RobotStatus.DESTROYED, first.getStatus());
+        assertEquals(1, battle.getActiveRobotCount());
+        assertSame(second, battle.getActiveRobot());
+
+        second.setStatus(Robot.RobotStatus.CRASHED);
+        assertEquals(0, battle.getActiveRobotCount());
+        assertNull(battle.getActiveRobot());
+    }
+
+    @Test
+    void testRemovedRobotKeepsItsStateAndFreesItsSlot() {
+        Robot first = new Robot("First");
+        Robot second = new Robot("Second");
+        Robot third = new Robot("Third");
+        battle.addRobot(first);
+        battle.addRobot(second);
+        battle.addRobot(third);
+        first.setPositionX(7);
+        first.setPositionY(8);
+        third.setPositionY(11);
+
+        battle.removeRobot(first);
+
+        RobotStore store = battle.robotStore();
+        assertEquals(2, store.size());
+        assertEquals(7, first.getPositionX());
+        assertEquals(8, first.getPositionY());
+        assertEquals(11, third.getPositionY());
+        first.setPositionX(1);
+        assertFalse(battle.robotGrid().isOccupied(1, 8));
+
+        battle.setRobots(List.of(first));
+        assertEquals(1, store.size());
+        assertEquals(1, first.getPositionX());
+        assertEquals(11, third.getPositionY());
+    }
+
+    @Test
+    void testChangesThroughTheRobotListKeepTheStoreInStep() {
+        Robot first = new Robot("First");
+        Robot second = new Robot("Second");
+        Robot third = new Robot("Third");
+        second.setPositionX(6);
+        battle.getRobots().add(first);
+        battle.getRobots().addAll(List.of(second, third));
+
+        RobotStore store = battle.robotStore();
+        assertEquals(3, store.size());
+        assertTrue(battle.robotGrid().isOccupied(6, 0));
+
+        battle.getRobots().removeIf(robot -> robot == first);
+        battle.getRobots().subList(1, 2).clear();
+
+        assertEquals(List.of(second), battle.getRobots());
+        assertEquals(1, store.size());
+        assertSame(second, store.robotAt(0));
+        assertFalse(third.store() == store, "A robot removed through a sub-list should leave the store");
+        second.setPositionX(2);
+        assertTrue(battle.robotGrid().isOccupied(2, 0));
+        assertFalse(battle.robotGrid().isOccupied(6, 0));
+    }
+
+    @Test
+    void testRemovingARobotKeepsTheOthersInRegistrationOrder() {
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Robot robot = new Robot("Robot " + i);
+            robot.setPositionX(i);
+            robot.setHitPoints(10 + i);
+            battle.addRobot(robot);
+            robots.add(robot);
+        }
+
+        battle.removeRobot(robots.get(1));
+        battle.removeRobot(robots.get(3));
+
+        RobotStore store = battle.robotStore();
+        List<Robot> expected = List.of(robots.get(0), robots.get(2), robots.get(4));
+        List<Robot> inSlots = new ArrayList<>();
+        for (int slot = 0; slot < store.size(); slot++) {
+            inSlots.add(store.robotAt(slot));
+        }
+        assertEquals(expected, inSlots);
+        // Each robot still reads its own state from its new slot
+        for (Robot robot : expected) {
+            assertEquals(robots.indexOf(robot), robot.getPositionX());
+            assertEquals(10 + robots.indexOf(robot), robot.getHitPoints());
+        }
+    }
+
+    @Test
+    void testReadersNeverSeeAnotherRobotsStateWhileRobotsLeaveAndJoin() throws Exception {
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            Robot robot = new Robot("Robot " + i);
+            robot.setPositionX(i);
+            robot.setHitPoints(10 + i);
+            battle.addRobot(robot);
+            robots.add(robot);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger reads = new AtomicInteger();
+        AtomicInteger mismatches = new AtomicInteger();
+        // Reads the robots off the writer's thread, as REST and WebSocket readers may
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                for (int i = 0; i < robots.size(); i++) {
+                    Robot robot = robots.get(i);
+                    if (robot.getPositionX() != i || robot.getHitPoints() != 10 + i) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+                reads.incrementAndGet();
+            }
+        });
+        reader.start();
+        try {
+            // The first robot leaving shifts all the others down, and joining again grows the store now and then
+            for (int round = 0; round < 20_000; round++) {
+                Robot robot = battle.robotStore().robotAt(0);
+                battle.removeRobot(robot);
+                battle.addRobot(robot);
+            }
+        } finally {
+            done.set(true);
+            reader.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        assertTrue(reads.get() > 0);
+        assertEquals(0, mismatches.get(), "A reader saw another robot's state");
+        assertEquals(robots.size(), battle.robotStore().size());
+    }
+}
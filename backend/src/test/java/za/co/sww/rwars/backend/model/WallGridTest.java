@@ -0,0 +1,131 @@
+package za.co.sww.rwars.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the wall occupancy grid kept by Battle.
+ */
+class WallGridTest {
+
+    @Test
+    void testGridMatchesWallPositions() {
+        Battle battle = new Battle("Grid Arena", 20, 20);
+        Wall wall = new Wall(Wall.WallType.LONG);
+        wall.addPosition(3, 4);
+        wall.addPosition(3, 5);
+        battle.setWalls(List.of(wall));
+
+        assertTrue(battle.isPositionOccupiedByWall(3, 4));
+        assertTrue(battle.isPositionOccupiedByWall(3, 5));
+        assertFalse(battle.isPositionOccupiedByWall(4, 4));
+        assertFalse(battle.isPositionOccupiedByWall(-1, 4));
+        assertEquals(Wall.WallType.LONG, battle.wallGrid().getWallType(3, 4));
+        assertNull(battle.wallGrid().getWallType(4, 4));
+        assertEquals(2, battle.wallGrid().getOccupancy().cardinality());
+    }
+
+    @Test
+    void testWallPositionsAreStoredAsRectangles() {
+        Wall wall = new Wall(Wall.WallType.U_SHAPE);
+        // Bottom bar, then the two vertical bars, as the cells of a U-shape are usually added
+        for (int x = 2; x < 6; x++) {
+            wall.addPosition(x, 1);
+        }
+        for (int y = 1; y < 11; y++) {
+            wall.addPosition(2, y);
+        }
+        for (int y = 1; y < 11; y++) {
+            wall.addPosition(5, y);
+        }
+
+        assertEquals(3, wall.getRectangles().size());
+        assertEquals(24, wall.getPositions().size());
+        assertEquals(5, wall.getPositions().get(23).getX());
+        assertEquals(10, wall.getPositions().get(23).getY());
+        assertTrue(wall.containsPosition(5, 10));
+        assertFalse(wall.containsPosition(3, 5));
+    }
+
+    @Test
+    void testRectangleChecksSpanWordBoundaries() {
+        OccupancyGrid grid = new OccupancyGrid(100, 10);
+        grid.setRectangle(60, 2, 10, 3);
+
+        assertEquals(30, grid.cardinality());
+        assertFalse(grid.isRectangleFree(55, 0, 6, 3));
+        assertFalse(grid.isRectangleFree(69, 4, 1, 1));
+        assertTrue(grid.isRectangleFree(70, 2, 30, 3));
+        assertTrue(grid.isRectangleFree(0, 0, 60, 10));
+        assertFalse(grid.isRectangleFree(95, 0, 6, 1), "Rectangles leaving the grid are not free");
+    }
+
+    @Test
+    void testGridFollowsDirectChangesToTheWallList() {
+        Battle battle = new Battle();
+        battle.setWalls(new ArrayList<>());
+        battle.setArenaWidth(10);
+        battle.setArenaHeight(10);
+        assertFalse(battle.isPositionOccupiedByWall(5, 5));
+
+        Wall wall = new Wall(Wall.WallType.SQUARE);
+        wall.addPosition(5, 5);
+        battle.getWalls().add(wall);
+        assertTrue(battle.isPositionOccupiedByWall(5, 5));
+
+        Wall replacement = new Wall(Wall.WallType.U_SHAPE);
+        replacement.addPosition(6, 6);
+        battle.getWalls().set(0, replacement);
+        assertFalse(battle.isPositionOccupiedByWall(5, 5));
+        assertEquals(Wall.WallType.U_SHAPE, battle.wallGrid().getWallType(6, 6));
+
+        battle.getWalls().clear();
+        assertFalse(battle.isPositionOccupiedByWall(6, 6));
+    }
+
+    @Test
+    void testGridFollowsChangesThroughIteratorsAndSubLists() {
+        Battle battle = new Battle("Grid Arena", 10, 10);
+        battle.setWalls(List.of(wallAt(1, 1), wallAt(2, 2), wallAt(3, 3)));
+        assertTrue(battle.isPositionOccupiedByWall(1, 1));
+
+        ListIterator<Wall> walls = battle.getWalls().listIterator();
+        walls.next();
+        walls.set(wallAt(4, 4));
+        assertFalse(battle.isPositionOccupiedByWall(1, 1));
+        assertTrue(battle.isPositionOccupiedByWall(4, 4));
+
+        battle.getWalls().subList(1, 3).clear();
+        assertFalse(battle.isPositionOccupiedByWall(2, 2));
+        assertFalse(battle.isPositionOccupiedByWall(3, 3));
+        assertEquals(1, battle.wallGrid().getOccupancy().cardinality());
+    }
+
+    @Test
+    void testPlacedWallsCannotChange() {
+        Battle battle = new Battle("Grid Arena", 10, 10);
+        Wall wall = wallAt(1, 1);
+        battle.getWalls().add(wall);
+
+        assertThrows(IllegalStateException.class, () -> wall.addPosition(1, 2));
+        assertThrows(IllegalStateException.class, () -> wall.addRectangle(5, 5, 2, 2));
+        assertThrows(IllegalStateException.class, () -> wall.setType(Wall.WallType.LONG));
+        assertFalse(battle.isPositionOccupiedByWall(1, 2));
+        assertThrows(NullPointerException.class, () -> battle.setWalls(null));
+    }
+
+    private static Wall wallAt(int x, int y) {
+        Wall wall = new Wall(Wall.WallType.SQUARE);
+        wall.addPosition(x, y);
+        return wall;
+    }
+}
@@ -0,0 +1,156 @@
+package za.co.sww.rwars.backend.replay;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.journal.JournalEvent;
+import za.co.sww.rwars.backend.journal.JournalRecord;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for replaying and seeking through battle recordings.
+ */
+class BattleReplayTest {
+
+    private Battle battle;
+    private Robot robot;
+    private List<JournalRecord> records;
+
+    @BeforeEach
+    void setUp() {
+        battle = new Battle("Replay", 40, 40);
+        robot = new Robot("Walker", battle.getId());
+        robot.setPositionX(0);
+        robot.setPositionY(0);
+        records = new ArrayList<>();
+        records.add(new JournalRecord(1000, JournalEvent.BattleCreated.of(battle)));
+        records.add(new JournalRecord(1000, JournalEvent.RobotRegistered.of(robot)));
+        records.add(new JournalRecord(1000,
+                new JournalEvent.StateChanged(Battle.BattleState.IN_PROGRESS, null, false, false)));
+        records.add(new JournalRecord(1000, new JournalEvent.MoveOrdered(robot.getId(), Robot.Direction.EAST, 30)));
+        // One block every 100ms
+        for (int x = 1; x <= 30; x++) {
+            records.add(new JournalRecord(1000 + x * 100L,
+                    new JournalEvent.BlockStepped(robot.getId(), x, 0, 30 - x)));
+        }
+    }
+
+    @Test
+    void testCursorPlaysEventsUpToItsPosition() {
+        BattleReplay replay = BattleReplay.of(records, 8);
+        ReplayCursor cursor = replay.cursor();
+
+        assertEquals(3000, replay.durationMillis());
+        assertEquals(0, cursor.battle().getRobots().get(0).getPositionX());
+        assertEquals(Battle.BattleState.IN_PROGRESS, cursor.battle().getState());
+
+        cursor.advance(250);
+        assertEquals(2, cursor.battle().getRobots().get(0).getPositionX());
+        cursor.advance(1000);
+        assertEquals(12, cursor.battle().getRobots().get(0).getPositionX());
+        cursor.advance(10_000);
+        assertEquals(30, cursor.battle().getRobots().get(0).getPositionX());
+        assertEquals(3000, cursor.positionMillis());
+        assertTrue(cursor.isFinished());
+    }
+
+    @Test
+    void testSeekMatchesPlayingFromTheStart() {
+        BattleReplay replay = BattleReplay.of(records, 4);
+        ReplayCursor seeking = replay.cursor();
+
+        for (long at : new long[] {2750, 450, 1900, 0, 3000, 1200}) {
+            Robot sought = seeking.seek(at).getRobots().get(0);
+            ReplayCursor playing = replay.cursor();
+            playing.advance(at);
+            Robot played = playing.battle().getRobots().get(0);
+
+            assertEquals(played.getPositionX(), sought.getPositionX(), "at " + at);
+            assertEquals(played.getBlocksRemaining(), sought.getBlocksRemaining(), "at " + at);
+            assertEquals(played.getStatus(), sought.getStatus(), "at " + at);
+            assertEquals(at, seeking.positionMillis());
+        }
+    }
+
+    @Test
+    void testSeekStartsFromTheNearestKeyframe() {
+        BattleReplay replay = BattleReplay.of(records, 10);
+
+        assertNull(replay.keyframeAt(500));
+        BattleReplay.Keyframe keyframe = replay.keyframeAt(2650);
+        assertNotNull(keyframe);
+        // Keyframes after 10, 20 and 30 events; the third is the last one at or before 2650ms
+        assertEquals(30, keyframe.events());
+        assertEquals(2600, keyframe.offsetMillis());
+        assertEquals(26, keyframe.snapshot().robots().get(0).positionX());
+    }
+
+    @Test
+    void testReplayLeavesTheLiveBattleAlone() {
+        battle.addRobot(robot);
+        robot.setPositionX(7);
+        Battle.BattleState liveState = battle.getState();
+        BattleReplay replay = BattleReplay.of(records, 4);
+        ReplayCursor cursor = replay.cursor();
+        cursor.seek(2000);
+
+        Robot replayed = cursor.battle().getRobots().get(0);
+        assertNotSame(battle, cursor.battle());
+        assertNotSame(robot, replayed);
+        assertEquals(robot.getId(), replayed.getId());
+        assertEquals(20, replayed.getPositionX());
+        assertEquals(7, robot.getPositionX(), "Replaying should not move the live robot");
+        assertEquals(liveState, battle.getState());
+        assertEquals(List.of(robot), battle.getRobots());
+
+        // Nor should the live battle reach the replay
+        robot.setPositionX(39);
+        cursor.seek(500);
+        cursor.seek(2000);
+        assertEquals(20, cursor.battle().getRobots().get(0).getPositionX());
+        assertEquals(39, robot.getPositionX());
+    }
+
+    @Test
+    void testExtendedReplayMatchesOneBuiltFromTheWholeRecording() {
+        List<JournalRecord> recording = new ArrayList<>(records);
+        BattleReplay first = BattleReplay.of(recording.subList(0, 20), 8);
+        for (int x = 29; x >= 20; x--) {
+            recording.add(new JournalRecord(4000 + (30 - x) * 100L,
+                    new JournalEvent.BlockStepped(robot.getId(), x, 0, 0)));
+        }
+
+        BattleReplay extended = first.extend(recording);
+        BattleReplay whole = BattleReplay.of(recording, 8);
+
+        assertEquals(20, first.eventCount(), "The replay extended should stay as it was");
+        assertEquals(whole.eventCount(), extended.eventCount());
+        assertEquals(whole.durationMillis(), extended.durationMillis());
+        assertEquals(whole.keyframeAt(4000).events(), extended.keyframeAt(4000).events());
+        assertEquals(whole.keyframeAt(4000).snapshot().robots(), extended.keyframeAt(4000).snapshot().robots());
+        for (long at : new long[] {0, 1500, 2999, 3500, 5000}) {
+            assertEquals(whole.cursor().seek(at).getRobots().get(0).getPositionX(),
+                    extended.cursor().seek(at).getRobots().get(0).getPositionX(), "at " + at);
+        }
+        assertSame(extended, extended.extend(recording), "Nothing new, nothing to extend");
+    }
+
+    @Test
+    void testRecordingMustStartWithTheBattle() {
+        List<JournalRecord> tail = records.subList(1, records.size());
+
+        assertThrows(IllegalArgumentException.class, () -> BattleReplay.of(tail, 4));
+        assertThrows(IllegalArgumentException.class, () -> BattleReplay.of(records, 0));
+    }
+}
@@ -0,0 +1,97 @@
+package za.co.sww.rwars.backend.replay;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.journal.JournalEvent;
+import za.co.sww.rwars.backend.journal.JournalPosition;
+import za.co.sww.rwars.backend.journal.JournalRecord;
+import za.co.sww.rwars.backend.journal.JournalService;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for sharing battle replays between their viewers.
+ */
+class ReplayServiceTest {
+
+    private final Battle battle = new Battle("Shared", 20, 20);
+    private final Robot robot = new Robot("Runner", battle.getId());
+    private final List<JournalRecord> journal = new ArrayList<>();
+    private int reads;
+
+    private final JournalService journalService = new JournalService() {
+        @Override
+        public List<JournalRecord> read(String battleId) {
+            reads++;
+            return battle.getId().equals(battleId) ? List.copyOf(journal) : List.of();
+        }
+
+        @Override
+        public JournalPosition position(String battleId) {
+            // Stands in for where the journal ends, which moves with every event
+            return new JournalPosition(0, journal.size());
+        }
+    };
+
+    private final ReplayService service = new ReplayService(journalService, 4);
+
+    @BeforeEach
+    void setUp() {
+        journal.add(new JournalRecord(1000, JournalEvent.BattleCreated.of(battle)));
+        journal.add(new JournalRecord(1000, JournalEvent.RobotRegistered.of(robot)));
+        journal.add(new JournalRecord(1000,
+                new JournalEvent.StateChanged(Battle.BattleState.IN_PROGRESS, null, false, false)));
+    }
+
+    @Test
+    void testViewersShareOneReplayUntilTheLastLeaves() throws IOException {
+        BattleReplay first = service.acquire(battle.getId());
+        BattleReplay second = service.acquire(battle.getId());
+
+        assertSame(first, second);
+        assertEquals(1, reads, "The recording should be read once for both viewers");
+
+        service.release(battle.getId());
+        assertSame(first, service.acquire(battle.getId()), "A viewer is still watching");
+        service.release(battle.getId());
+        service.release(battle.getId());
+
+        BattleReplay reloaded = service.acquire(battle.getId());
+        assertNotSame(first, reloaded, "The replay is dropped with its last viewer");
+        assertEquals(2, reads);
+    }
+
+    @Test
+    void testLaterViewerGetsTheEventsJournaledSince() throws IOException {
+        BattleReplay first = service.acquire(battle.getId());
+        for (int x = 1; x <= 5; x++) {
+            journal.add(new JournalRecord(1000 + x * 100L, new JournalEvent.BlockStepped(robot.getId(), x, 0, 0)));
+        }
+
+        BattleReplay second = service.acquire(battle.getId());
+
+        assertEquals(3, first.eventCount(), "A viewer already watching keeps its recording");
+        assertEquals(8, second.eventCount());
+        assertEquals(500, second.durationMillis());
+        assertEquals(5, second.cursor().seek(500).getRobots().get(0).getPositionX());
+        assertSame(second, service.acquire(battle.getId()), "Nothing new since, so nothing to read again");
+        assertEquals(2, reads);
+    }
+
+    @Test
+    void testBattleWithoutARecordingIsNotKept() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> service.acquire("unknown"));
+        assertThrows(IllegalArgumentException.class, () -> service.acquire("unknown"));
+
+        assertEquals(2, reads, "A failed load should not leave a replay behind");
+    }
+}
@@ -0,0 +1,104 @@
+package za.co.sww.rwars.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the single-writer battle mailbox.
+ */
+class BattleMailboxTest {
+
+    private final ExecutorService carrier = Executors.newFixedThreadPool(4);
+    private final BattleMailbox mailbox = new BattleMailbox("battle-1", carrier);
+
+    @AfterEach
+    void tearDown() {
+        carrier.shutdownNow();
+    }
+
+    @Test
+    void testCommandsRunOneAtATimeInSubmissionOrder() throws Exception {
+        List<Integer> order = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        // More than one drain batch, so the mailbox hands its carrier back and picks up again in between
+        for (int i = 0; i < 500; i++) {
+            int command = i;
+            results.add(mailbox.submit(() -> {
+                assertEquals(1, running.incrementAndGet(), "Only one command may run at a time");
+                order.add(command);
+                running.decrementAndGet();
+                return command;
+            }));
+        }
+
+        List<Integer> expected = IntStream.range(0, 500).boxed().toList();
+        List<Integer> returned = new ArrayList<>();
+        for (CompletableFuture<Integer> result : results) {
+            returned.add(result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(expected, returned);
+        assertEquals(expected, order);
+    }
+
+    @Test
+    void testFailedCommandsCompleteTheirFutureAndLeaveTheQueueRunning() throws Exception {
+        CompletableFuture<Object> failed = mailbox.submit(() -> {
+            throw new IllegalArgumentException("Bad command");
+        });
+        CompletableFuture<Object> broken = mailbox.submit(() -> {
+            throw new AssertionError("Broken invariant");
+        });
+        mailbox.execute(() -> {
+            throw new StackOverflowError();
+        });
+        CompletableFuture<String> next = mailbox.submit(() -> "still running");
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        ExecutionException error = assertThrows(ExecutionException.class, () -> broken.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AssertionError.class, error.getCause());
+        assertEquals("still running", next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCommandSubmittedFromItsOwnBattleRunsStraightAway() throws Exception {
+        CompletableFuture<Boolean> nested = mailbox.submit(() -> {
+            assertTrue(mailbox.isOwnedByCurrentThread());
+            CompletableFuture<String> inner = mailbox.submit(() -> "inner");
+            // Queued behind the outer command it would never run before the outer command finished
+            return inner.isDone();
+        });
+
+        assertTrue(nested.get(5, TimeUnit.SECONDS));
+        assertFalse(mailbox.isOwnedByCurrentThread());
+    }
+
+    @Test
+    void testRunNowReportsErrorsThroughTheFuture() {
+        CompletableFuture<Object> result = BattleMailbox.runNow(() -> {
+            throw new OutOfMemoryError("Simulated");
+        });
+
+        assertTrue(result.isCompletedExceptionally());
+        ExecutionException error = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(OutOfMemoryError.class, error.getCause());
+    }
+}
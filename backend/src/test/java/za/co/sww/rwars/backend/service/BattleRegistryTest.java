@@ -0,0 +1,89 @@
+package za.co.sww.rwars.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the indexes kept by BattleRegistry.
+ */
+class BattleRegistryTest {
+
+    private BattleRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new BattleRegistry();
+    }
+
+    @Test
+    void testBattleNamesAreUnique() {
+        registry.addBattle(new Battle("Arena", 20, 20));
+
+        assertThrows(IllegalStateException.class, () -> registry.addBattle(new Battle("Arena", 30, 30)));
+        assertEquals(1, registry.getBattleCount());
+    }
+
+    @Test
+    void testStateIndexFollowsBattleStateChanges() {
+        Battle battle = new Battle("State Arena", 20, 20);
+        registry.addBattle(battle);
+        assertTrue(registry.getBattleIdsInState(Battle.BattleState.WAITING_ON_ROBOTS).contains(battle.getId()));
+
+        battle.addRobot(new Robot("Bot1", battle.getId()));
+        battle.addRobot(new Robot("Bot2", battle.getId()));
+        assertTrue(registry.getBattleIdsInState(Battle.BattleState.READY).contains(battle.getId()));
+
+        battle.startBattle();
+        assertFalse(registry.getBattleIdsInState(Battle.BattleState.READY).contains(battle.getId()));
+        assertTrue(registry.getBattleIdsInState(Battle.BattleState.IN_PROGRESS).contains(battle.getId()));
+        assertNull(registry.findJoinableBattle(), "A battle in progress should not be joinable");
+
+        battle.setState(Battle.BattleState.COMPLETED);
+        assertTrue(registry.getBattleIdsInState(Battle.BattleState.COMPLETED).contains(battle.getId()));
+    }
+
+    @Test
+    void testJoinablePrefersBattlesWaitingOnRobots() {
+        Battle completed = new Battle("Completed Arena", 20, 20);
+        completed.setState(Battle.BattleState.COMPLETED);
+        Battle waiting = new Battle("Waiting Arena", 20, 20);
+        registry.addBattle(completed);
+        registry.addBattle(waiting);
+
+        assertSame(waiting, registry.findJoinableBattle());
+    }
+
+    @Test
+    void testRemoveBattleRemovesItsRobotsAndIndexes() {
+        Battle battle = new Battle("Doomed Arena", 20, 20);
+        Battle other = new Battle("Other Arena", 20, 20);
+        registry.addBattle(battle);
+        registry.addBattle(other);
+        Robot robot = new Robot("Doomed", battle.getId());
+        Robot survivor = new Robot("Survivor", other.getId());
+        registry.addRobot(robot);
+        registry.addRobot(survivor);
+
+        assertSame(battle, registry.removeBattle(battle.getId()));
+
+        assertNull(registry.getBattle(battle.getId()));
+        assertNull(registry.getRobot(robot.getId()));
+        assertNull(registry.findBattleByName("Doomed Arena"));
+        assertTrue(registry.getRobotIds(battle.getId()).isEmpty());
+        assertFalse(registry.getBattleIdsInState(Battle.BattleState.WAITING_ON_ROBOTS).contains(battle.getId()));
+        assertSame(survivor, registry.getRobot(survivor.getId()));
+
+        // The name can be reused once the battle is gone
+        registry.addBattle(new Battle("Doomed Arena", 20, 20));
+        assertEquals(2, registry.getBattleCount());
+    }
+}
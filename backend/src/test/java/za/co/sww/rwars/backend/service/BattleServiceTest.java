@@ -4,16 +4,30 @@ import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.journal.JournalEvent;
+import za.co.sww.rwars.backend.journal.JournalRecord;
+import za.co.sww.rwars.backend.journal.JournalService;
 import za.co.sww.rwars.backend.model.Battle;
 import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.RobotAction;
+import za.co.sww.rwars.backend.model.RobotActionPage;
+import za.co.sww.rwars.backend.model.RobotCommand;
+import za.co.sww.rwars.backend.model.RobotCommandResult;
+import za.co.sww.rwars.backend.model.RobotStatus;
 import za.co.sww.rwars.backend.model.Wall;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -28,6 +42,9 @@ class BattleServiceTest {
     @Inject
     private WallService wallService;
 
+    @Inject
+    private JournalService journalService;
+
     private String battleId;
     private static int testCounter = 0;
 
@@ -403,4 +420,148 @@ class BattleServiceTest {
         assertEquals(initialY, robot.getPositionY(), "Y position should remain constant when moving WEST");
         assertEquals(testX - 1, robot.getPositionX(), "Robot should be at X=" + (testX - 1) + " after moving WEST");
     }
+
+    @Test
+    void testAcceleratedBattleRunsOnVirtualTime() throws Exception {
+        // Ten seconds per block would take a minute in real time
+        Battle battle = battleService.createAcceleratedBattle("AcceleratedTestEmpty", 30, 30, 10.0);
+        String acceleratedBattleId = battle.getId();
+        assertTrue(battle.isAccelerated(), "Battle should be marked as accelerated");
+
+        Robot robot = battleService.registerRobotForBattle("AcceleratedRobot", acceleratedBattleId);
+        Robot dummy = battleService.registerRobotForBattle("DummyRobot", acceleratedBattleId);
+        battleService.setRobotPositionForTesting(acceleratedBattleId, robot.getId(), 10, 10);
+        battleService.setRobotPositionForTesting(acceleratedBattleId, dummy.getId(), 20, 20);
+        battleService.startBattle(acceleratedBattleId);
+
+        battleService.moveRobot(acceleratedBattleId, robot.getId(), "EAST", 6);
+        // Only a virtual clock gets through a minute of movement before the wait gives up
+        battleService.awaitIdleAsync(acceleratedBattleId).get(5, TimeUnit.SECONDS);
+
+        assertEquals(16, robot.getPositionX(), "Robot should have moved all six blocks");
+        assertEquals(10, robot.getPositionY(), "Y position should remain constant when moving EAST");
+        assertEquals(Robot.RobotStatus.IDLE, robot.getStatus(), "Robot should be idle after its move");
+    }
+
+    @Test
+    void testAcceleratedBattleIsJournaledAsAccelerated() throws IOException {
+        Battle battle = battleService.createAcceleratedBattle("AcceleratedJournaled", 30, 30, 1.0);
+
+        // A restart before the battle's next state change restores it from this first state
+        JournalEvent.StateChanged created = journalService.read(battle.getId()).stream()
+                .map(JournalRecord::event)
+                .filter(JournalEvent.StateChanged.class::isInstance)
+                .map(JournalEvent.StateChanged.class::cast)
+                .findFirst()
+                .orElseThrow();
+        assertTrue(created.accelerated(), "The battle should be journaled as accelerated from the start");
+    }
+
+    @Test
+    void testSameSeedGivesSameArenaAndSpawns() {
+        Battle first = battleService.createBattle("SeededBattleA", 60, 40, 1.0, 4242L);
+        Battle second = battleService.createBattle("SeededBattleB", 60, 40, 1.0, 4242L);
+        assertEquals(4242L, first.getSeed(), "Battle should report the seed it was created with");
+
+        assertEquals(collectWallPositions(first), collectWallPositions(second),
+            "Battles with the same seed should have the same walls");
+
+        for (int i = 0; i < 5; i++) {
+            Robot robotA = battleService.registerRobotForBattle("SeededRobot" + i, first.getId());
+            Robot robotB = battleService.registerRobotForBattle("SeededRobot" + i, second.getId());
+            assertEquals(robotA.getPositionX(), robotB.getPositionX(), "Spawn " + i + " should match on X");
+            assertEquals(robotA.getPositionY(), robotB.getPositionY(), "Spawn " + i + " should match on Y");
+        }
+    }
+
+    @Test
+    void testCommandBatchRunsInOrderAndRejectsInvalidBatchesWhole() {
+        String batchBattleId = createDeterministicBattle("CommandBatchTest");
+        Robot robot = battleService.registerRobotForBattle("BatchRobot", batchBattleId);
+        battleService.registerRobotForBattle("DummyRobot", batchBattleId);
+        battleService.setRobotPositionForTesting(batchBattleId, robot.getId(), 10, 10);
+        battleService.startBattle(batchBattleId);
+
+        // A bad direction at the end rejects the batch before the move is applied
+        List<RobotCommand> invalid = List.of(
+            new RobotCommand(RobotCommand.Type.MOVE, "NORTH", 2, null),
+            new RobotCommand(RobotCommand.Type.LASER, "UP", null, null));
+        assertThrows(IllegalArgumentException.class,
+            () -> battleService.executeCommands(batchBattleId, robot.getId(), invalid));
+        assertEquals(Robot.RobotStatus.IDLE, robot.getStatus(), "Rejected batch should not move the robot");
+
+        List<RobotCommandResult> results = battleService.executeCommands(batchBattleId, robot.getId(), List.of(
+            new RobotCommand(RobotCommand.Type.STATUS, null, null, null),
+            new RobotCommand(RobotCommand.Type.RADAR, null, null, 3),
+            new RobotCommand(RobotCommand.Type.MOVE, "NORTH", 2, null),
+            new RobotCommand(RobotCommand.Type.STATUS, null, null, null)));
+
+        assertEquals(4, results.size(), "Every command should have a result");
+        assertEquals(Robot.RobotStatus.IDLE, results.get(0).getStatus().getStatus());
+        assertEquals(3, results.get(1).getRadar().getRange());
+        assertNotNull(results.get(2).getRobot(), "Move should return the robot");
+        assertEquals(Robot.RobotStatus.MOVING, results.get(3).getStatus().getStatus(),
+            "Later commands should see the effect of earlier ones");
+        assertEquals(2, results.get(3).getStatus().getBlocksRemaining());
+    }
+
+    @Test
+    void testStatusLongPollReturnsOnChangeOrTimeout() {
+        String pollBattleId = createDeterministicBattle("StatusLongPollTest");
+        Robot robot = battleService.registerRobotForBattle("PollingRobot", pollBattleId);
+        battleService.registerRobotForBattle("DummyRobot", pollBattleId);
+        battleService.setRobotPositionForTesting(pollBattleId, robot.getId(), 10, 10);
+        battleService.startBattle(pollBattleId);
+
+        // Nothing changes, so the poll returns the unchanged status at the timeout
+        RobotStatus unchanged = battleService.awaitRobotStatusChangeAsync(pollBattleId, robot.getId(),
+            Robot.RobotStatus.IDLE, null, 200).join();
+        assertEquals(Robot.RobotStatus.IDLE, unchanged.getStatus());
+
+        battleService.moveRobot(pollBattleId, robot.getId(), "NORTH", 1);
+        RobotStatus afterMove = battleService.awaitRobotStatusChangeAsync(pollBattleId, robot.getId(),
+            Robot.RobotStatus.MOVING, null, 10_000).join();
+        assertEquals(Robot.RobotStatus.IDLE, afterMove.getStatus(), "Poll should return once the robot stops");
+        assertEquals(11, robot.getPositionY());
+    }
+
+    @Test
+    void testRobotActionsArePagedBySequenceNumber() {
+        String actionsBattleId = createDeterministicBattle("ActionPagingTest");
+        Robot robot = battleService.registerRobotForBattle("ScanningRobot", actionsBattleId);
+        battleService.registerRobotForBattle("DummyRobot", actionsBattleId);
+        battleService.startBattle(actionsBattleId);
+        for (int i = 0; i < 5; i++) {
+            battleService.performRadarScan(actionsBattleId, robot.getId(), 3);
+        }
+
+        RobotActionPage firstPage = battleService.getRobotActions(actionsBattleId, 0, 3);
+        assertEquals(List.of(1L, 2L, 3L), firstPage.actions().stream().map(RobotAction::getSeq).toList());
+        assertEquals(5, firstPage.lastSeq());
+        RobotActionPage secondPage = battleService.getRobotActions(actionsBattleId, firstPage.getNextAfter(), 3);
+        assertEquals(List.of(4L, 5L), secondPage.actions().stream().map(RobotAction::getSeq).toList());
+        assertThrows(IllegalArgumentException.class, () -> battleService.getRobotActions(actionsBattleId, 0, 0));
+    }
+
+    @Test
+    void testCommandResultsAreHandedOverOnTheBattleMailbox() {
+        String channelBattleId = createDeterministicBattle("CommandChannelTest");
+        Robot robot = battleService.registerRobotForBattle("ChannelRobot", channelBattleId);
+        battleService.registerRobotForBattle("DummyRobot", channelBattleId);
+        battleService.setRobotPositionForTesting(channelBattleId, robot.getId(), 10, 10);
+        battleService.startBattle(channelBattleId);
+
+        List<RobotCommandResult> received = new ArrayList<>();
+        battleService.executeCommandsAsync(channelBattleId, robot.getId(),
+            List.of(new RobotCommand(RobotCommand.Type.MOVE, "EAST", 1, null)), received::addAll).join();
+        assertEquals(1, received.size(), "Results should be handed over before the future completes");
+        assertEquals(RobotCommand.Type.MOVE, received.get(0).getType());
+
+        received.clear();
+        CompletionException failure = assertThrows(CompletionException.class,
+            () -> battleService.executeCommandsAsync(channelBattleId, robot.getId(),
+                List.of(new RobotCommand(RobotCommand.Type.LASER, "UP", null, null)), received::addAll).join());
+        assertTrue(failure.getCause() instanceof IllegalArgumentException);
+        assertTrue(received.isEmpty(), "A rejected batch has no results to hand over");
+    }
 }
@@ -0,0 +1,125 @@
+package za.co.sww.rwars.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the rate-limited battle state publisher.
+ */
+class BattleStatePublisherTest {
+
+    private final ManualClock clock = new ManualClock();
+    private final List<Runnable> delayed = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+    private final List<Runnable> mailbox = new ArrayList<>();
+    private final List<String> published = new ArrayList<>();
+
+    /**
+     * Timer that keeps delayed tasks for the test to run.
+     */
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1) {
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            delayed.add(command);
+            delays.add(unit.toNanos(delay));
+            return null;
+        }
+    };
+
+    private final BattleStatePublisher publisher = new BattleStatePublisher(10, clock, timer, published::add);
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    void testChangesAreCoalescedUpToTheMaximumRate() {
+        publisher.markDirty("battle-1", null);
+        assertEquals(1, published.size(), "The first change should go out straight away");
+
+        clock.nanos += TimeUnit.MILLISECONDS.toNanos(30);
+        for (int i = 0; i < 100; i++) {
+            publisher.markDirty("battle-1", null);
+        }
+        assertEquals(1, published.size(), "Changes within the interval should wait");
+        assertEquals(List.of(TimeUnit.MILLISECONDS.toNanos(70)), delays, "One broadcast waits for the interval");
+
+        clock.nanos += TimeUnit.MILLISECONDS.toNanos(70);
+        runDelayed();
+        assertEquals(2, published.size(), "Waiting changes should go out together once");
+    }
+
+    @Test
+    void testPublishNowDropsThePendingBroadcast() {
+        publisher.markDirty("battle-1", null);
+        publisher.markDirty("battle-1", null);
+
+        publisher.publishNow("battle-1", null);
+        assertEquals(2, published.size());
+
+        clock.nanos += TimeUnit.MILLISECONDS.toNanos(100);
+        runDelayed();
+        assertEquals(2, published.size(), "The pending changes went out with the immediate broadcast");
+
+        publisher.markDirty("battle-2", null);
+        assertEquals(List.of("battle-1", "battle-1", "battle-2"), published, "Battles are limited separately");
+    }
+
+    @Test
+    void testPublishNowIsQueuedBehindTheCurrentCommand() {
+        publisher.publishNow("battle-1", mailbox::add);
+        publisher.publishNow("battle-1", mailbox::add);
+        assertTrue(published.isEmpty(), "Nothing is broadcast inside the command");
+
+        runMailbox();
+        assertEquals(List.of("battle-1"), published, "Both events went out in one broadcast");
+    }
+
+    @Test
+    void testQueuedBroadcastOfAForgottenBattleDoesNothing() {
+        publisher.markDirty("battle-1", mailbox::add);
+        publisher.forget("battle-1");
+
+        runMailbox();
+        assertTrue(published.isEmpty());
+    }
+
+    private void runDelayed() {
+        while (!delayed.isEmpty()) {
+            delayed.remove(0).run();
+        }
+    }
+
+    private void runMailbox() {
+        while (!mailbox.isEmpty()) {
+            mailbox.remove(0).run();
+        }
+    }
+
+    /**
+     * Clock that only moves when the test moves it.
+     */
+    private static final class ManualClock implements SimulationClock {
+        private long nanos;
+
+        @Override
+        public long nanoTime() {
+            return nanos;
+        }
+
+        @Override
+        public long delayUntil(long deadlineNanos) {
+            return deadlineNanos - nanos;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package za.co.sww.rwars.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for the per-battle simulation loops, run on a virtual clock so that no test waits for real time.
+ */
+class BattleTickSchedulerTest {
+
+    private static final long PERIOD = TimeUnit.SECONDS.toNanos(1);
+
+    private final VirtualClock clock = new VirtualClock();
+    private final List<VirtualClock> acceleratedClocks = new CopyOnWriteArrayList<>();
+    private final BattleTickScheduler scheduler = new BattleTickScheduler(new SimpleMeterRegistry(), clock, () -> {
+        VirtualClock acceleratedClock = new VirtualClock();
+        acceleratedClocks.add(acceleratedClock);
+        return acceleratedClock;
+    }, 1);
+    private final ExecutorService mailbox = Executors.newSingleThreadExecutor();
+    private final List<Long> tickTimes = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+        mailbox.shutdownNow();
+    }
+
+    @Test
+    void testLoopTicksOnScheduleUntilThereIsNoMoreWork() throws Exception {
+        AtomicInteger ticks = new AtomicInteger();
+
+        wakeAndAwaitIdle(() -> {
+            tickTimes.add(clock.nanoTime());
+            return ticks.incrementAndGet() < 4;
+        });
+
+        assertEquals(List.of(0L, PERIOD, 2 * PERIOD, 3 * PERIOD), tickTimes);
+    }
+
+    @Test
+    void testFailingTicksBackOffAndThenStop() throws Exception {
+        AtomicBoolean broken = new AtomicBoolean(true);
+        BooleanSupplier tick = () -> {
+            tickTimes.add(clock.nanoTime());
+            if (broken.get()) {
+                throw new IllegalStateException("Broken battle");
+            }
+            return false;
+        };
+
+        wakeAndAwaitIdle(tick);
+
+        // Each retry waits twice as long as the one before, until the loop gives up
+        assertEquals(BattleTickScheduler.MAX_FAILED_TICKS, tickTimes.size());
+        assertEquals(List.of(0L, 2 * PERIOD, 6 * PERIOD, 14 * PERIOD, 30 * PERIOD), tickTimes);
+
+        // Waking the battle again starts over
+        broken.set(false);
+        wakeAndAwaitIdle(tick);
+        assertEquals(BattleTickScheduler.MAX_FAILED_TICKS + 1, tickTimes.size());
+    }
+
+    @Test
+    void testLoopThatGivesUpTellsTheBattleBeforeGoingIdle() throws Exception {
+        AtomicInteger givenUp = new AtomicInteger();
+
+        scheduler.wake("battle-1", 1.0, false, mailbox, () -> {
+            throw new IllegalStateException("Broken battle");
+        }, () -> false, givenUp::incrementAndGet);
+        int givenUpWhenIdle = mailbox.submit(() -> scheduler.whenIdle("battle-1")).get(5, TimeUnit.SECONDS)
+                .thenApply(idle -> givenUp.get()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, givenUpWhenIdle, "Waiters should only hear of the idle loop once the battle was told");
+        assertEquals(1, givenUp.get());
+    }
+
+    @Test
+    void testTickThatRecoversCarriesOnAtTheNormalRate() throws Exception {
+        AtomicInteger ticks = new AtomicInteger();
+
+        wakeAndAwaitIdle(() -> {
+            tickTimes.add(clock.nanoTime());
+            int tick = ticks.incrementAndGet();
+            if (tick == 1) {
+                throw new IllegalStateException("Passing fault");
+            }
+            return tick < 3;
+        });
+
+        assertEquals(List.of(0L, 2 * PERIOD, 3 * PERIOD), tickTimes);
+    }
+
+    @Test
+    void testAcceleratedBattlesRunOnClocksOfTheirOwn() throws Exception {
+        AtomicInteger ticks = new AtomicInteger();
+
+        scheduler.wake("battle-2", 10.0, true, mailbox, () -> {
+            tickTimes.add(acceleratedClocks.get(0).nanoTime());
+            return ticks.incrementAndGet() < 3;
+        }, () -> false);
+        mailbox.submit(() -> scheduler.whenIdle("battle-2")).get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(0L, 10 * PERIOD, 20 * PERIOD), tickTimes);
+        assertEquals(1, acceleratedClocks.size());
+        assertEquals(0L, clock.nanoTime(), "The shared clock should not move for an accelerated battle");
+    }
+
+    private void wakeAndAwaitIdle(BooleanSupplier tick) throws Exception {
+        scheduler.wake("battle-1", 1.0, mailbox, tick, () -> false);
+        // Asked for on the mailbox, behind the first tick, so the loop cannot go idle unseen
+        CompletableFuture<Void> idle = mailbox.submit(() -> scheduler.whenIdle("battle-1")).get(5, TimeUnit.SECONDS);
+        idle.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,121 @@
+package za.co.sww.rwars.backend.service;
+
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.LaserPath;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.Robot.Direction;
+import za.co.sww.rwars.backend.model.Wall;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Unit tests for tracing laser shots across the arena.
+ */
+class LaserEngineTest {
+
+    private final LaserEngine engine = new LaserEngine();
+    private final Battle battle = new Battle("Lasers", 20, 20);
+    private final Robot shooter = robotAt("Shooter", 5, 5);
+
+    @Test
+    void testLaserHitsTheFirstRobotInItsPath() {
+        Robot near = robotAt("Near", 5, 8);
+        robotAt("Far", 5, 9);
+
+        LaserEngine.Trace trace = engine.trace(battle, shooter, Direction.NORTH, 10);
+
+        assertEquals(LaserEngine.Outcome.ROBOT, trace.outcome());
+        assertSame(near, trace.hitRobot());
+        assertEquals("ROBOT", trace.blockedBy());
+        assertPath(trace.path(), 5, 5, 0, 1, 3);
+    }
+
+    @Test
+    void testLaserPassesOverDestroyedRobots() {
+        Robot destroyed = robotAt("Destroyed", 7, 5);
+        destroyed.setStatus(Robot.RobotStatus.DESTROYED);
+        Robot target = robotAt("Target", 9, 5);
+
+        LaserEngine.Trace trace = engine.trace(battle, shooter, Direction.EAST, 10);
+
+        assertSame(target, trace.hitRobot());
+        assertEquals(4, trace.path().getLength());
+    }
+
+    @Test
+    void testLaserStopsAtTheFirstWall() {
+        Wall wall = new Wall(Wall.WallType.LONG);
+        wall.addRectangle(2, 0, 1, 20);
+        battle.setWalls(List.of(wall));
+        robotAt("Behind", 1, 5);
+
+        LaserEngine.Trace trace = engine.trace(battle, shooter, Direction.WEST, 10);
+
+        assertEquals(LaserEngine.Outcome.WALL, trace.outcome());
+        assertNull(trace.hitRobot());
+        assertPath(trace.path(), 5, 5, -1, 0, 3);
+        assertEquals(2, trace.path().get(3).getX());
+    }
+
+    @Test
+    void testLaserThatRunsOutOfRangeIsNotBlocked() {
+        robotAt("Out of range", 5, 2);
+
+        LaserEngine.Trace trace = engine.trace(battle, shooter, Direction.SOUTH, 2);
+
+        assertEquals(LaserEngine.Outcome.NONE, trace.outcome());
+        assertNull(trace.blockedBy());
+        assertPath(trace.path(), 5, 5, 0, -1, 2);
+    }
+
+    @Test
+    void testLaserStopsAtTheArenaBoundary() {
+        LaserEngine.Trace trace = engine.trace(battle, shooter, Direction.SOUTH, 10);
+
+        assertEquals(LaserEngine.Outcome.BOUNDARY, trace.outcome());
+        // From Y=5 down to the edge of the arena at Y=0
+        assertPath(trace.path(), 5, 5, 0, -1, 5);
+    }
+
+    @Test
+    void testDiagonalLasersStepBothAxesAndClipToTheNearerEdge() {
+        Robot target = robotAt("Diagonal", 8, 2);
+
+        LaserEngine.Trace hit = engine.trace(battle, shooter, Direction.SE, 10);
+        assertSame(target, hit.hitRobot());
+        assertPath(hit.path(), 5, 5, 1, -1, 3);
+
+        // Going north-west the X edge (5 steps) comes before the Y edge (14 steps)
+        LaserEngine.Trace clipped = engine.trace(battle, shooter, Direction.NW, 10);
+        assertEquals(LaserEngine.Outcome.BOUNDARY, clipped.outcome());
+        assertPath(clipped.path(), 5, 5, -1, 1, 5);
+    }
+
+    @Test
+    void testLaserStartsInTheCellAfterTheFiringRobot() {
+        robotAt("Same cell", 5, 5);
+
+        LaserEngine.Trace trace = engine.trace(battle, shooter, Direction.NE, 1);
+
+        assertEquals(LaserEngine.Outcome.NONE, trace.outcome());
+        assertEquals(2, trace.path().size());
+    }
+
+    private Robot robotAt(String name, int x, int y) {
+        Robot robot = new Robot(name, battle.getId());
+        robot.setPositionX(x);
+        robot.setPositionY(y);
+        battle.addRobot(robot);
+        return robot;
+    }
+
+    private static void assertPath(LaserPath path, int startX, int startY, int deltaX, int deltaY, int length) {
+        assertEquals(List.of(startX, startY, deltaX, deltaY, length),
+                List.of(path.getStartX(), path.getStartY(), path.getDeltaX(), path.getDeltaY(), path.getLength()));
+    }
+}
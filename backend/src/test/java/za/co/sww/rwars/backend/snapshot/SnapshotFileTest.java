@@ -0,0 +1,137 @@
+package za.co.sww.rwars.backend.snapshot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.journal.JournalPosition;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.BattleSnapshot;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.Wall;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for writing registry snapshots and reading them back.
+ */
+class SnapshotFileTest {
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-test");
+        file = directory.resolve(SnapshotService.SNAPSHOT_FILE);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    void testBattlesAreReadBackAsSaved() throws IOException {
+        Battle battle = new Battle("Saved", 30, 20);
+        battle.setSeed(7);
+        Wall wall = new Wall(Wall.WallType.LONG);
+        wall.addRectangle(2, 3, 1, 10);
+        battle.setWalls(List.of(wall));
+        Robot moving = new Robot("Mover", battle.getId());
+        moving.setPositionX(4);
+        moving.setPositionY(5);
+        moving.setDirection(Robot.Direction.NE);
+        moving.setStatus(Robot.RobotStatus.MOVING);
+        moving.setTargetBlocks(6);
+        moving.setBlocksRemaining(2);
+        Robot hit = new Robot("Hit", battle.getId());
+        hit.setHitPoints(40);
+        battle.addRobot(moving);
+        battle.addRobot(hit);
+        battle.setState(Battle.BattleState.IN_PROGRESS);
+        battle.addRobotAction(moving.getId(), moving.getName(), "move");
+        Battle empty = new Battle("Empty", 10, 10);
+
+        SnapshotFile.write(file, 1000, List.of(
+                new SavedBattle(BattleSnapshot.of(battle), new JournalPosition(3, 512)),
+                new SavedBattle(BattleSnapshot.of(empty), null)));
+        List<ByteBuffer> battles = SnapshotFile.read(file);
+
+        assertEquals(2, battles.size());
+        SavedBattle saved = SnapshotCodec.decode(battles.get(0));
+        assertEquals(new JournalPosition(3, 512), saved.journalPosition());
+        Battle restored = saved.battle().restore();
+        assertEquals(battle.getId(), restored.getId());
+        assertEquals("Saved", restored.getName());
+        assertEquals(7, restored.getSeed());
+        assertEquals(Battle.BattleState.IN_PROGRESS, restored.getState());
+        assertTrue(restored.isPositionOccupiedByWall(2, 12));
+        Robot mover = restored.getRobots().get(0);
+        assertEquals(moving.getId(), mover.getId());
+        assertEquals(4, mover.getPositionX());
+        assertEquals(Robot.Direction.NE, mover.getDirection());
+        assertEquals(Robot.RobotStatus.MOVING, mover.getStatus());
+        assertEquals(2, mover.getBlocksRemaining());
+        assertEquals(40, restored.getRobots().get(1).getHitPoints());
+        assertEquals("move", restored.getRobotActions().get(0).getAction());
+        assertEquals(moving.getName(), restored.getRobotActions().get(0).getRobotName());
+
+        SavedBattle second = SnapshotCodec.decode(battles.get(1));
+        assertNull(second.journalPosition());
+        assertEquals(empty.getId(), second.battle().id());
+        assertTrue(second.battle().robots().isEmpty());
+    }
+
+    @Test
+    void testDamagedBattlesAreLeftOut() throws IOException {
+        Battle first = new Battle("First", 10, 10);
+        Battle second = new Battle("Second", 10, 10);
+        SnapshotFile.write(file, 1000, List.of(new SavedBattle(BattleSnapshot.of(first), null),
+                new SavedBattle(BattleSnapshot.of(second), null)));
+
+        // Damage the second battle, which is at the end of the file
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 20]++;
+        Files.write(file, bytes);
+
+        List<ByteBuffer> battles = SnapshotFile.read(file);
+        assertEquals(1, battles.size());
+        assertEquals(first.getId(), SnapshotCodec.decode(battles.get(0)).battle().id());
+    }
+
+    @Test
+    void testBattleThatCannotBeEncodedIsSkipped() throws IOException {
+        Battle first = new Battle("First", 10, 10);
+        Battle huge = new Battle("Huge", 40_000, 10);
+        Battle last = new Battle("Last", 10, 10);
+
+        int written = SnapshotFile.write(file, 1000, List.of(new SavedBattle(BattleSnapshot.of(first), null),
+                new SavedBattle(BattleSnapshot.of(huge), null), new SavedBattle(BattleSnapshot.of(last), null)));
+
+        assertEquals(2, written);
+        List<ByteBuffer> battles = SnapshotFile.read(file);
+        assertEquals(2, battles.size());
+        assertEquals(first.getId(), SnapshotCodec.decode(battles.get(0)).battle().id());
+        assertEquals(last.getId(), SnapshotCodec.decode(battles.get(1)).battle().id());
+    }
+
+    @Test
+    void testOtherVersionsAreRejected() throws IOException {
+        SnapshotFile.write(file, 1000, List.of());
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[5] = (byte) (SnapshotFile.VERSION + 1);
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> SnapshotFile.read(file));
+    }
+}
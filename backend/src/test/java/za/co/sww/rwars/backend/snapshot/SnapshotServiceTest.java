@@ -0,0 +1,202 @@
+package za.co.sww.rwars.backend.snapshot;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.journal.JournalService;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.BattleSnapshot;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.RobotAction;
+import za.co.sww.rwars.backend.service.BattleService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for saving battles and restoring them after a restart.
+ *
+ * A restart is played by deleting a completed battle while keeping its journal files, then restoring: the battle
+ * comes back from the snapshot and the journal alone.
+ */
+@QuarkusTest
+@TestProfile(SnapshotServiceTest.SnapshotProfile.class)
+class SnapshotServiceTest {
+
+    @Inject
+    private SnapshotService snapshotService;
+
+    @Inject
+    private BattleService battleService;
+
+    @Inject
+    private JournalService journalService;
+
+    @Inject
+    private BattleRestoreCheck restoreCheck;
+
+    @Test
+    void testBattleIsRestoredFromItsSnapshotAndTheEventsAfterIt() throws IOException {
+        Battle battle = startBattle("Snapshot");
+        Robot scanner = battle.getRobots().get(0);
+        battleService.performRadarScan(battle.getId(), scanner.getId(), 3);
+        assertTrue(snapshotService.write() > 0);
+
+        // Everything from here on is only in the journal
+        finishBattle(battle);
+        BattleSnapshot live = copy(battle.getId());
+
+        restart(battle.getId());
+
+        BattleSnapshot restored = copy(battle.getId());
+        assertSameBattle(live, restored);
+        assertEquals(Battle.BattleState.COMPLETED, restored.state());
+        assertEquals(scanner.getId(), restored.winnerId());
+    }
+
+    @Test
+    void testBattleCreatedAfterTheSnapshotIsRebuiltFromItsJournal() throws IOException {
+        snapshotService.write();
+        Battle battle = startBattle("Journal");
+        finishBattle(battle);
+        BattleSnapshot live = copy(battle.getId());
+
+        restart(battle.getId());
+
+        assertSameBattle(live, copy(battle.getId()));
+    }
+
+    @Test
+    void testBattleDeletedAfterTheSnapshotIsNotRestored() throws IOException {
+        Battle battle = startBattle("Deleted");
+        finishBattle(battle);
+        snapshotService.write();
+
+        battleService.deleteBattle(battle.getId());
+        snapshotService.restore();
+
+        assertFalse(battleService.isValidBattleId(battle.getId()));
+    }
+
+    @Test
+    void testRestoredBattleRegistersItsRobotsAndCarriesOnMovingThem() {
+        Battle battle = new Battle("Restored-" + UUID.randomUUID(), 20, 20, 0.05);
+        Robot mover = new Robot("Mover", battle.getId());
+        mover.setPositionX(5);
+        mover.setPositionY(5);
+        mover.setDirection(Robot.Direction.EAST);
+        mover.setStatus(Robot.RobotStatus.MOVING);
+        mover.setTargetBlocks(5);
+        mover.setBlocksRemaining(3);
+        Robot waiting = new Robot("Waiting", battle.getId());
+        waiting.setPositionX(5);
+        waiting.setPositionY(15);
+        battle.addRobot(mover);
+        battle.addRobot(waiting);
+        battle.setState(Battle.BattleState.IN_PROGRESS);
+
+        battleService.restoreBattle(battle);
+
+        assertTrue(battleService.isValidBattleAndRobotId(battle.getId(), mover.getId()));
+        assertTrue(battleService.isValidBattleAndRobotId(battle.getId(), waiting.getId()));
+        battleService.awaitIdle(battle.getId());
+        Robot moved = battleService.getRobotDetails(battle.getId(), mover.getId());
+        assertEquals(8, moved.getPositionX());
+        assertEquals(0, moved.getBlocksRemaining());
+    }
+
+    @Test
+    void testServiceIsReadyOnceBattlesAreRestored() {
+        assertTrue(snapshotService.isRestored());
+        assertEquals(HealthCheckResponse.Status.UP, restoreCheck.call().getStatus());
+    }
+
+    private Battle startBattle(String name) {
+        Battle battle = battleService.createBattle(name + "-" + UUID.randomUUID(), 10, 10, 0.05);
+        battleService.registerRobotForBattle("Survivor", battle.getId());
+        battleService.registerRobotForBattle("Runner", battle.getId());
+        battleService.startBattle(battle.getId());
+        return battle;
+    }
+
+    /**
+     * Runs the second robot into the arena's edge or a wall, which leaves the first one the winner.
+     */
+    private void finishBattle(Battle battle) {
+        battleService.moveRobot(battle.getId(), battle.getRobots().get(1).getId(), "NORTH", 20);
+        battleService.awaitIdle(battle.getId());
+        assertEquals(Battle.BattleState.COMPLETED, copy(battle.getId()).state());
+    }
+
+    private BattleSnapshot copy(String battleId) {
+        return battleService.readBattleAsync(battleId, BattleSnapshot::of).join();
+    }
+
+    /**
+     * Deletes a battle but puts its journal files back, then restores, as a restart after the battle would.
+     */
+    private void restart(String battleId) throws IOException {
+        Path journal = journalService.battleDirectory(battleId);
+        journalService.flush(battleId);
+        Path kept = Files.createTempDirectory("snapshot-service-test");
+        copyFiles(journal, kept);
+        battleService.deleteBattle(battleId);
+        assertFalse(battleService.isValidBattleId(battleId));
+
+        Files.createDirectories(journal);
+        copyFiles(kept, journal);
+        try (Stream<Path> files = Files.list(kept)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(kept);
+        snapshotService.restore();
+        assertTrue(battleService.isValidBattleId(battleId));
+    }
+
+    private static void copyFiles(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, to.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static void assertSameBattle(BattleSnapshot expected, BattleSnapshot actual) {
+        assertEquals(expected.id(), actual.id());
+        assertEquals(expected.name(), actual.name());
+        assertEquals(expected.state(), actual.state());
+        assertEquals(expected.winnerId(), actual.winnerId());
+        assertEquals(expected.walls().size(), actual.walls().size());
+        assertEquals(expected.robots(), actual.robots());
+        List<String> expectedActions = expected.robotActions().stream().map(RobotAction::getAction).toList();
+        assertEquals(expectedActions, actual.robotActions().stream().map(RobotAction::getAction).toList());
+    }
+
+    /**
+     * Turns snapshots on, with files of their own, for the restore tests.
+     */
+    public static class SnapshotProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("battle.snapshot.enabled", "true",
+                    "battle.snapshot.directory", "build/snapshot-test/snapshot",
+                    "battle.snapshot.interval-seconds", "3600",
+                    "battle.journal.directory", "build/snapshot-test/journal");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.websocket.CloseReason;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.journal.JournalEvent;
+import za.co.sww.rwars.backend.journal.JournalRecord;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.replay.BattleReplay;
+import za.co.sww.rwars.backend.replay.ReplayService;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for opening and closing battle replay sessions.
+ */
+class BattleReplaySocketTest {
+
+    private final Battle battle = new Battle("Replayed", 10, 10);
+    private int acquired;
+    private int released;
+
+    private final ReplayService replayService = new ReplayService() {
+        @Override
+        public BattleReplay acquire(String battleId) {
+            if (!battle.getId().equals(battleId)) {
+                throw new IllegalArgumentException("No recording of battle " + battleId);
+            }
+            acquired++;
+            return BattleReplay.of(List.of(new JournalRecord(1000, JournalEvent.BattleCreated.of(battle))), 10);
+        }
+
+        @Override
+        public void release(String battleId) {
+            released++;
+        }
+    };
+
+    private final BattleReplaySocket socket = new BattleReplaySocket(replayService,
+            new ObjectMapper().findAndRegisterModules(), new SimpleMeterRegistry(), 50, 4, 10);
+
+    @AfterEach
+    void tearDown() {
+        socket.shutdown();
+    }
+
+    @Test
+    void testInvalidRequestIsClosedAfterItsError() {
+        TestSession session = TestSession.recording("s1").withParameters(Map.of("speed", List.of("slow")));
+
+        socket.onOpen(session.session(), battle.getId());
+
+        assertTrue(session.texts().get(0).contains("Invalid replay speed"));
+        assertEquals(CloseReason.CloseCodes.VIOLATED_POLICY, session.closeReason().getCloseCode());
+        assertEquals(0, acquired);
+    }
+
+    @Test
+    void testBattleWithoutARecordingIsClosedAfterItsError() {
+        TestSession session = TestSession.recording("s1");
+
+        socket.onOpen(session.session(), "unknown");
+
+        assertTrue(session.texts().get(0).contains("Cannot replay battle unknown"));
+        assertEquals(CloseReason.CloseCodes.CANNOT_ACCEPT, session.closeReason().getCloseCode());
+    }
+
+    @Test
+    void testClosedViewerReleasesItsReplayOnce() {
+        TestSession session = TestSession.recording("s1");
+
+        socket.onOpen(session.session(), battle.getId());
+        assertFalse(session.isClosed());
+        assertTrue(session.texts().get(0).contains("\"type\":\"replay\""));
+
+        socket.onError(session.session(), battle.getId(), new IllegalStateException("Connection reset"));
+        socket.onClose(session.session(), battle.getId());
+        assertEquals(1, acquired);
+        assertEquals(1, released);
+    }
+}
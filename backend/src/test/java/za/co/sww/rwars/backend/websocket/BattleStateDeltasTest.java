@@ -0,0 +1,144 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the delta stream of battle state broadcasts.
+ */
+class BattleStateDeltasTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> sent = new ArrayList<>();
+    private Battle battle;
+    private Robot first;
+    private Robot second;
+    private BattleStateDeltas deltas;
+
+    @BeforeEach
+    void setUp() {
+        battle = new Battle("Delta Arena", 20, 20);
+        first = new Robot("First");
+        second = new Robot("Second");
+        battle.addRobot(first);
+        battle.addRobot(second);
+        deltas = new BattleStateDeltas(battle.getId(), new FrameEncoder(mapper, registry));
+    }
+
+    @Test
+    void testSnapshotThenOnlyChangedFields() throws Exception {
+        deltas.subscribe(recordingOutbox("s1"), battle);
+        JsonNode snapshot = mapper.readTree(sent.get(0));
+        assertEquals("snapshot", snapshot.get("type").asText());
+        assertEquals(0, snapshot.get("seq").asLong());
+        assertEquals(2, snapshot.get("robots").size());
+
+        first.setPositionX(5);
+        deltas.broadcast(battle);
+        JsonNode delta = mapper.readTree(sent.get(1));
+        assertEquals("delta", delta.get("type").asText());
+        assertEquals(1, delta.get("seq").asLong());
+        assertEquals(1, delta.get("robots").size());
+        JsonNode robot = delta.get("robots").get(0);
+        assertEquals(first.getId(), robot.get("id").asText());
+        assertEquals(5, robot.get("positionX").asInt());
+        assertEquals(2, robot.size(), "Only the ID and the changed field should be sent");
+        assertFalse(delta.has("walls"));
+        assertFalse(delta.has("battleState"));
+
+        deltas.broadcast(battle);
+        assertEquals(2, sent.size(), "Nothing changed, so nothing should be sent");
+    }
+
+    @Test
+    void testStateTransitionsAndRemovedRobots() throws Exception {
+        deltas.subscribe(recordingOutbox("s1"), battle);
+
+        battle.setState(Battle.BattleState.IN_PROGRESS);
+        battle.removeRobot(second);
+        deltas.broadcast(battle);
+
+        JsonNode delta = mapper.readTree(sent.get(1));
+        assertEquals("IN_PROGRESS", delta.get("battleState").asText());
+        assertEquals(second.getId(), delta.get("removedRobots").get(0).asText());
+        assertFalse(delta.has("robots"));
+    }
+
+    @Test
+    void testLateSubscriberSharesTheBaseline() throws Exception {
+        deltas.subscribe(recordingOutbox("s1"), battle);
+        first.setHitPoints(80);
+
+        // The pending change goes to the first session before the second one gets its snapshot
+        deltas.subscribe(recordingOutbox("s2"), battle);
+        assertEquals(3, sent.size());
+        assertEquals(1, mapper.readTree(sent.get(1)).get("seq").asLong());
+        JsonNode snapshot = mapper.readTree(sent.get(2));
+        assertEquals("snapshot", snapshot.get("type").asText());
+        assertEquals(1, snapshot.get("seq").asLong());
+
+        first.setHitPoints(60);
+        deltas.broadcast(battle);
+        assertEquals(5, sent.size(), "Both sessions should get the next delta");
+        assertEquals(sent.get(3), sent.get(4));
+        assertTrue(sent.get(3).contains("\"hitPoints\":60"));
+    }
+
+    @Test
+    void testEachDeltaIsSerializedOnceForAllSessions() {
+        for (int i = 0; i < 3; i++) {
+            deltas.subscribe(recordingOutbox("s" + i), battle);
+        }
+        sent.clear();
+
+        first.setPositionY(7);
+        deltas.broadcast(battle);
+
+        assertEquals(3, sent.size());
+        assertSame(sent.get(0), sent.get(1));
+        assertSame(sent.get(0), sent.get(2));
+        assertEquals(1, registry.find("battle.broadcast.encode").tag("kind", "delta").timer().count());
+    }
+
+    @Test
+    void testNewActionsAreSentBySequenceNumber() throws Exception {
+        battle.configureRobotActionLog(4, 2);
+        battle.addRobotAction(first.getId(), first.getName(), "move");
+        deltas.subscribe(recordingOutbox("s1"), battle);
+        assertEquals(1, mapper.readTree(sent.get(0)).get("robotActions").size());
+
+        // More actions than the state embeds still all reach the stream
+        for (int i = 0; i < 3; i++) {
+            battle.addRobotAction(second.getId(), second.getName(), "radar");
+        }
+        deltas.broadcast(battle);
+        JsonNode actions = mapper.readTree(sent.get(1)).get("robotActions");
+        assertEquals(3, actions.size());
+        assertEquals(2, actions.get(0).get("seq").asLong());
+        assertEquals(4, actions.get(2).get("seq").asLong());
+
+        deltas.broadcast(battle);
+        assertEquals(2, sent.size(), "Actions already sent should not be sent again");
+    }
+
+    private SessionOutbox recordingOutbox(String id) {
+        SessionOutbox.Stats stats = new SessionOutbox.Stats(new AtomicInteger(), registry.counter("dropped"),
+            registry.counter("disconnected"));
+        return new SessionOutbox(TestSession.recording(id, sent).session(), battle.getId(), 16, Long.MAX_VALUE, stats);
+    }
+}
@@ -0,0 +1,183 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.service.BattleService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the session bookkeeping of the battle state endpoint.
+ */
+class BattleStateSocketTest {
+
+    private final Battle battle = new Battle("Socket Arena", 10, 10);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<TestSession> sessions = new ArrayList<>();
+    private final List<Runnable> mailbox = new ArrayList<>();
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+    private final BattleService battleService = new BattleService() {
+        @Override
+        public boolean isValidBattleId(String battleId) {
+            return battle.getId().equals(battleId);
+        }
+
+        @Override
+        public Battle getBattleStatus(String battleId) {
+            return battle;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> readBattleAsync(String battleId, Function<Battle, T> reader) {
+            // Queued like a command on the battle's mailbox, until the test runs the mailbox
+            CompletableFuture<T> read = new CompletableFuture<>();
+            mailbox.add(() -> read.complete(battle.getId().equals(battleId) ? reader.apply(battle) : null));
+            return read;
+        }
+    };
+
+    private final BattleStateSocket socket = new BattleStateSocket(battleService, mapper, registry, 4, 0);
+
+    @AfterEach
+    void tearDown() {
+        socket.shutdown();
+    }
+
+    @Test
+    void testBattleMetersAreRemovedWithTheLastSession() {
+        Session first = session("s1");
+        Session second = session("s2");
+        socket.onOpen(first, battle.getId());
+        socket.onOpen(second, battle.getId());
+        assertEquals(3, battleMeterCount());
+
+        socket.onClose(first, battle.getId());
+        assertEquals(3, battleMeterCount(), "The other session still uses the metrics");
+        assertNotNull(registry.find("battle.websocket.queue-depth").tag("battleId", battle.getId()).gauge());
+
+        socket.onError(second, battle.getId(), new IllegalStateException("Connection reset"));
+        assertEquals(0, battleMeterCount());
+
+        // A battle that gets a session again gets its metrics again
+        socket.onOpen(session("s3"), battle.getId());
+        assertEquals(3, battleMeterCount());
+    }
+
+    @Test
+    void testDeletedBattleClosesItsSessionsAndRemovesItsMeters() {
+        socket.onOpen(session("s1"), battle.getId());
+        socket.onOpen(session("other"), "other-battle");
+        completeInFlight();
+
+        socket.closeBattle(battle.getId());
+
+        assertEquals(CloseReason.CloseCodes.GOING_AWAY, closeReason("s1").getCloseCode());
+        assertNull(closeReason("other"), "Sessions of other battles stay open");
+        assertEquals(0, battleMeterCount());
+        assertEquals(3, registry.find("battle.websocket.dropped-frames").meters().size()
+                + registry.find("battle.websocket.queue-depth").meters().size()
+                + registry.find("battle.websocket.slow-disconnects").meters().size());
+    }
+
+    @Test
+    void testStuckSessionIsDisconnectedWithoutAnotherFrame() {
+        socket.onOpen(session("s1"), battle.getId());
+        assertEquals(1, sessions.get(0).inFlight(), "The initial state is in flight and never completes");
+
+        socket.disconnectStuckSessions();
+
+        assertEquals(CloseReason.CloseCodes.TRY_AGAIN_LATER, closeReason("s1").getCloseCode());
+        assertEquals(1.0, registry.find("battle.websocket.slow-disconnects").tag("battleId", battle.getId())
+                .counter().count());
+    }
+
+    @Test
+    void testSessionThatKeepsUpIsNotDisconnected() {
+        socket.onOpen(session("s1"), battle.getId());
+        completeInFlight();
+
+        socket.disconnectStuckSessions();
+
+        assertFalse(sessions.get(0).isClosed());
+    }
+
+    @Test
+    void testDeltaSessionIsSubscribedOnTheBattlesMailbox() throws Exception {
+        Robot robot = new Robot("Mover");
+        battle.addRobot(robot);
+        TestSession session = TestSession.recording("s1").withParameters(Map.of("mode", List.of("delta")));
+
+        socket.onOpen(session.session(), battle.getId());
+        assertTrue(session.texts().isEmpty(), "The snapshot is taken on the mailbox, not on the socket's thread");
+
+        // A command queued before the subscription is in the snapshot
+        robot.setPositionX(4);
+        runMailbox();
+
+        JsonNode snapshot = mapper.readTree(session.texts().get(0));
+        assertEquals("snapshot", snapshot.get("type").asText());
+        assertEquals(4, snapshot.get("robots").get(0).get("positionX").asInt());
+        assertEquals(robot.getId(), snapshot.get("robots").get(0).get("id").asText());
+        assertEquals(battle.getId(), snapshot.get("robots").get(0).get("battleId").asText());
+    }
+
+    @Test
+    void testBinarySessionIsSubscribedOnTheBattlesMailbox() {
+        battle.addRobot(new Robot("Mover"));
+        TestSession session = TestSession.recording("s1").withSubprotocol(BinaryBattleState.SUBPROTOCOL);
+
+        socket.onOpen(session.session(), battle.getId());
+        assertTrue(session.binaries().isEmpty(), "The dictionary is built on the mailbox, not on the socket's thread");
+
+        // A robot that joins before the subscription runs is in the dictionary its state frame is sent with
+        battle.addRobot(new Robot("Late"));
+        runMailbox();
+
+        assertEquals(2, session.binaries().size(), "The dictionary, then the state");
+    }
+
+    private void runMailbox() {
+        while (!mailbox.isEmpty()) {
+            mailbox.remove(0).run();
+        }
+    }
+
+    private int battleMeterCount() {
+        return registry.find("battle.websocket.queue-depth").tag("battleId", battle.getId()).meters().size()
+                + registry.find("battle.websocket.dropped-frames").tag("battleId", battle.getId()).meters().size()
+                + registry.find("battle.websocket.slow-disconnects").tag("battleId", battle.getId()).meters().size();
+    }
+
+    private void completeInFlight() {
+        sessions.forEach(TestSession::completeAll);
+    }
+
+    private Session session(String id) {
+        TestSession session = TestSession.stalled(id);
+        sessions.add(session);
+        return session.session();
+    }
+
+    private CloseReason closeReason(String id) {
+        return sessions.stream().filter(session -> session.session().getId().equals(id)).findFirst().orElseThrow()
+                .closeReason();
+    }
+}
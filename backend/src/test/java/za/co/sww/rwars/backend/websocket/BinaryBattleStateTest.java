@@ -0,0 +1,130 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the binary battle state stream.
+ */
+class BinaryBattleStateTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TestSession session = TestSession.recording("s1");
+    private Battle battle;
+    private Robot first;
+    private BinaryBattleState binary;
+
+    @BeforeEach
+    void setUp() {
+        battle = new Battle("Binary Arena", 20, 20);
+        first = new Robot("First");
+        battle.addRobot(first);
+        binary = new BinaryBattleState(battle.getId(), new FrameEncoder(mapper, registry));
+    }
+
+    @Test
+    void testDictionaryThenStateBySlot() throws Exception {
+        first.setPositionX(7);
+        first.setPositionY(3);
+        binary.subscribe(outbox(), battle);
+        assertEquals(2, session.binaries().size());
+
+        DataInputStream dictionary = frame(0);
+        assertEquals(BinaryBattleState.DICTIONARY, dictionary.readUnsignedByte());
+        assertEquals(1, dictionary.readInt());
+        assertEquals(battle.getId(), readString(dictionary));
+        assertEquals("Binary Arena", readString(dictionary));
+        assertEquals(20, dictionary.readUnsignedShort());
+        assertEquals(20, dictionary.readUnsignedShort());
+        dictionary.readDouble();
+        skipCodes(dictionary, dictionary.readUnsignedByte());
+        skipCodes(dictionary, dictionary.readUnsignedByte());
+        skipCodes(dictionary, dictionary.readUnsignedByte());
+        skipCodes(dictionary, dictionary.readUnsignedByte());
+        skipCodes(dictionary, dictionary.readUnsignedShort());
+        assertEquals(1, dictionary.readUnsignedShort());
+        assertEquals(first.getId(), readString(dictionary));
+        assertEquals("First", readString(dictionary));
+
+        DataInputStream state = frame(1);
+        assertEquals(BinaryBattleState.STATE, state.readUnsignedByte());
+        assertEquals(1, state.readInt());
+        assertEquals(Battle.BattleState.WAITING_ON_ROBOTS.ordinal(), state.readUnsignedByte());
+        assertEquals(0xFFFF, state.readUnsignedShort(), "There is no winner yet");
+        assertEquals(1, state.readUnsignedShort());
+        assertEquals(0, state.readUnsignedShort(), "The robot should be referred to by its slot");
+        assertEquals(7, state.readUnsignedShort());
+        assertEquals(3, state.readUnsignedShort());
+    }
+
+    @Test
+    void testDictionaryIsOnlyResentWhenItChanges() throws Exception {
+        binary.subscribe(outbox(), battle);
+        binary.broadcast(battle);
+        assertEquals(3, session.binaries().size());
+        assertEquals(BinaryBattleState.STATE, frame(2).readUnsignedByte(), "The dictionary did not change");
+
+        Robot second = new Robot("Second");
+        battle.addRobot(second);
+        battle.addRobotAction(second.getId(), second.getName(), "move");
+        binary.broadcast(battle);
+        assertEquals(5, session.binaries().size());
+        DataInputStream dictionary = frame(3);
+        assertEquals(BinaryBattleState.DICTIONARY, dictionary.readUnsignedByte());
+        assertEquals(2, dictionary.readInt());
+        DataInputStream state = frame(4);
+        assertEquals(BinaryBattleState.STATE, state.readUnsignedByte());
+        assertEquals(2, state.readInt(), "The state should refer to the new dictionary");
+    }
+
+    @Test
+    void testBinaryStateIsMuchSmallerThanJson() throws Exception {
+        for (int i = 0; i < 19; i++) {
+            battle.addRobot(new Robot("Robot " + i));
+        }
+        for (Robot robot : battle.getRobots()) {
+            battle.addRobotAction(robot.getId(), robot.getName(), "move");
+            battle.addRobotAction(robot.getId(), robot.getName(), "radar");
+        }
+        binary.subscribe(outbox(), battle);
+
+        int json = mapper.writeValueAsBytes(BattleStateSocket.stateOf(battle)).length;
+        int state = session.binaries().get(1).length;
+        assertTrue(state * 5 <= json, "Binary state of " + state + " bytes against " + json + " bytes of JSON");
+    }
+
+    private DataInputStream frame(int index) {
+        return new DataInputStream(new ByteArrayInputStream(session.binaries().get(index)));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readUnsignedShort();
+        return length == 0xFFFF ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void skipCodes(DataInputStream in, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readString(in);
+        }
+    }
+
+    private SessionOutbox outbox() {
+        SessionOutbox.Stats stats = new SessionOutbox.Stats(new AtomicInteger(), registry.counter("dropped"),
+            registry.counter("disconnected"));
+        return new SessionOutbox(session.session(), battle.getId(), 16, Long.MAX_VALUE, stats);
+    }
+}
@@ -0,0 +1,57 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for encoding broadcast messages and measuring them.
+ */
+class FrameEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FrameEncoder encoder = new FrameEncoder(new ObjectMapper(), registry);
+
+    @Test
+    void testEncodingRecordsOneSampleOfTheSentSize() {
+        String text = encoder.encode("battle-1", "state", Map.of("name", "Ärena ☃ 🤖"));
+
+        assertEquals("{\"name\":\"Ärena ☃ 🤖\"}", text);
+        Timer encodeTime = registry.find("battle.broadcast.encode").tag("kind", "state").timer();
+        DistributionSummary bytes = registry.find("battle.broadcast.bytes").tag("kind", "state").summary();
+        assertEquals(1, encodeTime.count());
+        assertEquals(1, bytes.count());
+        assertEquals((double) text.getBytes(StandardCharsets.UTF_8).length, bytes.totalAmount());
+    }
+
+    @Test
+    void testMetricsAreKeptByKind() {
+        encoder.encode("battle-1", "state", Map.of("a", 1));
+        encoder.encode("battle-1", "delta", Map.of("b", 2));
+        encoder.encode("battle-1", "delta", Map.of("c", 3));
+
+        assertEquals(1, registry.find("battle.broadcast.encode").tag("kind", "state").timer().count());
+        assertEquals(2, registry.find("battle.broadcast.encode").tag("kind", "delta").timer().count());
+    }
+
+    @Test
+    void testMessageThatCannotBeSerializedIsNotRecorded() {
+        assertNull(encoder.encode("battle-1", "state", new Object()));
+        assertNull(registry.find("battle.broadcast.encode").timer());
+    }
+
+    @Test
+    void testUtf8LengthMatchesTheEncodedBytes() {
+        for (String text : new String[] {"", "plain", "café", "€100", "🤖 bot", "ࠀ߿\u007f"}) {
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length, FrameEncoder.utf8Length(text), text);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.journal.JournalEvent;
+import za.co.sww.rwars.backend.journal.JournalRecord;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.replay.BattleReplay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for playing a battle replay to a session.
+ */
+class ReplayViewerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<Task> tasks = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+
+    /**
+     * Scheduler that keeps tasks for the test to run, skipping those cancelled meanwhile.
+     */
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1) {
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            ScheduledFuture<?> future = super.schedule(() -> { }, 1, TimeUnit.DAYS);
+            tasks.add(new Task(command, future));
+            delays.add(unit.toMillis(delay));
+            return future;
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void testMaxSpeedSendsEachFrameOnceThePreviousIsTaken() throws Exception {
+        TestSession session = TestSession.stalled("s1");
+        ReplayViewer viewer = viewer(session, ReplayViewer.Speed.MAX);
+
+        viewer.seek(0);
+        viewer.play();
+        runTasks();
+        assertEquals(1, session.texts().size(), "The first frame has not been taken yet");
+        assertTrue(tasks.isEmpty(), "Nothing should wait on the client by polling");
+
+        for (int frame = 1; frame <= 5; frame++) {
+            session.completeNext();
+            runTasks();
+            assertEquals(frame + 1, session.texts().size());
+            assertEquals(frame * 100L, frame(session, frame).get("positionMillis").asLong());
+        }
+        assertFalse(frame(session, 5).get("playing").asBoolean(), "Playback stops at the end");
+
+        session.completeNext();
+        runTasks();
+        assertEquals(6, session.texts().size());
+    }
+
+    @Test
+    void testTimedSpeedKeepsToItsSchedule() throws Exception {
+        TestSession session = TestSession.recording("s1");
+        ReplayViewer viewer = viewer(session, ReplayViewer.Speed.FAST);
+
+        viewer.seek(0);
+        viewer.play();
+        runTasks();
+
+        List<Long> positions = new ArrayList<>();
+        for (int i = 0; i < session.texts().size(); i++) {
+            positions.add(frame(session, i).get("positionMillis").asLong());
+        }
+        // Sends completing straight away must not move playback on any faster
+        assertEquals(List.of(0L, 100L, 200L, 300L, 400L, 500L), positions);
+        assertTrue(delays.contains(25L), "4x sends a 100ms frame every 25ms");
+    }
+
+    @Test
+    void testPausedAndClosedViewersSendNothingMore() throws Exception {
+        TestSession session = TestSession.recording("s1");
+        ReplayViewer viewer = viewer(session, ReplayViewer.Speed.NORMAL);
+
+        viewer.seek(200);
+        viewer.play();
+        viewer.pause();
+        runTasks();
+        assertEquals(2, session.texts().size());
+        assertEquals(200, frame(session, 1).get("positionMillis").asLong());
+        assertFalse(frame(session, 1).get("playing").asBoolean());
+
+        viewer.close();
+        viewer.play();
+        runTasks();
+        assertEquals(2, session.texts().size());
+    }
+
+    private ReplayViewer viewer(TestSession session, ReplayViewer.Speed speed) {
+        Battle battle = new Battle("Viewer", 10, 10);
+        Robot robot = new Robot("Walker", battle.getId());
+        List<JournalRecord> records = new ArrayList<>();
+        records.add(new JournalRecord(1000, JournalEvent.BattleCreated.of(battle)));
+        records.add(new JournalRecord(1000, JournalEvent.RobotRegistered.of(robot)));
+        for (int x = 1; x <= 5; x++) {
+            records.add(new JournalRecord(1000 + x * 100L, new JournalEvent.BlockStepped(robot.getId(), x, 0, 5 - x)));
+        }
+        SessionOutbox.Stats stats = new SessionOutbox.Stats(new AtomicInteger(), registry.counter("dropped"),
+                registry.counter("disconnected"));
+        SessionOutbox outbox = new SessionOutbox(session.session(), battle.getId(), 4, Long.MAX_VALUE, stats);
+        return new ReplayViewer(outbox, BattleReplay.of(records, 2).cursor(), new FrameEncoder(mapper, registry),
+                scheduler, 100, speed);
+    }
+
+    private JsonNode frame(TestSession session, int index) throws Exception {
+        return mapper.readTree(session.texts().get(index));
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            Task task = tasks.remove(0);
+            if (!task.future().isCancelled()) {
+                task.command().run();
+            }
+        }
+    }
+
+    private record Task(Runnable command, ScheduledFuture<?> future) {
+    }
+}
@@ -0,0 +1,131 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.RobotCommand;
+import za.co.sww.rwars.backend.model.RobotCommandResult;
+import za.co.sww.rwars.backend.model.RobotStatus;
+import za.co.sww.rwars.backend.service.BattleService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for the robot channel endpoint, run against a battle service that answers straight away.
+ */
+class RobotChannelSocketTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Robot robot = new Robot("Channel Bot", "battle-1");
+    private final List<List<RobotCommand>> commands = new ArrayList<>();
+    private RuntimeException failure;
+
+    private final BattleService battleService = new BattleService() {
+        @Override
+        public CompletableFuture<Void> executeCommandsAsync(String battleId, String robotId,
+                                                            List<RobotCommand> batch,
+                                                            Consumer<List<RobotCommandResult>> onResults) {
+            commands.add(batch);
+            if (failure != null) {
+                return CompletableFuture.failedFuture(failure);
+            }
+            List<RobotCommandResult> results = new ArrayList<>();
+            for (RobotCommand command : batch) {
+                RobotCommandResult result = new RobotCommandResult(command.getType());
+                result.setStatus(new RobotStatus(robot));
+                results.add(result);
+            }
+            onResults.accept(results);
+            return CompletableFuture.completedFuture(null);
+        }
+    };
+
+    private final RobotChannelSocket socket = new RobotChannelSocket(battleService, mapper, new SimpleMeterRegistry(),
+            16, 10);
+    private final TestSession channelSession = TestSession.recording("session-1");
+    private final Session session = channelSession.session();
+
+    @Test
+    void testRobotIsSentItsStatusOnConnectAndThenItsChanges() throws Exception {
+        socket.onOpen(session, "battle-1", robot.getId());
+        robot.setHitPoints(70);
+        socket.sendRobotStatus(robot);
+        socket.onMessage("{\"id\":5,\"type\":\"STATUS\"}", session, "battle-1", robot.getId());
+
+        List<JsonNode> frames = frames();
+        assertEquals(List.of("result", "status", "result"),
+                frames.stream().map(frame -> frame.get("kind").asText()).toList());
+        assertEquals(List.of(1L, 2L, 3L), frames.stream().map(frame -> frame.get("seq").asLong()).toList());
+        assertEquals(30, frames.get(1).get("damage").asInt());
+        assertEquals(5, frames.get(2).get("id").asLong());
+        assertEquals(RobotCommand.Type.STATUS, commands.get(0).get(0).getType());
+    }
+
+    @Test
+    void testBatchFrameRunsAllItsCommands() throws Exception {
+        socket.onOpen(session, "battle-1", robot.getId());
+        socket.onMessage("{\"id\":9,\"commands\":[{\"type\":\"STATUS\"},{\"type\":\"RADAR\",\"range\":3}]}", session,
+                "battle-1", robot.getId());
+
+        assertEquals(2, commands.get(1).size());
+        assertEquals(2, frames().get(1).get("results").size());
+    }
+
+    @Test
+    void testFailedCommandsGetTheStatusCodeOfTheRestEndpoint() throws Exception {
+        socket.onOpen(session, "battle-1", robot.getId());
+        socket.onMessage("{not json", session, "battle-1", robot.getId());
+        failure = new IllegalStateException("Battle is not in progress");
+        socket.onMessage("{\"id\":2,\"type\":\"STATUS\"}", session, "battle-1", robot.getId());
+
+        List<JsonNode> frames = frames();
+        assertEquals("error", frames.get(1).get("kind").asText());
+        assertEquals(400, frames.get(1).get("status").asInt());
+        assertEquals(409, frames.get(2).get("status").asInt());
+        assertEquals(2, frames.get(2).get("id").asLong());
+        assertEquals(3, frames.get(2).get("seq").asLong());
+        assertNull(channelSession.closeReason());
+    }
+
+    @Test
+    void testUnknownRobotIsSentAnErrorAndDisconnected() throws Exception {
+        failure = new IllegalArgumentException("Invalid battle ID or robot ID");
+        socket.onOpen(session, "battle-1", robot.getId());
+
+        assertEquals(400, frames().get(0).get("status").asInt());
+        assertEquals(CloseReason.CloseCodes.VIOLATED_POLICY, channelSession.closeReason().getCloseCode());
+
+        // The channel is gone, so status changes do not reach the session any more
+        socket.sendRobotStatus(robot);
+        assertEquals(1, channelSession.texts().size());
+    }
+
+    @Test
+    void testClosedChannelIsSentNothingMore() {
+        socket.onOpen(session, "battle-1", robot.getId());
+        socket.onClose(session, "battle-1", robot.getId());
+
+        socket.sendRobotStatus(robot);
+        socket.onMessage("{\"type\":\"STATUS\"}", session, "battle-1", robot.getId());
+        assertEquals(1, channelSession.texts().size());
+        assertEquals(1, commands.size());
+    }
+
+    private List<JsonNode> frames() throws Exception {
+        List<JsonNode> frames = new ArrayList<>();
+        for (String frame : channelSession.texts()) {
+            frames.add(mapper.readTree(frame));
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,104 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.websocket.CloseReason;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.model.Robot;
+import za.co.sww.rwars.backend.model.RobotCommand;
+import za.co.sww.rwars.backend.model.RobotCommandResult;
+import za.co.sww.rwars.backend.model.RobotStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for the ordered outbound frames of a robot channel.
+ */
+class RobotChannelTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SessionOutbox.Stats stats = new SessionOutbox.Stats(new AtomicInteger(),
+        registry.counter("dropped"), registry.counter("disconnected"));
+    private final TestSession session = TestSession.stalled("session-1");
+    private final Robot robot = new Robot("Channel Bot", "battle-1");
+
+    @Test
+    void testFramesAreNumberedAndSentInTheOrderTheyWereQueued() throws Exception {
+        RobotChannel channel = channel(8);
+        robot.setHitPoints(100);
+        channel.sendResults(7L, List.of(statusResult()));
+        robot.setHitPoints(80);
+        channel.sendStatus(new RobotStatus(robot));
+        channel.sendError(8L, 409, "Battle is not in progress");
+
+        // One frame in flight at a time, the next only once the previous one was sent
+        assertEquals(1, session.texts().size());
+        session.completeAll();
+
+        List<JsonNode> frames = frames();
+        assertEquals(List.of("result", "status", "error"), frames.stream().map(f -> f.get("kind").asText()).toList());
+        assertEquals(List.of(1L, 2L, 3L), frames.stream().map(f -> f.get("seq").asLong()).toList());
+        assertEquals(7, frames.get(0).get("id").asLong());
+        assertEquals(20, frames.get(1).get("damage").asInt(), "Damage is counted from the last status the robot saw");
+        assertEquals(409, frames.get(2).get("status").asInt());
+        assertEquals(8, frames.get(2).get("id").asLong());
+    }
+
+    @Test
+    void testCloseWaitsForTheQueuedFrames() {
+        RobotChannel channel = channel(8);
+        channel.sendError(null, 400, "Invalid battle ID or robot ID");
+        channel.sendError(null, 400, "Second");
+
+        channel.closeAfterSending(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Invalid"));
+        assertNull(session.closeReason(), "Queued frames should go out before the close");
+
+        session.completeAll();
+        assertEquals(2, session.texts().size());
+        assertEquals(CloseReason.CloseCodes.VIOLATED_POLICY, session.closeReason().getCloseCode());
+    }
+
+    @Test
+    void testRobotThatFallsBehindIsDisconnectedRatherThanSentAGap() {
+        RobotChannel channel = channel(2);
+        for (int i = 0; i < 4; i++) {
+            robot.setHitPoints(100 - i);
+            channel.sendStatus(new RobotStatus(robot));
+        }
+
+        // One frame in flight and two waiting fill the outbox, so the fourth cannot be queued
+        assertEquals(CloseReason.CloseCodes.TRY_AGAIN_LATER, session.closeReason().getCloseCode());
+        assertEquals(1.0, stats.disconnected().count());
+        assertEquals(0.0, stats.dropped().count(), "Robot frames are never dropped");
+        assertEquals(0, stats.depth().get());
+
+        session.completeAll();
+        assertEquals(1, session.texts().size(), "Nothing is sent after the disconnect");
+    }
+
+    private RobotChannel channel(int capacity) {
+        SessionOutbox outbox = new SessionOutbox(session.session(), "battle-1", capacity, Long.MAX_VALUE, stats);
+        return new RobotChannel("battle-1", robot.getId(), outbox, mapper);
+    }
+
+    private RobotCommandResult statusResult() {
+        RobotCommandResult result = new RobotCommandResult(RobotCommand.Type.STATUS);
+        result.setStatus(new RobotStatus(robot));
+        return result;
+    }
+
+    private List<JsonNode> frames() throws Exception {
+        List<JsonNode> frames = new ArrayList<>();
+        for (String frame : session.texts()) {
+            frames.add(mapper.readTree(frame));
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,67 @@
+package za.co.sww.rwars.backend.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the bounded outbound queue of spectator sessions.
+ */
+class SessionOutboxTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SessionOutbox.Stats stats = new SessionOutbox.Stats(new AtomicInteger(),
+        registry.counter("dropped"), registry.counter("disconnected"));
+    private final TestSession session = TestSession.stalled("session-1");
+
+    @Test
+    void testNewerStateReplacesTheWaitingOne() {
+        SessionOutbox outbox = new SessionOutbox(session.session(), "battle-1", 4, Long.MAX_VALUE, stats);
+        outbox.offer("state-1", SessionOutbox.FrameType.STATE);
+        outbox.offer("state-2", SessionOutbox.FrameType.STATE);
+        outbox.offer("laser", SessionOutbox.FrameType.EVENT);
+        outbox.offer("state-3", SessionOutbox.FrameType.STATE);
+        assertEquals(List.of("state-1"), session.texts(), "Only one frame should be in flight");
+        assertEquals(2, stats.depth().get());
+        assertEquals(1.0, stats.dropped().count());
+
+        session.completeNext();
+        session.completeNext();
+        assertEquals(List.of("state-1", "laser", "state-3"), session.texts());
+        assertEquals(0, stats.depth().get());
+    }
+
+    @Test
+    void testFullQueueRefusesStreamFramesAndDropsEvents() {
+        SessionOutbox outbox = new SessionOutbox(session.session(), "battle-1", 2, Long.MAX_VALUE, stats);
+        assertTrue(outbox.offer("delta-1", SessionOutbox.FrameType.STREAM));
+        assertTrue(outbox.offer("delta-2", SessionOutbox.FrameType.STREAM));
+        assertTrue(outbox.offer("delta-3", SessionOutbox.FrameType.STREAM));
+        assertTrue(outbox.offer("laser", SessionOutbox.FrameType.EVENT), "An event is dropped, not refused");
+        assertEquals(1.0, stats.dropped().count());
+        assertFalse(outbox.offer("delta-4", SessionOutbox.FrameType.STREAM), "A full queue refuses stream frames");
+
+        outbox.replaceAll("snapshot");
+        session.completeNext();
+        assertEquals(List.of("delta-1", "snapshot"), session.texts());
+        assertEquals(3.0, stats.dropped().count());
+    }
+
+    @Test
+    void testStuckConsumerIsDisconnected() throws Exception {
+        SessionOutbox outbox = new SessionOutbox(session.session(), "battle-1", 4, 1_000_000L, stats);
+        outbox.offer("state-1", SessionOutbox.FrameType.STATE);
+        Thread.sleep(5);
+        outbox.offer("state-2", SessionOutbox.FrameType.STATE);
+
+        assertTrue(session.isClosed(), "A consumer stuck on one frame should be disconnected");
+        assertEquals(1.0, stats.disconnected().count());
+        assertEquals(0, stats.depth().get());
+    }
+}
@@ -0,0 +1,110 @@
+package za.co.sww.rwars.backend.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import za.co.sww.rwars.backend.config.JacksonConfig;
+import za.co.sww.rwars.backend.model.Battle;
+import za.co.sww.rwars.backend.model.Wall;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the static arena message and its content hash.
+ */
+class StaticArenaTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final FrameEncoder encoder = new FrameEncoder(mapper, new SimpleMeterRegistry());
+
+    @Test
+    void testSameLayoutHasTheSameHash() throws Exception {
+        Battle first = battleWithWall(3);
+        Battle second = battleWithWall(3);
+
+        StaticArena arena = StaticArena.of(first, encoder);
+        assertEquals(arena.hash(), StaticArena.of(second, encoder).hash());
+        assertNotEquals(arena.hash(), StaticArena.of(battleWithWall(4), encoder).hash());
+
+        JsonNode message = mapper.readTree(arena.json());
+        assertEquals("arena", message.get("type").asText());
+        assertEquals(arena.hash(), message.get("hash").asText());
+        assertEquals(30, message.get("arenaWidth").asInt());
+        assertEquals(1, message.get("walls").size());
+    }
+
+    @Test
+    void testMatchesUntilTheWallsAreReplaced() {
+        Battle battle = battleWithWall(3);
+        StaticArena arena = StaticArena.of(battle, encoder);
+        assertTrue(arena.matches(battle));
+
+        Wall wall = new Wall(Wall.WallType.SQUARE);
+        wall.addRectangle(3, 3, 4, 4);
+        battle.getWalls().set(0, wall);
+        assertFalse(arena.matches(battle), "A replaced wall should count as a new arena");
+
+        StaticArena replaced = StaticArena.of(battle, encoder);
+        battle.addWall(new Wall(Wall.WallType.LONG));
+        assertFalse(replaced.matches(battle), "An added wall should count as a new arena");
+    }
+
+    @Test
+    void testMatchesUntilTheWallListIsReplaced() {
+        Battle battle = battleWithWall(3);
+        StaticArena arena = StaticArena.of(battle, encoder);
+
+        // A new wall list counts on from the one it replaces, so one more wall cannot bring it back to the same version
+        battle.setWalls(List.of());
+        battle.addWall(new Wall(Wall.WallType.LONG));
+        assertFalse(arena.matches(battle), "Walls set anew should count as a new arena");
+    }
+
+    @Test
+    void testPlacedWallCannotChangeBehindTheArena() {
+        Battle battle = battleWithWall(3);
+        StaticArena arena = StaticArena.of(battle, encoder);
+        Wall placed = battle.getWalls().get(0);
+
+        assertThrows(IllegalStateException.class, () -> placed.addRectangle(10, 10, 1, 1));
+        assertThrows(IllegalStateException.class, () -> placed.setType(Wall.WallType.LONG));
+        assertThrows(UnsupportedOperationException.class, () -> placed.getRectangles().clear());
+        // Positions are made from the rectangles on every read, so changing one changes nothing
+        placed.getPositions().get(0).setX(20);
+        assertEquals(3, placed.getPositions().get(0).getX());
+        assertTrue(arena.matches(battle));
+        assertEquals(arena.hash(), StaticArena.of(battle, encoder).hash(), "The wall should be as it was encoded");
+    }
+
+    @Test
+    void testCompactWallArenaHasTheSameHash() throws Exception {
+        FrameEncoder compactWallEncoder = new FrameEncoder(JacksonConfig.withCompactWalls(mapper),
+                new SimpleMeterRegistry());
+        StaticArena arena = StaticArena.of(battleWithWall(3), encoder);
+
+        String compact = arena.compactWallJson(compactWallEncoder);
+        assertSame(compact, arena.compactWallJson(compactWallEncoder), "The compact form should be encoded once");
+        JsonNode message = mapper.readTree(compact);
+        assertEquals(arena.hash(), message.get("hash").asText());
+        JsonNode wall = message.get("walls").get(0);
+        assertEquals(1, wall.get("rectangles").size());
+        assertFalse(wall.has("positions"));
+        assertTrue(mapper.readTree(arena.json()).get("walls").get(0).has("positions"));
+    }
+
+    private static Battle battleWithWall(int x) {
+        Battle battle = new Battle("Arena", 30, 20);
+        Wall wall = new Wall(Wall.WallType.SQUARE);
+        wall.addRectangle(x, 3, 4, 4);
+        battle.addWall(wall);
+        return battle;
+    }
+}
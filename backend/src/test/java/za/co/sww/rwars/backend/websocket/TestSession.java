@@ -0,0 +1,171 @@
+package za.co.sww.rwars.backend.websocket;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fake WebSocket session for tests, which records the frames sent to it and how it was closed.
+ *
+ * A recording session completes every send straight away. A stalled session keeps its sends in flight until the
+ * test completes them, to play a client that does not keep up.
+ */
+final class TestSession {
+
+    private final boolean stalled;
+    private final List<String> texts;
+    private final List<byte[]> binaries = new ArrayList<>();
+    private final List<SendHandler> inFlight = new ArrayList<>();
+    private final Session session;
+    private Map<String, List<String>> parameters = Map.of();
+    private String subprotocol;
+    private volatile boolean closed;
+    private volatile CloseReason closeReason;
+
+    private TestSession(String id, boolean stalled, List<String> texts) {
+        this.stalled = stalled;
+        this.texts = texts;
+        RemoteEndpoint.Async remote = (RemoteEndpoint.Async) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {RemoteEndpoint.Async.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "sendText" -> sent(() -> texts.add((String) args[0]), (SendHandler) args[1]);
+                    case "sendBinary" -> sent(() -> binaries.add(bytes((ByteBuffer) args[0])), (SendHandler) args[1]);
+                    default -> {
+                    }
+                }
+                return null;
+            });
+        this.session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Session.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getId" -> id;
+                case "getAsyncRemote" -> remote;
+                case "getRequestParameterMap" -> parameters;
+                case "getNegotiatedSubprotocol" -> subprotocol;
+                case "isOpen" -> !closed;
+                case "close" -> {
+                    closeReason = args == null ? null : (CloseReason) args[0];
+                    closed = true;
+                    yield null;
+                }
+                case "toString" -> "TestSession[" + id + "]";
+                default -> null;
+            });
+    }
+
+    /**
+     * Creates a session whose sends complete straight away.
+     *
+     * @param id The session ID
+     * @return The session
+     */
+    static TestSession recording(String id) {
+        return recording(id, new ArrayList<>());
+    }
+
+    /**
+     * Creates a session whose sends complete straight away and whose text frames go to a list that other sessions
+     * may share, so that a test can follow the order frames were sent in across sessions.
+     *
+     * @param id The session ID
+     * @param texts The list text frames are added to
+     * @return The session
+     */
+    static TestSession recording(String id, List<String> texts) {
+        return new TestSession(id, false, texts);
+    }
+
+    /**
+     * Creates a session whose sends only complete when the test says so.
+     *
+     * @param id The session ID
+     * @return The session
+     */
+    static TestSession stalled(String id) {
+        return new TestSession(id, true, new ArrayList<>());
+    }
+
+    /**
+     * Sets the request parameters the session was opened with.
+     *
+     * @param parameters The request parameters
+     * @return This session
+     */
+    TestSession withParameters(Map<String, List<String>> parameters) {
+        this.parameters = parameters;
+        return this;
+    }
+
+    /**
+     * Sets the subprotocol negotiated in the handshake.
+     *
+     * @param subprotocol The subprotocol
+     * @return This session
+     */
+    TestSession withSubprotocol(String subprotocol) {
+        this.subprotocol = subprotocol;
+        return this;
+    }
+
+    Session session() {
+        return session;
+    }
+
+    List<String> texts() {
+        return texts;
+    }
+
+    List<byte[]> binaries() {
+        return binaries;
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    CloseReason closeReason() {
+        return closeReason;
+    }
+
+    /**
+     * Completes the oldest send still in flight.
+     */
+    void completeNext() {
+        inFlight.remove(0).onResult(new SendResult());
+    }
+
+    /**
+     * Completes every send in flight, including those started by completing earlier ones.
+     */
+    void completeAll() {
+        while (!inFlight.isEmpty()) {
+            completeNext();
+        }
+    }
+
+    private void sent(Runnable record, SendHandler handler) {
+        record.run();
+        if (stalled) {
+            inFlight.add(handler);
+        } else {
+            handler.onResult(new SendResult());
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+}